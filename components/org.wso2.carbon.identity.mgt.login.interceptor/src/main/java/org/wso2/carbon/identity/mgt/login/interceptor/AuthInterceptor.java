@@ -28,6 +28,7 @@ import org.wso2.carbon.identity.mgt.AuthenticationContext;
 import org.wso2.carbon.identity.mgt.RealmService;
 import org.wso2.carbon.identity.mgt.claim.Claim;
 import org.wso2.carbon.identity.mgt.exception.AuthenticationFailure;
+import org.wso2.carbon.identity.mgt.impl.cache.AuthenticationResultCache;
 import org.wso2.carbon.identity.mgt.impl.util.IdentityMgtConstants;
 import org.wso2.carbon.security.caas.api.util.CarbonSecurityConstants;
 import org.wso2.msf4j.Interceptor;
@@ -44,7 +45,11 @@ import javax.security.auth.callback.PasswordCallback;
 import javax.ws.rs.HttpMethod;
 
 /**
- * Authentication and Authorization interceptor for Carbon Admin Services
+ * Authentication and Authorization interceptor for Carbon Admin Services.
+ * <p>
+ * Successful Basic authentications are cached for a short time when the authenticationCache section of
+ * store-config.yaml is enabled. The cached authentications of a user are evicted when the credentials of the user are
+ * updated, the user is deleted, or an authentication with the same username fails.
  */
 @Component(
         name = "org.wso2.carbon.security.interceptor.AuthInterceptor",
@@ -57,6 +62,8 @@ public class AuthInterceptor implements Interceptor {
 
     private static final Logger log = LoggerFactory.getLogger(AuthInterceptor.class);
 
+    private volatile AuthenticationResultCache authenticationResultCache;
+
     @Override
     public boolean preCall(Request request, Response response, ServiceMethodInfo serviceMethodInfo) throws Exception {
 
@@ -75,6 +82,21 @@ public class AuthInterceptor implements Interceptor {
 
                 if (authorizationHeader.startsWith(CarbonSecurityConstants.HTTP_AUTHORIZATION_PREFIX_BASIC)) {
 
+                    AuthenticationResultCache authenticationResultCache = this.authenticationResultCache;
+                    String cacheKey = null;
+                    long cacheGeneration = 0;
+                    if (authenticationResultCache != null) {
+                        cacheKey = authenticationResultCache.getKey(authorizationHeader);
+                        String uniqueUserId = authenticationResultCache.get(cacheKey);
+                        if (uniqueUserId != null) {
+                            request.setProperty("authzUser", uniqueUserId);
+                            return true;
+                        }
+                        // Obtained before authenticating, so that the result is not cached if the credentials are
+                        // updated meanwhile.
+                        cacheGeneration = authenticationResultCache.getGeneration();
+                    }
+
                     String credentials = authorizationHeader.split("\\s+")[1];
                     byte[] decodedByte = credentials.getBytes(Charset.forName(StandardCharsets.UTF_8.name()));
                     String authDecoded = new String(Base64.getDecoder().decode(decodedByte),
@@ -99,9 +121,17 @@ public class AuthInterceptor implements Interceptor {
                         try {
                             AuthenticationContext authenticateContext = realmService.getIdentityStore().authenticate
                                     (claim, callbacks, domain);
-                            request.setProperty("authzUser", authenticateContext.getUser().getUniqueUserId());
+                            String uniqueUserId = authenticateContext.getUser().getUniqueUserId();
+                            if (authenticationResultCache != null) {
+                                authenticationResultCache.put(cacheKey, authParts[0], uniqueUserId,
+                                        cacheGeneration);
+                            }
+                            request.setProperty("authzUser", uniqueUserId);
                             return true;
                         } catch (AuthenticationFailure authenticationFailure) {
+                            if (authenticationResultCache != null) {
+                                authenticationResultCache.removePrincipal(authParts[0]);
+                            }
                             sendUnauthorized(response);
                             return false;
                         }
@@ -140,4 +170,23 @@ public class AuthInterceptor implements Interceptor {
     protected void unregisterRealmService(RealmService realmService) {
     }
 
+    @Reference(
+            name = "org.wso2.carbon.security.interceptor.AuthenticationResultCache",
+            service = AuthenticationResultCache.class,
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC,
+            unbind = "unregisterAuthenticationResultCache"
+    )
+    protected void registerAuthenticationResultCache(AuthenticationResultCache authenticationResultCache) {
+
+        this.authenticationResultCache = authenticationResultCache;
+    }
+
+    protected void unregisterAuthenticationResultCache(AuthenticationResultCache authenticationResultCache) {
+
+        if (this.authenticationResultCache == authenticationResultCache) {
+            this.authenticationResultCache = null;
+        }
+    }
+
 }
@@ -0,0 +1,545 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt;
+
+import org.wso2.carbon.identity.mgt.bean.GroupBean;
+import org.wso2.carbon.identity.mgt.bean.UserBean;
+import org.wso2.carbon.identity.mgt.claim.Claim;
+import org.wso2.carbon.identity.mgt.claim.MetaClaim;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.security.auth.callback.Callback;
+
+/**
+ * Non blocking view of the {@link IdentityStore}.
+ * <p>
+ * Every operation runs on the executor of the domain it targets and returns a future, so that independent lookups
+ * can be composed without blocking the calling thread. A future fails with the exception the corresponding
+ * {@link IdentityStore} operation would have thrown.
+ * </p>
+ *
+ * @since 1.0.0
+ */
+public interface AsyncIdentityStore {
+
+    /**
+     * Retrieve a user by unique user Id.
+     *
+     * @param uniqueUserId Unique user Id
+     * @return Future of the user object
+     */
+    CompletableFuture<User> getUser(String uniqueUserId);
+
+    /**
+     * Retrieve a user by a claim from the primary domain.
+     *
+     * @param claim Unique claim
+     * @return Future of the user object
+     */
+    CompletableFuture<User> getUser(Claim claim);
+
+    /**
+     * Retrieve a user by a claim from a specific domain.
+     *
+     * @param claim      Unique claim
+     * @param domainName Domain name
+     * @return Future of the user object
+     */
+    CompletableFuture<User> getUser(Claim claim, String domainName);
+
+    /**
+     * List set of users selected from the given range from the primary domain.
+     *
+     * @param offset Start position
+     * @param length Number of users to retrieve
+     * @return Future of the list of users within the given range
+     */
+    CompletableFuture<List<User>> listUsers(int offset, int length);
+
+    /**
+     * List a set of users selected from a specific domain for a given range
+     *
+     * @param offset     Start position
+     * @param length     Number of users to retrieve
+     * @param domainName The domain name to retrieve users from
+     * @return Future of the list of users within given range selected from the given domain
+     */
+    CompletableFuture<List<User>> listUsers(int offset, int length, String domainName);
+
+    /**
+     * List a set of users selected from the given range of the users of all domains.
+     *
+     * @param offset Start position
+     * @param length Number of users to retrieve
+     * @return Future of the list of users within the given range
+     */
+    CompletableFuture<List<User>> listUsersOfAllDomains(int offset, int length);
+
+    /**
+     * List a page of users from the primary domain, starting after the given continuation token. Unlike the offset
+     * based listing, the cost of a page does not grow with its position.
+     *
+     * @param continuationToken Token of the previous page or null for the first page
+     * @param length            Number of users to retrieve
+     * @return Future of the page of users with the token of the next page
+     */
+    CompletableFuture<Page<User>> listUsers(String continuationToken, int length);
+
+    /**
+     * List a page of users from a specific domain, starting after the given continuation token.
+     *
+     * @param continuationToken Token of the previous page or null for the first page
+     * @param length            Number of users to retrieve
+     * @param domainName        The domain name to retrieve users from
+     * @return Future of the page of users with the token of the next page
+     */
+    CompletableFuture<Page<User>> listUsers(String continuationToken, int length, String domainName);
+
+    /**
+     * List a set of users that matches a given claim.
+     *
+     * @param claim  Populated claim
+     * @param offset Start position
+     * @param length Number of users to retrieve
+     * @return Future of the list of users
+     */
+    CompletableFuture<List<User>> listUsers(Claim claim, int offset, int length);
+
+    /**
+     * List a set of users that matches a given claim in a specified range.
+     *
+     * @param claim      Populated claim
+     * @param offset     Start position
+     * @param length     Number of Users to retrieve
+     * @param domainName The domain to retrieve users from
+     * @return Future of the list of users
+     */
+    CompletableFuture<List<User>> listUsers(Claim claim, int offset, int length, String domainName);
+
+    /**
+     * List a set of users that matches a given claim in a specific domain.
+     *
+     * @param metaClaim     Meta claim
+     * @param filterPattern filter pattern to search user
+     * @param offset        start index of the user
+     * @param length        number of users to retrieve
+     * @return Future of the list of users
+     */
+    CompletableFuture<List<User>> listUsers(MetaClaim metaClaim, String filterPattern, int offset, int length);
+
+    /**
+     * List a set of users that matches a given claim in a specified range in a specific domain.
+     *
+     * @param metaClaim     Meta claim
+     * @param filterPattern filter pattern to search user
+     * @param offset        start index of the user
+     * @param length        number of users to retrieve
+     * @param domainName    domain of the user
+     * @return Future of the list of users
+     */
+    CompletableFuture<List<User>> listUsers(MetaClaim metaClaim, String filterPattern, int offset, int length,
+            String domainName);
+
+    /**
+     * Retrieve group from group Id.
+     *
+     * @param uniqueGroupId The Id of the group
+     * @return Future of the group
+     */
+    CompletableFuture<Group> getGroup(String uniqueGroupId);
+
+    /**
+     * Get group that matches a claim.
+     *
+     * @param claim Populated claim
+     * @return Future of the group
+     */
+    CompletableFuture<Group> getGroup(Claim claim);
+
+    /**
+     * Get group that matches a claim from a specific domain.
+     *
+     * @param claim      Populated claim
+     * @param domainName The domain to retrieve groups from
+     * @return Future of the group
+     */
+    CompletableFuture<Group> getGroup(Claim claim, String domainName);
+
+    /**
+     * List groups from a given range.
+     *
+     * @param offset Start position
+     * @param length Number of groups to retrieve
+     * @return Future of the list of groups within given range
+     */
+    CompletableFuture<List<Group>> listGroups(int offset, int length);
+
+    /**
+     * List groups from a given range for a given domain.
+     *
+     * @param offset     Start position
+     * @param length     Number of groups to retrieve
+     * @param domainName The domain to retrieve groups from
+     * @return Future of the list of groups within given range in the given domain
+     */
+    CompletableFuture<List<Group>> listGroups(int offset, int length, String domainName);
+
+    /**
+     * List groups from a given range of the groups of all domains.
+     *
+     * @param offset Start position
+     * @param length Number of groups to retrieve
+     * @return Future of the list of groups within given range
+     */
+    CompletableFuture<List<Group>> listGroupsOfAllDomains(int offset, int length);
+
+    /**
+     * List a page of groups from the primary domain, starting after the given continuation token.
+     *
+     * @param continuationToken Token of the previous page or null for the first page
+     * @param length            Number of groups to retrieve
+     * @return Future of the page of groups with the token of the next page
+     */
+    CompletableFuture<Page<Group>> listGroups(String continuationToken, int length);
+
+    /**
+     * List a page of groups from a specific domain, starting after the given continuation token.
+     *
+     * @param continuationToken Token of the previous page or null for the first page
+     * @param length            Number of groups to retrieve
+     * @param domainName        The domain to retrieve groups from
+     * @return Future of the page of groups with the token of the next page
+     */
+    CompletableFuture<Page<Group>> listGroups(String continuationToken, int length, String domainName);
+
+    /**
+     * List groups that matches a given claim in a given range.
+     *
+     * @param claim  Populated claim
+     * @param offset Start position
+     * @param length Number of groups to retrieve
+     * @return Future of the list of groups that matches the given claim in the given range
+     */
+    CompletableFuture<List<Group>> listGroups(Claim claim, int offset, int length);
+
+    /**
+     * List groups that matches a given claim in a given range for a specific domain.
+     *
+     * @param claim      Populated claim
+     * @param offset     Start position
+     * @param length     Number of groups to retrieve
+     * @param domainName The domain to retrieve groups from
+     * @return Future of the list of groups that matches the given claim in the given range in the given domain
+     */
+    CompletableFuture<List<Group>> listGroups(Claim claim, int offset, int length, String domainName);
+
+    /**
+     * List groups that matches a given claim in a given range.
+     *
+     * @param metaClaim     Meta claim
+     * @param filterPattern filter pattern to search
+     * @param offset        start index of the group
+     * @param length        number of users to retrieve
+     * @return Future of the list of groups
+     */
+    CompletableFuture<List<Group>> listGroups(MetaClaim metaClaim, String filterPattern, int offset, int length);
+
+    /**
+     * List groups that matches a given claim in a given range for a specific domain.
+     *
+     * @param metaClaim     Meta claim
+     * @param filterPattern filter pattern to search
+     * @param offset        start index of the group
+     * @param length        number of users to retrieve
+     * @param domainName    domain of group
+     * @return Future of the list of groups
+     */
+    CompletableFuture<List<Group>> listGroups(MetaClaim metaClaim, String filterPattern, int offset, int length,
+            String domainName);
+
+    /**
+     * Get list of groups a user belongs to.
+     *
+     * @param uniqueUserId The Id of the user
+     * @return Future of the list of groups the user is in
+     */
+    CompletableFuture<List<Group>> getGroupsOfUser(String uniqueUserId);
+
+    /**
+     * Get list of users in a given group.
+     *
+     * @param uniqueGroupId The group to find users of
+     * @return Future of the list of users contained in the group
+     */
+    CompletableFuture<List<User>> getUsersOfGroup(String uniqueGroupId);
+
+    /**
+     * Check if a user belongs to a given group.
+     *
+     * @param uniqueUserId  The user Id
+     * @param uniqueGroupId The group Id
+     * @return Future of the true if user belongs to the given group
+     */
+    CompletableFuture<Boolean> isUserInGroup(String uniqueUserId, String uniqueGroupId);
+
+    /**
+     * Get all claims of a user.
+     *
+     * @param uniqueUserId The user Id.
+     */
+    CompletableFuture<List<Claim>> getClaimsOfUser(String uniqueUserId);
+
+    /**
+     * Get all claims of a user for given URIs.
+     *
+     * @param uniqueUserId The user to retrieve claims for
+     * @param metaClaims   List of meta claims to retrieve claims for
+     * @return Future of the list of claims
+     */
+    CompletableFuture<List<Claim>> getClaimsOfUser(String uniqueUserId, List<MetaClaim> metaClaims);
+
+    /**
+     * Get all claims of many users at once.
+     *
+     * @param uniqueUserIds The users to retrieve claims for
+     * @return Future of the map of unique user ids to their claims in the requested order. Users which do not exist
+     *         are omitted
+     */
+    CompletableFuture<Map<String, List<Claim>>> getClaimsOfUsers(List<String> uniqueUserIds);
+
+    /**
+     * Get the claims of many users at once for given URIs.
+     *
+     * @param uniqueUserIds The users to retrieve claims for
+     * @param metaClaims    List of meta claims to retrieve claims for
+     * @return Future of the map of unique user ids to their claims in the requested order. Users which do not exist
+     *         are omitted
+     */
+    CompletableFuture<Map<String, List<Claim>>> getClaimsOfUsers(List<String> uniqueUserIds, List<MetaClaim> metaClaims
+            );
+
+    /**
+     * Get all claims of a group.
+     *
+     * @param uniqueGroupId The group Id.
+     */
+    CompletableFuture<List<Claim>> getClaimsOfGroup(String uniqueGroupId);
+
+    /**
+     * Get all claims of a group for given URIs.
+     *
+     * @param uniqueGroupId The group to retrieve claims for
+     * @param metaClaims    List of meta claims to retrieve claims for
+     * @return Future of the list of claims
+     */
+    CompletableFuture<List<Claim>> getClaimsOfGroup(String uniqueGroupId, List<MetaClaim> metaClaims);
+
+    /**
+     * Add new user to the default domain.
+     *
+     * @param user User bean.
+     * @return Future of the created user
+     */
+    CompletableFuture<User> addUser(UserBean user);
+
+    /**
+     * Add new user to a specific domain.
+     *
+     * @param user       User bean.
+     * @param domainName User domain.
+     * @return Future of the created user
+     */
+    CompletableFuture<User> addUser(UserBean user, String domainName);
+
+    /**
+     * Add new users to the default domain.
+     *
+     * @param users User models.
+     * @return Future of the created users
+     */
+    CompletableFuture<List<User>> addUsers(List<UserBean> users);
+
+    /**
+     * Add new users to a specific domain.
+     *
+     * @param users      User models.
+     * @param domainName User domain.
+     * @return Future of the created users
+     */
+    CompletableFuture<List<User>> addUsers(List<UserBean> users, String domainName);
+
+    /**
+     * Update user claims by user id.
+     *
+     * @param uniqueUserId User unique id.
+     * @param claims       User claims.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> updateUserClaims(String uniqueUserId, List<Claim> claims);
+
+    /**
+     * Update selected user claims by user id.
+     *
+     * @param uniqueUserId   User unique id.
+     * @param claimsToAdd    user claims to update.
+     * @param claimsToRemove user claims to remove.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> updateUserClaims(String uniqueUserId, List<Claim> claimsToAdd, List<Claim> claimsToRemove);
+
+    /**
+     * Update user credentials by user id.
+     *
+     * @param uniqueUserId User unique id.
+     * @param credentials  Credentials.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> updateUserCredentials(String uniqueUserId, List<Callback> credentials);
+
+    /**
+     * Update user credentials.
+     *
+     * @param uniqueUserId        User unique id.
+     * @param credentialsToAdd    Credentials to add.
+     * @param credentialsToRemove Credentials to remove.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> updateUserCredentials(String uniqueUserId, List<Callback> credentialsToAdd,
+            List<Callback> credentialsToRemove);
+
+    /**
+     * Delete a user by user id.
+     *
+     * @param uniqueUserId User unique id.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> deleteUser(String uniqueUserId);
+
+    /**
+     * Update groups of a user by user id.
+     *
+     * @param uniqueUserId   User unique id.
+     * @param uniqueGroupIds Group unique id list.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> updateGroupsOfUser(String uniqueUserId, List<String> uniqueGroupIds);
+
+    /**
+     * Update selected groups of a user by user id.
+     *
+     * @param uniqueUserId           User unique id.
+     * @param uniqueGroupIdsToAdd    Group ids to add.
+     * @param uniqueGroupIdsToRemove Group ids to remove.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> updateGroupsOfUser(String uniqueUserId, List<String> uniqueGroupIdsToAdd,
+            List<String> uniqueGroupIdsToRemove);
+
+    /**
+     * Add new group to the default domain.
+     *
+     * @param groupBean Group bean.
+     * @return Future of the created group
+     */
+    CompletableFuture<Group> addGroup(GroupBean groupBean);
+
+    /**
+     * Add new group to the specific domain.
+     *
+     * @param groupBean  Group bean.
+     * @param domainName Group damian.
+     * @return Future of the created group
+     */
+    CompletableFuture<Group> addGroup(GroupBean groupBean, String domainName);
+
+    /**
+     * Add new groups to the default domain.
+     *
+     * @param groups Group models.
+     * @return Future of the created groups
+     */
+    CompletableFuture<List<Group>> addGroups(List<GroupBean> groups);
+
+    /**
+     * Add new groups to the specific domain.
+     *
+     * @param groups     Group models.
+     * @param domainName Group domain.
+     * @return Future of the created groups
+     */
+    CompletableFuture<List<Group>> addGroups(List<GroupBean> groups, String domainName);
+
+    /**
+     * Update group claims by group id.
+     *
+     * @param uniqueGroupId Group unique id.
+     * @param claims        Group claims.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> updateGroupClaims(String uniqueGroupId, List<Claim> claims);
+
+    /**
+     * Update selected group claims by group id.
+     *
+     * @param uniqueGroupId  Group unique id.
+     * @param claimsToAdd    Group ids to add.
+     * @param claimsToRemove Group ids to remove.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> updateGroupClaims(String uniqueGroupId, List<Claim> claimsToAdd, List<Claim> claimsToRemove
+            );
+
+    /**
+     * Delete a group by group id.
+     *
+     * @param uniqueGroupId Group unique id.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> deleteGroup(String uniqueGroupId);
+
+    /**
+     * Update users of a group by group id.
+     *
+     * @param uniqueGroupId Group unique id.
+     * @param uniqueUserIds User unique id list.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> updateUsersOfGroup(String uniqueGroupId, List<String> uniqueUserIds);
+
+    /**
+     * Update selected users of a group by group id.
+     *
+     * @param uniqueGroupId         Group unique id.
+     * @param uniqueUserIdsToAdd    User unique id list to add.
+     * @param uniqueUserIdsToRemove User unique id list to remove.
+     * @return Future completed once the operation is done
+     */
+    CompletableFuture<Void> updateUsersOfGroup(String uniqueGroupId, List<String> uniqueUserIdsToAdd,
+            List<String> uniqueUserIdsToRemove);
+
+    /**
+     * Authenticate the user.
+     *
+     * @param claim       Unique claim.
+     * @param credentials Credentials.
+     * @param domainName  Domain name.
+     * @return Future of the authentication context
+     */
+    CompletableFuture<AuthenticationContext> authenticate(Claim claim, Callback[] credentials, String domainName);
+}
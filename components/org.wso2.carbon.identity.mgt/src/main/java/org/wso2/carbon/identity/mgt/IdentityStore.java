@@ -26,7 +26,9 @@ import org.wso2.carbon.identity.mgt.exception.IdentityStoreException;
 import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 import javax.security.auth.callback.Callback;
 
 /**
@@ -93,6 +95,59 @@ public interface IdentityStore {
      */
     List<User> listUsers(int offset, int length, String domainName) throws IdentityStoreException;
 
+    /**
+     * List a set of users selected from the given range of the users of all domains. The users of all domains are
+     * ordered by their domain user id, with the domain priority breaking the ties, so the order is stable across
+     * calls.
+     *
+     * @param offset Start position
+     * @param length Number of users to retrieve
+     * @return A list of users within the given range
+     * @throws IdentityStoreException IdentityStore Exception
+     */
+    List<User> listUsersOfAllDomains(int offset, int length) throws IdentityStoreException;
+
+    /**
+     * List a page of users from the primary domain, starting after the given continuation token. Unlike the offset
+     * based listing, the cost of a page does not grow with its position.
+     *
+     * @param continuationToken Token of the previous page or null for the first page
+     * @param length            Number of users to retrieve
+     * @return A page of users with the token of the next page
+     * @throws IdentityStoreException IdentityStore Exception
+     */
+    Page<User> listUsers(String continuationToken, int length) throws IdentityStoreException;
+
+    /**
+     * List a page of users from a specific domain, starting after the given continuation token.
+     *
+     * @param continuationToken Token of the previous page or null for the first page
+     * @param length            Number of users to retrieve
+     * @param domainName        The domain name to retrieve users from
+     * @return A page of users with the token of the next page
+     * @throws IdentityStoreException IdentityStore Exception
+     */
+    Page<User> listUsers(String continuationToken, int length, String domainName) throws IdentityStoreException;
+
+    /**
+     * Stream all users of the primary domain. The users are read lazily, so the memory used does not depend on the
+     * number of users. The stream holds a database connection until it is exhausted or closed, hence it should be
+     * used in a try-with-resources block.
+     *
+     * @return A lazily evaluated stream of users
+     * @throws IdentityStoreException IdentityStore Exception
+     */
+    Stream<User> streamUsers() throws IdentityStoreException;
+
+    /**
+     * Stream all users of a specific domain. The stream should be closed after use.
+     *
+     * @param domainName The domain name to retrieve users from
+     * @return A lazily evaluated stream of users
+     * @throws IdentityStoreException IdentityStore Exception
+     */
+    Stream<User> streamUsers(String domainName) throws IdentityStoreException;
+
     /**
      * List a set of users that matches a given claim.
      *
@@ -195,6 +250,55 @@ public interface IdentityStore {
      */
     List<Group> listGroups(int offset, int length, String domainName) throws IdentityStoreException;
 
+    /**
+     * List groups from a given range of the groups of all domains, in a stable order across the domains.
+     *
+     * @param offset Start position
+     * @param length Number of groups to retrieve
+     * @return List of groups within given range
+     * @throws IdentityStoreException IdentityStore Exception
+     */
+    List<Group> listGroupsOfAllDomains(int offset, int length) throws IdentityStoreException;
+
+    /**
+     * List a page of groups from the primary domain, starting after the given continuation token.
+     *
+     * @param continuationToken Token of the previous page or null for the first page
+     * @param length            Number of groups to retrieve
+     * @return A page of groups with the token of the next page
+     * @throws IdentityStoreException IdentityStore Exception
+     */
+    Page<Group> listGroups(String continuationToken, int length) throws IdentityStoreException;
+
+    /**
+     * List a page of groups from a specific domain, starting after the given continuation token.
+     *
+     * @param continuationToken Token of the previous page or null for the first page
+     * @param length            Number of groups to retrieve
+     * @param domainName        The domain to retrieve groups from
+     * @return A page of groups with the token of the next page
+     * @throws IdentityStoreException IdentityStore Exception
+     */
+    Page<Group> listGroups(String continuationToken, int length, String domainName) throws IdentityStoreException;
+
+    /**
+     * Stream all groups of the primary domain. The stream holds a database connection until it is exhausted or
+     * closed, hence it should be used in a try-with-resources block.
+     *
+     * @return A lazily evaluated stream of groups
+     * @throws IdentityStoreException IdentityStore Exception
+     */
+    Stream<Group> streamGroups() throws IdentityStoreException;
+
+    /**
+     * Stream all groups of a specific domain. The stream should be closed after use.
+     *
+     * @param domainName The domain to retrieve groups from
+     * @return A lazily evaluated stream of groups
+     * @throws IdentityStoreException IdentityStore Exception
+     */
+    Stream<Group> streamGroups(String domainName) throws IdentityStoreException;
+
     /**
      * List groups that matches a given claim in a given range.
      *
@@ -297,6 +401,26 @@ public interface IdentityStore {
     List<Claim> getClaimsOfUser(String uniqueUserId, List<MetaClaim> metaClaims) throws IdentityStoreException,
             UserNotFoundException;
 
+    /**
+     * Get all claims of many users at once.
+     *
+     * @param uniqueUserIds The users to retrieve claims for
+     * @return Map of unique user ids to their claims in the requested order. Users which do not exist are omitted
+     * @throws IdentityStoreException Identity Store Exception
+     */
+    Map<String, List<Claim>> getClaimsOfUsers(List<String> uniqueUserIds) throws IdentityStoreException;
+
+    /**
+     * Get the claims of many users at once for given URIs.
+     *
+     * @param uniqueUserIds The users to retrieve claims for
+     * @param metaClaims    List of meta claims to retrieve claims for
+     * @return Map of unique user ids to their claims in the requested order. Users which do not exist are omitted
+     * @throws IdentityStoreException Identity Store Exception
+     */
+    Map<String, List<Claim>> getClaimsOfUsers(List<String> uniqueUserIds, List<MetaClaim> metaClaims) throws
+            IdentityStoreException;
+
     /**
      * Get all claims of a group.
      *
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of a cursor based listing. The continuation token of a page is passed to the next listing call to get the
+ * entries after this page.
+ *
+ * @param <T> Type of the entries.
+ */
+public class Page<T> {
+
+    private final List<T> entries;
+
+    private final String continuationToken;
+
+    public Page(List<T> entries, String continuationToken) {
+
+        this.entries = entries == null ? Collections.emptyList() : Collections.unmodifiableList(entries);
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * Get the entries of this page.
+     *
+     * @return Entries of the page.
+     */
+    public List<T> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Get the opaque token to retrieve the next page.
+     *
+     * @return Continuation token or null if this is the last page.
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * Check whether there are entries after this page.
+     *
+     * @return true if there is a next page.
+     */
+    public boolean hasNext() {
+        return continuationToken != null;
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.wso2.carbon.identity.mgt;
 
+import org.wso2.carbon.identity.mgt.impl.AsyncIdentityStoreImpl;
+
 /**
  * This interface is designed to provide the access to the Identity Store {@link IdentityStore}
  *
@@ -29,4 +31,15 @@ public interface RealmService {
      * @return Identity Store
      */
     IdentityStore getIdentityStore();
+
+    /**
+     * Get the asynchronous view of the identity store instance. By default the operations of the view run in the
+     * calling thread.
+     *
+     * @return Async Identity Store
+     */
+    default AsyncIdentityStore getAsyncIdentityStore() {
+
+        return new AsyncIdentityStoreImpl(getIdentityStore());
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache;
+
+import java.util.Objects;
+
+/**
+ * Invalidation of a cache entry, or of all the entries of a cache, which is broadcast to the other nodes.
+ */
+public final class CacheInvalidation {
+
+    private final String cacheName;
+
+    private final String key;
+
+    private CacheInvalidation(String cacheName, String key) {
+
+        this.cacheName = cacheName;
+        this.key = key;
+    }
+
+    /**
+     * Create an invalidation of a single cache entry.
+     *
+     * @param cacheName Name of the cache.
+     * @param key       Key of the entry.
+     * @return Cache invalidation.
+     */
+    public static CacheInvalidation of(String cacheName, String key) {
+
+        return new CacheInvalidation(Objects.requireNonNull(cacheName), Objects.requireNonNull(key));
+    }
+
+    /**
+     * Create an invalidation of all the entries of a cache.
+     *
+     * @param cacheName Name of the cache.
+     * @return Cache invalidation.
+     */
+    public static CacheInvalidation all(String cacheName) {
+
+        return new CacheInvalidation(Objects.requireNonNull(cacheName), null);
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    /**
+     * Get the key of the invalidated entry.
+     *
+     * @return Key of the entry or null if all the entries of the cache are invalidated.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isAll() {
+        return key == null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        CacheInvalidation that = (CacheInvalidation) o;
+        return cacheName.equals(that.cacheName) && Objects.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return 31 * cacheName.hashCode() + Objects.hashCode(key);
+    }
+
+    @Override
+    public String toString() {
+
+        return cacheName + (key == null ? "[*]" : "[" + key + "]");
+    }
+}
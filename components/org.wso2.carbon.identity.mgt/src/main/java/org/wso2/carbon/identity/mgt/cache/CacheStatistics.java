@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time statistics of an identity cache.
+ */
+public final class CacheStatistics {
+
+    /**
+     * Upper bounds in milliseconds of the buckets of the load time histogram. The last bucket of the histogram counts
+     * the loads which took longer than the last bound.
+     */
+    private static final long[] LOAD_TIME_BUCKET_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    private final String cacheName;
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long loadCount;
+
+    private final long loadFailureCount;
+
+    private final long coalescedLoadCount;
+
+    private final long refreshCount;
+
+    private final long evictionCount;
+
+    private final long invalidationCount;
+
+    private final long size;
+
+    private final long totalLoadTime;
+
+    private final long[] loadTimeHistogram;
+
+    private CacheStatistics(CacheStatisticsBuilder builder) {
+
+        this.cacheName = builder.cacheName;
+        this.hitCount = builder.hitCount;
+        this.missCount = builder.missCount;
+        this.loadCount = builder.loadCount;
+        this.loadFailureCount = builder.loadFailureCount;
+        this.coalescedLoadCount = builder.coalescedLoadCount;
+        this.refreshCount = builder.refreshCount;
+        this.evictionCount = builder.evictionCount;
+        this.invalidationCount = builder.invalidationCount;
+        this.size = builder.size;
+        this.totalLoadTime = builder.totalLoadTime;
+        this.loadTimeHistogram = builder.loadTimeHistogram == null ? new long[LOAD_TIME_BUCKET_BOUNDS.length + 1] :
+                builder.loadTimeHistogram.clone();
+    }
+
+    /**
+     * Get the upper bounds in milliseconds of the buckets of the load time histogram.
+     *
+     * @return Bucket bounds.
+     */
+    public static long[] getLoadTimeBucketBounds() {
+
+        return LOAD_TIME_BUCKET_BOUNDS.clone();
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the ratio of the reads served from the cache.
+     *
+     * @return Hit ratio between 0 and 1, or 0 if the cache has not been read.
+     */
+    public double getHitRatio() {
+
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Get the number of loads from the underlying store, including the failed ones.
+     *
+     * @return Number of loads.
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * Get the number of misses which were served by joining a load of the same key in progress.
+     *
+     * @return Number of coalesced loads.
+     */
+    public long getCoalescedLoadCount() {
+        return coalescedLoadCount;
+    }
+
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    /**
+     * Get the number of entries evicted to keep the cache within its maximum capacity.
+     *
+     * @return Number of evictions.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Get the average time taken by a load.
+     *
+     * @return Average load time in milliseconds.
+     */
+    public double getAverageLoadTime() {
+
+        return loadCount == 0 ? 0 : (double) totalLoadTime / loadCount / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Get the number of loads in each bucket of {@link #getLoadTimeBucketBounds()}.
+     *
+     * @return Load time histogram.
+     */
+    public long[] getLoadTimeHistogram() {
+
+        return loadTimeHistogram.clone();
+    }
+
+    @Override
+    public String toString() {
+
+        return "CacheStatistics{cacheName=" + cacheName + ", hitCount=" + hitCount + ", missCount=" + missCount +
+                ", loadCount=" + loadCount + ", loadFailureCount=" + loadFailureCount + ", coalescedLoadCount=" +
+                coalescedLoadCount + ", refreshCount=" + refreshCount + ", evictionCount=" + evictionCount +
+                ", invalidationCount=" + invalidationCount + ", size=" + size + ", loadTimeHistogram=" +
+                Arrays.toString(loadTimeHistogram) + "}";
+    }
+
+    /**
+     * Builder of the cache statistics.
+     */
+    public static class CacheStatisticsBuilder {
+
+        private String cacheName;
+
+        private long hitCount;
+
+        private long missCount;
+
+        private long loadCount;
+
+        private long loadFailureCount;
+
+        private long coalescedLoadCount;
+
+        private long refreshCount;
+
+        private long evictionCount;
+
+        private long invalidationCount;
+
+        private long size;
+
+        private long totalLoadTime;
+
+        private long[] loadTimeHistogram;
+
+        public CacheStatisticsBuilder setCacheName(String cacheName) {
+            this.cacheName = cacheName;
+            return this;
+        }
+
+        public CacheStatisticsBuilder setHitCount(long hitCount) {
+            this.hitCount = hitCount;
+            return this;
+        }
+
+        public CacheStatisticsBuilder setMissCount(long missCount) {
+            this.missCount = missCount;
+            return this;
+        }
+
+        public CacheStatisticsBuilder setLoadCount(long loadCount) {
+            this.loadCount = loadCount;
+            return this;
+        }
+
+        public CacheStatisticsBuilder setLoadFailureCount(long loadFailureCount) {
+            this.loadFailureCount = loadFailureCount;
+            return this;
+        }
+
+        public CacheStatisticsBuilder setCoalescedLoadCount(long coalescedLoadCount) {
+            this.coalescedLoadCount = coalescedLoadCount;
+            return this;
+        }
+
+        public CacheStatisticsBuilder setRefreshCount(long refreshCount) {
+            this.refreshCount = refreshCount;
+            return this;
+        }
+
+        public CacheStatisticsBuilder setEvictionCount(long evictionCount) {
+            this.evictionCount = evictionCount;
+            return this;
+        }
+
+        public CacheStatisticsBuilder setInvalidationCount(long invalidationCount) {
+            this.invalidationCount = invalidationCount;
+            return this;
+        }
+
+        public CacheStatisticsBuilder setSize(long size) {
+            this.size = size;
+            return this;
+        }
+
+        /**
+         * Set the total time taken by the loads.
+         *
+         * @param totalLoadTime Total load time in nanoseconds.
+         * @return This builder.
+         */
+        public CacheStatisticsBuilder setTotalLoadTime(long totalLoadTime) {
+            this.totalLoadTime = totalLoadTime;
+            return this;
+        }
+
+        public CacheStatisticsBuilder setLoadTimeHistogram(long[] loadTimeHistogram) {
+            this.loadTimeHistogram = loadTimeHistogram;
+            return this;
+        }
+
+        public CacheStatistics build() {
+            return new CacheStatistics(this);
+        }
+    }
+}
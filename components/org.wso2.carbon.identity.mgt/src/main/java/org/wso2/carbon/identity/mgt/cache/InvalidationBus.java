@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache;
+
+import org.wso2.carbon.identity.mgt.exception.InvalidationBusException;
+
+/**
+ * Broadcasts the invalidations of the local identity caches to the other nodes of a cluster, and delivers the
+ * invalidations of the other nodes to the registered listeners.
+ * <p>
+ * Implementations may batch and coalesce the published invalidations, hence they are delivered to the other nodes
+ * asynchronously.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Initialize the invalidation bus.
+     *
+     * @param invalidationBusConfig Invalidation bus configuration.
+     * @throws InvalidationBusException Invalidation Bus Exception.
+     */
+    void init(InvalidationBusConfig invalidationBusConfig) throws InvalidationBusException;
+
+    /**
+     * Publish an invalidation of the local node to the other nodes.
+     *
+     * @param invalidation Cache invalidation.
+     */
+    void publish(CacheInvalidation invalidation);
+
+    /**
+     * Register a listener of the invalidations received from the other nodes.
+     *
+     * @param listener Invalidation listener.
+     */
+    void subscribe(InvalidationListener listener);
+
+    /**
+     * Publish the pending invalidations and release the resources of the invalidation bus.
+     */
+    void close();
+}
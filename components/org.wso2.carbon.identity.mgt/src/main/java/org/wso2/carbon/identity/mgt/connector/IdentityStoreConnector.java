@@ -21,6 +21,7 @@ import org.wso2.carbon.identity.mgt.exception.GroupNotFoundException;
 import org.wso2.carbon.identity.mgt.exception.IdentityStoreConnectorException;
 import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -110,6 +111,26 @@ public interface IdentityStoreConnector {
     List<Attribute> getUserAttributeValues(String userID, List<String> attributeNames) throws
             IdentityStoreConnectorException;
 
+    /**
+     * Get the attributes of many users at once. Connectors backed by a store which supports bulk reads should
+     * override this to retrieve all the users in a single call.
+     *
+     * @param userIDs        Connector ids of the users.
+     * @param attributeNames User attribute names or null to retrieve all the attributes.
+     * @return Map of connector user ids to their attributes. Users which do not exist are omitted.
+     * @throws IdentityStoreConnectorException Identity Store Connector Exception.
+     */
+    default Map<String, List<Attribute>> getUserAttributeValues(List<String> userIDs, List<String> attributeNames)
+            throws IdentityStoreConnectorException {
+
+        Map<String, List<Attribute>> userAttributes = new HashMap<>();
+        for (String userID : userIDs) {
+            userAttributes.put(userID, attributeNames == null ? getUserAttributeValues(userID) :
+                    getUserAttributeValues(userID, attributeNames));
+        }
+        return userAttributes;
+    }
+
     /**
      * Get the count of the groups available in the identity store.
      *
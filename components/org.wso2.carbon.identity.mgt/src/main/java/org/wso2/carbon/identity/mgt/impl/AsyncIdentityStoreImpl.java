@@ -0,0 +1,547 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.identity.mgt.AsyncIdentityStore;
+import org.wso2.carbon.identity.mgt.AuthenticationContext;
+import org.wso2.carbon.identity.mgt.Group;
+import org.wso2.carbon.identity.mgt.IdentityStore;
+import org.wso2.carbon.identity.mgt.Page;
+import org.wso2.carbon.identity.mgt.User;
+import org.wso2.carbon.identity.mgt.bean.GroupBean;
+import org.wso2.carbon.identity.mgt.bean.UserBean;
+import org.wso2.carbon.identity.mgt.claim.Claim;
+import org.wso2.carbon.identity.mgt.claim.MetaClaim;
+import org.wso2.carbon.identity.mgt.exception.IdentityStoreException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import javax.security.auth.callback.Callback;
+
+import static org.wso2.carbon.kernel.utils.StringUtils.isNullOrEmpty;
+
+/**
+ * Asynchronous facade of an {@link IdentityStore}. It wraps either the {@link IdentityStoreImpl} or the
+ * {@link CacheBackedIdentityStore} and runs each operation on the executor of the domain the operation targets.
+ *
+ * @since 1.0.0
+ */
+public class AsyncIdentityStoreImpl implements AsyncIdentityStore {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncIdentityStoreImpl.class);
+
+    private final IdentityStore identityStore;
+
+    private final ExecutorService defaultExecutor;
+
+    private final Map<String, ExecutorService> domainNameToExecutor;
+
+    private final Map<Integer, ExecutorService> domainIdToExecutor = new HashMap<>();
+
+    /**
+     * Create an asynchronous facade which runs the operations in the calling thread.
+     *
+     * @param identityStore Identity store to be wrapped.
+     */
+    public AsyncIdentityStoreImpl(IdentityStore identityStore) {
+
+        this(identityStore, Collections.emptyList(), null, Collections.emptyMap());
+    }
+
+    /**
+     * Create an asynchronous facade.
+     *
+     * @param identityStore   Identity store to be wrapped.
+     * @param domains         Domains of the identity store.
+     * @param defaultExecutor Executor of the domains without an executor of their own, or null to run their
+     *                        operations in the calling thread.
+     * @param domainExecutors Executors of the domains by the domain name.
+     */
+    public AsyncIdentityStoreImpl(IdentityStore identityStore, List<Domain> domains, ExecutorService defaultExecutor,
+                                  Map<String, ExecutorService> domainExecutors) {
+
+        this.identityStore = identityStore;
+        this.defaultExecutor = defaultExecutor;
+        this.domainNameToExecutor = domainExecutors;
+
+        domains.forEach(domain -> {
+            ExecutorService executor = domainExecutors.get(domain.getName());
+            if (executor != null) {
+                domainIdToExecutor.put(domain.getId(), executor);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<User> getUser(String uniqueUserId) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> identityStore.getUser(uniqueUserId));
+    }
+
+    @Override
+    public CompletableFuture<User> getUser(Claim claim) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.getUser(claim));
+    }
+
+    @Override
+    public CompletableFuture<User> getUser(Claim claim, String domainName) {
+
+        return submit(getDomainExecutor(domainName), () -> identityStore.getUser(claim, domainName));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> listUsers(int offset, int length) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.listUsers(offset, length));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> listUsers(int offset, int length, String domainName) {
+
+        return submit(getDomainExecutor(domainName), () -> identityStore.listUsers(offset, length, domainName));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> listUsersOfAllDomains(int offset, int length) {
+
+        return submit(defaultExecutor, () -> identityStore.listUsersOfAllDomains(offset, length));
+    }
+
+    @Override
+    public CompletableFuture<Page<User>> listUsers(String continuationToken, int length) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.listUsers(continuationToken, length));
+    }
+
+    @Override
+    public CompletableFuture<Page<User>> listUsers(String continuationToken, int length, String domainName) {
+
+        return submit(getDomainExecutor(domainName),
+                () -> identityStore.listUsers(continuationToken, length, domainName));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> listUsers(Claim claim, int offset, int length) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.listUsers(claim, offset, length));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> listUsers(Claim claim, int offset, int length, String domainName) {
+
+        return submit(getDomainExecutor(domainName), () -> identityStore.listUsers(claim, offset, length, domainName));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> listUsers(MetaClaim metaClaim, String filterPattern, int offset, int length) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.listUsers(metaClaim, filterPattern, offset, length));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> listUsers(MetaClaim metaClaim, String filterPattern, int offset, int length,
+            String domainName) {
+
+        return submit(getDomainExecutor(domainName),
+                () -> identityStore.listUsers(metaClaim, filterPattern, offset, length, domainName));
+    }
+
+    @Override
+    public CompletableFuture<Group> getGroup(String uniqueGroupId) {
+
+        return submit(getEntityExecutor(uniqueGroupId), () -> identityStore.getGroup(uniqueGroupId));
+    }
+
+    @Override
+    public CompletableFuture<Group> getGroup(Claim claim) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.getGroup(claim));
+    }
+
+    @Override
+    public CompletableFuture<Group> getGroup(Claim claim, String domainName) {
+
+        return submit(getDomainExecutor(domainName), () -> identityStore.getGroup(claim, domainName));
+    }
+
+    @Override
+    public CompletableFuture<List<Group>> listGroups(int offset, int length) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.listGroups(offset, length));
+    }
+
+    @Override
+    public CompletableFuture<List<Group>> listGroups(int offset, int length, String domainName) {
+
+        return submit(getDomainExecutor(domainName), () -> identityStore.listGroups(offset, length, domainName));
+    }
+
+    @Override
+    public CompletableFuture<List<Group>> listGroupsOfAllDomains(int offset, int length) {
+
+        return submit(defaultExecutor, () -> identityStore.listGroupsOfAllDomains(offset, length));
+    }
+
+    @Override
+    public CompletableFuture<Page<Group>> listGroups(String continuationToken, int length) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.listGroups(continuationToken, length));
+    }
+
+    @Override
+    public CompletableFuture<Page<Group>> listGroups(String continuationToken, int length, String domainName) {
+
+        return submit(getDomainExecutor(domainName),
+                () -> identityStore.listGroups(continuationToken, length, domainName));
+    }
+
+    @Override
+    public CompletableFuture<List<Group>> listGroups(Claim claim, int offset, int length) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.listGroups(claim, offset, length));
+    }
+
+    @Override
+    public CompletableFuture<List<Group>> listGroups(Claim claim, int offset, int length, String domainName) {
+
+        return submit(getDomainExecutor(domainName), () -> identityStore.listGroups(claim, offset, length, domainName));
+    }
+
+    @Override
+    public CompletableFuture<List<Group>> listGroups(MetaClaim metaClaim, String filterPattern, int offset, int length
+            ) {
+
+        return submit(getDomainExecutor(null),
+                () -> identityStore.listGroups(metaClaim, filterPattern, offset, length));
+    }
+
+    @Override
+    public CompletableFuture<List<Group>> listGroups(MetaClaim metaClaim, String filterPattern, int offset, int length,
+            String domainName) {
+
+        return submit(getDomainExecutor(domainName),
+                () -> identityStore.listGroups(metaClaim, filterPattern, offset, length, domainName));
+    }
+
+    @Override
+    public CompletableFuture<List<Group>> getGroupsOfUser(String uniqueUserId) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> identityStore.getGroupsOfUser(uniqueUserId));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> getUsersOfGroup(String uniqueGroupId) {
+
+        return submit(getEntityExecutor(uniqueGroupId), () -> identityStore.getUsersOfGroup(uniqueGroupId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isUserInGroup(String uniqueUserId, String uniqueGroupId) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> identityStore.isUserInGroup(uniqueUserId, uniqueGroupId));
+    }
+
+    @Override
+    public CompletableFuture<List<Claim>> getClaimsOfUser(String uniqueUserId) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> identityStore.getClaimsOfUser(uniqueUserId));
+    }
+
+    @Override
+    public CompletableFuture<List<Claim>> getClaimsOfUser(String uniqueUserId, List<MetaClaim> metaClaims) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> identityStore.getClaimsOfUser(uniqueUserId, metaClaims));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, List<Claim>>> getClaimsOfUsers(List<String> uniqueUserIds) {
+
+        return submit(defaultExecutor, () -> identityStore.getClaimsOfUsers(uniqueUserIds));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, List<Claim>>> getClaimsOfUsers(List<String> uniqueUserIds,
+            List<MetaClaim> metaClaims) {
+
+        return submit(defaultExecutor, () -> identityStore.getClaimsOfUsers(uniqueUserIds, metaClaims));
+    }
+
+    @Override
+    public CompletableFuture<List<Claim>> getClaimsOfGroup(String uniqueGroupId) {
+
+        return submit(getEntityExecutor(uniqueGroupId), () -> identityStore.getClaimsOfGroup(uniqueGroupId));
+    }
+
+    @Override
+    public CompletableFuture<List<Claim>> getClaimsOfGroup(String uniqueGroupId, List<MetaClaim> metaClaims) {
+
+        return submit(getEntityExecutor(uniqueGroupId),
+                () -> identityStore.getClaimsOfGroup(uniqueGroupId, metaClaims));
+    }
+
+    @Override
+    public CompletableFuture<User> addUser(UserBean user) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.addUser(user));
+    }
+
+    @Override
+    public CompletableFuture<User> addUser(UserBean user, String domainName) {
+
+        return submit(getDomainExecutor(domainName), () -> identityStore.addUser(user, domainName));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> addUsers(List<UserBean> users) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.addUsers(users));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> addUsers(List<UserBean> users, String domainName) {
+
+        return submit(getDomainExecutor(domainName), () -> identityStore.addUsers(users, domainName));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUserClaims(String uniqueUserId, List<Claim> claims) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> {
+            identityStore.updateUserClaims(uniqueUserId, claims);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUserClaims(String uniqueUserId, List<Claim> claimsToAdd,
+            List<Claim> claimsToRemove) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> {
+            identityStore.updateUserClaims(uniqueUserId, claimsToAdd, claimsToRemove);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUserCredentials(String uniqueUserId, List<Callback> credentials) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> {
+            identityStore.updateUserCredentials(uniqueUserId, credentials);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUserCredentials(String uniqueUserId, List<Callback> credentialsToAdd,
+            List<Callback> credentialsToRemove) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> {
+            identityStore.updateUserCredentials(uniqueUserId, credentialsToAdd, credentialsToRemove);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteUser(String uniqueUserId) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> {
+            identityStore.deleteUser(uniqueUserId);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateGroupsOfUser(String uniqueUserId, List<String> uniqueGroupIds) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> {
+            identityStore.updateGroupsOfUser(uniqueUserId, uniqueGroupIds);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateGroupsOfUser(String uniqueUserId, List<String> uniqueGroupIdsToAdd,
+            List<String> uniqueGroupIdsToRemove) {
+
+        return submit(getEntityExecutor(uniqueUserId), () -> {
+            identityStore.updateGroupsOfUser(uniqueUserId, uniqueGroupIdsToAdd, uniqueGroupIdsToRemove);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Group> addGroup(GroupBean groupBean) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.addGroup(groupBean));
+    }
+
+    @Override
+    public CompletableFuture<Group> addGroup(GroupBean groupBean, String domainName) {
+
+        return submit(getDomainExecutor(domainName), () -> identityStore.addGroup(groupBean, domainName));
+    }
+
+    @Override
+    public CompletableFuture<List<Group>> addGroups(List<GroupBean> groups) {
+
+        return submit(getDomainExecutor(null), () -> identityStore.addGroups(groups));
+    }
+
+    @Override
+    public CompletableFuture<List<Group>> addGroups(List<GroupBean> groups, String domainName) {
+
+        return submit(getDomainExecutor(domainName), () -> identityStore.addGroups(groups, domainName));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateGroupClaims(String uniqueGroupId, List<Claim> claims) {
+
+        return submit(getEntityExecutor(uniqueGroupId), () -> {
+            identityStore.updateGroupClaims(uniqueGroupId, claims);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateGroupClaims(String uniqueGroupId, List<Claim> claimsToAdd,
+            List<Claim> claimsToRemove) {
+
+        return submit(getEntityExecutor(uniqueGroupId), () -> {
+            identityStore.updateGroupClaims(uniqueGroupId, claimsToAdd, claimsToRemove);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteGroup(String uniqueGroupId) {
+
+        return submit(getEntityExecutor(uniqueGroupId), () -> {
+            identityStore.deleteGroup(uniqueGroupId);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUsersOfGroup(String uniqueGroupId, List<String> uniqueUserIds) {
+
+        return submit(getEntityExecutor(uniqueGroupId), () -> {
+            identityStore.updateUsersOfGroup(uniqueGroupId, uniqueUserIds);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUsersOfGroup(String uniqueGroupId, List<String> uniqueUserIdsToAdd,
+            List<String> uniqueUserIdsToRemove) {
+
+        return submit(getEntityExecutor(uniqueGroupId), () -> {
+            identityStore.updateUsersOfGroup(uniqueGroupId, uniqueUserIdsToAdd, uniqueUserIdsToRemove);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<AuthenticationContext> authenticate(Claim claim, Callback[] credentials, String domainName
+            ) {
+
+        return submit(getDomainExecutor(domainName), () -> identityStore.authenticate(claim, credentials, domainName));
+    }
+
+    /**
+     * Get the executor of a domain.
+     *
+     * @param domainName Domain name or null for the primary domain.
+     * @return Executor of the domain.
+     */
+    private Executor getDomainExecutor(String domainName) {
+
+        if (isNullOrEmpty(domainName)) {
+            try {
+                domainName = identityStore.getPrimaryDomainName();
+            } catch (IdentityStoreException e) {
+                log.debug("Failed to get the primary domain name. Using the default executor.", e);
+                return defaultExecutor;
+            }
+        }
+
+        return domainNameToExecutor.getOrDefault(domainName, defaultExecutor);
+    }
+
+    /**
+     * Get the executor of the domain of a user or a group. Unique entity ids are prefixed with the id of their
+     * domain. Invalid ids are left to the identity store to report.
+     *
+     * @param uniqueEntityId Unique user id or unique group id.
+     * @return Executor of the domain.
+     */
+    private Executor getEntityExecutor(String uniqueEntityId) {
+
+        int separatorIndex = uniqueEntityId == null ? -1 : uniqueEntityId.indexOf('.');
+        if (separatorIndex < 1) {
+            return defaultExecutor;
+        }
+
+        try {
+            return domainIdToExecutor.getOrDefault(Integer.parseInt(uniqueEntityId.substring(0, separatorIndex)),
+                    defaultExecutor);
+        } catch (NumberFormatException e) {
+            return defaultExecutor;
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Executor executor, StoreOperation<T> operation) {
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                future.complete(operation.execute());
+            } catch (Error e) {
+                future.completeExceptionally(e);
+                throw e;
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        };
+
+        if (executor == null) {
+            task.run();
+        } else {
+            executor.execute(task);
+        }
+        return future;
+    }
+
+    /**
+     * Blocking operation of the identity store.
+     *
+     * @param <T> Type of the result.
+     */
+    @FunctionalInterface
+    private interface StoreOperation<T> {
+
+        // Authentication failures are throwables, not exceptions.
+        T execute() throws Throwable;
+    }
+}
@@ -22,24 +22,42 @@ import org.wso2.carbon.caching.CarbonCachingService;
 import org.wso2.carbon.identity.mgt.AuthenticationContext;
 import org.wso2.carbon.identity.mgt.Group;
 import org.wso2.carbon.identity.mgt.IdentityStore;
+import org.wso2.carbon.identity.mgt.Page;
 import org.wso2.carbon.identity.mgt.User;
 import org.wso2.carbon.identity.mgt.bean.GroupBean;
 import org.wso2.carbon.identity.mgt.bean.UserBean;
+import org.wso2.carbon.identity.mgt.cache.CacheInvalidation;
+import org.wso2.carbon.identity.mgt.cache.CacheStatistics;
+import org.wso2.carbon.identity.mgt.cache.CacheStatisticsProvider;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBus;
 import org.wso2.carbon.identity.mgt.claim.Claim;
 import org.wso2.carbon.identity.mgt.claim.MetaClaim;
 import org.wso2.carbon.identity.mgt.exception.AuthenticationFailure;
 import org.wso2.carbon.identity.mgt.exception.GroupNotFoundException;
 import org.wso2.carbon.identity.mgt.exception.IdentityStoreException;
 import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
+import org.wso2.carbon.identity.mgt.impl.cache.IdentityCacheKey;
+import org.wso2.carbon.identity.mgt.impl.cache.ManagedCache;
+import org.wso2.carbon.identity.mgt.impl.cache.SingleFlight;
 import org.wso2.carbon.identity.mgt.impl.config.CacheConfig;
 import org.wso2.carbon.identity.mgt.impl.internal.IdentityMgtDataHolder;
 import org.wso2.carbon.identity.mgt.impl.util.CacheHelper;
+import org.wso2.carbon.identity.mgt.resolver.DomainUser;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import javax.cache.Cache;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.cache.CacheManager;
 import javax.security.auth.callback.Callback;
 
@@ -50,7 +68,7 @@ import static org.wso2.carbon.kernel.utils.StringUtils.isNullOrEmpty;
  *
  * @since 1.0.0
  */
-public class CacheBackedIdentityStore implements IdentityStore {
+public class CacheBackedIdentityStore implements IdentityStore, CacheStatisticsProvider {
 
     private static Logger log = LoggerFactory.getLogger(CacheBackedIdentityStore.class);
 
@@ -58,29 +76,126 @@ public class CacheBackedIdentityStore implements IdentityStore {
 
     private static final String UNIQUE_GROUP_CACHE = "uniqueGroupCache";
 
+    private static final String UNIQUE_USER_CLAIMS_CACHE = "uniqueUserClaimsCache";
+
+    private static final String USER_GROUPS_CACHE = "userGroupsCache";
+
+    private static final String GROUP_USERS_CACHE = "groupUsersCache";
+
+    private static final String CLAIM_LOOKUP_CACHE = "claimLookupCache";
+
+    private static final String UNKNOWN_CLAIM_LOOKUP_CACHE = "unknownClaimLookupCache";
+
+    /**
+     * Projection key of the complete claim set of a user.
+     */
+    private static final String ALL_CLAIMS = "";
+
     private IdentityStore identityStore;
 
+    private String primaryDomainName;
+
     private Map<String, Boolean> cacheStatus = new HashMap<>();
 
+    private Map<String, ManagedCache<?, ?>> caches = new HashMap<>();
+
+    private SingleFlight<String, List<Claim>> claimsLoads = new SingleFlight<>();
+
     private CacheManager cacheManager;
 
+    private Executor refreshExecutor;
+
 
     public CacheBackedIdentityStore(Map<String, CacheConfig> cacheConfigs, List<Domain> domains)
             throws IdentityStoreException {
 
+        this(cacheConfigs, domains, null);
+    }
+
+    /**
+     * Create a cache backed identity store which shares its cache invalidations with the other nodes.
+     *
+     * @param cacheConfigs    Cache configs.
+     * @param domains         Domains of the identity store.
+     * @param invalidationBus Invalidation bus or null if the caches are local to this node.
+     * @throws IdentityStoreException Identity Store Exception.
+     */
+    public CacheBackedIdentityStore(Map<String, CacheConfig> cacheConfigs, List<Domain> domains,
+                                    InvalidationBus invalidationBus) throws IdentityStoreException {
+
+        this(cacheConfigs, domains, invalidationBus, null);
+    }
+
+    /**
+     * Create a cache backed identity store which shares its cache invalidations with the other nodes and
+     * authenticates against its domains in parallel.
+     *
+     * @param cacheConfigs    Cache configs.
+     * @param domains         Domains of the identity store.
+     * @param invalidationBus Invalidation bus or null if the caches are local to this node.
+     * @param domainExecutor  Executor used to probe the domains on authentication or null to probe them one after
+     *                        another.
+     * @throws IdentityStoreException Identity Store Exception.
+     */
+    public CacheBackedIdentityStore(Map<String, CacheConfig> cacheConfigs, List<Domain> domains,
+                                    InvalidationBus invalidationBus, ExecutorService domainExecutor)
+            throws IdentityStoreException {
+
+        this(cacheConfigs, domains, invalidationBus, domainExecutor, null);
+    }
+
+    /**
+     * Create a cache backed identity store which shares its cache invalidations with the other nodes,
+     * authenticates against its domains in parallel and refreshes the cache entries ahead of their expiry.
+     *
+     * @param cacheConfigs    Cache configs.
+     * @param domains         Domains of the identity store.
+     * @param invalidationBus Invalidation bus or null if the caches are local to this node.
+     * @param domainExecutor  Executor used to probe the domains on authentication or null to probe them one after
+     *                        another.
+     * @param refreshExecutor Executor on which the cache entries are refreshed, owned by the caller, or null to
+     *                        disable refresh-ahead.
+     * @throws IdentityStoreException Identity Store Exception.
+     */
+    public CacheBackedIdentityStore(Map<String, CacheConfig> cacheConfigs, List<Domain> domains,
+                                    InvalidationBus invalidationBus, ExecutorService domainExecutor,
+                                    Executor refreshExecutor) throws IdentityStoreException {
+
+        this.refreshExecutor = refreshExecutor;
+
         CarbonCachingService carbonCachingService = IdentityMgtDataHolder.getInstance().getCarbonCachingService();
 
-        identityStore = new IdentityStoreImpl(domains);
+        identityStore = new IdentityStoreImpl(domains, domainExecutor);
+        primaryDomainName = identityStore.getPrimaryDomainName();
 
         cacheManager = carbonCachingService.getCachingProvider().getCacheManager();
 
         // Initialize all caches.
-        if (CacheHelper.isCacheEnabled(cacheConfigs, UNIQUE_USER_CACHE)) {
-            CacheHelper.createCache(UNIQUE_USER_CACHE, String.class, User.class, CacheHelper.MEDIUM_EXPIRE_TIME,
-                    cacheConfigs, cacheManager);
-            cacheStatus.put(UNIQUE_USER_CACHE, true);
-        } else {
-            cacheStatus.put(UNIQUE_USER_CACHE, false);
+        initCache(UNIQUE_USER_CACHE, IdentityCacheKey.class, User.class, CacheHelper.MEDIUM_EXPIRE_TIME, cacheConfigs);
+        initCache(UNIQUE_GROUP_CACHE, IdentityCacheKey.class, Group.class, CacheHelper.MEDIUM_EXPIRE_TIME,
+                cacheConfigs);
+        initCache(UNIQUE_USER_CLAIMS_CACHE, IdentityCacheKey.class, UserClaimsEntry.class, CacheHelper.LOW_EXPIRE_TIME,
+                cacheConfigs);
+        initCache(USER_GROUPS_CACHE, IdentityCacheKey.class, MembershipEntry.class, CacheHelper.MEDIUM_EXPIRE_TIME,
+                cacheConfigs);
+        initCache(GROUP_USERS_CACHE, IdentityCacheKey.class, MembershipEntry.class, CacheHelper.MEDIUM_EXPIRE_TIME,
+                cacheConfigs);
+        initCache(CLAIM_LOOKUP_CACHE, String.class, DomainUser.class, CacheHelper.MEDIUM_EXPIRE_TIME, cacheConfigs);
+        initCache(UNKNOWN_CLAIM_LOOKUP_CACHE, String.class, Boolean.class, CacheHelper.MIN_EXPIRE_TIME,
+                cacheConfigs);
+
+        // Unique claim lookups are resolved inside the domains, which serve both getUser(Claim) and authenticate.
+        if (cacheStatus.get(CLAIM_LOOKUP_CACHE) && cacheStatus.get(UNKNOWN_CLAIM_LOOKUP_CACHE)) {
+            ManagedCache<String, DomainUser> claimLookupCache = getCache(CLAIM_LOOKUP_CACHE, String.class,
+                    DomainUser.class);
+            ManagedCache<String, Boolean> unknownClaimLookupCache = getCache(UNKNOWN_CLAIM_LOOKUP_CACHE,
+                    String.class, Boolean.class);
+            domains.forEach(domain -> domain.setClaimLookupCaches(claimLookupCache, unknownClaimLookupCache));
+        }
+
+        if (invalidationBus != null) {
+            caches.forEach((cacheName, cache) -> attachInvalidationBus(cacheName, cache, invalidationBus));
+            invalidationBus.subscribe(this::onInvalidation);
         }
 
         if (log.isDebugEnabled()) {
@@ -91,8 +206,8 @@ public class CacheBackedIdentityStore implements IdentityStore {
     @Override
     public User getUser(String uniqueUserId) throws IdentityStoreException, UserNotFoundException {
 
-        if (cacheStatus.get(UNIQUE_USER_CACHE) && isNullOrEmpty(uniqueUserId)) {
-            return doGetUser(uniqueUserId, identityStore.getPrimaryDomainName());
+        if (cacheStatus.get(UNIQUE_USER_CACHE) && !isNullOrEmpty(uniqueUserId)) {
+            return doGetUser(uniqueUserId);
         }
 
         User user = identityStore.getUser(uniqueUserId);
@@ -103,13 +218,17 @@ public class CacheBackedIdentityStore implements IdentityStore {
     @Override
     public User getUser(Claim claim) throws IdentityStoreException, UserNotFoundException {
 
-        return identityStore.getUser(claim);
+        User user = identityStore.getUser(claim);
+        user.setIdentityStore(this);
+        return user;
     }
 
     @Override
     public User getUser(Claim claim, String domainName) throws IdentityStoreException, UserNotFoundException {
 
-        return identityStore.getUser(claim);
+        User user = identityStore.getUser(claim, domainName);
+        user.setIdentityStore(this);
+        return user;
     }
 
     @Override
@@ -124,6 +243,37 @@ public class CacheBackedIdentityStore implements IdentityStore {
         return identityStore.listUsers(offset, length, domainName);
     }
 
+    @Override
+    public List<User> listUsersOfAllDomains(int offset, int length) throws IdentityStoreException {
+
+        return identityStore.listUsersOfAllDomains(offset, length);
+    }
+
+    @Override
+    public Page<User> listUsers(String continuationToken, int length) throws IdentityStoreException {
+
+        return identityStore.listUsers(continuationToken, length);
+    }
+
+    @Override
+    public Page<User> listUsers(String continuationToken, int length, String domainName)
+            throws IdentityStoreException {
+
+        return identityStore.listUsers(continuationToken, length, domainName);
+    }
+
+    @Override
+    public Stream<User> streamUsers() throws IdentityStoreException {
+
+        return identityStore.streamUsers();
+    }
+
+    @Override
+    public Stream<User> streamUsers(String domainName) throws IdentityStoreException {
+
+        return identityStore.streamUsers(domainName);
+    }
+
     @Override
     public List<User> listUsers(Claim claim, int offset, int length) throws IdentityStoreException {
 
@@ -153,8 +303,8 @@ public class CacheBackedIdentityStore implements IdentityStore {
     @Override
     public Group getGroup(String uniqueGroupId) throws IdentityStoreException, GroupNotFoundException {
 
-        if (cacheStatus.get(UNIQUE_GROUP_CACHE) && isNullOrEmpty(uniqueGroupId)) {
-            return doGetGroup(uniqueGroupId, identityStore.getPrimaryDomainName());
+        if (cacheStatus.get(UNIQUE_GROUP_CACHE) && !isNullOrEmpty(uniqueGroupId)) {
+            return doGetGroup(uniqueGroupId);
         }
 
         Group group = identityStore.getGroup(uniqueGroupId);
@@ -165,13 +315,17 @@ public class CacheBackedIdentityStore implements IdentityStore {
     @Override
     public Group getGroup(Claim claim) throws IdentityStoreException, GroupNotFoundException {
 
-        return identityStore.getGroup(claim);
+        Group group = identityStore.getGroup(claim);
+        group.setIdentityStore(this);
+        return group;
     }
 
     @Override
     public Group getGroup(Claim claim, String domainName) throws IdentityStoreException, GroupNotFoundException {
 
-        return identityStore.getGroup(claim, domainName);
+        Group group = identityStore.getGroup(claim, domainName);
+        group.setIdentityStore(this);
+        return group;
     }
 
     @Override
@@ -186,6 +340,37 @@ public class CacheBackedIdentityStore implements IdentityStore {
         return identityStore.listGroups(offset, length, domainName);
     }
 
+    @Override
+    public List<Group> listGroupsOfAllDomains(int offset, int length) throws IdentityStoreException {
+
+        return identityStore.listGroupsOfAllDomains(offset, length);
+    }
+
+    @Override
+    public Page<Group> listGroups(String continuationToken, int length) throws IdentityStoreException {
+
+        return identityStore.listGroups(continuationToken, length);
+    }
+
+    @Override
+    public Page<Group> listGroups(String continuationToken, int length, String domainName)
+            throws IdentityStoreException {
+
+        return identityStore.listGroups(continuationToken, length, domainName);
+    }
+
+    @Override
+    public Stream<Group> streamGroups() throws IdentityStoreException {
+
+        return identityStore.streamGroups();
+    }
+
+    @Override
+    public Stream<Group> streamGroups(String domainName) throws IdentityStoreException {
+
+        return identityStore.streamGroups(domainName);
+    }
+
     @Override
     public List<Group> listGroups(Claim claim, int offset, int length) throws IdentityStoreException {
 
@@ -216,25 +401,77 @@ public class CacheBackedIdentityStore implements IdentityStore {
     @Override
     public List<Group> getGroupsOfUser(String uniqueUserId) throws IdentityStoreException, UserNotFoundException {
 
-        return identityStore.getGroupsOfUser(uniqueUserId);
+        if (cacheStatus.get(USER_GROUPS_CACHE) && !isNullOrEmpty(uniqueUserId)) {
+            MembershipEntry entry = doGetGroupsOfUser(uniqueUserId);
+            return entry.getUniqueIds().stream()
+                    .map(uniqueGroupId -> new Group.GroupBuilder()
+                            .setGroupId(uniqueGroupId)
+                            .setDomainName(entry.getDomainName())
+                            .setIdentityStore(this)
+                            .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
+                            .build())
+                    .collect(Collectors.toList());
+        }
+
+        List<Group> groups = identityStore.getGroupsOfUser(uniqueUserId);
+        groups.forEach(group -> group.setIdentityStore(this));
+        return groups;
     }
 
     @Override
     public List<User> getUsersOfGroup(String uniqueGroupId) throws IdentityStoreException, GroupNotFoundException {
 
-        return identityStore.getUsersOfGroup(uniqueGroupId);
+        if (cacheStatus.get(GROUP_USERS_CACHE) && !isNullOrEmpty(uniqueGroupId)) {
+            MembershipEntry entry = doGetUsersOfGroup(uniqueGroupId);
+            return entry.getUniqueIds().stream()
+                    .map(uniqueUserId -> new User.UserBuilder()
+                            .setUserId(uniqueUserId)
+                            .setDomainName(entry.getDomainName())
+                            .setIdentityStore(this)
+                            .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
+                            .build())
+                    .collect(Collectors.toList());
+        }
+
+        List<User> users = identityStore.getUsersOfGroup(uniqueGroupId);
+        users.forEach(user -> user.setIdentityStore(this));
+        return users;
     }
 
     @Override
     public boolean isUserInGroup(String uniqueUserId, String uniqueGroupId) throws IdentityStoreException,
             UserNotFoundException, GroupNotFoundException {
 
+        if (!cacheStatus.get(USER_GROUPS_CACHE) || isNullOrEmpty(uniqueUserId) || isNullOrEmpty(uniqueGroupId)) {
+            return identityStore.isUserInGroup(uniqueUserId, uniqueGroupId);
+        }
+
+        // Loading the groups of the user also verifies that the user exists.
+        if (doGetGroupsOfUser(uniqueUserId).getUniqueIds().contains(uniqueGroupId)) {
+            return true;
+        }
+
+        // A cached member list proves that the group exists, so the user is not a member of it.
+        if (cacheStatus.get(GROUP_USERS_CACHE)) {
+            ManagedCache<IdentityCacheKey, MembershipEntry> groupUsersCache = getCache(GROUP_USERS_CACHE,
+                    IdentityCacheKey.class, MembershipEntry.class);
+            MembershipEntry entry = groupUsersCache.get(getCacheKey(uniqueGroupId));
+            if (entry != null) {
+                return false;
+            }
+        }
+
+        // Let the identity store decide on the group existence.
         return identityStore.isUserInGroup(uniqueUserId, uniqueGroupId);
     }
 
     @Override
     public List<Claim> getClaimsOfUser(String uniqueUserId) throws IdentityStoreException, UserNotFoundException {
 
+        if (cacheStatus.get(UNIQUE_USER_CLAIMS_CACHE) && !isNullOrEmpty(uniqueUserId)) {
+            return doGetClaimsOfUser(uniqueUserId, null);
+        }
+
         return identityStore.getClaimsOfUser(uniqueUserId);
     }
 
@@ -242,9 +479,36 @@ public class CacheBackedIdentityStore implements IdentityStore {
     public List<Claim> getClaimsOfUser(String uniqueUserId, List<MetaClaim> metaClaims) throws IdentityStoreException,
             UserNotFoundException {
 
+        if (cacheStatus.get(UNIQUE_USER_CLAIMS_CACHE) && !isNullOrEmpty(uniqueUserId) && metaClaims != null &&
+                !metaClaims.isEmpty()) {
+            return doGetClaimsOfUser(uniqueUserId, metaClaims);
+        }
+
         return identityStore.getClaimsOfUser(uniqueUserId, metaClaims);
     }
 
+    @Override
+    public Map<String, List<Claim>> getClaimsOfUsers(List<String> uniqueUserIds) throws IdentityStoreException {
+
+        if (cacheStatus.get(UNIQUE_USER_CLAIMS_CACHE) && uniqueUserIds != null && !uniqueUserIds.isEmpty()) {
+            return doGetClaimsOfUsers(uniqueUserIds, null);
+        }
+
+        return identityStore.getClaimsOfUsers(uniqueUserIds);
+    }
+
+    @Override
+    public Map<String, List<Claim>> getClaimsOfUsers(List<String> uniqueUserIds, List<MetaClaim> metaClaims) throws
+            IdentityStoreException {
+
+        if (cacheStatus.get(UNIQUE_USER_CLAIMS_CACHE) && uniqueUserIds != null && !uniqueUserIds.isEmpty() &&
+                metaClaims != null && !metaClaims.isEmpty()) {
+            return doGetClaimsOfUsers(uniqueUserIds, metaClaims);
+        }
+
+        return identityStore.getClaimsOfUsers(uniqueUserIds, metaClaims);
+    }
+
     @Override
     public List<Claim> getClaimsOfGroup(String uniqueGroupId) throws IdentityStoreException, GroupNotFoundException {
 
@@ -286,14 +550,22 @@ public class CacheBackedIdentityStore implements IdentityStore {
     public void updateUserClaims(String uniqueUserId, List<Claim> claims) throws IdentityStoreException,
             UserNotFoundException {
 
-        identityStore.updateUserClaims(uniqueUserId, claims);
+        try {
+            identityStore.updateUserClaims(uniqueUserId, claims);
+        } finally {
+            doDeleteClaimsOfUser(uniqueUserId);
+        }
     }
 
     @Override
     public void updateUserClaims(String uniqueUserId, List<Claim> claimsToAdd, List<Claim> claimsToRemove) throws
             IdentityStoreException, UserNotFoundException {
 
-        identityStore.updateUserClaims(uniqueUserId, claimsToAdd, claimsToRemove);
+        try {
+            identityStore.updateUserClaims(uniqueUserId, claimsToAdd, claimsToRemove);
+        } finally {
+            doDeleteClaimsOfUser(uniqueUserId);
+        }
     }
 
     @Override
@@ -313,22 +585,39 @@ public class CacheBackedIdentityStore implements IdentityStore {
     @Override
     public void deleteUser(String uniqueUserId) throws IdentityStoreException, UserNotFoundException {
 
+        Set<String> affectedGroupIds = getAffectedGroupIds(uniqueUserId);
+
         identityStore.deleteUser(uniqueUserId);
 
-        doDeleteUser(uniqueUserId, identityStore.getPrimaryDomainName());
+        doDeleteUser(uniqueUserId);
+        doDeleteClaimsOfUser(uniqueUserId);
+        doDeleteMembershipOfUser(uniqueUserId, affectedGroupIds);
     }
 
     @Override
     public void updateGroupsOfUser(String uniqueUserId, List<String> uniqueGroupIds) throws IdentityStoreException {
 
-        identityStore.updateGroupsOfUser(uniqueUserId, uniqueGroupIds);
+        // The current groups of the user are replaced, hence both the current and the new groups are affected.
+        Set<String> affectedGroupIds = getAffectedGroupIds(uniqueUserId);
+        try {
+            identityStore.updateGroupsOfUser(uniqueUserId, uniqueGroupIds);
+        } finally {
+            if (affectedGroupIds != null && uniqueGroupIds != null) {
+                affectedGroupIds.addAll(uniqueGroupIds);
+            }
+            doDeleteMembershipOfUser(uniqueUserId, affectedGroupIds);
+        }
     }
 
     @Override
     public void updateGroupsOfUser(String uniqueUserId, List<String> uniqueGroupIdsToAdd, List<String>
             uniqueGroupIdsToRemove) throws IdentityStoreException {
 
-        identityStore.updateGroupsOfUser(uniqueUserId, uniqueGroupIdsToAdd, uniqueGroupIdsToRemove);
+        try {
+            identityStore.updateGroupsOfUser(uniqueUserId, uniqueGroupIdsToAdd, uniqueGroupIdsToRemove);
+        } finally {
+            doDeleteMembershipOfUser(uniqueUserId, union(uniqueGroupIdsToAdd, uniqueGroupIdsToRemove));
+        }
     }
 
     @Override
@@ -372,22 +661,38 @@ public class CacheBackedIdentityStore implements IdentityStore {
     @Override
     public void deleteGroup(String uniqueGroupId) throws IdentityStoreException, GroupNotFoundException {
 
+        Set<String> affectedUserIds = getAffectedUserIds(uniqueGroupId);
+
         identityStore.deleteGroup(uniqueGroupId);
 
-        doDeleteGroup(uniqueGroupId, identityStore.getPrimaryDomainName());
+        doDeleteGroup(uniqueGroupId);
+        doDeleteMembershipOfGroup(uniqueGroupId, affectedUserIds);
     }
 
     @Override
     public void updateUsersOfGroup(String uniqueGroupId, List<String> uniqueUserIds) throws IdentityStoreException {
 
-        identityStore.updateUsersOfGroup(uniqueGroupId, uniqueUserIds);
+        // The current users of the group are replaced, hence both the current and the new users are affected.
+        Set<String> affectedUserIds = getAffectedUserIds(uniqueGroupId);
+        try {
+            identityStore.updateUsersOfGroup(uniqueGroupId, uniqueUserIds);
+        } finally {
+            if (affectedUserIds != null && uniqueUserIds != null) {
+                affectedUserIds.addAll(uniqueUserIds);
+            }
+            doDeleteMembershipOfGroup(uniqueGroupId, affectedUserIds);
+        }
     }
 
     @Override
     public void updateUsersOfGroup(String uniqueGroupId, List<String> uniqueUserIdsToAdd, List<String>
             uniqueUserIdsToRemove) throws IdentityStoreException {
 
-        identityStore.updateUsersOfGroup(uniqueGroupId, uniqueUserIdsToAdd, uniqueUserIdsToRemove);
+        try {
+            identityStore.updateUsersOfGroup(uniqueGroupId, uniqueUserIdsToAdd, uniqueUserIdsToRemove);
+        } finally {
+            doDeleteMembershipOfGroup(uniqueGroupId, union(uniqueUserIdsToAdd, uniqueUserIdsToRemove));
+        }
     }
 
     @Override
@@ -409,49 +714,434 @@ public class CacheBackedIdentityStore implements IdentityStore {
         return identityStore.getDomainNames();
     }
 
-    private User doGetUser(String uniqueUserId, String domainName) throws IdentityStoreException,
-            UserNotFoundException {
+    @Override
+    public Map<String, CacheStatistics> getCacheStatistics() {
+
+        Map<String, CacheStatistics> cacheStatistics = new HashMap<>();
+        caches.forEach((cacheName, cache) -> cacheStatistics.put(cacheName, cache.getStatistics()));
+        return cacheStatistics;
+    }
+
+    /**
+     * Unregister the statistics MBeans of the caches. Called when the store is replaced or no longer in use.
+     */
+    public void unregisterCacheStatistics() {
+
+        caches.values().forEach(CacheHelper::unregisterStatisticsMBean);
+    }
+
+    private <K, V> void initCache(String cacheName, Class<K> keyClass, Class<V> valueClass, int defaultExpiryTime,
+                                  Map<String, CacheConfig> cacheConfigs) {
+
+        if (CacheHelper.isCacheEnabled(cacheConfigs, cacheName)) {
+            ManagedCache<K, V> cache = CacheHelper.createCache(cacheName, keyClass, valueClass, defaultExpiryTime,
+                    cacheConfigs, cacheManager, refreshExecutor);
+            CacheHelper.registerStatisticsMBean(cache);
+            caches.put(cacheName, cache);
+            cacheStatus.put(cacheName, true);
+        } else {
+            cacheStatus.put(cacheName, false);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void attachInvalidationBus(String cacheName, ManagedCache<?, ?> cache,
+                                              InvalidationBus invalidationBus) {
 
-        Cache<String, User> userCache = cacheManager.getCache(UNIQUE_USER_CACHE, String.class, User.class);
-        User user = userCache.get(uniqueUserId.hashCode() + ":" + domainName.hashCode());
+        // Claim lookups are keyed by strings while the rest of the caches are keyed by identity cache keys.
+        if (CLAIM_LOOKUP_CACHE.equals(cacheName) || UNKNOWN_CLAIM_LOOKUP_CACHE.equals(cacheName)) {
+            ((ManagedCache<String, ?>) cache).setInvalidationBus(invalidationBus, key -> key);
+        } else {
+            ((ManagedCache<IdentityCacheKey, ?>) cache).setInvalidationBus(invalidationBus, IdentityCacheKey::parse);
+        }
+    }
 
-        if (user == null) {
-            user = identityStore.getUser(uniqueUserId);
-            userCache.put(user.getUniqueUserId().hashCode() + ":" + user.getDomainName().hashCode(), user);
-            user.setIdentityStore(this);
-            return user;
+    private void onInvalidation(List<CacheInvalidation> invalidations) {
+
+        for (CacheInvalidation invalidation : invalidations) {
+            ManagedCache<?, ?> cache = caches.get(invalidation.getCacheName());
+            if (cache == null) {
+                continue;
+            }
+
+            cache.invalidate(invalidation);
+            if (UNIQUE_USER_CLAIMS_CACHE.equals(invalidation.getCacheName())) {
+                if (invalidation.isAll()) {
+                    claimsLoads.forgetAll();
+                } else {
+                    String uniqueUserId = IdentityCacheKey.parse(invalidation.getKey()).getUniqueId();
+                    String loadKeyPrefix = getClaimsLoadKey(uniqueUserId, "");
+                    claimsLoads.forgetIf(loadKey -> loadKey.startsWith(loadKeyPrefix));
+                }
+            }
         }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K, V> ManagedCache<K, V> getCache(String cacheName, Class<K> keyClass, Class<V> valueClass) {
+
+        return (ManagedCache<K, V>) caches.get(cacheName);
+    }
+
+    private IdentityCacheKey getCacheKey(String uniqueId) {
+
+        return new IdentityCacheKey(primaryDomainName, uniqueId);
+    }
+
+    private User doGetUser(String uniqueUserId) throws IdentityStoreException, UserNotFoundException {
+
+        ManagedCache<IdentityCacheKey, User> userCache = getCache(UNIQUE_USER_CACHE, IdentityCacheKey.class,
+                User.class);
+        User user = userCache.<IdentityStoreException, UserNotFoundException>get(getCacheKey(uniqueUserId),
+                key -> identityStore.getUser(uniqueUserId));
 
         user.setIdentityStore(this);
         return user;
     }
 
-    private Group doGetGroup(String uniqueGroupId, String domainName) throws IdentityStoreException,
+    private Group doGetGroup(String uniqueGroupId) throws IdentityStoreException, GroupNotFoundException {
+
+        ManagedCache<IdentityCacheKey, Group> groupCache = getCache(UNIQUE_GROUP_CACHE, IdentityCacheKey.class,
+                Group.class);
+        Group group = groupCache.<IdentityStoreException, GroupNotFoundException>get(getCacheKey(uniqueGroupId),
+                key -> identityStore.getGroup(uniqueGroupId));
+
+        group.setIdentityStore(this);
+        return group;
+    }
+
+    private void doDeleteUser(String uniqueUserId) {
+
+        ManagedCache<IdentityCacheKey, User> userCache = getCache(UNIQUE_USER_CACHE, IdentityCacheKey.class,
+                User.class);
+        userCache.remove(getCacheKey(uniqueUserId));
+    }
+
+    private void doDeleteGroup(String uniqueGroupId) {
+
+        ManagedCache<IdentityCacheKey, Group> groupCache = getCache(UNIQUE_GROUP_CACHE, IdentityCacheKey.class,
+                Group.class);
+        groupCache.remove(getCacheKey(uniqueGroupId));
+    }
+
+    private List<Claim> doGetClaimsOfUser(String uniqueUserId, List<MetaClaim> metaClaims)
+            throws IdentityStoreException, UserNotFoundException {
+
+        ManagedCache<IdentityCacheKey, UserClaimsEntry> claimsCache = getCache(UNIQUE_USER_CLAIMS_CACHE,
+                IdentityCacheKey.class, UserClaimsEntry.class);
+
+        // The entry is obtained before loading from the store. An invalidation that happens while the load is in
+        // progress removes this entry, so a stale result can never become visible to later readers.
+        // A cached entry is only ever loaded again by refresh-ahead, in which case all of its projections are
+        // reloaded in the background.
+        UserClaimsEntry entry = claimsCache.<IdentityStoreException, UserNotFoundException>get(
+                getCacheKey(uniqueUserId), key -> reloadClaims(uniqueUserId, claimsCache.get(key)));
+
+        String projection = metaClaims == null ? ALL_CLAIMS : getProjectionKey(metaClaims);
+        List<Claim> claims = entry.getClaims(projection);
+        if (claims == null) {
+            claims = claimsLoads.<IdentityStoreException, UserNotFoundException>load(getClaimsLoadKey(uniqueUserId,
+                    projection), key -> {
+                List<Claim> loadedClaims = copyOf(metaClaims == null ? identityStore.getClaimsOfUser(uniqueUserId) :
+                        identityStore.getClaimsOfUser(uniqueUserId, metaClaims));
+                entry.putClaims(projection, metaClaims, loadedClaims);
+                return loadedClaims;
+            });
+        }
+
+        // Claims are mutable, hence the callers always get their own copy.
+        return copyOf(claims);
+    }
+
+    /**
+     * Get the claims of many users, loading the users missing in the claims cache with a single bulk read. Unlike
+     * single user reads, bulk reads are not coalesced with concurrent loads of the same users.
+     *
+     * @param uniqueUserIds Unique user ids.
+     * @param metaClaims    Meta claims to retrieve or null to retrieve all the claims.
+     * @return Map of unique user ids to their claims.
+     * @throws IdentityStoreException Identity Store Exception.
+     */
+    private Map<String, List<Claim>> doGetClaimsOfUsers(List<String> uniqueUserIds, List<MetaClaim> metaClaims)
+            throws IdentityStoreException {
+
+        ManagedCache<IdentityCacheKey, UserClaimsEntry> claimsCache = getCache(UNIQUE_USER_CLAIMS_CACHE,
+                IdentityCacheKey.class, UserClaimsEntry.class);
+        String projection = metaClaims == null ? ALL_CLAIMS : getProjectionKey(metaClaims);
+
+        // As for single user reads, the entries are obtained before loading from the store, so that an invalidation
+        // during the load discards the loaded claims.
+        Map<String, UserClaimsEntry> entries = new LinkedHashMap<>();
+        Map<String, List<Claim>> cachedClaims = new HashMap<>();
+        for (String uniqueUserId : uniqueUserIds) {
+            if (isNullOrEmpty(uniqueUserId) || entries.containsKey(uniqueUserId)) {
+                continue;
+            }
+
+            UserClaimsEntry entry;
+            try {
+                entry = claimsCache.<IdentityStoreException, UserNotFoundException>get(getCacheKey(uniqueUserId),
+                        key -> reloadClaims(uniqueUserId, claimsCache.get(key)));
+            } catch (UserNotFoundException e) {
+                continue;
+            }
+            entries.put(uniqueUserId, entry);
+
+            List<Claim> claims = entry.getClaims(projection);
+            if (claims != null) {
+                cachedClaims.put(uniqueUserId, claims);
+            }
+        }
+
+        List<String> missingUserIds = entries.keySet().stream()
+                .filter(uniqueUserId -> !cachedClaims.containsKey(uniqueUserId))
+                .collect(Collectors.toList());
+
+        if (!missingUserIds.isEmpty()) {
+            Map<String, List<Claim>> loadedClaims = metaClaims == null ?
+                    identityStore.getClaimsOfUsers(missingUserIds) :
+                    identityStore.getClaimsOfUsers(missingUserIds, metaClaims);
+            loadedClaims.forEach((uniqueUserId, claims) -> {
+                List<Claim> claimsCopy = copyOf(claims);
+                entries.get(uniqueUserId).putClaims(projection, metaClaims, claimsCopy);
+                cachedClaims.put(uniqueUserId, claimsCopy);
+            });
+        }
+
+        // Claims are mutable, hence the callers always get their own copy.
+        Map<String, List<Claim>> claimsOfUsers = new LinkedHashMap<>();
+        entries.keySet().stream()
+                .filter(cachedClaims::containsKey)
+                .forEach(uniqueUserId -> claimsOfUsers.put(uniqueUserId, copyOf(cachedClaims.get(uniqueUserId))));
+        return claimsOfUsers;
+    }
+
+    private UserClaimsEntry reloadClaims(String uniqueUserId, UserClaimsEntry previousEntry)
+            throws IdentityStoreException, UserNotFoundException {
+
+        UserClaimsEntry entry = new UserClaimsEntry();
+        if (previousEntry == null) {
+            return entry;
+        }
+
+        for (String projection : previousEntry.getProjections()) {
+            List<MetaClaim> metaClaims = previousEntry.getMetaClaims(projection);
+            entry.putClaims(projection, metaClaims, copyOf(metaClaims == null ?
+                    identityStore.getClaimsOfUser(uniqueUserId) :
+                    identityStore.getClaimsOfUser(uniqueUserId, metaClaims)));
+        }
+        return entry;
+    }
+
+    private void doDeleteClaimsOfUser(String uniqueUserId) {
+
+        if (!cacheStatus.get(UNIQUE_USER_CLAIMS_CACHE) || isNullOrEmpty(uniqueUserId)) {
+            return;
+        }
+
+        ManagedCache<IdentityCacheKey, UserClaimsEntry> claimsCache = getCache(UNIQUE_USER_CLAIMS_CACHE,
+                IdentityCacheKey.class, UserClaimsEntry.class);
+        claimsCache.remove(getCacheKey(uniqueUserId));
+
+        String loadKeyPrefix = getClaimsLoadKey(uniqueUserId, "");
+        claimsLoads.forgetIf(loadKey -> loadKey.startsWith(loadKeyPrefix));
+    }
+
+    private MembershipEntry doGetGroupsOfUser(String uniqueUserId) throws IdentityStoreException,
+            UserNotFoundException {
+
+        ManagedCache<IdentityCacheKey, MembershipEntry> userGroupsCache = getCache(USER_GROUPS_CACHE,
+                IdentityCacheKey.class, MembershipEntry.class);
+
+        IdentityCacheKey cacheKey = getCacheKey(uniqueUserId);
+        return userGroupsCache.<IdentityStoreException, UserNotFoundException>get(cacheKey, key -> {
+            List<Group> groups = identityStore.getGroupsOfUser(uniqueUserId);
+            return new MembershipEntry(groups.isEmpty() ? null : groups.get(0).getDomainName(), groups.stream()
+                    .map(Group::getUniqueGroupId)
+                    .collect(Collectors.toList()));
+        });
+    }
+
+    private MembershipEntry doGetUsersOfGroup(String uniqueGroupId) throws IdentityStoreException,
             GroupNotFoundException {
 
-        Cache<String, Group> groupCache = cacheManager.getCache(UNIQUE_GROUP_CACHE, String.class, Group.class);
-        Group group = groupCache.get(uniqueGroupId.hashCode() + ":" + domainName.hashCode());
+        ManagedCache<IdentityCacheKey, MembershipEntry> groupUsersCache = getCache(GROUP_USERS_CACHE,
+                IdentityCacheKey.class, MembershipEntry.class);
+
+        IdentityCacheKey cacheKey = getCacheKey(uniqueGroupId);
+        return groupUsersCache.<IdentityStoreException, GroupNotFoundException>get(cacheKey, key -> {
+            List<User> users = identityStore.getUsersOfGroup(uniqueGroupId);
+            return new MembershipEntry(users.isEmpty() ? null : users.get(0).getDomainName(), users.stream()
+                    .map(User::getUniqueUserId)
+                    .collect(Collectors.toList()));
+        });
+    }
 
-        if (group == null) {
-            group = identityStore.getGroup(uniqueGroupId);
-            groupCache.put(group.getUniqueGroupId().hashCode() + ":" + group.getDomainName().hashCode(), group);
-            group.setIdentityStore(this);
-            return group;
+    /**
+     * Get the groups whose cached member lists may contain the given user. Only the cached groups of the user are
+     * read, so that a write neither queries the store nor fills the cache.
+     *
+     * @param uniqueUserId Unique user id.
+     * @return Set of unique group ids or null if the groups of the user are not cached.
+     */
+    private Set<String> getAffectedGroupIds(String uniqueUserId) {
+
+        if (!cacheStatus.get(GROUP_USERS_CACHE) || isNullOrEmpty(uniqueUserId)) {
+            return new HashSet<>();
         }
 
-        group.setIdentityStore(this);
-        return group;
+        return getCachedMembership(USER_GROUPS_CACHE, uniqueUserId);
+    }
+
+    /**
+     * Get the users whose cached group lists may contain the given group. Only the cached users of the group are
+     * read, so that a write neither queries the store nor fills the cache.
+     *
+     * @param uniqueGroupId Unique group id.
+     * @return Set of unique user ids or null if the users of the group are not cached.
+     */
+    private Set<String> getAffectedUserIds(String uniqueGroupId) {
+
+        if (!cacheStatus.get(USER_GROUPS_CACHE) || isNullOrEmpty(uniqueGroupId)) {
+            return new HashSet<>();
+        }
+
+        return getCachedMembership(GROUP_USERS_CACHE, uniqueGroupId);
+    }
+
+    private Set<String> getCachedMembership(String cacheName, String uniqueId) {
+
+        if (!cacheStatus.get(cacheName)) {
+            return null;
+        }
+
+        MembershipEntry membershipEntry = getCache(cacheName, IdentityCacheKey.class, MembershipEntry.class)
+                .get(getCacheKey(uniqueId));
+        return membershipEntry != null ? new HashSet<>(membershipEntry.getUniqueIds()) : null;
+    }
+
+    private void doDeleteMembershipOfUser(String uniqueUserId, Set<String> affectedGroupIds) {
+
+        if (cacheStatus.get(USER_GROUPS_CACHE) && !isNullOrEmpty(uniqueUserId)) {
+            getCache(USER_GROUPS_CACHE, IdentityCacheKey.class, MembershipEntry.class)
+                    .remove(getCacheKey(uniqueUserId));
+        }
+        removeMembershipEntries(GROUP_USERS_CACHE, affectedGroupIds);
+    }
+
+    private void doDeleteMembershipOfGroup(String uniqueGroupId, Set<String> affectedUserIds) {
+
+        if (cacheStatus.get(GROUP_USERS_CACHE) && !isNullOrEmpty(uniqueGroupId)) {
+            getCache(GROUP_USERS_CACHE, IdentityCacheKey.class, MembershipEntry.class)
+                    .remove(getCacheKey(uniqueGroupId));
+        }
+        removeMembershipEntries(USER_GROUPS_CACHE, affectedUserIds);
+    }
+
+    private void removeMembershipEntries(String cacheName, Set<String> uniqueIds) {
+
+        if (!cacheStatus.get(cacheName)) {
+            return;
+        }
+
+        ManagedCache<IdentityCacheKey, MembershipEntry> cache = getCache(cacheName, IdentityCacheKey.class,
+                MembershipEntry.class);
+
+        // When the affected entries are unknown the whole cache has to be dropped.
+        if (uniqueIds == null) {
+            cache.removeAll();
+            return;
+        }
+
+        uniqueIds.stream()
+                .filter(uniqueId -> !isNullOrEmpty(uniqueId))
+                .map(this::getCacheKey)
+                .forEach(cache::remove);
+    }
+
+    private static Set<String> union(List<String> first, List<String> second) {
+
+        Set<String> union = new HashSet<>();
+        if (first != null) {
+            union.addAll(first);
+        }
+        if (second != null) {
+            union.addAll(second);
+        }
+        return union;
     }
 
-    private void doDeleteUser(String uniqueUserId, String domainName) {
+    private static String getProjectionKey(List<MetaClaim> metaClaims) {
 
-        Cache<String, User> userCache = cacheManager.getCache(UNIQUE_USER_CACHE, String.class, User.class);
-        userCache.remove(uniqueUserId.hashCode() + ":" + domainName.hashCode());
+        return metaClaims.stream()
+                .map(MetaClaim::getClaimUri)
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(","));
     }
 
-    private void doDeleteGroup(String uniqueGroupId, String domainName) {
+    private static String getClaimsLoadKey(String uniqueUserId, String projection) {
 
-        Cache<String, Group> groupCache = cacheManager.getCache(UNIQUE_GROUP_CACHE, String.class, Group.class);
-        groupCache.remove(uniqueGroupId.hashCode() + ":" + domainName.hashCode());
+        return uniqueUserId + "\n" + projection;
+    }
+
+    private static List<Claim> copyOf(List<Claim> claims) {
+
+        return claims.stream()
+                .map(claim -> new Claim(claim.getDialectUri(), claim.getClaimUri(), claim.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Cached claims of a single user. Holds the complete claim set and the claim sets of each requested projection
+     * so that all of them are invalidated together.
+     */
+    private static class UserClaimsEntry {
+
+        private Map<String, List<Claim>> projectedClaims = new ConcurrentHashMap<>();
+
+        private Map<String, List<MetaClaim>> projectionMetaClaims = new ConcurrentHashMap<>();
+
+        List<Claim> getClaims(String projection) {
+            return projectedClaims.get(projection);
+        }
+
+        Set<String> getProjections() {
+            return projectedClaims.keySet();
+        }
+
+        List<MetaClaim> getMetaClaims(String projection) {
+            return projectionMetaClaims.get(projection);
+        }
+
+        void putClaims(String projection, List<MetaClaim> metaClaims, List<Claim> claims) {
+            if (metaClaims != null) {
+                projectionMetaClaims.put(projection, new ArrayList<>(metaClaims));
+            }
+            projectedClaims.put(projection, claims);
+        }
+    }
+
+    /**
+     * Cached unique ids of the groups of a user or the users of a group.
+     */
+    private static class MembershipEntry {
+
+        private final String domainName;
+
+        private final Set<String> uniqueIds;
+
+        MembershipEntry(String domainName, List<String> uniqueIds) {
+            this.domainName = domainName;
+            this.uniqueIds = Collections.unmodifiableSet(new LinkedHashSet<>(uniqueIds));
+        }
+
+        String getDomainName() {
+            return domainName;
+        }
+
+        Set<String> getUniqueIds() {
+            return uniqueIds;
+        }
     }
 }
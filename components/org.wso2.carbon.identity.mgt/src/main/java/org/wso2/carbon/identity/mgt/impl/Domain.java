@@ -34,6 +34,7 @@ import org.wso2.carbon.identity.mgt.exception.GroupNotFoundException;
 import org.wso2.carbon.identity.mgt.exception.IdentityStoreConnectorException;
 import org.wso2.carbon.identity.mgt.exception.UniqueIdResolverException;
 import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
+import org.wso2.carbon.identity.mgt.impl.cache.ManagedCache;
 import org.wso2.carbon.identity.mgt.impl.util.IdentityUserMgtUtil;
 import org.wso2.carbon.identity.mgt.resolver.DomainGroup;
 import org.wso2.carbon.identity.mgt.resolver.DomainUser;
@@ -41,16 +42,26 @@ import org.wso2.carbon.identity.mgt.resolver.GroupPartition;
 import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolver;
 import org.wso2.carbon.identity.mgt.resolver.UserPartition;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.security.auth.callback.Callback;
 
 import static org.wso2.carbon.kernel.utils.StringUtils.isNullOrEmpty;
@@ -62,6 +73,8 @@ public class Domain {
 
     private static final Logger log = LoggerFactory.getLogger(Domain.class);
 
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
     /**
      * Mapping between IdentityStoreConnector ID and IdentityStoreConnector
      */
@@ -86,6 +99,13 @@ public class Domain {
 
     private Map<String, MetaClaimMapping> claimUriToMetaClaimMappings = new HashMap<>();
 
+    /**
+     * Mapping between IdentityStoreConnector ID and the meta claims of its attribute names.
+     */
+    private Map<String, Map<String, MetaClaim>> connectorIdToAttributeMetaClaims = new HashMap<>();
+
+    private List<MetaClaim> uniqueMetaClaims = new ArrayList<>();
+
     /**
      * Id of the domain.
      */
@@ -105,6 +125,30 @@ public class Domain {
 
     private UniqueIdResolver uniqueIdResolver;
 
+    /**
+     * Cache of unique claim values to the resolved domain users.
+     */
+    private ManagedCache<String, DomainUser> claimLookupCache;
+
+    /**
+     * Cache of unique claim values which are known to have no user.
+     */
+    private ManagedCache<String, Boolean> unknownClaimLookupCache;
+
+    /**
+     * Executor used to call the connectors of a user or a group in parallel. Connectors are called sequentially if
+     * this is null.
+     */
+    private ExecutorService connectorExecutor;
+
+    private Map<String, ExecutorService> connectorIdToExecutor = Collections.emptyMap();
+
+    /**
+     * Whether the domain may be asked to authenticate a user before the higher priority domains have rejected the
+     * credentials.
+     */
+    private boolean parallelAuthentication;
+
     public Domain(int id, String name, int order, UniqueIdResolver uniqueIdResolver) throws
             DomainException {
 
@@ -142,6 +186,61 @@ public class Domain {
         return order;
     }
 
+    /**
+     * Check whether the domain may be asked to authenticate a user in parallel with the higher priority domains.
+     *
+     * @return true if the domain opted in to parallel authentication.
+     */
+    public boolean isParallelAuthentication() {
+
+        return parallelAuthentication;
+    }
+
+    /**
+     * Set whether the domain may be asked to authenticate a user in parallel with the higher priority domains. Such a
+     * domain receives the credentials even when a higher priority domain accepts them.
+     *
+     * @param parallelAuthentication true to opt in to parallel authentication.
+     */
+    public void setParallelAuthentication(boolean parallelAuthentication) {
+
+        this.parallelAuthentication = parallelAuthentication;
+    }
+
+    /**
+     * Set the caches used to resolve users from unique claim values.
+     *
+     * @param claimLookupCache        Cache of claim values to domain users.
+     * @param unknownClaimLookupCache Cache of claim values that do not belong to any user.
+     */
+    public void setClaimLookupCaches(ManagedCache<String, DomainUser> claimLookupCache,
+                                     ManagedCache<String, Boolean> unknownClaimLookupCache) {
+
+        this.claimLookupCache = claimLookupCache;
+        this.unknownClaimLookupCache = unknownClaimLookupCache;
+    }
+
+    /**
+     * Set the executor used to call the connectors of a user or a group in parallel.
+     *
+     * @param connectorExecutor Connector executor or null to call the connectors sequentially.
+     */
+    public void setConnectorExecutor(ExecutorService connectorExecutor) {
+
+        this.connectorExecutor = connectorExecutor;
+    }
+
+    /**
+     * Set the executors of the connectors which should not share the connector executor, so that a slow connector
+     * cannot hold the threads of the others.
+     *
+     * @param connectorIdToExecutor Map of connector ids to their executors.
+     */
+    public void setConnectorExecutors(Map<String, ExecutorService> connectorIdToExecutor) {
+
+        this.connectorIdToExecutor = connectorIdToExecutor;
+    }
+
     /**
      * Add an identity store connector to the map.
      *
@@ -176,7 +275,7 @@ public class Domain {
      */
     public boolean isClaimSupported(String claimURI) {
 
-        return claimUriToMetaClaimMappings.keySet().contains(claimURI);
+        return claimUriToMetaClaimMappings.containsKey(claimURI);
     }
 
     /**
@@ -203,41 +302,40 @@ public class Domain {
             throw new DomainClientException("Provided claim is not unique.");
         }
 
-        IdentityStoreConnector identityStoreConnector = identityStoreConnectorsMap
-                .get(metaClaimMapping.getIdentityStoreConnectorId());
+        DomainUser domainUser = resolveDomainUser(metaClaimMapping, claim.getValue());
 
-        String connectorUserId;
-        try {
-            connectorUserId = identityStoreConnector.getConnectorUserId(metaClaimMapping.getAttributeName(),
-                    claim.getValue());
-        } catch (IdentityStoreConnectorException e) {
-            throw new DomainException("Failed to get connector user id", e);
+        if (domainUser == null || isNullOrEmpty(domainUser.getDomainUserId())) {
+            throw new DomainException("Failed to retrieve the domain user id.");
         }
 
-        if (isNullOrEmpty(connectorUserId)) {
-            throw new UserNotFoundException("Invalid claim value.");
-        }
+        return domainUser.getDomainUserId();
+    }
 
-        DomainUser domainUser;
+    public List<String> listDomainUsers(int offset, int length) throws DomainException {
+
+        List<DomainUser> domainUsers;
         try {
-            domainUser = uniqueIdResolver.getUserFromConnectorUserId(connectorUserId, metaClaimMapping
-                    .getIdentityStoreConnectorId(), this.id);
+            domainUsers = this.uniqueIdResolver.listDomainUsers(offset, length, this.id);
         } catch (UniqueIdResolverException e) {
-            throw new DomainException("Failed to retrieve the domain user id.", e);
+            throw new DomainException("Failed to retrieve partitions of users.", e);
         }
 
-        if (domainUser == null || isNullOrEmpty(domainUser.getDomainUserId())) {
-            throw new DomainException("Failed to retrieve the domain user id.");
+        if (domainUsers == null || domainUsers.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        return domainUser.getDomainUserId();
+        return domainUsers.stream()
+                .filter(Objects::nonNull)
+                .filter(uniqueUser -> !isNullOrEmpty(uniqueUser.getDomainUserId()))
+                .map(DomainUser::getDomainUserId)
+                .collect(Collectors.toList());
     }
 
-    public List<String> listDomainUsers(int offset, int length) throws DomainException {
+    public List<String> listDomainUsers(String afterDomainUserId, int length) throws DomainException {
 
         List<DomainUser> domainUsers;
         try {
-            domainUsers = this.uniqueIdResolver.listDomainUsers(offset, length, this.id);
+            domainUsers = this.uniqueIdResolver.listDomainUsers(afterDomainUserId, length, this.id);
         } catch (UniqueIdResolverException e) {
             throw new DomainException("Failed to retrieve partitions of users.", e);
         }
@@ -253,6 +351,17 @@ public class Domain {
                 .collect(Collectors.toList());
     }
 
+    public Stream<String> streamDomainUsers() throws DomainException {
+
+        try {
+            return this.uniqueIdResolver.streamDomainUsers(this.id)
+                    .map(DomainUser::getDomainUserId)
+                    .filter(domainUserId -> !isNullOrEmpty(domainUserId));
+        } catch (UniqueIdResolverException e) {
+            throw new DomainException("Failed to stream the users.", e);
+        }
+    }
+
     public List<String> listDomainUsers(Claim claim, int offset, int length) throws DomainException {
 
         MetaClaimMapping metaClaimMapping = claimUriToMetaClaimMappings.get(claim.getClaimUri());
@@ -404,6 +513,37 @@ public class Domain {
                 .collect(Collectors.toList());
     }
 
+    public List<String> listDomainGroups(String afterDomainGroupId, int length) throws DomainException {
+
+        List<DomainGroup> domainGroups;
+        try {
+            domainGroups = this.uniqueIdResolver.listGroups(afterDomainGroupId, length, this.id);
+        } catch (UniqueIdResolverException e) {
+            throw new DomainException("Failed to retrieve partitions of groups.", e);
+        }
+
+        if (domainGroups == null || domainGroups.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return domainGroups.stream()
+                .filter(Objects::nonNull)
+                .filter(domainGroup -> !isNullOrEmpty(domainGroup.getDomainGroupId()))
+                .map(DomainGroup::getDomainGroupId)
+                .collect(Collectors.toList());
+    }
+
+    public Stream<String> streamDomainGroups() throws DomainException {
+
+        try {
+            return this.uniqueIdResolver.streamGroups(this.id)
+                    .map(DomainGroup::getDomainGroupId)
+                    .filter(domainGroupId -> !isNullOrEmpty(domainGroupId));
+        } catch (UniqueIdResolverException e) {
+            throw new DomainException("Failed to stream the groups.", e);
+        }
+    }
+
     public List<String> listDomainGroups(Claim claim, int offset, int length) throws DomainException {
 
         MetaClaimMapping metaClaimMapping = claimUriToMetaClaimMappings.get(claim.getClaimUri());
@@ -565,18 +705,10 @@ public class Domain {
             return Collections.emptyList();
         }
 
-        Map<String, List<Attribute>> attributesMap = new HashMap<>();
-        for (UserPartition userPartition : userPartitions) {
-            IdentityStoreConnector identityStoreConnector = identityStoreConnectorsMap.get(userPartition
-                    .getConnectorId());
-            try {
-                List<Attribute> attributes = identityStoreConnector.getUserAttributeValues
-                        (userPartition.getConnectorUserId());
-                attributesMap.put(userPartition.getConnectorId(), attributes);
-            } catch (IdentityStoreConnectorException e) {
-                throw new DomainException("Failed to get user attribute values", e);
-            }
-        }
+        Map<String, List<Attribute>> attributesMap = getAttributesOfPartitions(userPartitions,
+                UserPartition::getConnectorId, userPartition -> identityStoreConnectorsMap.get(userPartition
+                        .getConnectorId()).getUserAttributeValues(userPartition.getConnectorUserId()),
+                "Failed to get user attribute values");
 
         if (attributesMap.isEmpty()) {
             return Collections.emptyList();
@@ -613,23 +745,78 @@ public class Domain {
 
         Map<String, List<String>> attributeNamesMap = getConnectorIdToAttributeNameMap(metaClaims);
 
-        Map<String, List<Attribute>> attributesMap = new HashMap<>();
-        for (UserPartition userPartition : userPartitions) {
-            List<String> attributeNames = attributeNamesMap.get(userPartition.getConnectorId());
-            IdentityStoreConnector identityStoreConnector = identityStoreConnectorsMap.get(userPartition
-                    .getConnectorId());
-            if (attributeNames != null) {
-                try {
-                    List<Attribute> attributes = identityStoreConnector.getUserAttributeValues(userPartition
-                            .getConnectorUserId(), attributeNames);
-                    attributesMap.put(userPartition.getConnectorId(), attributes);
-                } catch (IdentityStoreConnectorException e) {
-                    throw new DomainException("Failed to get user attribute values.", e);
+        List<UserPartition> requestedPartitions = userPartitions.stream()
+                .filter(userPartition -> attributeNamesMap.containsKey(userPartition.getConnectorId()))
+                .collect(Collectors.toList());
+
+        Map<String, List<Attribute>> attributesMap = getAttributesOfPartitions(requestedPartitions,
+                UserPartition::getConnectorId, userPartition -> identityStoreConnectorsMap.get(userPartition
+                        .getConnectorId()).getUserAttributeValues(userPartition.getConnectorUserId(),
+                        attributeNamesMap.get(userPartition.getConnectorId())),
+                "Failed to get user attribute values.");
+
+        return buildClaims(attributesMap);
+    }
+
+    /**
+     * Get the claims of many users at once. The users are resolved with a single resolver call, and each connector is
+     * called once for all the users it holds.
+     *
+     * @param domainUserIds Domain user ids.
+     * @param metaClaims    Meta claims to retrieve or null to retrieve all the claims.
+     * @return Map of domain user ids to their claims, in the requested order. Users which do not exist are omitted.
+     * @throws DomainException Domain Exception.
+     */
+    public Map<String, List<Claim>> getClaimsOfUsers(List<String> domainUserIds, List<MetaClaim> metaClaims)
+            throws DomainException {
+
+        List<DomainUser> domainUsers;
+        try {
+            domainUsers = uniqueIdResolver.getUsers(domainUserIds, this.id);
+        } catch (UniqueIdResolverException e) {
+            throw new DomainException("Failed to retrieve unique users.", e);
+        }
+
+        Map<String, List<String>> attributeNamesMap = metaClaims == null ? null :
+                getConnectorIdToAttributeNameMap(metaClaims);
+
+        // Connector user ids of each connector, so that every connector is called once.
+        Map<String, List<String>> connectorUserIdsMap = new LinkedHashMap<>();
+        for (DomainUser domainUser : domainUsers) {
+            for (UserPartition userPartition : getIdentityStorePartitions(domainUser)) {
+                if (attributeNamesMap == null || attributeNamesMap.containsKey(userPartition.getConnectorId())) {
+                    connectorUserIdsMap.computeIfAbsent(userPartition.getConnectorId(), k -> new ArrayList<>())
+                            .add(userPartition.getConnectorUserId());
                 }
             }
         }
 
-        return buildClaims(attributesMap);
+        Map<String, Map<String, List<Attribute>>> connectorAttributesMap = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : connectorUserIdsMap.entrySet()) {
+            try {
+                connectorAttributesMap.put(entry.getKey(), identityStoreConnectorsMap.get(entry.getKey())
+                        .getUserAttributeValues(entry.getValue(), attributeNamesMap == null ? null :
+                                attributeNamesMap.get(entry.getKey())));
+            } catch (IdentityStoreConnectorException e) {
+                throw new DomainException("Failed to get user attribute values.", e);
+            }
+        }
+
+        Map<String, List<Claim>> claimsOfUsers = new LinkedHashMap<>();
+        for (DomainUser domainUser : domainUsers) {
+            Map<String, List<Attribute>> attributesMap = new LinkedHashMap<>();
+            for (UserPartition userPartition : getIdentityStorePartitions(domainUser)) {
+                Map<String, List<Attribute>> userAttributes = connectorAttributesMap.get(userPartition
+                        .getConnectorId());
+                if (userAttributes != null && userAttributes.get(userPartition.getConnectorUserId()) != null) {
+                    attributesMap.put(userPartition.getConnectorId(), userAttributes.get(userPartition
+                            .getConnectorUserId()));
+                }
+            }
+            claimsOfUsers.put(domainUser.getDomainUserId(), buildClaims(attributesMap));
+        }
+
+        return claimsOfUsers;
     }
 
     public List<Claim> getClaimsOfGroup(String domainGroupId) throws DomainException, GroupNotFoundException {
@@ -656,18 +843,10 @@ public class Domain {
             return Collections.emptyList();
         }
 
-        Map<String, List<Attribute>> attributesMap = new HashMap<>();
-        for (GroupPartition groupPartition : groupPartitions) {
-            IdentityStoreConnector identityStoreConnector = identityStoreConnectorsMap.get(groupPartition
-                    .getConnectorId());
-            try {
-                List<Attribute> attributes = identityStoreConnector.getGroupAttributeValues
-                        (groupPartition.getConnectorGroupId());
-                attributesMap.put(groupPartition.getConnectorId(), attributes);
-            } catch (IdentityStoreConnectorException e) {
-                throw new DomainException("Failed to get group attribute values", e);
-            }
-        }
+        Map<String, List<Attribute>> attributesMap = getAttributesOfPartitions(groupPartitions,
+                GroupPartition::getConnectorId, groupPartition -> identityStoreConnectorsMap.get(groupPartition
+                        .getConnectorId()).getGroupAttributeValues(groupPartition.getConnectorGroupId()),
+                "Failed to get group attribute values");
 
         if (attributesMap.isEmpty()) {
             return Collections.emptyList();
@@ -703,21 +882,15 @@ public class Domain {
 
         Map<String, List<String>> attributeNamesMap = getConnectorIdToAttributeNameMap(metaClaims);
 
-        Map<String, List<Attribute>> attributesMap = new HashMap<>();
-        for (GroupPartition groupPartition : groupPartitions) {
-            List<String> attributeNames = attributeNamesMap.get(groupPartition.getConnectorId());
-            IdentityStoreConnector identityStoreConnector = identityStoreConnectorsMap.get(groupPartition
-                    .getConnectorId());
-            if (attributeNames != null) {
-                try {
-                    List<Attribute> attributes = identityStoreConnector.getGroupAttributeValues(groupPartition
-                            .getConnectorGroupId(), attributeNames);
-                    attributesMap.put(groupPartition.getConnectorId(), attributes);
-                } catch (IdentityStoreConnectorException e) {
-                    throw new DomainException("Failed to get group attribute values.", e);
-                }
-            }
-        }
+        List<GroupPartition> requestedPartitions = groupPartitions.stream()
+                .filter(groupPartition -> attributeNamesMap.containsKey(groupPartition.getConnectorId()))
+                .collect(Collectors.toList());
+
+        Map<String, List<Attribute>> attributesMap = getAttributesOfPartitions(requestedPartitions,
+                GroupPartition::getConnectorId, groupPartition -> identityStoreConnectorsMap.get(groupPartition
+                        .getConnectorId()).getGroupAttributeValues(groupPartition.getConnectorGroupId(),
+                        attributeNamesMap.get(groupPartition.getConnectorId())),
+                "Failed to get group attribute values.");
 
         return buildClaims(attributesMap);
     }
@@ -772,6 +945,8 @@ public class Domain {
             String receivedUserUniqueId = uniqueIdResolver.addUser(new DomainUser(userUniqueId, userPartitions),
                     this.id);
 
+            removeClaimLookups(userBean.getClaims());
+
             if (isNullOrEmpty(receivedUserUniqueId)) {
                 return receivedUserUniqueId;
             }
@@ -868,6 +1043,8 @@ public class Domain {
 
         try {
             List<String> domainUserIds = uniqueIdResolver.addUsers(domainUsers, this.id);
+
+            userModelMap.values().forEach(userBean -> removeClaimLookups(userBean.getClaims()));
             if (domainUserIds != null && !domainUserIds.isEmpty()) {
                 return domainUserIds;
             }
@@ -887,6 +1064,18 @@ public class Domain {
     public void updateUserClaims(String domainUserId, List<Claim> claims) throws DomainException,
             UserNotFoundException {
 
+        List<Claim> lookupClaims = getClaimLookupsOfUser(domainUserId);
+        try {
+            doUpdateUserClaims(domainUserId, claims);
+        } finally {
+            removeClaimLookups(lookupClaims);
+            removeClaimLookups(claims);
+        }
+    }
+
+    private void doUpdateUserClaims(String domainUserId, List<Claim> claims) throws DomainException,
+            UserNotFoundException {
+
         DomainUser domainUser;
         try {
             domainUser = uniqueIdResolver.getUser(domainUserId, this.id);
@@ -964,6 +1153,18 @@ public class Domain {
     public void updateUserClaims(String domainUserId, List<Claim> claimsToUpdate, List<Claim> claimsToRemove)
             throws DomainException, UserNotFoundException {
 
+        List<Claim> lookupClaims = getClaimLookupsOfUser(domainUserId);
+        try {
+            doUpdateUserClaims(domainUserId, claimsToUpdate, claimsToRemove);
+        } finally {
+            removeClaimLookups(lookupClaims);
+            removeClaimLookups(claimsToUpdate);
+        }
+    }
+
+    private void doUpdateUserClaims(String domainUserId, List<Claim> claimsToUpdate, List<Claim> claimsToRemove)
+            throws DomainException, UserNotFoundException {
+
         DomainUser domainUser;
         try {
             domainUser = uniqueIdResolver.getUser(domainUserId, this.id);
@@ -1189,6 +1390,16 @@ public class Domain {
 
     public void deleteUser(String domainUserId) throws DomainException, UserNotFoundException {
 
+        List<Claim> lookupClaims = getClaimLookupsOfUser(domainUserId);
+        try {
+            doDeleteUser(domainUserId);
+        } finally {
+            removeClaimLookups(lookupClaims);
+        }
+    }
+
+    private void doDeleteUser(String domainUserId) throws DomainException, UserNotFoundException {
+
         DomainUser domainUser;
         try {
             domainUser = uniqueIdResolver.getUser(domainUserId, this.id);
@@ -1554,7 +1765,7 @@ public class Domain {
                                    List<String> domainUserIdsToRemove) throws DomainException {
 
         try {
-            uniqueIdResolver.updateGroupsOfUser(domainGroupId, domainUserIdsToUpdate, domainUserIdsToRemove, this.id);
+            uniqueIdResolver.updateUsersOfGroup(domainGroupId, domainUserIdsToUpdate, domainUserIdsToRemove, this.id);
         } catch (UniqueIdResolverException e) {
             throw new DomainException("Failed update users of group.", e);
         }
@@ -1568,22 +1779,17 @@ public class Domain {
             throw new AuthenticationFailure("Provided claim is not unique.");
         }
 
-        IdentityStoreConnector identityStoreConnector = identityStoreConnectorsMap.get(metaClaimMapping
-                .getIdentityStoreConnectorId());
-        String connectorUserId;
+        DomainUser domainUser;
         try {
-            connectorUserId = identityStoreConnector.getConnectorUserId(metaClaimMapping.getAttributeName(),
-                    claim.getValue());
-        } catch (UserNotFoundException | IdentityStoreConnectorException e) {
+            domainUser = resolveDomainUser(metaClaimMapping, claim.getValue());
+        } catch (UserNotFoundException e) {
             throw new AuthenticationFailure("Invalid claim value. No user mapped to the provided claim.", e);
+        } catch (DomainException e) {
+            throw new AuthenticationFailure("Failed retrieve unique user info.", e);
         }
 
-        DomainUser domainUser;
-        try {
-            domainUser = uniqueIdResolver.getUserFromConnectorUserId(connectorUserId, metaClaimMapping
-                    .getIdentityStoreConnectorId(), this.id);
-        } catch (UniqueIdResolverException e) {
-            throw new AuthenticationFailure("Failed retrieve unique user info.", e);
+        if (domainUser == null) {
+            throw new AuthenticationFailure("Invalid claim value. No user mapped to the provided claim.");
         }
 
         for (UserPartition userPartition : domainUser.getUserPartitions()) {
@@ -1626,6 +1832,8 @@ public class Domain {
         if (metaClaimMappings == null || metaClaimMappings.isEmpty()) {
             this.metaClaimMappings.clear();
             this.claimUriToMetaClaimMappings.clear();
+            this.connectorIdToAttributeMetaClaims.clear();
+            this.uniqueMetaClaims.clear();
             return;
         }
 
@@ -1633,34 +1841,276 @@ public class Domain {
         this.claimUriToMetaClaimMappings = this.metaClaimMappings.stream()
                 .collect(Collectors.toMap(metaClaimMapping -> metaClaimMapping.getMetaClaim().getClaimUri(),
                         metaClaimMapping -> metaClaimMapping));
+
+        // Claims are read and written far more often than the mappings change, hence the lookups done for each
+        // attribute and claim are indexed here.
+        Map<String, Map<String, MetaClaim>> attributeMetaClaims = new HashMap<>();
+        for (MetaClaimMapping metaClaimMapping : this.metaClaimMappings) {
+            attributeMetaClaims.computeIfAbsent(metaClaimMapping.getIdentityStoreConnectorId(), k -> new HashMap<>())
+                    .putIfAbsent(metaClaimMapping.getAttributeName(), metaClaimMapping.getMetaClaim());
+        }
+        this.connectorIdToAttributeMetaClaims = attributeMetaClaims;
+
+        this.uniqueMetaClaims = this.metaClaimMappings.stream()
+                .filter(MetaClaimMapping::isUnique)
+                .map(MetaClaimMapping::getMetaClaim)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resolve the domain user of a unique claim value. Known and unknown claim values are served from the claim
+     * lookup caches when they are available, and concurrent lookups of the same claim value are coalesced.
+     *
+     * @param metaClaimMapping Meta claim mapping of the unique claim.
+     * @param claimValue       Claim value.
+     * @return Domain user.
+     * @throws UserNotFoundException If no user has the claim value.
+     * @throws DomainException       Domain Exception.
+     */
+    private DomainUser resolveDomainUser(MetaClaimMapping metaClaimMapping, String claimValue)
+            throws UserNotFoundException, DomainException {
+
+        if (claimLookupCache == null) {
+            return loadDomainUser(metaClaimMapping, claimValue, null);
+        }
+
+        String lookupKey = getClaimLookupKey(metaClaimMapping.getMetaClaim().getClaimUri(), claimValue);
+
+        if (unknownClaimLookupCache.containsKey(lookupKey)) {
+            throw new UserNotFoundException("Invalid claim value.");
+        }
+
+        DomainUser domainUser = claimLookupCache.<UserNotFoundException, DomainException>get(lookupKey,
+                key -> loadDomainUser(metaClaimMapping, claimValue, key));
+        if (domainUser != null && isNullOrEmpty(domainUser.getDomainUserId())) {
+            claimLookupCache.remove(lookupKey);
+        }
+
+        return domainUser;
+    }
+
+    /**
+     * Load the domain user of a unique claim value from the connector and the unique id resolver.
+     *
+     * @param metaClaimMapping Meta claim mapping of the unique claim.
+     * @param claimValue       Claim value.
+     * @param lookupKey        Claim lookup key to be recorded as unknown if no user has the claim value, or null.
+     * @return Domain user.
+     * @throws UserNotFoundException If no user has the claim value.
+     * @throws DomainException       Domain Exception.
+     */
+    private DomainUser loadDomainUser(MetaClaimMapping metaClaimMapping, String claimValue, String lookupKey)
+            throws UserNotFoundException, DomainException {
+
+        IdentityStoreConnector identityStoreConnector = identityStoreConnectorsMap
+                .get(metaClaimMapping.getIdentityStoreConnectorId());
+
+        // A user added or updated with the claim value while the connector is queried invalidates the lookup, in
+        // which case the claim value is not recorded as unknown.
+        long lookupKeyVersion = lookupKey != null ? unknownClaimLookupCache.getVersion(lookupKey) : 0;
+
+        String connectorUserId;
+        try {
+            connectorUserId = identityStoreConnector.getConnectorUserId(metaClaimMapping.getAttributeName(),
+                    claimValue);
+        } catch (UserNotFoundException e) {
+            if (lookupKey != null) {
+                unknownClaimLookupCache.putIfNotInvalidated(lookupKey, true, lookupKeyVersion);
+            }
+            throw e;
+        } catch (IdentityStoreConnectorException e) {
+            throw new DomainException("Failed to get connector user id", e);
+        }
+
+        if (isNullOrEmpty(connectorUserId)) {
+            if (lookupKey != null) {
+                unknownClaimLookupCache.putIfNotInvalidated(lookupKey, true, lookupKeyVersion);
+            }
+            throw new UserNotFoundException("Invalid claim value.");
+        }
+
+        try {
+            return uniqueIdResolver.getUserFromConnectorUserId(connectorUserId,
+                    metaClaimMapping.getIdentityStoreConnectorId(), this.id);
+        } catch (UniqueIdResolverException e) {
+            throw new DomainException("Failed to retrieve the domain user id.", e);
+        }
+    }
+
+    /**
+     * Get the current values of the unique claims of a user, which are used as claim lookup keys.
+     *
+     * @param domainUserId Domain user id.
+     * @return Unique claims of the user or null if they could not be retrieved.
+     */
+    private List<Claim> getClaimLookupsOfUser(String domainUserId) {
+
+        if (claimLookupCache == null) {
+            return Collections.emptyList();
+        }
+
+        if (uniqueMetaClaims.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            return getClaimsOfUser(domainUserId, uniqueMetaClaims);
+        } catch (UserNotFoundException e) {
+            return Collections.emptyList();
+        } catch (DomainException e) {
+            log.debug("Failed to retrieve the unique claims of user - {}.", domainUserId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Remove the claim lookup entries of the given claims. All entries are removed if the claims are not known.
+     *
+     * @param claims Claims to be removed from the lookup caches.
+     */
+    private void removeClaimLookups(List<Claim> claims) {
+
+        if (claimLookupCache == null) {
+            return;
+        }
+
+        if (claims == null) {
+            claimLookupCache.removeAll();
+            unknownClaimLookupCache.removeAll();
+            return;
+        }
+
+        claims.stream()
+                .filter(Objects::nonNull)
+                .filter(claim -> claimUriToMetaClaimMappings.containsKey(claim.getClaimUri()))
+                .filter(claim -> claimUriToMetaClaimMappings.get(claim.getClaimUri()).isUnique())
+                .map(claim -> getClaimLookupKey(claim.getClaimUri(), claim.getValue()))
+                .forEach(lookupKey -> {
+                    claimLookupCache.remove(lookupKey);
+                    unknownClaimLookupCache.remove(lookupKey);
+                });
+    }
+
+    /**
+     * Get the cache key of a claim lookup. The key holds a digest of the claim instead of the claim value, since the
+     * keys are published to the other nodes through the invalidation bus and claim values such as usernames and
+     * emails must not leave the node in plain text.
+     *
+     * @param claimUri   Claim URI.
+     * @param claimValue Claim value.
+     * @return Cache key.
+     */
+    private String getClaimLookupKey(String claimUri, String claimValue) {
+
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            // Claim URIs do not contain line breaks, hence the digested text is unambiguous.
+            messageDigest.update((claimUri + "\n" + claimValue).getBytes(StandardCharsets.UTF_8));
+            return this.id + "\n" + Base64.getEncoder().encodeToString(messageDigest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException("Digest algorithm " + DIGEST_ALGORITHM + " is not available.", e);
+        }
+    }
+
+    private static List<UserPartition> getIdentityStorePartitions(DomainUser domainUser) {
+
+        if (domainUser.getUserPartitions() == null) {
+            return Collections.emptyList();
+        }
+
+        return domainUser.getUserPartitions().stream()
+                .filter(UserPartition::isIdentityStore)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the attribute values of a user or a group from the connectors of its partitions. The connectors are called
+     * in parallel if a connector executor is set and there is more than one partition, in which case the calling
+     * thread serves the first partition itself. The attributes are always ordered by the partitions, so the merged
+     * claims do not depend on which connector responds first.
+     *
+     * @param partitions      Partitions of the user or the group.
+     * @param connectorIdOf   Function returning the connector id of a partition.
+     * @param attributeLoader Loader of the attribute values of a partition.
+     * @param errorMessage    Message of the exception thrown on a connector failure.
+     * @param <P>             Type of the partition.
+     * @return Map of connector ids to the attribute values.
+     * @throws DomainException Domain Exception.
+     */
+    private <P> Map<String, List<Attribute>> getAttributesOfPartitions(List<P> partitions,
+                                                                       Function<P, String> connectorIdOf,
+                                                                       PartitionAttributeLoader<P> attributeLoader,
+                                                                       String errorMessage) throws DomainException {
+
+        Map<String, List<Attribute>> attributesMap = new LinkedHashMap<>();
+
+        if ((connectorExecutor == null && connectorIdToExecutor.isEmpty()) || partitions.size() < 2) {
+            for (P partition : partitions) {
+                try {
+                    attributesMap.put(connectorIdOf.apply(partition), attributeLoader.load(partition));
+                } catch (IdentityStoreConnectorException e) {
+                    throw new DomainException(errorMessage, e);
+                }
+            }
+            return attributesMap;
+        }
+
+        List<Future<List<Attribute>>> futures = new ArrayList<>();
+        try {
+            // Partitions without an executor are served by the calling thread.
+            for (P partition : partitions.subList(1, partitions.size())) {
+                ExecutorService executor = connectorIdToExecutor.getOrDefault(connectorIdOf.apply(partition),
+                        connectorExecutor);
+                futures.add(executor == null ? null : executor.submit(() -> attributeLoader.load(partition)));
+            }
+
+            attributesMap.put(connectorIdOf.apply(partitions.get(0)), attributeLoader.load(partitions.get(0)));
+            for (int i = 1; i < partitions.size(); i++) {
+                Future<List<Attribute>> future = futures.get(i - 1);
+                attributesMap.put(connectorIdOf.apply(partitions.get(i)), future == null ?
+                        attributeLoader.load(partitions.get(i)) : future.get());
+            }
+        } catch (IdentityStoreConnectorException e) {
+            throw new DomainException(errorMessage, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new DomainException(errorMessage, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DomainException(errorMessage, e);
+        } finally {
+            // Calls that are no longer needed after a failure are abandoned.
+            futures.stream()
+                    .filter(Objects::nonNull)
+                    .forEach(future -> future.cancel(true));
+        }
+
+        return attributesMap;
     }
 
     private List<Claim> buildClaims(Map<String, List<Attribute>> connectorIdToAttributesMap) {
 
         List<Claim> claims = new ArrayList<>();
 
-        if (!connectorIdToAttributesMap.isEmpty()) {
-            connectorIdToAttributesMap.entrySet().stream()
-                    .filter(entry -> entry.getValue() != null && !entry.getValue().isEmpty())
-                    .forEach(entry -> {
-                                entry.getValue().stream()
-                                        .forEach(attribute -> {
-                                                    Optional<MetaClaim> optional = metaClaimMappings.stream()
-                                                            .filter(metaClaimMapping -> metaClaimMapping
-                                                                    .getAttributeName().equals(attribute
-                                                                            .getAttributeName()))
-                                                            .map(MetaClaimMapping::getMetaClaim)
-                                                            .findAny();
-
-                                                    if (optional.isPresent()) {
-                                                        MetaClaim metaClaim = optional.get();
-                                                        claims.add(new Claim(metaClaim.getDialectUri(), metaClaim
-                                                                .getClaimUri(), attribute.getAttributeValue()));
-                                                    }
-                                                }
-                                        );
-                            }
-                    );
+        for (Map.Entry<String, List<Attribute>> entry : connectorIdToAttributesMap.entrySet()) {
+            Map<String, MetaClaim> attributeMetaClaims = connectorIdToAttributeMetaClaims.get(entry.getKey());
+            if (attributeMetaClaims == null || entry.getValue() == null) {
+                continue;
+            }
+
+            for (Attribute attribute : entry.getValue()) {
+                MetaClaim metaClaim = attributeMetaClaims.get(attribute.getAttributeName());
+                if (metaClaim != null) {
+                    claims.add(new Claim(metaClaim.getDialectUri(), metaClaim.getClaimUri(),
+                            attribute.getAttributeValue()));
+                }
+            }
         }
 
         return claims;
@@ -1670,29 +2120,16 @@ public class Domain {
 
         Map<String, List<String>> connectorIdToAttributeNameMap = new HashMap<>();
 
-        if (!metaClaims.isEmpty()) {
-            metaClaims.stream()
-                    .filter(Objects::nonNull)
-                    .filter(metaClaim -> !isNullOrEmpty(metaClaim.getClaimUri()))
-                    .forEach(metaClaim -> {
-                                Optional<MetaClaimMapping> optional = metaClaimMappings.stream()
-                                        .filter(metaClaimMapping -> metaClaimMapping.getMetaClaim().getClaimUri()
-                                                .equals(metaClaim.getClaimUri()))
-                                        .findFirst();
-                                if (optional.isPresent()) {
-                                    MetaClaimMapping metaClaimMapping = optional.get();
-
-                                    List<String> attributeNames = connectorIdToAttributeNameMap.get(metaClaimMapping
-                                            .getIdentityStoreConnectorId());
-                                    if (attributeNames == null) {
-                                        attributeNames = new ArrayList<String>();
-                                        connectorIdToAttributeNameMap.put(metaClaimMapping
-                                                .getIdentityStoreConnectorId(), attributeNames);
-                                    }
-                                    attributeNames.add(metaClaimMapping.getAttributeName());
-                                }
-                            }
-                    );
+        for (MetaClaim metaClaim : metaClaims) {
+            if (metaClaim == null || isNullOrEmpty(metaClaim.getClaimUri())) {
+                continue;
+            }
+
+            MetaClaimMapping metaClaimMapping = claimUriToMetaClaimMappings.get(metaClaim.getClaimUri());
+            if (metaClaimMapping != null) {
+                connectorIdToAttributeNameMap.computeIfAbsent(metaClaimMapping.getIdentityStoreConnectorId(),
+                        k -> new ArrayList<>()).add(metaClaimMapping.getAttributeName());
+            }
         }
         return connectorIdToAttributeNameMap;
     }
@@ -1701,28 +2138,17 @@ public class Domain {
 
         Map<String, List<Attribute>> connectorIdToAttributesMap = new HashMap<>();
 
-        if (claims != null && !claims.isEmpty()) {
-            claims.stream()
-                    .forEach(claim -> {
-                                Optional<MetaClaimMapping> optional = metaClaimMappings.stream()
-                                        .filter(metaClaimMapping -> metaClaimMapping.getMetaClaim().getClaimUri()
-                                                .equals(claim.getClaimUri()))
-                                        .findFirst();
-
-                                if (optional.isPresent()) {
-                                    MetaClaimMapping metaClaimMapping = optional.get();
-                                    List<Attribute> attributes = connectorIdToAttributesMap.get(metaClaimMapping
-                                            .getIdentityStoreConnectorId());
-                                    if (attributes == null) {
-                                        attributes = new ArrayList<>();
-                                        connectorIdToAttributesMap.put(metaClaimMapping.getIdentityStoreConnectorId(),
-                                                attributes);
-                                    }
-                                    attributes.add(new Attribute(metaClaimMapping.getAttributeName(),
-                                            claim.getValue()));
-                                }
-                            }
-                    );
+        if (claims == null) {
+            return connectorIdToAttributesMap;
+        }
+
+        for (Claim claim : claims) {
+            MetaClaimMapping metaClaimMapping = claimUriToMetaClaimMappings.get(claim.getClaimUri());
+            if (metaClaimMapping != null) {
+                connectorIdToAttributesMap.computeIfAbsent(metaClaimMapping.getIdentityStoreConnectorId(),
+                        k -> new ArrayList<>()).add(new Attribute(metaClaimMapping.getAttributeName(),
+                        claim.getValue()));
+            }
         }
 
         return connectorIdToAttributesMap;
@@ -1880,4 +2306,15 @@ public class Domain {
 
         return attributesMap;
     }
+
+    /**
+     * Loads the attribute values of a user or a group from the connector of one of its partitions.
+     *
+     * @param <P> Type of the partition.
+     */
+    @FunctionalInterface
+    private interface PartitionAttributeLoader<P> {
+
+        List<Attribute> load(P partition) throws IdentityStoreConnectorException;
+    }
 }
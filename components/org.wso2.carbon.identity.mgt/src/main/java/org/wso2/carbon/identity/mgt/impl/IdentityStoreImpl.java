@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import org.wso2.carbon.identity.mgt.AuthenticationContext;
 import org.wso2.carbon.identity.mgt.Group;
 import org.wso2.carbon.identity.mgt.IdentityStore;
+import org.wso2.carbon.identity.mgt.Page;
 import org.wso2.carbon.identity.mgt.User;
 import org.wso2.carbon.identity.mgt.bean.GroupBean;
 import org.wso2.carbon.identity.mgt.bean.UserBean;
@@ -34,18 +35,31 @@ import org.wso2.carbon.identity.mgt.exception.IdentityStoreException;
 import org.wso2.carbon.identity.mgt.exception.IdentityStoreServerException;
 import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
 import org.wso2.carbon.identity.mgt.impl.internal.IdentityMgtDataHolder;
+import org.wso2.carbon.identity.mgt.impl.util.OperationScope;
+import org.wso2.carbon.identity.mgt.listener.IdentityStoreListener;
 
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.security.auth.callback.Callback;
 
 import static org.wso2.carbon.identity.mgt.impl.util.IdentityMgtConstants.USERNAME_CLAIM;
@@ -80,13 +94,33 @@ public class IdentityStoreImpl implements IdentityStore {
         return Integer.compare(d1Priority, d2Priority);
     });
 
+    /**
+     * Executor used to authenticate against all the eligible domains in parallel. Domains are tried one after another
+     * if this is null.
+     */
+    private ExecutorService domainExecutor;
+
     public IdentityStoreImpl(List<Domain> domains) throws IdentityStoreException {
 
+        this(domains, null);
+    }
+
+    /**
+     * Create an identity store which authenticates against all the eligible domains in parallel when no domain name
+     * is given.
+     *
+     * @param domains        Domains of the identity store.
+     * @param domainExecutor Executor used to probe the domains or null to probe them one after another.
+     * @throws IdentityStoreException Identity Store Exception.
+     */
+    public IdentityStoreImpl(List<Domain> domains, ExecutorService domainExecutor) throws IdentityStoreException {
+
         if (domains == null || domains.isEmpty()) {
             throw new IdentityStoreException("No domains registered.");
         }
 
         this.sortedDomains.addAll(domains);
+        this.domainExecutor = domainExecutor;
         domains.stream()
                 .forEach(domain -> {
                     this.domains.put(domain.getId(), domain);
@@ -219,6 +253,103 @@ public class IdentityStoreImpl implements IdentityStore {
         return doListUsers(offset, length, domain);
     }
 
+    @Override
+    public List<User> listUsersOfAllDomains(int offset, int length) throws IdentityStoreException {
+
+        if (offset < 0) {
+            throw new IdentityStoreClientException("Invalid offset value.");
+        }
+
+        if (length <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<SimpleEntry<Domain, String>> domainEntityIds = listOfAllDomains(offset, length,
+                Domain::listDomainUsers, "Failed to list users in the domain - %s");
+
+        List<User> users = new ArrayList<>();
+        for (SimpleEntry<Domain, String> entry : domainEntityIds) {
+            users.add(new User.UserBuilder()
+                    .setUserId(getEncodedUniqueEntityId(entry.getKey().getId(), entry.getValue()))
+                    .setDomainName(entry.getKey().getName())
+                    .setIdentityStore(this)
+                    .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
+                    .build());
+        }
+        return users;
+    }
+
+    @Override
+    public Page<User> listUsers(String continuationToken, int length) throws IdentityStoreException {
+
+        if (length < 0) {
+            throw new IdentityStoreClientException("Invalid length value.");
+        }
+
+        Domain domain;
+        try {
+            domain = getPrimaryDomain();
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException("Error while retrieving the primary domain.", e);
+        }
+
+        return doListUsers(continuationToken, length, domain);
+    }
+
+    @Override
+    public Page<User> listUsers(String continuationToken, int length, String domainName)
+            throws IdentityStoreException {
+
+        if (isNullOrEmpty(domainName)) {
+            return listUsers(continuationToken, length);
+        }
+
+        if (length < 0) {
+            throw new IdentityStoreClientException("Invalid length value.");
+        }
+
+        Domain domain;
+        try {
+            domain = getDomainFromDomainName(domainName);
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Error while retrieving domain from the domain name " +
+                    "- %s", domainName), e);
+        }
+
+        return doListUsers(continuationToken, length, domain);
+    }
+
+    @Override
+    public Stream<User> streamUsers() throws IdentityStoreException {
+
+        Domain domain;
+        try {
+            domain = getPrimaryDomain();
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException("Error while retrieving the primary domain.", e);
+        }
+
+        return doStreamUsers(domain);
+    }
+
+    @Override
+    public Stream<User> streamUsers(String domainName) throws IdentityStoreException {
+
+        if (isNullOrEmpty(domainName)) {
+            return streamUsers();
+        }
+
+        Domain domain;
+        try {
+            domain = getDomainFromDomainName(domainName);
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Error while retrieving domain from the domain name " +
+                    "- %s", domainName), e);
+        }
+
+        return doStreamUsers(domain);
+    }
+
     @Override
     public List<User> listUsers(Claim claim, int offset, int length) throws IdentityStoreException {
 
@@ -440,6 +571,103 @@ public class IdentityStoreImpl implements IdentityStore {
         return doListGroups(offset, length, domain);
     }
 
+    @Override
+    public List<Group> listGroupsOfAllDomains(int offset, int length) throws IdentityStoreException {
+
+        if (offset < 0) {
+            throw new IdentityStoreClientException("Invalid offset value.");
+        }
+
+        if (length <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<SimpleEntry<Domain, String>> domainEntityIds = listOfAllDomains(offset, length,
+                Domain::listDomainGroups, "Failed to list groups in the domain - %s");
+
+        List<Group> groups = new ArrayList<>();
+        for (SimpleEntry<Domain, String> entry : domainEntityIds) {
+            groups.add(new Group.GroupBuilder()
+                    .setGroupId(getEncodedUniqueEntityId(entry.getKey().getId(), entry.getValue()))
+                    .setDomainName(entry.getKey().getName())
+                    .setIdentityStore(this)
+                    .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
+                    .build());
+        }
+        return groups;
+    }
+
+    @Override
+    public Page<Group> listGroups(String continuationToken, int length) throws IdentityStoreException {
+
+        if (length < 0) {
+            throw new IdentityStoreClientException("Invalid length value.");
+        }
+
+        Domain domain;
+        try {
+            domain = getPrimaryDomain();
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException("Error while retrieving the primary domain.", e);
+        }
+
+        return doListGroups(continuationToken, length, domain);
+    }
+
+    @Override
+    public Page<Group> listGroups(String continuationToken, int length, String domainName)
+            throws IdentityStoreException {
+
+        if (isNullOrEmpty(domainName)) {
+            return listGroups(continuationToken, length);
+        }
+
+        if (length < 0) {
+            throw new IdentityStoreClientException("Invalid length value.");
+        }
+
+        Domain domain;
+        try {
+            domain = getDomainFromDomainName(domainName);
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Error while retrieving domain from the domain name " +
+                    "- %s", domainName), e);
+        }
+
+        return doListGroups(continuationToken, length, domain);
+    }
+
+    @Override
+    public Stream<Group> streamGroups() throws IdentityStoreException {
+
+        Domain domain;
+        try {
+            domain = getPrimaryDomain();
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException("Error while retrieving the primary domain.", e);
+        }
+
+        return doStreamGroups(domain);
+    }
+
+    @Override
+    public Stream<Group> streamGroups(String domainName) throws IdentityStoreException {
+
+        if (isNullOrEmpty(domainName)) {
+            return streamGroups();
+        }
+
+        Domain domain;
+        try {
+            domain = getDomainFromDomainName(domainName);
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Error while retrieving domain from the domain name " +
+                    "- %s", domainName), e);
+        }
+
+        return doStreamGroups(domain);
+    }
+
     @Override
     public List<Group> listGroups(Claim claim, int offset, int length) throws IdentityStoreException {
 
@@ -556,6 +784,31 @@ public class IdentityStoreImpl implements IdentityStore {
     @Override
     public List<Group> getGroupsOfUser(String uniqueUserId) throws IdentityStoreException, UserNotFoundException {
 
+        try (OperationScope operationScope = OperationScope.begin()) {
+            return doGetGroupsOfUser(uniqueUserId);
+        }
+    }
+
+    @Override
+    public List<User> getUsersOfGroup(String uniqueGroupId) throws IdentityStoreException, GroupNotFoundException {
+
+        try (OperationScope operationScope = OperationScope.begin()) {
+            return doGetUsersOfGroup(uniqueGroupId);
+        }
+    }
+
+    @Override
+    public boolean isUserInGroup(String uniqueUserId, String uniqueGroupId) throws IdentityStoreException,
+            UserNotFoundException, GroupNotFoundException {
+
+        try (OperationScope operationScope = OperationScope.begin()) {
+            return doIsUserInGroup(uniqueUserId, uniqueGroupId);
+        }
+    }
+
+    @Override
+    public List<Claim> getClaimsOfUser(String uniqueUserId) throws IdentityStoreException, UserNotFoundException {
+
         if (isNullOrEmpty(uniqueUserId)) {
             throw new IdentityStoreClientException("Invalid unique user id.");
         }
@@ -564,46 +817,57 @@ public class IdentityStoreImpl implements IdentityStore {
 
         Domain domain = domains.get(decodedUniqueUserId.getKey());
 
-        boolean userExists;
         try {
-            userExists = domain.isUserExists(decodedUniqueUserId.getValue());
+            return domain.getClaimsOfUser(decodedUniqueUserId.getValue());
         } catch (DomainException e) {
-            throw new IdentityStoreServerException(String.format("Failed to check existence of unique user - " +
-                    "%s.", uniqueUserId), e);
+            throw new IdentityStoreServerException(String.format("Failed to get claims of unique user - %s.",
+                    uniqueUserId), e);
         }
+    }
 
-        if (!userExists) {
-            throw new UserNotFoundException("Invalid unique user id.");
+    @Override
+    public List<Claim> getClaimsOfUser(String uniqueUserId, List<MetaClaim> metaClaims) throws IdentityStoreException,
+            UserNotFoundException {
+
+        if (isNullOrEmpty(uniqueUserId)) {
+            throw new IdentityStoreClientException("Invalid unique user id.");
         }
 
-        List<String> domainGroupIds;
+        if (metaClaims == null || metaClaims.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        SimpleEntry<Integer, String> decodedUniqueUserId = getDecodedUniqueEntityId(uniqueUserId);
+
+        Domain domain = domains.get(decodedUniqueUserId.getKey());
+
         try {
-            domainGroupIds = domain.getGroupsOfUser(decodedUniqueUserId.getValue());
+            return domain.getClaimsOfUser(decodedUniqueUserId.getValue(), metaClaims);
         } catch (DomainException e) {
-            throw new IdentityStoreServerException(String.format("Failed to retrieve the unique group ids for user id" +
-                    " - %s.", uniqueUserId), e);
+            throw new IdentityStoreServerException(String.format("Failed to get claims of unique user - %s.",
+                    uniqueUserId), e);
         }
+    }
 
-        if (domainGroupIds.isEmpty()) {
-            return Collections.emptyList();
-        }
+    @Override
+    public Map<String, List<Claim>> getClaimsOfUsers(List<String> uniqueUserIds) throws IdentityStoreException {
 
-        List<String> uniqueGroupIds = new ArrayList<>();
-        domainGroupIds.forEach(rethrowConsumer(domainGroupId -> uniqueGroupIds
-                .add(getEncodedUniqueEntityId(domain.getId(), domainGroupId))));
+        return doGetClaimsOfUsers(uniqueUserIds, null);
+    }
 
-        return uniqueGroupIds.stream()
-                .map(uniqueGroupId -> new Group.GroupBuilder()
-                        .setGroupId(uniqueGroupId)
-                        .setDomainName(domain.getName())
-                        .setIdentityStore(this)
-                        .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
-                        .build())
-                .collect(Collectors.toList());
+    @Override
+    public Map<String, List<Claim>> getClaimsOfUsers(List<String> uniqueUserIds, List<MetaClaim> metaClaims) throws
+            IdentityStoreException {
+
+        if (metaClaims == null) {
+            metaClaims = Collections.emptyList();
+        }
+
+        return doGetClaimsOfUsers(uniqueUserIds, metaClaims);
     }
 
     @Override
-    public List<User> getUsersOfGroup(String uniqueGroupId) throws IdentityStoreException, GroupNotFoundException {
+    public List<Claim> getClaimsOfGroup(String uniqueGroupId) throws IdentityStoreException, GroupNotFoundException {
 
         if (isNullOrEmpty(uniqueGroupId)) {
             throw new IdentityStoreClientException("Invalid unique group id.");
@@ -613,168 +877,27 @@ public class IdentityStoreImpl implements IdentityStore {
 
         Domain domain = domains.get(decodedUniqueGroupId.getKey());
 
-        boolean groupExists;
         try {
-            groupExists = domain.isGroupExists(decodedUniqueGroupId.getValue());
+            return domain.getClaimsOfGroup(decodedUniqueGroupId.getValue());
         } catch (DomainException e) {
-            throw new IdentityStoreServerException(String.format("Failed to check existence of unique group - " +
-                    "%s.", uniqueGroupId), e);
+            throw new IdentityStoreServerException(String.format("Failed to get claims of unique goup - %s.",
+                    uniqueGroupId), e);
         }
+    }
 
-        if (!groupExists) {
-            throw new GroupNotFoundException("Invalid unique group id.");
-        }
+    @Override
+    public List<Claim> getClaimsOfGroup(String uniqueGroupId, List<MetaClaim> metaClaims) throws
+            IdentityStoreException, GroupNotFoundException {
 
-        List<String> domainUserIds;
-        try {
-            domainUserIds = domain.getUsersOfGroup(decodedUniqueGroupId.getValue());
-        } catch (DomainException e) {
-            throw new IdentityStoreServerException(String.format("Failed to retrieve the unique group ids for user id" +
-                    " - %s.", uniqueGroupId), e);
+        if (isNullOrEmpty(uniqueGroupId)) {
+            throw new IdentityStoreClientException("Invalid unique group id.");
         }
 
-        if (domainUserIds.isEmpty()) {
+        if (metaClaims == null || metaClaims.isEmpty()) {
             return Collections.emptyList();
         }
 
-        List<String> uniqueUserIds = new ArrayList<>();
-        domainUserIds.forEach(rethrowConsumer(domainUserId -> uniqueUserIds
-                .add(getEncodedUniqueEntityId(domain.getId(), domainUserId))));
-
-        return uniqueUserIds.stream()
-                .map(uniqueUserId -> new User.UserBuilder()
-                        .setUserId(uniqueUserId)
-                        .setDomainName(domain.getName())
-                        .setIdentityStore(this)
-                        .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
-                        .build())
-                .collect(Collectors.toList());
-    }
-
-    @Override
-    public boolean isUserInGroup(String uniqueUserId, String uniqueGroupId) throws IdentityStoreException,
-            UserNotFoundException, GroupNotFoundException {
-
-        if (isNullOrEmpty(uniqueUserId) || isNullOrEmpty(uniqueGroupId)) {
-            throw new IdentityStoreClientException("Invalid inputs.");
-        }
-
-        SimpleEntry<Integer, String> decodedUniqueUserId = getDecodedUniqueEntityId(uniqueUserId);
-        SimpleEntry<Integer, String> decodedUniqueGroupId = getDecodedUniqueEntityId(uniqueGroupId);
-
-        if (decodedUniqueUserId.getKey().intValue() != decodedUniqueGroupId.getKey().intValue()) {
-            return false;
-        }
-
-        Domain domain = domains.get(decodedUniqueUserId.getKey());
-
-        boolean userExists;
-        try {
-            userExists = domain.isUserExists(decodedUniqueUserId.getValue());
-        } catch (DomainException e) {
-            throw new IdentityStoreServerException(String.format("Failed to check existence of unique user - " +
-                    "%s.", uniqueUserId), e);
-        }
-
-        if (!userExists) {
-            throw new UserNotFoundException("Invalid unique user id.");
-        }
-
-        boolean groupExists;
-        try {
-            groupExists = domain.isGroupExists(decodedUniqueGroupId.getValue());
-        } catch (DomainException e) {
-            throw new IdentityStoreServerException(String.format("Failed to check existence of unique group - " +
-                    "%s.", uniqueGroupId), e);
-        }
-
-        if (!groupExists) {
-            throw new GroupNotFoundException("Invalid unique group id.");
-        }
-
-        try {
-            return domain.isUserInGroup(decodedUniqueUserId.getValue(), decodedUniqueGroupId.getValue());
-        } catch (DomainException e) {
-            throw new IdentityStoreServerException(String.format("Failed to check user %s in the group %s",
-                    uniqueUserId, uniqueGroupId));
-        }
-    }
-
-    @Override
-    public List<Claim> getClaimsOfUser(String uniqueUserId) throws IdentityStoreException, UserNotFoundException {
-
-        if (isNullOrEmpty(uniqueUserId)) {
-            throw new IdentityStoreClientException("Invalid unique user id.");
-        }
-
-        SimpleEntry<Integer, String> decodedUniqueUserId = getDecodedUniqueEntityId(uniqueUserId);
-
-        Domain domain = domains.get(decodedUniqueUserId.getKey());
-
-        try {
-            return domain.getClaimsOfUser(decodedUniqueUserId.getValue());
-        } catch (DomainException e) {
-            throw new IdentityStoreServerException(String.format("Failed to get claims of unique user - %s.",
-                    uniqueUserId), e);
-        }
-    }
-
-    @Override
-    public List<Claim> getClaimsOfUser(String uniqueUserId, List<MetaClaim> metaClaims) throws IdentityStoreException,
-            UserNotFoundException {
-
-        if (isNullOrEmpty(uniqueUserId)) {
-            throw new IdentityStoreClientException("Invalid unique user id.");
-        }
-
-        if (metaClaims == null || metaClaims.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        SimpleEntry<Integer, String> decodedUniqueUserId = getDecodedUniqueEntityId(uniqueUserId);
-
-        Domain domain = domains.get(decodedUniqueUserId.getKey());
-
-        try {
-            return domain.getClaimsOfUser(decodedUniqueUserId.getValue(), metaClaims);
-        } catch (DomainException e) {
-            throw new IdentityStoreServerException(String.format("Failed to get claims of unique user - %s.",
-                    uniqueUserId), e);
-        }
-    }
-
-    @Override
-    public List<Claim> getClaimsOfGroup(String uniqueGroupId) throws IdentityStoreException, GroupNotFoundException {
-
-        if (isNullOrEmpty(uniqueGroupId)) {
-            throw new IdentityStoreClientException("Invalid unique group id.");
-        }
-
-        SimpleEntry<Integer, String> decodedUniqueGroupId = getDecodedUniqueEntityId(uniqueGroupId);
-
-        Domain domain = domains.get(decodedUniqueGroupId.getKey());
-
-        try {
-            return domain.getClaimsOfGroup(decodedUniqueGroupId.getValue());
-        } catch (DomainException e) {
-            throw new IdentityStoreServerException(String.format("Failed to get claims of unique goup - %s.",
-                    uniqueGroupId), e);
-        }
-    }
-
-    @Override
-    public List<Claim> getClaimsOfGroup(String uniqueGroupId, List<MetaClaim> metaClaims) throws
-            IdentityStoreException, GroupNotFoundException {
-
-        if (isNullOrEmpty(uniqueGroupId)) {
-            throw new IdentityStoreClientException("Invalid unique group id.");
-        }
-
-        if (metaClaims == null || metaClaims.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        SimpleEntry<Integer, String> decodedUniqueGroupId = getDecodedUniqueEntityId(uniqueGroupId);
+        SimpleEntry<Integer, String> decodedUniqueGroupId = getDecodedUniqueEntityId(uniqueGroupId);
 
         Domain domain = domains.get(decodedUniqueGroupId.getKey());
 
@@ -814,7 +937,7 @@ public class IdentityStoreImpl implements IdentityStore {
 
         String domainUserId;
         try {
-            domainUserId = domain.addUser(userBean);
+            domainUserId = inScope(() -> domain.addUser(userBean));
         } catch (DomainException e) {
             throw new IdentityStoreClientException("Failed to persist user.", e);
         }
@@ -852,7 +975,7 @@ public class IdentityStoreImpl implements IdentityStore {
 
         String domainUserId;
         try {
-            domainUserId = domain.addUser(userBean);
+            domainUserId = inScope(() -> domain.addUser(userBean));
         } catch (DomainException e) {
             throw new IdentityStoreClientException("Failed to persist user.", e);
         }
@@ -881,7 +1004,7 @@ public class IdentityStoreImpl implements IdentityStore {
 
         List<String> domainUserIds;
         try {
-            domainUserIds = domain.addUsers(userBeen);
+            domainUserIds = inScope(() -> domain.addUsers(userBeen));
         } catch (DomainException e) {
             throw new IdentityStoreClientException("Failed to persist user.", e);
         }
@@ -925,7 +1048,7 @@ public class IdentityStoreImpl implements IdentityStore {
 
         List<String> domainUserIds;
         try {
-            domainUserIds = domain.addUsers(userBeen);
+            domainUserIds = inScope(() -> domain.addUsers(userBeen));
         } catch (DomainException e) {
             throw new IdentityStoreClientException("Failed to persist user.", e);
         }
@@ -961,7 +1084,7 @@ public class IdentityStoreImpl implements IdentityStore {
         Domain domain = domains.get(decodedUniqueUserId.getKey());
 
         try {
-            domain.updateUserClaims(decodedUniqueUserId.getValue(), claims);
+            inScope(() -> domain.updateUserClaims(decodedUniqueUserId.getValue(), claims));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to update claims of user - %s", uniqueUserId));
         }
@@ -984,7 +1107,7 @@ public class IdentityStoreImpl implements IdentityStore {
         Domain domain = domains.get(decodedUniqueUserId.getKey());
 
         try {
-            domain.updateUserClaims(decodedUniqueUserId.getValue(), claimsToAdd, claimsToRemove);
+            inScope(() -> domain.updateUserClaims(decodedUniqueUserId.getValue(), claimsToAdd, claimsToRemove));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to update claims of user - %s", uniqueUserId));
         }
@@ -1003,10 +1126,12 @@ public class IdentityStoreImpl implements IdentityStore {
         Domain domain = domains.get(decodedUniqueUserId.getKey());
 
         try {
-            domain.updateUserCredentials(decodedUniqueUserId.getValue(), credentials);
+            inScope(() -> domain.updateUserCredentials(decodedUniqueUserId.getValue(), credentials));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to update credentials of user - %s",
                     uniqueUserId));
+        } finally {
+            notifyListeners(listener -> listener.userCredentialsUpdated(uniqueUserId));
         }
 
     }
@@ -1029,10 +1154,13 @@ public class IdentityStoreImpl implements IdentityStore {
         Domain domain = domains.get(decodedUniqueUserId.getKey());
 
         try {
-            domain.updateUserCredentials(decodedUniqueUserId.getValue(), credentialsToAdd, credentialsToRemove);
+            inScope(() -> domain.updateUserCredentials(decodedUniqueUserId.getValue(), credentialsToAdd,
+                    credentialsToRemove));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to update credentials of user - %s",
                     uniqueUserId));
+        } finally {
+            notifyListeners(listener -> listener.userCredentialsUpdated(uniqueUserId));
         }
     }
 
@@ -1048,9 +1176,11 @@ public class IdentityStoreImpl implements IdentityStore {
         Domain domain = domains.get(decodedUniqueUserId.getKey());
 
         try {
-            domain.deleteUser(decodedUniqueUserId.getValue());
+            inScope(() -> domain.deleteUser(decodedUniqueUserId.getValue()));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to delete user - %s", uniqueUserId));
+        } finally {
+            notifyListeners(listener -> listener.userDeleted(uniqueUserId));
         }
     }
 
@@ -1063,16 +1193,18 @@ public class IdentityStoreImpl implements IdentityStore {
 
         SimpleEntry<Integer, String> decodedUniqueUserId = getDecodedUniqueEntityId(uniqueUserId);
 
-        List<String> domainGroupIds = new ArrayList<>();
+        List<String> domainGroupIds;
 
         if (uniqueGroupIds != null && !uniqueGroupIds.isEmpty()) {
             domainGroupIds = getDomainEntityIds(uniqueGroupIds, decodedUniqueUserId.getKey());
+        } else {
+            domainGroupIds = new ArrayList<>();
         }
 
         Domain domain = domains.get(decodedUniqueUserId.getKey());
 
         try {
-            domain.updateGroupsOfUser(decodedUniqueUserId.getValue(), domainGroupIds);
+            inScope(() -> domain.updateGroupsOfUser(decodedUniqueUserId.getValue(), domainGroupIds));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to update groups of user - %s", uniqueUserId));
         }
@@ -1088,20 +1220,25 @@ public class IdentityStoreImpl implements IdentityStore {
 
         SimpleEntry<Integer, String> decodedUniqueUserId = getDecodedUniqueEntityId(uniqueUserId);
 
-        List<String> domainGroupIdsToAdd = new ArrayList<>();
+        List<String> domainGroupIdsToAdd;
         if (uniqueGroupIdsToAdd != null && !uniqueGroupIdsToAdd.isEmpty()) {
             domainGroupIdsToAdd = getDomainEntityIds(uniqueGroupIdsToAdd, decodedUniqueUserId.getKey());
+        } else {
+            domainGroupIdsToAdd = new ArrayList<>();
         }
 
-        List<String> domainGroupIdsToRemove = new ArrayList<>();
+        List<String> domainGroupIdsToRemove;
         if (uniqueGroupIdsToRemove != null && !uniqueGroupIdsToRemove.isEmpty()) {
             domainGroupIdsToRemove = getDomainEntityIds(uniqueGroupIdsToRemove, decodedUniqueUserId.getKey());
+        } else {
+            domainGroupIdsToRemove = new ArrayList<>();
         }
 
         Domain domain = domains.get(decodedUniqueUserId.getKey());
 
         try {
-            domain.updateGroupsOfUser(decodedUniqueUserId.getValue(), domainGroupIdsToAdd, domainGroupIdsToRemove);
+            inScope(() -> domain.updateGroupsOfUser(decodedUniqueUserId.getValue(), domainGroupIdsToAdd,
+                    domainGroupIdsToRemove));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to update groups of user - %s", uniqueUserId));
         }
@@ -1123,7 +1260,7 @@ public class IdentityStoreImpl implements IdentityStore {
 
         String domainGroupId;
         try {
-            domainGroupId = domain.addGroup(groupBean);
+            domainGroupId = inScope(() -> domain.addGroup(groupBean));
         } catch (DomainException e) {
             throw new IdentityStoreClientException("Failed to persist group.", e);
         }
@@ -1157,7 +1294,7 @@ public class IdentityStoreImpl implements IdentityStore {
 
         String domainGroupId;
         try {
-            domainGroupId = domain.addGroup(groupBean);
+            domainGroupId = inScope(() -> domain.addGroup(groupBean));
         } catch (DomainException e) {
             throw new IdentityStoreClientException("Failed to persist group.", e);
         }
@@ -1186,7 +1323,7 @@ public class IdentityStoreImpl implements IdentityStore {
 
         List<String> domainGroupIds;
         try {
-            domainGroupIds = domain.addGroups(groupBeen);
+            domainGroupIds = inScope(() -> domain.addGroups(groupBeen));
         } catch (DomainException e) {
             throw new IdentityStoreClientException("Failed to persist user.", e);
         }
@@ -1230,7 +1367,7 @@ public class IdentityStoreImpl implements IdentityStore {
 
         List<String> domainGroupIds;
         try {
-            domainGroupIds = domain.addGroups(groupBeen);
+            domainGroupIds = inScope(() -> domain.addGroups(groupBeen));
         } catch (DomainException e) {
             throw new IdentityStoreClientException("Failed to persist user.", e);
         }
@@ -1266,7 +1403,7 @@ public class IdentityStoreImpl implements IdentityStore {
         Domain domain = domains.get(decodedUniqueGroupId.getKey());
 
         try {
-            domain.updateGroupClaims(decodedUniqueGroupId.getValue(), claims);
+            inScope(() -> domain.updateGroupClaims(decodedUniqueGroupId.getValue(), claims));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to update claims of group - %s",
                     uniqueGroupId));
@@ -1290,7 +1427,7 @@ public class IdentityStoreImpl implements IdentityStore {
         Domain domain = domains.get(decodedUniqueGroupId.getKey());
 
         try {
-            domain.updateGroupClaims(decodedUniqueGroupId.getValue(), claimsToAdd, claimsToRemove);
+            inScope(() -> domain.updateGroupClaims(decodedUniqueGroupId.getValue(), claimsToAdd, claimsToRemove));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to update claims of group - %s",
                     uniqueGroupId));
@@ -1309,7 +1446,7 @@ public class IdentityStoreImpl implements IdentityStore {
         Domain domain = domains.get(decodedUniqueGroupId.getKey());
 
         try {
-            domain.deleteGroup(decodedUniqueGroupId.getValue());
+            inScope(() -> domain.deleteGroup(decodedUniqueGroupId.getValue()));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to delete user - %s", uniqueGroupId));
         }
@@ -1324,16 +1461,18 @@ public class IdentityStoreImpl implements IdentityStore {
 
         SimpleEntry<Integer, String> decodedUniqueGroupId = getDecodedUniqueEntityId(uniqueGroupId);
 
-        List<String> domainGroupIds = new ArrayList<>();
+        List<String> domainGroupIds;
 
         if (uniqueUserIds != null && !uniqueUserIds.isEmpty()) {
             domainGroupIds = getDomainEntityIds(uniqueUserIds, decodedUniqueGroupId.getKey());
+        } else {
+            domainGroupIds = new ArrayList<>();
         }
 
         Domain domain = domains.get(decodedUniqueGroupId.getKey());
 
         try {
-            domain.updateUsersOfGroup(decodedUniqueGroupId.getValue(), domainGroupIds);
+            inScope(() -> domain.updateUsersOfGroup(decodedUniqueGroupId.getValue(), domainGroupIds));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to update users of group - %s",
                     uniqueGroupId));
@@ -1350,20 +1489,25 @@ public class IdentityStoreImpl implements IdentityStore {
 
         SimpleEntry<Integer, String> decodedUniqueGroupId = getDecodedUniqueEntityId(uniqueGroupId);
 
-        List<String> domainUserIdsToAdd = new ArrayList<>();
+        List<String> domainUserIdsToAdd;
         if (uniqueUserIdsToAdd != null && !uniqueUserIdsToAdd.isEmpty()) {
             domainUserIdsToAdd = getDomainEntityIds(uniqueUserIdsToAdd, decodedUniqueGroupId.getKey());
+        } else {
+            domainUserIdsToAdd = new ArrayList<>();
         }
 
-        List<String> domainUserIdsToRemove = new ArrayList<>();
+        List<String> domainUserIdsToRemove;
         if (uniqueUserIdsToRemove != null && !uniqueUserIdsToRemove.isEmpty()) {
             domainUserIdsToRemove = getDomainEntityIds(uniqueUserIdsToRemove, decodedUniqueGroupId.getKey());
+        } else {
+            domainUserIdsToRemove = new ArrayList<>();
         }
 
         Domain domain = domains.get(decodedUniqueGroupId.getKey());
 
         try {
-            domain.updateUsersOfGroup(decodedUniqueGroupId.getValue(), domainUserIdsToAdd, domainUserIdsToRemove);
+            inScope(() -> domain.updateUsersOfGroup(decodedUniqueGroupId.getValue(), domainUserIdsToAdd,
+                    domainUserIdsToRemove));
         } catch (DomainException e) {
             throw new IdentityStoreServerException(String.format("Failed to update users of group - %s",
                     uniqueGroupId));
@@ -1396,47 +1540,22 @@ public class IdentityStoreImpl implements IdentityStore {
                 throw new AuthenticationFailure(String.format("Invalid domain name - %s.", domainName));
             }
 
-            String domainUserId = domain.authenticate(claim, credentials);
-            String uniqueUserId;
-            try {
-                uniqueUserId = getEncodedUniqueEntityId(domain.getId(), domainUserId);
-            } catch (IdentityStoreException e) {
-                throw new IdentityStoreServerException("Failed to build unique user id.");
-            }
-
-            return new AuthenticationContext(
-                    new User.UserBuilder()
-                            .setUserId(uniqueUserId)
-                            .setIdentityStore(this)
-                            .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
-                            .setDomainName(domain.getName())
-                            .build());
+            return buildAuthenticationContext(domain, domain.authenticate(claim, credentials));
         }
 
-        for (Domain domain : sortedDomains) {
-            if (domain.isClaimSupported(claim.getClaimUri())) {
-                try {
-                    String domainUserId = domain.authenticate(claim, credentials);
-                    String uniqueUserId;
-                    try {
-                        uniqueUserId = getEncodedUniqueEntityId(domain.getId(), domainUserId);
-                    } catch (IdentityStoreException e) {
-                        throw new IdentityStoreServerException("Failed to build unique user id.");
-                    }
+        List<Domain> eligibleDomains = sortedDomains.stream()
+                .filter(domain -> domain.isClaimSupported(claim.getClaimUri()))
+                .collect(Collectors.toList());
 
-                    return new AuthenticationContext(
-                            new User.UserBuilder()
-                                    .setUserId(uniqueUserId)
-                                    .setIdentityStore(this)
-                                    .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
-                                    .setDomainName(domain.getName())
-                                    .build());
-                } catch (AuthenticationFailure e) {
-                    if (log.isDebugEnabled()) {
-                        log.debug(String.format("Failed to authenticate user - %s from domain - %s", claim.getValue(),
-                                domainName), e);
-                    }
-                }
+        if (domainExecutor != null && eligibleDomains.stream().skip(1).anyMatch(Domain::isParallelAuthentication)) {
+            return authenticateInParallel(eligibleDomains, claim, credentials);
+        }
+
+        for (Domain domain : eligibleDomains) {
+            try {
+                return buildAuthenticationContext(domain, domain.authenticate(claim, credentials));
+            } catch (AuthenticationFailure e) {
+                logAuthenticationFailure(claim, domain, e);
             }
         }
 
@@ -1483,6 +1602,100 @@ public class IdentityStoreImpl implements IdentityStore {
      * Identity User Management private methods.
      */
 
+    /**
+     * Run a write of a domain within an operation scope, so that the resolver calls of the write share a connection
+     * and its reads see the rows it wrote.
+     *
+     * @param operation Write returning a result.
+     * @param <T>       Type of the result.
+     * @param <E>       Exception of the write besides the domain exception.
+     * @return Result of the write.
+     * @throws DomainException Domain Exception.
+     * @throws E               Exception of the write.
+     */
+    private static <T, E extends Exception> T inScope(DomainOperation<T, E> operation) throws DomainException, E {
+
+        try (OperationScope operationScope = OperationScope.begin()) {
+            return operation.run();
+        }
+    }
+
+    /**
+     * Run a write of a domain within an operation scope.
+     *
+     * @param task Write without a result.
+     * @param <E>  Exception of the write besides the domain exception.
+     * @throws DomainException Domain Exception.
+     * @throws E               Exception of the write.
+     */
+    private static <E extends Exception> void inScope(DomainTask<E> task) throws DomainException, E {
+
+        try (OperationScope operationScope = OperationScope.begin()) {
+            task.run();
+        }
+    }
+
+    /**
+     * Notify the identity store listeners of a change. A failing listener does not prevent the others from being
+     * notified, nor fail the operation which made the change.
+     *
+     * @param notification Notification to deliver to each listener.
+     */
+    private void notifyListeners(Consumer<IdentityStoreListener> notification) {
+
+        for (IdentityStoreListener listener : IdentityMgtDataHolder.getInstance().getIdentityStoreListeners()) {
+            try {
+                notification.accept(listener);
+            } catch (RuntimeException e) {
+                log.error("Failed to notify the identity store listener - {}.", listener.getClass().getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Build the opaque continuation token of a page that ends with the given domain entity.
+     *
+     * @param domainId       Domain identifier.
+     * @param domainEntityId Domain entity id of the last entry of the page.
+     * @return Continuation token.
+     * @throws IdentityStoreException Identity Store Exception.
+     */
+    private String getContinuationToken(int domainId, String domainEntityId) throws IdentityStoreException {
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                getEncodedUniqueEntityId(domainId, domainEntityId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get the domain entity id a continuation token points to.
+     *
+     * @param continuationToken Continuation token or null for the first page.
+     * @param domain            Domain which is being listed.
+     * @return Domain entity id to start after or null for the first page.
+     * @throws IdentityStoreException If the token is not valid for the domain.
+     */
+    private String getDomainEntityIdFromToken(String continuationToken, Domain domain) throws IdentityStoreException {
+
+        if (isNullOrEmpty(continuationToken)) {
+            return null;
+        }
+
+        SimpleEntry<Integer, String> decodedUniqueEntityId;
+        try {
+            decodedUniqueEntityId = getDecodedUniqueEntityId(new String(Base64.getUrlDecoder()
+                    .decode(continuationToken), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException | IdentityStoreClientException e) {
+            throw new IdentityStoreClientException("Invalid continuation token.");
+        }
+
+        if (decodedUniqueEntityId.getKey() != domain.getId()) {
+            throw new IdentityStoreClientException("Continuation token does not belong to the domain - " +
+                    domain.getName());
+        }
+
+        return decodedUniqueEntityId.getValue();
+    }
+
     /**
      * Get unique entity Id.
      *
@@ -1526,6 +1739,193 @@ public class IdentityStoreImpl implements IdentityStore {
         return new SimpleEntry<>(domainId, decodedUniqueEntityIdParts[1]);
     }
 
+    private List<Group> doGetGroupsOfUser(String uniqueUserId) throws IdentityStoreException, UserNotFoundException {
+
+        if (isNullOrEmpty(uniqueUserId)) {
+            throw new IdentityStoreClientException("Invalid unique user id.");
+        }
+
+        SimpleEntry<Integer, String> decodedUniqueUserId = getDecodedUniqueEntityId(uniqueUserId);
+
+        Domain domain = domains.get(decodedUniqueUserId.getKey());
+
+        boolean userExists;
+        try {
+            userExists = domain.isUserExists(decodedUniqueUserId.getValue());
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Failed to check existence of unique user - " +
+                    "%s.", uniqueUserId), e);
+        }
+
+        if (!userExists) {
+            throw new UserNotFoundException("Invalid unique user id.");
+        }
+
+        List<String> domainGroupIds;
+        try {
+            domainGroupIds = domain.getGroupsOfUser(decodedUniqueUserId.getValue());
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Failed to retrieve the unique group ids for user id" +
+                    " - %s.", uniqueUserId), e);
+        }
+
+        if (domainGroupIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> uniqueGroupIds = new ArrayList<>();
+        domainGroupIds.forEach(rethrowConsumer(domainGroupId -> uniqueGroupIds
+                .add(getEncodedUniqueEntityId(domain.getId(), domainGroupId))));
+
+        return uniqueGroupIds.stream()
+                .map(uniqueGroupId -> new Group.GroupBuilder()
+                        .setGroupId(uniqueGroupId)
+                        .setDomainName(domain.getName())
+                        .setIdentityStore(this)
+                        .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private List<User> doGetUsersOfGroup(String uniqueGroupId) throws IdentityStoreException,
+            GroupNotFoundException {
+
+        if (isNullOrEmpty(uniqueGroupId)) {
+            throw new IdentityStoreClientException("Invalid unique group id.");
+        }
+
+        SimpleEntry<Integer, String> decodedUniqueGroupId = getDecodedUniqueEntityId(uniqueGroupId);
+
+        Domain domain = domains.get(decodedUniqueGroupId.getKey());
+
+        boolean groupExists;
+        try {
+            groupExists = domain.isGroupExists(decodedUniqueGroupId.getValue());
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Failed to check existence of unique group - " +
+                    "%s.", uniqueGroupId), e);
+        }
+
+        if (!groupExists) {
+            throw new GroupNotFoundException("Invalid unique group id.");
+        }
+
+        List<String> domainUserIds;
+        try {
+            domainUserIds = domain.getUsersOfGroup(decodedUniqueGroupId.getValue());
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Failed to retrieve the unique group ids for user id" +
+                    " - %s.", uniqueGroupId), e);
+        }
+
+        if (domainUserIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> uniqueUserIds = new ArrayList<>();
+        domainUserIds.forEach(rethrowConsumer(domainUserId -> uniqueUserIds
+                .add(getEncodedUniqueEntityId(domain.getId(), domainUserId))));
+
+        return uniqueUserIds.stream()
+                .map(uniqueUserId -> new User.UserBuilder()
+                        .setUserId(uniqueUserId)
+                        .setDomainName(domain.getName())
+                        .setIdentityStore(this)
+                        .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private boolean doIsUserInGroup(String uniqueUserId, String uniqueGroupId) throws IdentityStoreException,
+            UserNotFoundException, GroupNotFoundException {
+
+        if (isNullOrEmpty(uniqueUserId) || isNullOrEmpty(uniqueGroupId)) {
+            throw new IdentityStoreClientException("Invalid inputs.");
+        }
+
+        SimpleEntry<Integer, String> decodedUniqueUserId = getDecodedUniqueEntityId(uniqueUserId);
+        SimpleEntry<Integer, String> decodedUniqueGroupId = getDecodedUniqueEntityId(uniqueGroupId);
+
+        if (decodedUniqueUserId.getKey().intValue() != decodedUniqueGroupId.getKey().intValue()) {
+            return false;
+        }
+
+        Domain domain = domains.get(decodedUniqueUserId.getKey());
+
+        boolean userExists;
+        try {
+            userExists = domain.isUserExists(decodedUniqueUserId.getValue());
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Failed to check existence of unique user - " +
+                    "%s.", uniqueUserId), e);
+        }
+
+        if (!userExists) {
+            throw new UserNotFoundException("Invalid unique user id.");
+        }
+
+        boolean groupExists;
+        try {
+            groupExists = domain.isGroupExists(decodedUniqueGroupId.getValue());
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Failed to check existence of unique group - " +
+                    "%s.", uniqueGroupId), e);
+        }
+
+        if (!groupExists) {
+            throw new GroupNotFoundException("Invalid unique group id.");
+        }
+
+        try {
+            return domain.isUserInGroup(decodedUniqueUserId.getValue(), decodedUniqueGroupId.getValue());
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Failed to check user %s in the group %s",
+                    uniqueUserId, uniqueGroupId));
+        }
+    }
+
+    private Map<String, List<Claim>> doGetClaimsOfUsers(List<String> uniqueUserIds, List<MetaClaim> metaClaims)
+            throws IdentityStoreException {
+
+        if (uniqueUserIds == null || uniqueUserIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, SimpleEntry<Integer, String>> decodedUniqueUserIds = new LinkedHashMap<>();
+        Map<Integer, List<String>> domainUserIdsMap = new HashMap<>();
+        for (String uniqueUserId : uniqueUserIds) {
+            if (isNullOrEmpty(uniqueUserId)) {
+                throw new IdentityStoreClientException("Invalid unique user id.");
+            }
+
+            SimpleEntry<Integer, String> decodedUniqueUserId = getDecodedUniqueEntityId(uniqueUserId);
+            if (decodedUniqueUserIds.put(uniqueUserId, decodedUniqueUserId) == null) {
+                domainUserIdsMap.computeIfAbsent(decodedUniqueUserId.getKey(), k -> new ArrayList<>())
+                        .add(decodedUniqueUserId.getValue());
+            }
+        }
+
+        Map<Integer, Map<String, List<Claim>>> domainClaimsMap = new HashMap<>();
+        for (Map.Entry<Integer, List<String>> entry : domainUserIdsMap.entrySet()) {
+            try {
+                domainClaimsMap.put(entry.getKey(), domains.get(entry.getKey()).getClaimsOfUsers(entry.getValue(),
+                        metaClaims));
+            } catch (DomainException e) {
+                throw new IdentityStoreServerException("Failed to get claims of unique users.", e);
+            }
+        }
+
+        Map<String, List<Claim>> claimsOfUsers = new LinkedHashMap<>();
+        decodedUniqueUserIds.forEach((uniqueUserId, decodedUniqueUserId) -> {
+            List<Claim> claims = domainClaimsMap.get(decodedUniqueUserId.getKey()).get(decodedUniqueUserId
+                    .getValue());
+            if (claims != null) {
+                claimsOfUsers.put(uniqueUserId, claims);
+            }
+        });
+        return claimsOfUsers;
+    }
+
     private User doGetUser(Claim claim, Domain domain) throws IdentityStoreException, UserNotFoundException {
 
         String domainUserId;
@@ -1543,6 +1943,61 @@ public class IdentityStoreImpl implements IdentityStore {
                 .build();
     }
 
+    private Page<User> doListUsers(String continuationToken, int length, Domain domain)
+            throws IdentityStoreException {
+
+        String afterDomainUserId = getDomainEntityIdFromToken(continuationToken, domain);
+        if (length == 0) {
+            return new Page<>(Collections.emptyList(), continuationToken);
+        }
+
+        // One more user than requested is read to find out whether there is a next page.
+        List<String> domainUserIds;
+        try {
+            domainUserIds = domain.listDomainUsers(afterDomainUserId, length == Integer.MAX_VALUE ? length :
+                    length + 1);
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Failed to list users in the domain - %s", domain), e);
+        }
+
+        String nextContinuationToken = null;
+        if (domainUserIds.size() > length) {
+            domainUserIds = domainUserIds.subList(0, length);
+            nextContinuationToken = getContinuationToken(domain.getId(), domainUserIds.get(length - 1));
+        }
+
+        List<User> users = new ArrayList<>();
+        for (String domainUserId : domainUserIds) {
+            users.add(new User.UserBuilder()
+                    .setUserId(getEncodedUniqueEntityId(domain.getId(), domainUserId))
+                    .setDomainName(domain.getName())
+                    .setIdentityStore(this)
+                    .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
+                    .build());
+        }
+        return new Page<>(users, nextContinuationToken);
+    }
+
+    private Stream<User> doStreamUsers(Domain domain) throws IdentityStoreException {
+
+        Stream<String> domainUserIds;
+        try {
+            domainUserIds = domain.streamDomainUsers();
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Failed to stream users in the domain - %s", domain),
+                    e);
+        }
+
+        // Unique ids are built as the users are consumed, so nothing but the current user is held in memory.
+        String domainIdPrefix = domain.getId() + ".";
+        return domainUserIds.map(domainUserId -> new User.UserBuilder()
+                .setUserId(domainIdPrefix + domainUserId)
+                .setDomainName(domain.getName())
+                .setIdentityStore(this)
+                .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
+                .build());
+    }
+
     private List<User> doListUsers(int offset, int length, Domain domain) throws IdentityStoreException {
 
         List<String> domainUserIds;
@@ -1642,6 +2097,61 @@ public class IdentityStoreImpl implements IdentityStore {
                 .build();
     }
 
+    private Page<Group> doListGroups(String continuationToken, int length, Domain domain)
+            throws IdentityStoreException {
+
+        String afterDomainGroupId = getDomainEntityIdFromToken(continuationToken, domain);
+        if (length == 0) {
+            return new Page<>(Collections.emptyList(), continuationToken);
+        }
+
+        // One more group than requested is read to find out whether there is a next page.
+        List<String> domainGroupIds;
+        try {
+            domainGroupIds = domain.listDomainGroups(afterDomainGroupId, length == Integer.MAX_VALUE ? length :
+                    length + 1);
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Failed to list groups in the domain - %s", domain),
+                    e);
+        }
+
+        String nextContinuationToken = null;
+        if (domainGroupIds.size() > length) {
+            domainGroupIds = domainGroupIds.subList(0, length);
+            nextContinuationToken = getContinuationToken(domain.getId(), domainGroupIds.get(length - 1));
+        }
+
+        List<Group> groups = new ArrayList<>();
+        for (String domainGroupId : domainGroupIds) {
+            groups.add(new Group.GroupBuilder()
+                    .setGroupId(getEncodedUniqueEntityId(domain.getId(), domainGroupId))
+                    .setDomainName(domain.getName())
+                    .setIdentityStore(this)
+                    .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
+                    .build());
+        }
+        return new Page<>(groups, nextContinuationToken);
+    }
+
+    private Stream<Group> doStreamGroups(Domain domain) throws IdentityStoreException {
+
+        Stream<String> domainGroupIds;
+        try {
+            domainGroupIds = domain.streamDomainGroups();
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format("Failed to stream groups in the domain - %s",
+                    domain), e);
+        }
+
+        String domainIdPrefix = domain.getId() + ".";
+        return domainGroupIds.map(domainGroupId -> new Group.GroupBuilder()
+                .setGroupId(domainIdPrefix + domainGroupId)
+                .setDomainName(domain.getName())
+                .setIdentityStore(this)
+                .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
+                .build());
+    }
+
     private List<Group> doListGroups(int offset, int length, Domain domain) throws IdentityStoreException {
 
         List<String> domainGroupIds;
@@ -1727,6 +2237,182 @@ public class IdentityStoreImpl implements IdentityStore {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Authenticate against the given domains at once. The calling thread probes the first domain itself, and the
+     * lower priority domains which opted in to parallel authentication are probed by the domain executor. The other
+     * domains only see the credentials after all the higher priority domains rejected them. The results are still
+     * evaluated in the domain order, so a user is always authenticated by the highest priority domain that accepts
+     * the credentials, and the probes of the lower priority domains are cancelled as soon as that domain succeeds.
+     *
+     * @param eligibleDomains Domains supporting the claim, sorted by their priority.
+     * @param claim           Unique claim of the user.
+     * @param credentials     Credentials of the user.
+     * @return Authentication context.
+     * @throws AuthenticationFailure  If none of the domains authenticates the user.
+     * @throws IdentityStoreException Identity Store Exception.
+     */
+    private AuthenticationContext authenticateInParallel(List<Domain> eligibleDomains, Claim claim,
+                                                         Callback[] credentials)
+            throws AuthenticationFailure, IdentityStoreException {
+
+        List<Future<String>> probes = new ArrayList<>();
+        try {
+            for (Domain domain : eligibleDomains.subList(1, eligibleDomains.size())) {
+                if (!domain.isParallelAuthentication()) {
+                    probes.add(null);
+                    continue;
+                }
+                probes.add(domainExecutor.submit(() -> {
+                    try {
+                        return domain.authenticate(claim, credentials);
+                    } catch (AuthenticationFailure e) {
+                        // Authentication failures are throwables, hence they are carried to the caller unchecked.
+                        throw new CompletionException(e);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < eligibleDomains.size(); i++) {
+                Domain domain = eligibleDomains.get(i);
+                try {
+                    Future<String> probe = i == 0 ? null : probes.get(i - 1);
+                    String domainUserId = probe == null ? domain.authenticate(claim, credentials) : probe.get();
+                    return buildAuthenticationContext(domain, domainUserId);
+                } catch (AuthenticationFailure e) {
+                    logAuthenticationFailure(claim, domain, e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CompletionException &&
+                            e.getCause().getCause() instanceof AuthenticationFailure) {
+                        logAuthenticationFailure(claim, domain, (AuthenticationFailure) e.getCause().getCause());
+                    } else if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    } else if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    } else {
+                        throw new IdentityStoreServerException("Failed to authenticate user.", e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationFailure("Authentication was interrupted.", e);
+        } finally {
+            // Once a domain decided on the user, the probes of the lower priority domains are not needed anymore.
+            probes.stream()
+                    .filter(Objects::nonNull)
+                    .forEach(probe -> probe.cancel(true));
+        }
+
+        throw new AuthenticationFailure("Invalid user credentials.");
+    }
+
+    /**
+     * List a window of the entities of all domains. The entities are ordered by their domain entity id and the ties
+     * are broken by the domain priority. Each domain is asked for the first offset + length entities of its own,
+     * which is all the window can need from it. The domains are listed in parallel when a domain executor is set,
+     * and the sorted lists are merged with a k-way merge.
+     *
+     * @param offset       Start position.
+     * @param length       Number of entities to retrieve.
+     * @param lister       Lists the entities of a domain ordered by the domain entity id.
+     * @param errorMessage Error message format with the domain as the argument.
+     * @return Domains and domain entity ids of the entities within the window.
+     * @throws IdentityStoreException Identity Store Exception.
+     */
+    private List<SimpleEntry<Domain, String>> listOfAllDomains(int offset, int length, DomainEntityLister lister,
+                                                               String errorMessage) throws IdentityStoreException {
+
+        // Offsets are start positions starting with 1, as in the listing of a single domain.
+        int skip = offset > 0 ? offset - 1 : 0;
+        int windowEnd = (int) Math.min((long) skip + length, Integer.MAX_VALUE);
+
+        List<Domain> domains = new ArrayList<>(sortedDomains);
+        List<List<String>> domainEntityIds = new ArrayList<>();
+        List<Future<List<String>>> futures = new ArrayList<>();
+        int domainIndex = 0;
+        try {
+            if (domainExecutor != null) {
+                for (Domain domain : domains.subList(1, domains.size())) {
+                    futures.add(domainExecutor.submit(() -> lister.list(domain, null, windowEnd)));
+                }
+            }
+
+            for (; domainIndex < domains.size(); domainIndex++) {
+                Domain domain = domains.get(domainIndex);
+                domainEntityIds.add(domainIndex == 0 || futures.isEmpty() ? lister.list(domain, null, windowEnd) :
+                        futures.get(domainIndex - 1).get());
+            }
+        } catch (DomainException e) {
+            throw new IdentityStoreServerException(String.format(errorMessage, domains.get(domainIndex)), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IdentityStoreServerException(String.format(errorMessage, domains.get(domainIndex)),
+                    e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdentityStoreServerException("Listing of the domains was interrupted.", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        // Each heap entry holds a domain index and the position of the next entity of that domain.
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, domains.size()), (head1, head2) -> {
+            int result = domainEntityIds.get(head1[0]).get(head1[1])
+                    .compareTo(domainEntityIds.get(head2[0]).get(head2[1]));
+            return result != 0 ? result : Integer.compare(head1[0], head2[0]);
+        });
+        for (int i = 0; i < domainEntityIds.size(); i++) {
+            if (!domainEntityIds.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+
+        List<SimpleEntry<Domain, String>> window = new ArrayList<>();
+        for (int position = 0; position < windowEnd && !heads.isEmpty(); position++) {
+            int[] head = heads.poll();
+            List<String> entityIds = domainEntityIds.get(head[0]);
+            if (position >= skip) {
+                window.add(new SimpleEntry<>(domains.get(head[0]), entityIds.get(head[1])));
+            }
+            if (++head[1] < entityIds.size()) {
+                heads.add(head);
+            }
+        }
+        return window;
+    }
+
+    private AuthenticationContext buildAuthenticationContext(Domain domain, String domainUserId)
+            throws IdentityStoreException {
+
+        String uniqueUserId;
+        try {
+            uniqueUserId = getEncodedUniqueEntityId(domain.getId(), domainUserId);
+        } catch (IdentityStoreException e) {
+            throw new IdentityStoreServerException("Failed to build unique user id.");
+        }
+
+        return new AuthenticationContext(
+                new User.UserBuilder()
+                        .setUserId(uniqueUserId)
+                        .setIdentityStore(this)
+                        .setAuthorizationStore(IdentityMgtDataHolder.getInstance().getAuthorizationStore())
+                        .setDomainName(domain.getName())
+                        .build());
+    }
+
+    private static void logAuthenticationFailure(Claim claim, Domain domain, AuthenticationFailure e) {
+
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Failed to authenticate user - %s from domain - %s", claim.getValue(),
+                    domain.getName()), e);
+        }
+    }
+
     private Domain getPrimaryDomain() throws DomainException {
 
         Domain domain = sortedDomains.first();
@@ -1771,4 +2457,36 @@ public class IdentityStoreImpl implements IdentityStore {
 
         return domainEntityIds;
     }
+
+    /**
+     * Lists the entities of a domain ordered by the domain entity id.
+     */
+    @FunctionalInterface
+    private interface DomainEntityLister {
+
+        List<String> list(Domain domain, String afterDomainEntityId, int length) throws DomainException;
+    }
+
+    /**
+     * Write of a domain returning a result.
+     *
+     * @param <T> Type of the result.
+     * @param <E> Exception of the write besides the domain exception.
+     */
+    @FunctionalInterface
+    private interface DomainOperation<T, E extends Exception> {
+
+        T run() throws DomainException, E;
+    }
+
+    /**
+     * Write of a domain without a result.
+     *
+     * @param <E> Exception of the write besides the domain exception.
+     */
+    @FunctionalInterface
+    private interface DomainTask<E extends Exception> {
+
+        void run() throws DomainException, E;
+    }
 }
@@ -24,6 +24,8 @@ import org.wso2.carbon.identity.mgt.exception.UniqueIdResolverException;
 import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
 import org.wso2.carbon.identity.mgt.impl.internal.IdentityMgtDataHolder;
 import org.wso2.carbon.identity.mgt.impl.util.NamedPreparedStatement;
+import org.wso2.carbon.identity.mgt.impl.util.OperationScope;
+import org.wso2.carbon.identity.mgt.impl.util.ResultSetIterator;
 import org.wso2.carbon.identity.mgt.impl.util.UniqueIdResolverConstants;
 import org.wso2.carbon.identity.mgt.impl.util.UnitOfWork;
 import org.wso2.carbon.identity.mgt.resolver.DomainGroup;
@@ -33,13 +35,25 @@ import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolver;
 import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolverConfig;
 import org.wso2.carbon.identity.mgt.resolver.UserPartition;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 
 import static org.wso2.carbon.identity.mgt.impl.util.UniqueIdResolverConstants.ColumnNames;
@@ -52,8 +66,28 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
 
     private static final Logger log = LoggerFactory.getLogger(JDBCUniqueIdResolver.class);
 
+    /**
+     * Maximum number of values bound to a single IN clause. Larger lists are resolved in several queries.
+     */
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
+    private static final String MYSQL = "MySQL";
+
+    private static final String MYSQL_CURSOR_FETCH = "useCursorFetch=true";
+
     private DataSource dataSource;
 
+    /**
+     * Replicas that serve the read only queries. Empty if all the queries go to {@link #dataSource}.
+     */
+    private List<DataSource> readDataSources = Collections.emptyList();
+
+    private final AtomicInteger nextReadDataSource = new AtomicInteger();
+
+    private int batchSize = UniqueIdResolverConstants.DEFAULT_BATCH_SIZE;
+
+    private int fetchSize = UniqueIdResolverConstants.DEFAULT_FETCH_SIZE;
+
     public JDBCUniqueIdResolver() {
 
     }
@@ -64,16 +98,33 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
         try {
             dataSource = IdentityMgtDataHolder.getInstance()
                     .getDataSource(uniqueIdResolverConfig.getProperties().get(UniqueIdResolverConstants.DATA_SOURCE));
+
+            String readDataSourceNames = uniqueIdResolverConfig.getProperties()
+                    .get(UniqueIdResolverConstants.READ_DATA_SOURCES);
+            if (readDataSourceNames != null && !readDataSourceNames.trim().isEmpty()) {
+                List<DataSource> dataSources = new ArrayList<>();
+                for (String readDataSourceName : readDataSourceNames.split(",")) {
+                    if (!readDataSourceName.trim().isEmpty()) {
+                        dataSources.add(IdentityMgtDataHolder.getInstance().getDataSource(readDataSourceName.trim()));
+                    }
+                }
+                readDataSources = Collections.unmodifiableList(dataSources);
+            }
         } catch (DataSourceException e) {
             throw new UniqueIdResolverException("Error occurred while initiating data source.", e);
         }
+
+        batchSize = getPositiveIntProperty(uniqueIdResolverConfig, UniqueIdResolverConstants.BATCH_SIZE,
+                UniqueIdResolverConstants.DEFAULT_BATCH_SIZE);
+        fetchSize = getPositiveIntProperty(uniqueIdResolverConfig, UniqueIdResolverConstants.FETCH_SIZE,
+                UniqueIdResolverConstants.DEFAULT_FETCH_SIZE);
     }
 
     //TODO
     @Override
     public DomainUser getUser(String domainUserId, int domainId) throws UniqueIdResolverException,
             UserNotFoundException {
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
             final String selectUniqueUser = "SELECT CONNECTOR_TYPE, CONNECTOR_ID, CONNECTOR_USER_ID FROM " +
                     "IDM_USER WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
                     "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; ";
@@ -106,11 +157,62 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
         }
     }
 
+    @Override
+    public List<DomainUser> getUsers(List<String> domainUserIds, int domainId) throws UniqueIdResolverException {
+
+        if (domainUserIds == null || domainUserIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<String> distinctDomainUserIds = new LinkedHashSet<>(domainUserIds);
+
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
+            final String selectUniqueUsers = "SELECT USER_ID, CONNECTOR_TYPE, CONNECTOR_ID, CONNECTOR_USER_ID " +
+                    "FROM IDM_USER WHERE DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; AND " +
+                    "USER_ID IN (:" + SQLPlaceholders.USER_ID + ";)";
+
+            Map<String, List<UserPartition>> userPartitionsMap = new HashMap<>();
+            for (List<String> chunk : getChunks(new ArrayList<>(distinctDomainUserIds))) {
+                Map<String, Integer> repetition = new HashMap<>();
+                repetition.put(SQLPlaceholders.USER_ID, chunk.size());
+
+                NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                        unitOfWork.getConnection(),
+                        selectUniqueUsers, repetition);
+                namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+                namedPreparedStatement.setString(SQLPlaceholders.USER_ID, chunk);
+                try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+
+                    while (resultSet.next()) {
+                        userPartitionsMap.computeIfAbsent(resultSet.getString(ColumnNames.USER_ID),
+                                k -> new ArrayList<>()).add(buildUserPartition(resultSet));
+                    }
+                }
+            }
+
+            // Users are returned in the requested order. Users without any partition do not exist.
+            List<DomainUser> domainUsers = new ArrayList<>();
+            for (String domainUserId : distinctDomainUserIds) {
+                List<UserPartition> userPartitions = userPartitionsMap.get(domainUserId);
+                if (userPartitions != null) {
+                    DomainUser domainUser = new DomainUser();
+                    domainUser.setDomainUserId(domainUserId);
+                    domainUser.setUserPartitions(userPartitions);
+                    domainUsers.add(domainUser);
+                }
+            }
+            return domainUsers;
+
+        } catch (SQLException e) {
+            throw new UniqueIdResolverException("Error while searching users.", e);
+        }
+    }
+
     @Override
     public DomainUser getUserFromConnectorUserId(String connectorUserId, String connectorId, int domainId) throws
             UniqueIdResolverException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
             final String selectUniqueUser = "SELECT USER_ID, CONNECTOR_TYPE, CONNECTOR_ID, CONNECTOR_USER_ID " +
                     "FROM IDM_USER WHERE USER_ID = ( " +
                     "SELECT USER_ID FROM IDM_USER " +
@@ -157,16 +259,63 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     public List<DomainUser> getUsers(List<String> connectorUserIds, String connectorId, int domainId) throws
             UniqueIdResolverException {
 
+        if (connectorUserIds == null || connectorUserIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, String> domainUserIdMap = new HashMap<>();
+        Map<String, List<UserPartition>> userPartitionsMap = new HashMap<>();
+
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
+            final String selectUniqueUsers = "SELECT USER_ID, CONNECTOR_TYPE, CONNECTOR_ID, CONNECTOR_USER_ID " +
+                    "FROM IDM_USER WHERE USER_ID IN ( " +
+                    "SELECT USER_ID FROM IDM_USER " +
+                    "WHERE CONNECTOR_USER_ID IN (:" + SQLPlaceholders.CONNECTOR_USER_ID + ";) " +
+                    "AND CONNECTOR_ID = :" + SQLPlaceholders.CONNECTOR_ID + "; AND " +
+                    "DOMAIN_ID = :" + SQLPlaceholders.MAPPING_DOMAIN_ID + ";) AND " +
+                    "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
+
+            for (List<String> chunk : getChunks(new ArrayList<>(new LinkedHashSet<>(connectorUserIds)))) {
+                Map<String, Integer> repetition = new HashMap<>();
+                repetition.put(SQLPlaceholders.CONNECTOR_USER_ID, chunk.size());
+
+                NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                        unitOfWork.getConnection(),
+                        selectUniqueUsers, repetition);
+                namedPreparedStatement.setString(SQLPlaceholders.CONNECTOR_USER_ID, chunk);
+                namedPreparedStatement.setString(SQLPlaceholders.CONNECTOR_ID, connectorId);
+                namedPreparedStatement.setInt(SQLPlaceholders.MAPPING_DOMAIN_ID, domainId);
+                namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+                try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+
+                    while (resultSet.next()) {
+                        String userUUID = resultSet.getString(ColumnNames.USER_ID);
+                        UserPartition userPartition = buildUserPartition(resultSet);
+                        if (connectorId.equals(userPartition.getConnectorId())) {
+                            domainUserIdMap.put(userPartition.getConnectorUserId(), userUUID);
+                        }
+                        userPartitionsMap.computeIfAbsent(userUUID, k -> new ArrayList<>()).add(userPartition);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new UniqueIdResolverException("Error while searching users.", e);
+        }
+
+        // Users are returned in the order of the given connector user ids.
         UniqueIdResolverException uniqueIdResolverException = new UniqueIdResolverException();
         List<DomainUser> domainUsers = new ArrayList<>();
-        connectorUserIds.stream().forEach(entry -> {
-            try {
-                DomainUser domainUser = getUserFromConnectorUserId(entry, connectorId, domainId);
-                domainUsers.add(domainUser);
-            } catch (UniqueIdResolverException e) {
-                uniqueIdResolverException.addSuppressed(e);
+        for (String connectorUserId : connectorUserIds) {
+            String userUUID = domainUserIdMap.get(connectorUserId);
+            if (userUUID == null) {
+                uniqueIdResolverException.addSuppressed(new UniqueIdResolverException("No user found."));
+                continue;
             }
-        });
+            DomainUser domainUser = new DomainUser();
+            domainUser.setDomainUserId(userUUID);
+            domainUser.setUserPartitions(new ArrayList<>(userPartitionsMap.get(userUUID)));
+            domainUsers.add(domainUser);
+        }
 
         if (uniqueIdResolverException.getSuppressed().length > 0) {
             throw uniqueIdResolverException;
@@ -178,7 +327,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     @Override
     public boolean isUserExists(String domainUserId, int domainId) throws UniqueIdResolverException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
             final String selectUser = "SELECT ID FROM IDM_USER " +
                     "WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
                     "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
@@ -210,7 +359,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
             offset--;
         }
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
             final String selectUniqueUser = "SELECT USER_ID, CONNECTOR_TYPE, CONNECTOR_ID, CONNECTOR_USER_ID " +
                     "FROM IDM_USER WHERE DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; LIMIT :limit; OFFSET :offset;";
 
@@ -250,11 +399,69 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
         }
     }
 
+    @Override
+    public List<DomainUser> listDomainUsers(String afterDomainUserId, int length, int domainId)
+            throws UniqueIdResolverException {
+
+        // Seek on the (DOMAIN_ID, USER_ID) index instead of skipping the rows before the page. The limit is applied
+        // on the distinct user ids so that the partitions of a user are never split across pages.
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
+            final String selectUniqueUsers = "SELECT U.USER_ID, U.CONNECTOR_TYPE, U.CONNECTOR_ID, " +
+                    "U.CONNECTOR_USER_ID FROM IDM_USER U INNER JOIN (" +
+                    "SELECT DISTINCT USER_ID FROM IDM_USER " +
+                    "WHERE DOMAIN_ID = :" + SQLPlaceholders.MAPPING_DOMAIN_ID + "; " +
+                    (afterDomainUserId != null ? "AND USER_ID > :" + SQLPlaceholders.USER_ID + "; " : "") +
+                    "ORDER BY USER_ID LIMIT :" + SQLPlaceholders.LIMIT + ";) P ON U.USER_ID = P.USER_ID " +
+                    "WHERE U.DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; ORDER BY U.USER_ID";
+
+            Map<String, DomainUser> userMap = new LinkedHashMap<>();
+            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                    unitOfWork.getConnection(),
+                    selectUniqueUsers);
+            namedPreparedStatement.setInt(SQLPlaceholders.MAPPING_DOMAIN_ID, domainId);
+            if (afterDomainUserId != null) {
+                namedPreparedStatement.setString(SQLPlaceholders.USER_ID, afterDomainUserId);
+            }
+            namedPreparedStatement.setInt(SQLPlaceholders.LIMIT, length);
+            namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+            try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+
+                while (resultSet.next()) {
+                    String userUUID = resultSet.getString(ColumnNames.USER_ID);
+                    userMap.computeIfAbsent(userUUID, k -> {
+                        DomainUser user = new DomainUser();
+                        user.setDomainUserId(k);
+                        return user;
+                    }).addUserPartition(buildUserPartition(resultSet));
+                }
+            }
+
+            return new ArrayList<>(userMap.values());
+
+        } catch (SQLException e) {
+            throw new UniqueIdResolverException("Error while listing users.", e);
+        }
+    }
+
+    @Override
+    public Stream<DomainUser> streamDomainUsers(int domainId) throws UniqueIdResolverException {
+
+        final String selectUniqueUsers = "SELECT USER_ID, CONNECTOR_TYPE, CONNECTOR_ID, CONNECTOR_USER_ID " +
+                "FROM IDM_USER WHERE DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; ORDER BY USER_ID";
+
+        return openResultSet(selectUniqueUsers, domainId, ColumnNames.USER_ID, domainUserId -> {
+            DomainUser domainUser = new DomainUser();
+            domainUser.setDomainUserId(domainUserId);
+            return domainUser;
+        }, (domainUser, resultSet) -> domainUser.addUserPartition(buildUserPartition(resultSet)))
+                .stream();
+    }
+
     @Override
     public DomainGroup getGroup(String domainGroupId, int domainId) throws UniqueIdResolverException,
             GroupNotFoundException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
             final String selectUniqueUser = "SELECT CONNECTOR_ID, CONNECTOR_GROUP_ID FROM " +
                     "IDM_GROUP WHERE GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
                     "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
@@ -288,7 +495,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     public DomainGroup getGroupFromConnectorGroupId(String connectorGroupId, String connectorId, int domainId)
             throws UniqueIdResolverException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
             final String selectUniqueGroup = "SELECT GROUP_ID, CONNECTOR_ID, CONNECTOR_GROUP_ID " +
                     "FROM IDM_GROUP WHERE GROUP_ID = ( " +
                     "SELECT GROUP_ID FROM IDM_GROUP " +
@@ -332,7 +539,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     @Override
     public String addUser(DomainUser domainUser, int domainId) throws UniqueIdResolverException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection(), false)) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getWriteConnection(), false)) {
             final String addUser = "INSERT INTO IDM_USER " +
                     "(USER_ID, CONNECTOR_USER_ID, CONNECTOR_ID, DOMAIN_ID, CONNECTOR_TYPE) " +
                     "VALUES (:" + SQLPlaceholders.USER_ID + ";, :" + SQLPlaceholders.CONNECTOR_USER_ID + ";, " +
@@ -364,18 +571,25 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     public List<String> addUsers(List<DomainUser> domainUsers, int domainId)
             throws UniqueIdResolverException {
 
-        UniqueIdResolverException uniqueIdResolverException = new UniqueIdResolverException();
-        domainUsers.stream().forEach(uniqueUser -> {
-            try {
-                addUser(uniqueUser, domainId);
-            } catch (UniqueIdResolverException e) {
-                uniqueIdResolverException.addSuppressed(e);
-            }
-        });
+        final String addUser = "INSERT INTO IDM_USER " +
+                "(USER_ID, CONNECTOR_USER_ID, CONNECTOR_ID, DOMAIN_ID, CONNECTOR_TYPE) " +
+                "VALUES (:" + SQLPlaceholders.USER_ID + ";, :" + SQLPlaceholders.CONNECTOR_USER_ID + ";, " +
+                ":" + SQLPlaceholders.CONNECTOR_ID + ";, :" + SQLPlaceholders.DOMAIN_ID + ";, " +
+                ":" + SQLPlaceholders.CONNECTOR_TYPE + ";)";
 
-        if (uniqueIdResolverException.getSuppressed().length > 0) {
-            throw uniqueIdResolverException;
-        }
+        addInBatches(domainUsers, addUser, (namedPreparedStatement, domainUser) -> {
+            for (UserPartition userPartition : domainUser.getUserPartitions()) {
+                namedPreparedStatement.setString(SQLPlaceholders.USER_ID, domainUser.getDomainUserId());
+                namedPreparedStatement.setString(SQLPlaceholders.CONNECTOR_USER_ID, userPartition.getConnectorUserId());
+                namedPreparedStatement.setString(SQLPlaceholders.CONNECTOR_ID, userPartition.getConnectorId());
+                namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+                namedPreparedStatement.setString(SQLPlaceholders.CONNECTOR_TYPE,
+                        userPartition.isIdentityStore() ? UniqueIdResolverConstants.IDENTITY_STORE_CONNECTOR :
+                                UniqueIdResolverConstants.CREDENTIAL_STORE_CONNECTOR);
+                namedPreparedStatement.getPreparedStatement().addBatch();
+            }
+            return domainUser.getUserPartitions().size();
+        }, domainUser -> "Error while adding user: " + domainUser.getDomainUserId());
 
         return domainUsers.stream()
                 .map(DomainUser::getDomainUserId)
@@ -387,7 +601,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
             UniqueIdResolverException {
 
         // Put operation
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection(), false)) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getWriteConnection(), false)) {
             deleteUser(domainUserId, unitOfWork, domainId);
             final String addUser = "INSERT INTO IDM_USER " +
                     "(USER_ID, CONNECTOR_USER_ID, CONNECTOR_ID, DOMAIN_ID, CONNECTOR_TYPE) " +
@@ -413,7 +627,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     @Override
     public void deleteUser(String domainUserId, int domainId) throws UniqueIdResolverException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getWriteConnection())) {
             deleteUser(domainUserId, unitOfWork, domainId);
             deleteUserGroupMappingsForUser(domainUserId, unitOfWork, domainId);
             unitOfWork.endTransaction();
@@ -425,7 +639,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     @Override
     public String addGroup(DomainGroup domainGroup, int domainId) throws UniqueIdResolverException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection(), false)) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getWriteConnection(), false)) {
             final String addGroup = "INSERT INTO IDM_GROUP " +
                     "(GROUP_ID, CONNECTOR_GROUP_ID, CONNECTOR_ID, DOMAIN_ID) " +
                     "VALUES (:" + SQLPlaceholders.GROUP_ID + ";, :" + SQLPlaceholders.CONNECTOR_GROUP_ID + ";, " +
@@ -455,18 +669,22 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     public List<String> addGroups(List<DomainGroup> domainGroups, int domainId)
             throws UniqueIdResolverException {
 
-        UniqueIdResolverException uniqueIdResolverException = new UniqueIdResolverException();
-        domainGroups.stream().forEach(uniqueGroup -> {
-            try {
-                addGroup(uniqueGroup, domainId);
-            } catch (UniqueIdResolverException e) {
-                uniqueIdResolverException.addSuppressed(e);
-            }
-        });
+        final String addGroup = "INSERT INTO IDM_GROUP " +
+                "(GROUP_ID, CONNECTOR_GROUP_ID, CONNECTOR_ID, DOMAIN_ID) " +
+                "VALUES (:" + SQLPlaceholders.GROUP_ID + ";, :" + SQLPlaceholders.CONNECTOR_GROUP_ID + ";, " +
+                ":" + SQLPlaceholders.CONNECTOR_ID + ";, :" + SQLPlaceholders.DOMAIN_ID + ";)";
 
-        if (uniqueIdResolverException.getSuppressed().length > 0) {
-            throw uniqueIdResolverException;
-        }
+        addInBatches(domainGroups, addGroup, (namedPreparedStatement, domainGroup) -> {
+            for (GroupPartition groupPartition : domainGroup.getGroupPartitions()) {
+                namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, domainGroup.getDomainGroupId());
+                namedPreparedStatement.setString(SQLPlaceholders.CONNECTOR_GROUP_ID,
+                        groupPartition.getConnectorGroupId());
+                namedPreparedStatement.setString(SQLPlaceholders.CONNECTOR_ID, groupPartition.getConnectorId());
+                namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+                namedPreparedStatement.getPreparedStatement().addBatch();
+            }
+            return domainGroup.getGroupPartitions().size();
+        }, domainGroup -> "Error while adding group: " + domainGroup.getDomainGroupId());
 
         return domainGroups.stream()
                 .map(DomainGroup::getDomainGroupId)
@@ -478,7 +696,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
             UniqueIdResolverException {
 
         // Put operation
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection(), false)) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getWriteConnection(), false)) {
             deleteGroup(domainGroupId, unitOfWork, domainId);
             final String addGroup = "INSERT INTO IDM_GROUP " +
                     "(GROUP_ID, CONNECTOR_GROUP_ID, CONNECTOR_ID, DOMAIN_ID) " +
@@ -504,7 +722,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     @Override
     public void deleteGroup(String domainGroupId, int domainId) throws UniqueIdResolverException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getWriteConnection())) {
             deleteGroup(domainGroupId, unitOfWork, domainId);
             deleteUserGroupMappingsForGroup(domainGroupId, unitOfWork, domainId);
             unitOfWork.endTransaction();
@@ -516,7 +734,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     @Override
     public boolean isGroupExists(String uniqueGroupId, int domainId) throws UniqueIdResolverException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
             final String selectUser = "SELECT ID FROM IDM_GROUP " +
                     "WHERE GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
                     "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
@@ -549,7 +767,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
             offset--;
         }
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
             final String selectUniqueUser = "SELECT GROUP_ID, CONNECTOR_ID, CONNECTOR_GROUP_ID " +
                     "FROM IDM_GROUP WHERE DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; " +
                     "LIMIT :limit; OFFSET :offset;";
@@ -588,20 +806,134 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
         }
     }
 
+    @Override
+    public List<DomainGroup> listGroups(String afterDomainGroupId, int length, int domainId)
+            throws UniqueIdResolverException {
+
+        // Seek on the (DOMAIN_ID, GROUP_ID) index instead of skipping the rows before the page. The limit is applied
+        // on the distinct group ids so that the partitions of a group are never split across pages.
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
+            final String selectUniqueGroups = "SELECT G.GROUP_ID, G.CONNECTOR_ID, G.CONNECTOR_GROUP_ID " +
+                    "FROM IDM_GROUP G INNER JOIN (" +
+                    "SELECT DISTINCT GROUP_ID FROM IDM_GROUP " +
+                    "WHERE DOMAIN_ID = :" + SQLPlaceholders.MAPPING_DOMAIN_ID + "; " +
+                    (afterDomainGroupId != null ? "AND GROUP_ID > :" + SQLPlaceholders.GROUP_ID + "; " : "") +
+                    "ORDER BY GROUP_ID LIMIT :" + SQLPlaceholders.LIMIT + ";) P ON G.GROUP_ID = P.GROUP_ID " +
+                    "WHERE G.DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; ORDER BY G.GROUP_ID";
+
+            Map<String, DomainGroup> groupMap = new LinkedHashMap<>();
+            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                    unitOfWork.getConnection(),
+                    selectUniqueGroups);
+            namedPreparedStatement.setInt(SQLPlaceholders.MAPPING_DOMAIN_ID, domainId);
+            if (afterDomainGroupId != null) {
+                namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, afterDomainGroupId);
+            }
+            namedPreparedStatement.setInt(SQLPlaceholders.LIMIT, length);
+            namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+            try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+
+                while (resultSet.next()) {
+                    String groupUUID = resultSet.getString(ColumnNames.GROUP_ID);
+                    GroupPartition groupPartition = new GroupPartition();
+                    groupPartition.setConnectorId(resultSet.getString(ColumnNames.CONNECTOR_ID));
+                    groupPartition.setConnectorGroupId(resultSet.getString(ColumnNames.CONNECTOR_GROUP_ID));
+                    groupMap.computeIfAbsent(groupUUID, k -> {
+                        DomainGroup group = new DomainGroup();
+                        group.setDomainGroupId(k);
+                        return group;
+                    }).addGroupPartition(groupPartition);
+                }
+            }
+
+            return new ArrayList<>(groupMap.values());
+
+        } catch (SQLException e) {
+            throw new UniqueIdResolverException("Error while listing groups.", e);
+        }
+    }
+
+    @Override
+    public Stream<DomainGroup> streamGroups(int domainId) throws UniqueIdResolverException {
+
+        final String selectUniqueGroups = "SELECT GROUP_ID, CONNECTOR_ID, CONNECTOR_GROUP_ID " +
+                "FROM IDM_GROUP WHERE DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; ORDER BY GROUP_ID";
+
+        return openResultSet(selectUniqueGroups, domainId, ColumnNames.GROUP_ID, domainGroupId -> {
+            DomainGroup domainGroup = new DomainGroup();
+            domainGroup.setDomainGroupId(domainGroupId);
+            return domainGroup;
+        }, (domainGroup, resultSet) -> {
+            GroupPartition groupPartition = new GroupPartition();
+            groupPartition.setConnectorId(resultSet.getString(ColumnNames.CONNECTOR_ID));
+            groupPartition.setConnectorGroupId(resultSet.getString(ColumnNames.CONNECTOR_GROUP_ID));
+            domainGroup.addGroupPartition(groupPartition);
+        }).stream();
+    }
+
     @Override
     public List<DomainGroup> getGroups(List<String> connectorGroupIds, String connectorId, int domainId) throws
             UniqueIdResolverException {
 
+        if (connectorGroupIds == null || connectorGroupIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, String> domainGroupIdMap = new HashMap<>();
+        Map<String, List<GroupPartition>> groupPartitionsMap = new HashMap<>();
+
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
+            final String selectUniqueGroups = "SELECT GROUP_ID, CONNECTOR_ID, CONNECTOR_GROUP_ID " +
+                    "FROM IDM_GROUP WHERE GROUP_ID IN ( " +
+                    "SELECT GROUP_ID FROM IDM_GROUP " +
+                    "WHERE CONNECTOR_GROUP_ID IN (:" + SQLPlaceholders.CONNECTOR_GROUP_ID + ";) AND " +
+                    "CONNECTOR_ID = :" + SQLPlaceholders.CONNECTOR_ID + "; AND " +
+                    "DOMAIN_ID = :" + SQLPlaceholders.MAPPING_DOMAIN_ID + ";) AND " +
+                    "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
+
+            for (List<String> chunk : getChunks(new ArrayList<>(new LinkedHashSet<>(connectorGroupIds)))) {
+                Map<String, Integer> repetition = new HashMap<>();
+                repetition.put(SQLPlaceholders.CONNECTOR_GROUP_ID, chunk.size());
+
+                NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                        unitOfWork.getConnection(),
+                        selectUniqueGroups, repetition);
+                namedPreparedStatement.setString(SQLPlaceholders.CONNECTOR_GROUP_ID, chunk);
+                namedPreparedStatement.setString(SQLPlaceholders.CONNECTOR_ID, connectorId);
+                namedPreparedStatement.setInt(SQLPlaceholders.MAPPING_DOMAIN_ID, domainId);
+                namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+                try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+
+                    while (resultSet.next()) {
+                        String groupUUID = resultSet.getString(ColumnNames.GROUP_ID);
+                        GroupPartition groupPartition = new GroupPartition();
+                        groupPartition.setConnectorId(resultSet.getString(ColumnNames.CONNECTOR_ID));
+                        groupPartition.setConnectorGroupId(resultSet.getString(ColumnNames.CONNECTOR_GROUP_ID));
+                        if (connectorId.equals(groupPartition.getConnectorId())) {
+                            domainGroupIdMap.put(groupPartition.getConnectorGroupId(), groupUUID);
+                        }
+                        groupPartitionsMap.computeIfAbsent(groupUUID, k -> new ArrayList<>()).add(groupPartition);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new UniqueIdResolverException("Error while searching groups.", e);
+        }
+
+        // Groups are returned in the order of the given connector group ids.
         UniqueIdResolverException uniqueIdResolverException = new UniqueIdResolverException();
         List<DomainGroup> domainGroups = new ArrayList<>();
-        connectorGroupIds.stream().forEach(entry -> {
-            try {
-                DomainGroup domainGroup = getGroupFromConnectorGroupId(entry, connectorId, domainId);
-                domainGroups.add(domainGroup);
-            } catch (UniqueIdResolverException e) {
-                uniqueIdResolverException.addSuppressed(e);
+        for (String connectorGroupId : connectorGroupIds) {
+            String groupUUID = domainGroupIdMap.get(connectorGroupId);
+            if (groupUUID == null) {
+                uniqueIdResolverException.addSuppressed(new UniqueIdResolverException("No group found."));
+                continue;
             }
-        });
+            DomainGroup domainGroup = new DomainGroup();
+            domainGroup.setDomainGroupId(groupUUID);
+            domainGroup.setGroupPartitions(new ArrayList<>(groupPartitionsMap.get(groupUUID)));
+            domainGroups.add(domainGroup);
+        }
 
         if (uniqueIdResolverException.getSuppressed().length > 0) {
             throw uniqueIdResolverException;
@@ -613,21 +945,18 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     @Override
     public List<DomainGroup> getGroupsOfUser(String domainUserId, int domainId) throws UniqueIdResolverException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
-            final String selectGroupsOfUser = "SELECT GROUP_ID, CONNECTOR_ID, CONNECTOR_GROUP_ID " +
-                    "FROM IDM_GROUP WHERE GROUP_ID IN ( " +
-                    "SELECT GROUP_ID " +
-                    "FROM IDM_USER_GROUP_MAPPING " +
-                    "WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
-                    "DOMAIN_ID = :" + SQLPlaceholders.MAPPING_DOMAIN_ID + ";) AND " +
-                    "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
+            final String selectGroupsOfUser = "SELECT G.GROUP_ID, G.CONNECTOR_ID, G.CONNECTOR_GROUP_ID " +
+                    "FROM IDM_USER_GROUP_MAPPING M " +
+                    "INNER JOIN IDM_GROUP G ON G.GROUP_ID = M.GROUP_ID AND G.DOMAIN_ID = M.DOMAIN_ID " +
+                    "WHERE M.USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
+                    "M.DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
 
             Map<String, DomainGroup> groupMap = new HashMap<>();
             NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
                     unitOfWork.getConnection(),
                     selectGroupsOfUser);
             namedPreparedStatement.setString(SQLPlaceholders.USER_ID, domainUserId);
-            namedPreparedStatement.setInt(SQLPlaceholders.MAPPING_DOMAIN_ID, domainId);
             namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
             try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
 
@@ -659,21 +988,19 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     @Override
     public List<DomainUser> getUsersOfGroup(String domainGroupId, int domainId) throws UniqueIdResolverException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
-            final String selectUsersOfGroup = "SELECT USER_ID, CONNECTOR_ID, CONNECTOR_USER_ID, CONNECTOR_TYPE " +
-                    "FROM IDM_USER WHERE USER_ID IN ( " +
-                    "SELECT USER_ID " +
-                    "FROM IDM_USER_GROUP_MAPPING " +
-                    "WHERE GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
-                    "DOMAIN_ID = :" + SQLPlaceholders.MAPPING_DOMAIN_ID + "; ) AND " +
-                    "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
+            final String selectUsersOfGroup = "SELECT U.USER_ID, U.CONNECTOR_ID, U.CONNECTOR_USER_ID, " +
+                    "U.CONNECTOR_TYPE " +
+                    "FROM IDM_USER_GROUP_MAPPING M " +
+                    "INNER JOIN IDM_USER U ON U.USER_ID = M.USER_ID AND U.DOMAIN_ID = M.DOMAIN_ID " +
+                    "WHERE M.GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
+                    "M.DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
 
             Map<String, DomainUser> userMap = new HashMap<>();
             NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
                     unitOfWork.getConnection(),
                     selectUsersOfGroup);
             namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, domainGroupId);
-            namedPreparedStatement.setInt(SQLPlaceholders.MAPPING_DOMAIN_ID, domainId);
             namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
             try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
 
@@ -708,7 +1035,7 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     public boolean isUserInGroup(String domainUserId, String domainGroupId, int domainId)
             throws UniqueIdResolverException {
 
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getReadConnection())) {
             final String selectUsersOfGroup = "SELECT ID " +
                     "FROM IDM_USER_GROUP_MAPPING " +
                     "WHERE GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
@@ -738,22 +1065,18 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     public void updateGroupsOfUser(String domainUserId, List<String> domainGroupIds, int domainId)
             throws UniqueIdResolverException {
 
-        // Put operation
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
-            deleteUserGroupMappingsForUser(domainUserId, unitOfWork, domainId);
-            final String insertGroupsOfUser = "INSERT INTO IDM_USER_GROUP_MAPPING (USER_ID, GROUP_ID, DOMAIN_ID) " +
-                    "VALUES ( :" + SQLPlaceholders.USER_ID + ";, :" + SQLPlaceholders.GROUP_ID + ";, " +
-                    ":" + SQLPlaceholders.DOMAIN_ID + "; ) ";
-            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
-                    unitOfWork.getConnection(),
-                    insertGroupsOfUser);
-            for (String uniqueGroupId : domainGroupIds) {
-                namedPreparedStatement.setString(SQLPlaceholders.USER_ID, domainUserId);
-                namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, uniqueGroupId);
-                namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
-                namedPreparedStatement.getPreparedStatement().addBatch();
-            }
-            namedPreparedStatement.getPreparedStatement().executeBatch();
+        // Put operation. Only the difference to the current mappings is written.
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getWriteConnection(), false)) {
+            lockUser(domainUserId, unitOfWork, domainId);
+            Set<String> currentGroupIds = getMappedGroupsOfUser(domainUserId, unitOfWork, domainId);
+
+            Set<String> groupIdsToAdd = new LinkedHashSet<>(domainGroupIds);
+            Set<String> groupIdsToRemove = new LinkedHashSet<>(currentGroupIds);
+            groupIdsToRemove.removeAll(groupIdsToAdd);
+            groupIdsToAdd.removeAll(currentGroupIds);
+
+            deleteUserGroupMappings(Collections.singleton(domainUserId), groupIdsToRemove, unitOfWork, domainId);
+            addUserGroupMappings(Collections.singleton(domainUserId), groupIdsToAdd, unitOfWork, domainId);
 
             unitOfWork.endTransaction();
 
@@ -767,37 +1090,17 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
             domainGroupIdsToRemove, int domainId) throws UniqueIdResolverException {
 
         // Patch operation
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getWriteConnection(), false)) {
+            lockUser(domainUserId, unitOfWork, domainId);
+
             // Delete the user group mappings in uniqueGroupIdsToRemove
-            final String deleteUserGroupMapping = "DELETE FROM IDM_USER_GROUP_MAPPING " +
-                    "WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
-                    "GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
-                    "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; ";
-            NamedPreparedStatement deleteNamedPreparedStatement = new NamedPreparedStatement(
-                    unitOfWork.getConnection(), deleteUserGroupMapping);
-            for (String uniqueGroupId : domainGroupIdsToRemove) {
-                deleteNamedPreparedStatement.setString(SQLPlaceholders.USER_ID, domainUserId);
-                deleteNamedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, uniqueGroupId);
-                deleteNamedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
-                deleteNamedPreparedStatement.getPreparedStatement().addBatch();
-            }
-
-            deleteNamedPreparedStatement.getPreparedStatement().executeBatch();
-
-            // Add the user group mappings in uniqueGroupIdsToUpdate
-            final String insertGroupsOfUser = "INSERT INTO IDM_USER_GROUP_MAPPING (USER_ID, GROUP_ID, DOMAIN_ID) " +
-                    "VALUES ( :" + SQLPlaceholders.USER_ID + ";, :" + SQLPlaceholders.GROUP_ID + ";, " +
-                    ":" + SQLPlaceholders.DOMAIN_ID + "; ) ";
-            NamedPreparedStatement addNamedPreparedStatement = new NamedPreparedStatement(
-                    unitOfWork.getConnection(),
-                    insertGroupsOfUser);
-            for (String uniqueGroupId : domainGroupIdsToUpdate) {
-                addNamedPreparedStatement.setString(SQLPlaceholders.USER_ID, domainUserId);
-                addNamedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, uniqueGroupId);
-                addNamedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
-                addNamedPreparedStatement.getPreparedStatement().addBatch();
-            }
-            addNamedPreparedStatement.getPreparedStatement().executeBatch();
+            deleteUserGroupMappings(Collections.singleton(domainUserId), new LinkedHashSet<>(domainGroupIdsToRemove),
+                    unitOfWork, domainId);
+
+            // Add the user group mappings in uniqueGroupIdsToUpdate, skipping the ones that already exist
+            Set<String> groupIdsToAdd = new LinkedHashSet<>(domainGroupIdsToUpdate);
+            groupIdsToAdd.removeAll(getMappedGroupsOfUser(domainUserId, groupIdsToAdd, unitOfWork, domainId));
+            addUserGroupMappings(Collections.singleton(domainUserId), groupIdsToAdd, unitOfWork, domainId);
 
             unitOfWork.endTransaction();
 
@@ -810,27 +1113,23 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
     public void updateUsersOfGroup(String domainGroupId, List<String> domainUserIds, int domainId)
             throws UniqueIdResolverException {
 
-        // Put operation
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
-            deleteUserGroupMappingsForGroup(domainGroupId, unitOfWork, domainId);
-            final String insertUsersOfGroup = "INSERT INTO IDM_USER_GROUP_MAPPING (USER_ID, GROUP_ID, DOMAIN_ID) " +
-                    "VALUES ( :" + SQLPlaceholders.USER_ID + ";, :" + SQLPlaceholders.GROUP_ID + ";, " +
-                    ":" + SQLPlaceholders.DOMAIN_ID + "; ) ";
-            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
-                    unitOfWork.getConnection(),
-                    insertUsersOfGroup);
-            for (String uniqueUserId : domainUserIds) {
-                namedPreparedStatement.setString(SQLPlaceholders.USER_ID, uniqueUserId);
-                namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, domainGroupId);
-                namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
-                namedPreparedStatement.getPreparedStatement().addBatch();
-            }
-            namedPreparedStatement.getPreparedStatement().executeBatch();
+        // Put operation. Only the difference to the current mappings is written.
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getWriteConnection(), false)) {
+            lockGroup(domainGroupId, unitOfWork, domainId);
+            Set<String> currentUserIds = getMappedUsersOfGroup(domainGroupId, unitOfWork, domainId);
+
+            Set<String> userIdsToAdd = new LinkedHashSet<>(domainUserIds);
+            Set<String> userIdsToRemove = new LinkedHashSet<>(currentUserIds);
+            userIdsToRemove.removeAll(userIdsToAdd);
+            userIdsToAdd.removeAll(currentUserIds);
+
+            deleteUserGroupMappings(userIdsToRemove, Collections.singleton(domainGroupId), unitOfWork, domainId);
+            addUserGroupMappings(userIdsToAdd, Collections.singleton(domainGroupId), unitOfWork, domainId);
 
             unitOfWork.endTransaction();
 
         } catch (SQLException e) {
-            throw new UniqueIdResolverException("Error while updating groups of user", e);
+            throw new UniqueIdResolverException("Error while updating users of group", e);
         }
     }
 
@@ -839,42 +1138,22 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
             domainUserIdsToRemove, int domainId) throws UniqueIdResolverException {
 
         // Patch operation
-        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
-            // Delete the user group mappings in uniqueUserIdsToRemove
-            final String deleteUserGroupMapping = "DELETE FROM IDM_USER_GROUP_MAPPING " +
-                    "WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
-                    "GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
-                    "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
-            NamedPreparedStatement deleteNamedPreparedStatement = new NamedPreparedStatement(
-                    unitOfWork.getConnection(), deleteUserGroupMapping);
-            for (String uniqueUserId : domainUserIdsToRemove) {
-                deleteNamedPreparedStatement.setString(SQLPlaceholders.USER_ID, uniqueUserId);
-                deleteNamedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, doaminGroupId);
-                deleteNamedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
-                deleteNamedPreparedStatement.getPreparedStatement().addBatch();
-            }
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getWriteConnection(), false)) {
+            lockGroup(doaminGroupId, unitOfWork, domainId);
 
-            deleteNamedPreparedStatement.getPreparedStatement().executeBatch();
+            // Delete the user group mappings in uniqueUserIdsToRemove
+            deleteUserGroupMappings(new LinkedHashSet<>(domainUserIdsToRemove), Collections.singleton(doaminGroupId),
+                    unitOfWork, domainId);
 
-            // Add the user group mappings in uniqueUserIdsToUpdate
-            final String insertUsersOfGroup = "INSERT INTO IDM_USER_GROUP_MAPPING (USER_ID, GROUP_ID, DOMAIN_ID) " +
-                    "VALUES ( :" + SQLPlaceholders.USER_ID + ";, :" + SQLPlaceholders.GROUP_ID + ";, " +
-                    ":" + SQLPlaceholders.DOMAIN_ID + "; ) ";
-            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
-                    unitOfWork.getConnection(),
-                    insertUsersOfGroup);
-            for (String uniqueUserId : domainUserIdsToUpdate) {
-                namedPreparedStatement.setString(SQLPlaceholders.USER_ID, uniqueUserId);
-                namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, doaminGroupId);
-                namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
-                namedPreparedStatement.getPreparedStatement().addBatch();
-            }
-            namedPreparedStatement.getPreparedStatement().executeBatch();
+            // Add the user group mappings in uniqueUserIdsToUpdate, skipping the ones that already exist
+            Set<String> userIdsToAdd = new LinkedHashSet<>(domainUserIdsToUpdate);
+            userIdsToAdd.removeAll(getMappedUsersOfGroup(doaminGroupId, userIdsToAdd, unitOfWork, domainId));
+            addUserGroupMappings(userIdsToAdd, Collections.singleton(doaminGroupId), unitOfWork, domainId);
 
             unitOfWork.endTransaction();
 
         } catch (SQLException e) {
-            throw new UniqueIdResolverException("Error while updating groups of user", e);
+            throw new UniqueIdResolverException("Error while updating users of group", e);
         }
     }
 
@@ -910,11 +1189,11 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
             throws SQLException {
 
         final String deleteUserGroupMapping = "DELETE FROM IDM_USER_GROUP_MAPPING " +
-                "WHERE GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
+                "WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
                 "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
         NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
                 unitOfWork.getConnection(), deleteUserGroupMapping);
-        namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, uniqueUserId);
+        namedPreparedStatement.setString(SQLPlaceholders.USER_ID, uniqueUserId);
         namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
 
         namedPreparedStatement.getPreparedStatement().executeUpdate();
@@ -925,14 +1204,556 @@ public class JDBCUniqueIdResolver implements UniqueIdResolver {
             throws SQLException {
 
         final String deleteUserGroupMapping = "DELETE FROM IDM_USER_GROUP_MAPPING " +
-                "WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
+                "WHERE GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
                 "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
         NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
                 unitOfWork.getConnection(), deleteUserGroupMapping);
-        namedPreparedStatement.setString(SQLPlaceholders.USER_ID, uniqueGroupId);
+        namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, uniqueGroupId);
         namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
 
         namedPreparedStatement.getPreparedStatement().executeUpdate();
 
     }
+
+    /**
+     * Lock the rows of a user until the unit of work ends. Membership updates of the same user read the current
+     * mappings and write the difference, so they have to run one after another or they would insert the same
+     * mapping twice.
+     */
+    private void lockUser(String domainUserId, UnitOfWork unitOfWork, int domainId) throws SQLException {
+
+        final String selectUserForUpdate = "SELECT USER_ID FROM IDM_USER " +
+                "WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
+                "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; FOR UPDATE";
+        NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                unitOfWork.getConnection(), selectUserForUpdate);
+        unitOfWork.queueToClose(namedPreparedStatement.getPreparedStatement());
+        namedPreparedStatement.setString(SQLPlaceholders.USER_ID, domainUserId);
+        namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+        namedPreparedStatement.getPreparedStatement().executeQuery().close();
+    }
+
+    /**
+     * Lock the rows of a group until the unit of work ends, so that membership updates of the same group run one
+     * after another.
+     */
+    private void lockGroup(String domainGroupId, UnitOfWork unitOfWork, int domainId) throws SQLException {
+
+        final String selectGroupForUpdate = "SELECT GROUP_ID FROM IDM_GROUP " +
+                "WHERE GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
+                "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; FOR UPDATE";
+        NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                unitOfWork.getConnection(), selectGroupForUpdate);
+        unitOfWork.queueToClose(namedPreparedStatement.getPreparedStatement());
+        namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, domainGroupId);
+        namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+        namedPreparedStatement.getPreparedStatement().executeQuery().close();
+    }
+
+    private Set<String> getMappedGroupsOfUser(String domainUserId, UnitOfWork unitOfWork, int domainId)
+            throws SQLException {
+
+        Set<String> mappedGroupIds = new HashSet<>();
+        final String selectMappedGroups = "SELECT GROUP_ID FROM IDM_USER_GROUP_MAPPING " +
+                "WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
+                "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
+
+        NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                unitOfWork.getConnection(), selectMappedGroups);
+        unitOfWork.queueToClose(namedPreparedStatement.getPreparedStatement());
+        namedPreparedStatement.setString(SQLPlaceholders.USER_ID, domainUserId);
+        namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+        namedPreparedStatement.getPreparedStatement().setFetchSize(fetchSize);
+        try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+            while (resultSet.next()) {
+                mappedGroupIds.add(resultSet.getString(ColumnNames.GROUP_ID));
+            }
+        }
+        return mappedGroupIds;
+    }
+
+    private Set<String> getMappedUsersOfGroup(String domainGroupId, UnitOfWork unitOfWork, int domainId)
+            throws SQLException {
+
+        Set<String> mappedUserIds = new HashSet<>();
+        final String selectMappedUsers = "SELECT USER_ID FROM IDM_USER_GROUP_MAPPING " +
+                "WHERE GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
+                "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
+
+        NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                unitOfWork.getConnection(), selectMappedUsers);
+        unitOfWork.queueToClose(namedPreparedStatement.getPreparedStatement());
+        namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, domainGroupId);
+        namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+        namedPreparedStatement.getPreparedStatement().setFetchSize(fetchSize);
+        try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+            while (resultSet.next()) {
+                mappedUserIds.add(resultSet.getString(ColumnNames.USER_ID));
+            }
+        }
+        return mappedUserIds;
+    }
+
+    /**
+     * Insert a mapping for each pair of the given users and groups. The rows are sent in JDBC batches of
+     * {@link #batchSize} rows within the transaction of the unit of work.
+     * <p>
+     * The updates of the groups of a user lock the user, and the updates of the users of a group lock the group, so
+     * the two sides may insert the same mapping concurrently. Mappings which the other side has inserted first are
+     * skipped instead of failing on the unique index.
+     */
+    private void addUserGroupMappings(Collection<String> domainUserIds, Collection<String> domainGroupIds,
+                                      UnitOfWork unitOfWork, int domainId) throws SQLException {
+
+        if (domainUserIds.isEmpty() || domainGroupIds.isEmpty()) {
+            return;
+        }
+
+        final String insertUserGroupMapping = "INSERT INTO IDM_USER_GROUP_MAPPING (USER_ID, GROUP_ID, DOMAIN_ID) " +
+                "VALUES ( :" + SQLPlaceholders.USER_ID + ";, :" + SQLPlaceholders.GROUP_ID + ";, " +
+                ":" + SQLPlaceholders.DOMAIN_ID + "; ) ";
+        NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                unitOfWork.getConnection(), insertUserGroupMapping);
+        unitOfWork.queueToClose(namedPreparedStatement.getPreparedStatement());
+
+        List<String[]> batch = new ArrayList<>();
+        for (String domainUserId : domainUserIds) {
+            for (String domainGroupId : domainGroupIds) {
+                bindMapping(namedPreparedStatement, domainUserId, domainGroupId, domainId);
+                namedPreparedStatement.getPreparedStatement().addBatch();
+                batch.add(new String[]{domainUserId, domainGroupId});
+                if (batch.size() == batchSize) {
+                    insertMappingBatch(namedPreparedStatement, batch, unitOfWork, domainId);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertMappingBatch(namedPreparedStatement, batch, unitOfWork, domainId);
+        }
+    }
+
+    /**
+     * Insert a batch of mappings. If the batch fails, it is rolled back and the mappings are inserted one by one,
+     * skipping the ones which exist by then.
+     */
+    private void insertMappingBatch(NamedPreparedStatement namedPreparedStatement, List<String[]> batch,
+                                    UnitOfWork unitOfWork, int domainId) throws SQLException {
+
+        Connection connection = unitOfWork.getConnection();
+
+        // Savepoints are released with the transaction, as not every driver supports releasing them.
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            namedPreparedStatement.getPreparedStatement().executeBatch();
+            return;
+        } catch (SQLException e) {
+            namedPreparedStatement.getPreparedStatement().clearBatch();
+            connection.rollback(savepoint);
+            log.debug("Batch of {} user group mappings failed. Retrying the mappings one by one.", batch.size(), e);
+        }
+
+        for (String[] mapping : batch) {
+            savepoint = connection.setSavepoint();
+            try {
+                bindMapping(namedPreparedStatement, mapping[0], mapping[1], domainId);
+                namedPreparedStatement.getPreparedStatement().executeUpdate();
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (!isUserGroupMapped(mapping[0], mapping[1], unitOfWork, domainId)) {
+                    throw e;
+                }
+                log.debug("Mapping of the user {} to the group {} was added concurrently.", mapping[0], mapping[1]);
+            }
+        }
+    }
+
+    private static void bindMapping(NamedPreparedStatement namedPreparedStatement, String domainUserId,
+                                    String domainGroupId, int domainId) throws SQLException {
+
+        namedPreparedStatement.setString(SQLPlaceholders.USER_ID, domainUserId);
+        namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, domainGroupId);
+        namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+    }
+
+    /**
+     * Check whether the user is mapped to the group. The mapping row is read with a locking read, which sees the
+     * mappings committed by other transactions after this transaction started.
+     */
+    private boolean isUserGroupMapped(String domainUserId, String domainGroupId, UnitOfWork unitOfWork,
+                                      int domainId) throws SQLException {
+
+        final String selectMappingForUpdate = "SELECT ID FROM IDM_USER_GROUP_MAPPING " +
+                "WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
+                "GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
+                "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; FOR UPDATE";
+        NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                unitOfWork.getConnection(), selectMappingForUpdate);
+        unitOfWork.queueToClose(namedPreparedStatement.getPreparedStatement());
+        bindMapping(namedPreparedStatement, domainUserId, domainGroupId, domainId);
+        try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+            return resultSet.next();
+        }
+    }
+
+    /**
+     * Delete the mapping of each pair of the given users and groups. The rows are sent in JDBC batches of
+     * {@link #batchSize} rows within the transaction of the unit of work.
+     */
+    private void deleteUserGroupMappings(Collection<String> domainUserIds, Collection<String> domainGroupIds,
+                                         UnitOfWork unitOfWork, int domainId) throws SQLException {
+
+        final String deleteUserGroupMapping = "DELETE FROM IDM_USER_GROUP_MAPPING " +
+                "WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
+                "GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
+                "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + ";";
+        executeMappingBatches(deleteUserGroupMapping, domainUserIds, domainGroupIds, unitOfWork, domainId);
+    }
+
+    private void executeMappingBatches(String query, Collection<String> domainUserIds,
+                                       Collection<String> domainGroupIds, UnitOfWork unitOfWork, int domainId)
+            throws SQLException {
+
+        if (domainUserIds.isEmpty() || domainGroupIds.isEmpty()) {
+            return;
+        }
+
+        NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                unitOfWork.getConnection(), query);
+        unitOfWork.queueToClose(namedPreparedStatement.getPreparedStatement());
+
+        int rowCount = 0;
+        for (String domainUserId : domainUserIds) {
+            for (String domainGroupId : domainGroupIds) {
+                namedPreparedStatement.setString(SQLPlaceholders.USER_ID, domainUserId);
+                namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, domainGroupId);
+                namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+                namedPreparedStatement.getPreparedStatement().addBatch();
+                if (++rowCount % batchSize == 0) {
+                    namedPreparedStatement.getPreparedStatement().executeBatch();
+                }
+            }
+        }
+        if (rowCount % batchSize != 0) {
+            namedPreparedStatement.getPreparedStatement().executeBatch();
+        }
+    }
+
+    private Set<String> getMappedGroupsOfUser(String domainUserId, Set<String> domainGroupIds, UnitOfWork unitOfWork,
+                                              int domainId) throws SQLException {
+
+        Set<String> mappedGroupIds = new HashSet<>();
+        final String selectMappedGroups = "SELECT GROUP_ID FROM IDM_USER_GROUP_MAPPING " +
+                "WHERE USER_ID = :" + SQLPlaceholders.USER_ID + "; AND " +
+                "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; AND " +
+                "GROUP_ID IN (:" + SQLPlaceholders.GROUP_ID + ";)";
+
+        for (List<String> chunk : getChunks(new ArrayList<>(domainGroupIds))) {
+            Map<String, Integer> repetition = new HashMap<>();
+            repetition.put(SQLPlaceholders.GROUP_ID, chunk.size());
+
+            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                    unitOfWork.getConnection(), selectMappedGroups, repetition);
+            unitOfWork.queueToClose(namedPreparedStatement.getPreparedStatement());
+            namedPreparedStatement.setString(SQLPlaceholders.USER_ID, domainUserId);
+            namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+            namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, chunk);
+            try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+                while (resultSet.next()) {
+                    mappedGroupIds.add(resultSet.getString(ColumnNames.GROUP_ID));
+                }
+            }
+        }
+        return mappedGroupIds;
+    }
+
+    private Set<String> getMappedUsersOfGroup(String domainGroupId, Set<String> domainUserIds, UnitOfWork unitOfWork,
+                                              int domainId) throws SQLException {
+
+        Set<String> mappedUserIds = new HashSet<>();
+        final String selectMappedUsers = "SELECT USER_ID FROM IDM_USER_GROUP_MAPPING " +
+                "WHERE GROUP_ID = :" + SQLPlaceholders.GROUP_ID + "; AND " +
+                "DOMAIN_ID = :" + SQLPlaceholders.DOMAIN_ID + "; AND " +
+                "USER_ID IN (:" + SQLPlaceholders.USER_ID + ";)";
+
+        for (List<String> chunk : getChunks(new ArrayList<>(domainUserIds))) {
+            Map<String, Integer> repetition = new HashMap<>();
+            repetition.put(SQLPlaceholders.USER_ID, chunk.size());
+
+            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                    unitOfWork.getConnection(), selectMappedUsers, repetition);
+            unitOfWork.queueToClose(namedPreparedStatement.getPreparedStatement());
+            namedPreparedStatement.setString(SQLPlaceholders.GROUP_ID, domainGroupId);
+            namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+            namedPreparedStatement.setString(SQLPlaceholders.USER_ID, chunk);
+            try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+                while (resultSet.next()) {
+                    mappedUserIds.add(resultSet.getString(ColumnNames.USER_ID));
+                }
+            }
+        }
+        return mappedUserIds;
+    }
+
+    private UserPartition buildUserPartition(ResultSet resultSet) throws SQLException {
+
+        UserPartition userPartition = new UserPartition();
+        userPartition.setConnectorId(resultSet.getString(ColumnNames.CONNECTOR_ID));
+        userPartition.setConnectorUserId(resultSet.getString(ColumnNames.CONNECTOR_USER_ID));
+        userPartition.setIdentityStore(UniqueIdResolverConstants.IDENTITY_STORE_CONNECTOR.equals(resultSet
+                .getString(ColumnNames.CONNECTOR_TYPE)));
+        return userPartition;
+    }
+
+    private static List<List<String>> getChunks(List<String> values) {
+
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            chunks.add(values.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, values.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Run a query on the entities of a domain and read the result set lazily. The connection is kept open until the
+     * returned iterator is exhausted or closed.
+     *
+     * @param selectQuery   Named query with a domain id placeholder, ordered by the key column.
+     * @param domainId      Domain identifier.
+     * @param keyColumn     Column which identifies the entity of a row.
+     * @param entityFactory Creates an empty entity for a key.
+     * @param rowReader     Adds the values of a row to its entity.
+     * @param <T>           Type of the entity.
+     * @return Iterator over the entities.
+     * @throws UniqueIdResolverException Unique Id Resolver Exception.
+     */
+    private <T> ResultSetIterator<T> openResultSet(String selectQuery, int domainId, String keyColumn,
+                                                   Function<String, T> entityFactory,
+                                                   ResultSetIterator.RowReader<T> rowReader)
+            throws UniqueIdResolverException {
+
+        UnitOfWork unitOfWork = null;
+        try {
+            // The stream may outlive the current operation, so it does not use the connection of the operation
+            // scope. Some drivers only fetch the rows lazily when auto commit is disabled.
+            unitOfWork = UnitOfWork.beginTransaction(getReadConnection(false), false);
+            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                    unitOfWork.getConnection(), selectQuery);
+            unitOfWork.queueToClose(namedPreparedStatement.getPreparedStatement());
+            namedPreparedStatement.setInt(SQLPlaceholders.DOMAIN_ID, domainId);
+            namedPreparedStatement.getPreparedStatement().setFetchSize(
+                    getStreamingFetchSize(unitOfWork.getConnection()));
+
+            return new ResultSetIterator<>(unitOfWork, namedPreparedStatement.getPreparedStatement().executeQuery(),
+                    keyColumn, entityFactory, rowReader);
+        } catch (SQLException e) {
+            if (unitOfWork != null) {
+                try {
+                    unitOfWork.close();
+                } catch (SQLException ex) {
+                    e.addSuppressed(ex);
+                }
+            }
+            throw new UniqueIdResolverException("Error while streaming entities.", e);
+        }
+    }
+
+    /**
+     * Get the fetch size of a streaming query. MySQL Connector/J ignores the fetch size and reads the whole result into
+     * memory unless the connection URL has useCursorFetch=true. Without it, Integer.MIN_VALUE makes the driver stream
+     * the rows one by one, which is safe here since the stream has a connection of its own.
+     *
+     * @param connection Connection of the stream.
+     * @return Fetch size to set on the statement.
+     * @throws SQLException SQL Exception.
+     */
+    private int getStreamingFetchSize(Connection connection) throws SQLException {
+
+        DatabaseMetaData metaData = connection.getMetaData();
+        if (MYSQL.equals(metaData.getDatabaseProductName()) && (metaData.getURL() == null ||
+                !metaData.getURL().contains(MYSQL_CURSOR_FETCH))) {
+            return Integer.MIN_VALUE;
+        }
+        return fetchSize;
+    }
+
+    private Connection getWriteConnection() throws SQLException {
+
+        // Later reads of the same operation go to the primary data source, so that they see this write.
+        OperationScope.recordWrite(dataSource);
+        return OperationScope.getConnection(dataSource);
+    }
+
+    private Connection getReadConnection() throws SQLException {
+        return getReadConnection(true);
+    }
+
+    /**
+     * Get a connection for a read only query. Reads are balanced across the read data sources in a round robin
+     * manner. Within an operation scope, the reads stay on the replica that the operation already uses, and they
+     * go to the primary data source once the operation has written to it, or while the operation requires primary
+     * reads, as a cache reloading a recently invalidated entry does. If none of the replicas is reachable, the
+     * primary data source is used.
+     *
+     * @param shared Whether the connection can be shared with the current operation scope.
+     * @return Database connection.
+     * @throws SQLException SQL Exception.
+     */
+    private Connection getReadConnection(boolean shared) throws SQLException {
+
+        if (readDataSources.isEmpty() || OperationScope.hasWritten(dataSource) ||
+                OperationScope.isPrimaryReadRequired()) {
+            return getConnection(dataSource, shared);
+        }
+
+        if (shared) {
+            DataSource sharedDataSource = OperationScope.findSharedDataSource(readDataSources);
+            if (sharedDataSource != null) {
+                return OperationScope.getConnection(sharedDataSource);
+            }
+        }
+
+        int start = Math.floorMod(nextReadDataSource.getAndIncrement(), readDataSources.size());
+        for (int i = 0; i < readDataSources.size(); i++) {
+            try {
+                return getConnection(readDataSources.get((start + i) % readDataSources.size()), shared);
+            } catch (SQLException e) {
+                log.warn("Failed to get a connection from a read data source.", e);
+            }
+        }
+        return getConnection(dataSource, shared);
+    }
+
+    private static Connection getConnection(DataSource dataSource, boolean shared) throws SQLException {
+        return shared ? OperationScope.getConnection(dataSource) : dataSource.getConnection();
+    }
+
+    private static int getPositiveIntProperty(UniqueIdResolverConfig uniqueIdResolverConfig, String name,
+                                              int defaultValue) throws UniqueIdResolverException {
+
+        String value = uniqueIdResolverConfig.getProperties().get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        int intValue;
+        try {
+            intValue = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new UniqueIdResolverException(String.format("Invalid value for %s: %s", name, value), e);
+        }
+        if (intValue <= 0) {
+            throw new UniqueIdResolverException(String.format("%s should be a positive integer.", name));
+        }
+        return intValue;
+    }
+
+    /**
+     * Insert the partitions of the given entities through a single prepared statement. The rows are sent in JDBC
+     * batches of about {@link #batchSize} rows, all within one transaction, and an entity is never split across
+     * batches. The entities are added all or nothing, so that the caller can roll back the connector side of every
+     * entity on a failure. When a batch fails, it is rolled back to its savepoint and its entities are retried one
+     * by one so that the failures can be reported per entity as suppressed exceptions.
+     *
+     * @param entities     Entities to be inserted.
+     * @param insertQuery  Named insert query.
+     * @param binder       Binds the partitions of an entity to the statement.
+     * @param errorMessage Error message of a failed entity.
+     * @param <T>          Type of the entity.
+     * @throws UniqueIdResolverException If any of the entities could not be inserted. None of them is inserted then.
+     */
+    private <T> void addInBatches(List<T> entities, String insertQuery, BatchBinder<T> binder,
+                                  Function<T, String> errorMessage) throws UniqueIdResolverException {
+
+        UniqueIdResolverException uniqueIdResolverException = new UniqueIdResolverException(
+                "Error while adding the batch.");
+
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(getWriteConnection(), false)) {
+            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(
+                    unitOfWork.getConnection(), insertQuery);
+            unitOfWork.queueToClose(namedPreparedStatement.getPreparedStatement());
+
+            try {
+                List<T> batch = new ArrayList<>();
+                int rowCount = 0;
+                for (T entity : entities) {
+                    rowCount += binder.bind(namedPreparedStatement, entity);
+                    batch.add(entity);
+                    if (rowCount >= batchSize) {
+                        executeBatch(unitOfWork.getConnection(), namedPreparedStatement, batch, binder, errorMessage,
+                                uniqueIdResolverException);
+                        batch.clear();
+                        rowCount = 0;
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    executeBatch(unitOfWork.getConnection(), namedPreparedStatement, batch, binder, errorMessage,
+                            uniqueIdResolverException);
+                }
+            } catch (SQLException e) {
+                unitOfWork.getConnection().rollback();
+                throw e;
+            }
+
+            if (uniqueIdResolverException.getSuppressed().length > 0) {
+                unitOfWork.getConnection().rollback();
+                throw uniqueIdResolverException;
+            }
+            unitOfWork.endTransaction();
+        } catch (SQLException e) {
+            throw new UniqueIdResolverException("Error while adding the batch.", e);
+        }
+    }
+
+    private <T> void executeBatch(Connection connection, NamedPreparedStatement namedPreparedStatement,
+                                  List<T> batch, BatchBinder<T> binder, Function<T, String> errorMessage,
+                                  UniqueIdResolverException uniqueIdResolverException) throws SQLException {
+
+        // Savepoints are released with the transaction, as not every driver supports releasing them.
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            namedPreparedStatement.getPreparedStatement().executeBatch();
+            return;
+        } catch (SQLException e) {
+            namedPreparedStatement.getPreparedStatement().clearBatch();
+            connection.rollback(savepoint);
+            if (batch.size() == 1) {
+                uniqueIdResolverException.addSuppressed(new UniqueIdResolverException(
+                        errorMessage.apply(batch.get(0)), e));
+                return;
+            }
+            log.debug("Batch of {} entries failed. Retrying the entries one by one.", batch.size(), e);
+        }
+
+        for (T entity : batch) {
+            savepoint = connection.setSavepoint();
+            try {
+                binder.bind(namedPreparedStatement, entity);
+                namedPreparedStatement.getPreparedStatement().executeBatch();
+            } catch (SQLException e) {
+                namedPreparedStatement.getPreparedStatement().clearBatch();
+                connection.rollback(savepoint);
+                uniqueIdResolverException.addSuppressed(new UniqueIdResolverException(errorMessage.apply(entity), e));
+            }
+        }
+    }
+
+    /**
+     * Binds the rows of an entity to a batched statement.
+     *
+     * @param <T> Type of the entity.
+     */
+    @FunctionalInterface
+    private interface BatchBinder<T> {
+
+        /**
+         * Add the rows of the entity to the batch of the statement.
+         *
+         * @param namedPreparedStatement Statement to add the rows to.
+         * @param entity                 Entity to be inserted.
+         * @return Number of rows added to the batch.
+         * @throws SQLException SQL Exception.
+         */
+        int bind(NamedPreparedStatement namedPreparedStatement, T entity) throws SQLException;
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.wso2.carbon.identity.mgt.impl;
 
+import org.wso2.carbon.identity.mgt.AsyncIdentityStore;
 import org.wso2.carbon.identity.mgt.IdentityStore;
 import org.wso2.carbon.identity.mgt.RealmService;
 
@@ -31,13 +32,29 @@ public class RealmServiceImpl implements RealmService {
      */
     private IdentityStore identityStore;
 
+    /**
+     * The asynchronous view of the identity store.
+     */
+    private AsyncIdentityStore asyncIdentityStore;
+
     public RealmServiceImpl(IdentityStore identityStore) {
 
+        this(identityStore, new AsyncIdentityStoreImpl(identityStore));
+    }
+
+    public RealmServiceImpl(IdentityStore identityStore, AsyncIdentityStore asyncIdentityStore) {
+
         this.identityStore = identityStore;
+        this.asyncIdentityStore = asyncIdentityStore;
     }
 
     @Override
     public IdentityStore getIdentityStore() {
         return this.identityStore;
     }
+
+    @Override
+    public AsyncIdentityStore getAsyncIdentityStore() {
+        return this.asyncIdentityStore;
+    }
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.identity.mgt.cache.CacheInvalidation;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBus;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBusConfig;
+import org.wso2.carbon.identity.mgt.cache.InvalidationListener;
+import org.wso2.carbon.identity.mgt.exception.InvalidationBusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class of the invalidation buses. Published invalidations are coalesced and sent to the other nodes in
+ * batches, either every batch interval or as soon as the maximum batch size is reached, so that a burst of writes
+ * does not flood the bus.
+ */
+public abstract class AbstractInvalidationBus implements InvalidationBus {
+
+    /**
+     * Interval in milliseconds at which the pending invalidations are sent.
+     */
+    public static final String BATCH_INTERVAL = "batchInterval";
+
+    /**
+     * Number of pending invalidations which are sent without waiting for the batch interval.
+     */
+    public static final String MAX_BATCH_SIZE = "maxBatchSize";
+
+    private static final Logger log = LoggerFactory.getLogger(AbstractInvalidationBus.class);
+
+    private static final long DEFAULT_BATCH_INTERVAL = 100;
+
+    private static final long DEFAULT_MAX_BATCH_SIZE = 500;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Object pendingLock = new Object();
+
+    private Set<CacheInvalidation> pendingInvalidations = new LinkedHashSet<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private long maxBatchSize;
+
+    @Override
+    public void init(InvalidationBusConfig invalidationBusConfig) throws InvalidationBusException {
+
+        Map<String, String> properties = invalidationBusConfig.getProperties() == null ? Collections.emptyMap() :
+                invalidationBusConfig.getProperties();
+
+        long batchInterval = getLongProperty(properties, BATCH_INTERVAL, DEFAULT_BATCH_INTERVAL);
+        maxBatchSize = getLongProperty(properties, MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "identity-cache-invalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        start(properties);
+        scheduler.scheduleWithFixedDelay(this::flush, batchInterval, batchInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+
+        boolean batchFull;
+        synchronized (pendingLock) {
+            if (invalidation.isAll()) {
+                // Invalidating the whole cache supersedes the pending invalidations of its entries.
+                pendingInvalidations.removeIf(pending -> pending.getCacheName().equals(invalidation.getCacheName()));
+                pendingInvalidations.add(invalidation);
+            } else if (!pendingInvalidations.contains(CacheInvalidation.all(invalidation.getCacheName()))) {
+                pendingInvalidations.add(invalidation);
+            }
+            batchFull = pendingInvalidations.size() >= maxBatchSize;
+        }
+
+        if (batchFull && scheduler != null) {
+            try {
+                scheduler.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                log.debug("Invalidation bus is closed. Pending invalidations are not sent.", e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        flush();
+        stop();
+    }
+
+    /**
+     * Get the id of this node, which is unique across the nodes sharing the bus.
+     *
+     * @return Node id.
+     */
+    protected String getNodeId() {
+
+        return nodeId;
+    }
+
+    /**
+     * Get the scheduler of the invalidation bus, which may be used to run periodic tasks such as polling.
+     *
+     * @return Scheduler.
+     */
+    protected ScheduledExecutorService getScheduler() {
+
+        return scheduler;
+    }
+
+    /**
+     * Deliver the invalidations received from another node to the listeners.
+     *
+     * @param invalidations Received invalidations.
+     */
+    protected void deliver(List<CacheInvalidation> invalidations) {
+
+        if (invalidations.isEmpty()) {
+            return;
+        }
+
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.onInvalidation(invalidations);
+            } catch (RuntimeException e) {
+                log.error("Failed to apply {} cache invalidations.", invalidations.size(), e);
+            }
+        }
+    }
+
+    /**
+     * Start the transport of the invalidation bus.
+     *
+     * @param properties Invalidation bus properties.
+     * @throws InvalidationBusException Invalidation Bus Exception.
+     */
+    protected abstract void start(Map<String, String> properties) throws InvalidationBusException;
+
+    /**
+     * Send a batch of invalidations to the other nodes.
+     *
+     * @param invalidations Coalesced invalidations.
+     * @throws InvalidationBusException Invalidation Bus Exception.
+     */
+    protected abstract void send(List<CacheInvalidation> invalidations) throws InvalidationBusException;
+
+    /**
+     * Stop the transport of the invalidation bus.
+     */
+    protected abstract void stop();
+
+    protected static long getLongProperty(Map<String, String> properties, String name, long defaultValue)
+            throws InvalidationBusException {
+
+        String value = properties.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+
+        try {
+            long longValue = Long.parseLong(value.trim());
+            if (longValue <= 0) {
+                throw new InvalidationBusException(String.format("Invalid value - %s for invalidation bus " +
+                        "property - %s.", value, name));
+            }
+            return longValue;
+        } catch (NumberFormatException e) {
+            throw new InvalidationBusException(String.format("Invalid value - %s for invalidation bus property - %s.",
+                    value, name), e);
+        }
+    }
+
+    private void flush() {
+
+        List<CacheInvalidation> invalidations;
+        synchronized (pendingLock) {
+            if (pendingInvalidations.isEmpty()) {
+                return;
+            }
+            invalidations = new ArrayList<>(pendingInvalidations);
+            pendingInvalidations = new LinkedHashSet<>();
+        }
+
+        // Exceptions must not escape, as they would cancel the periodic flush.
+        try {
+            send(invalidations);
+        } catch (InvalidationBusException | RuntimeException e) {
+            log.error("Failed to send {} cache invalidations to the other nodes.", invalidations.size(), e);
+        }
+    }
+}
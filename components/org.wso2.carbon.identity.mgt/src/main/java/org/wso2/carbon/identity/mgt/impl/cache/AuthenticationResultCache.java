@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import org.wso2.carbon.identity.mgt.cache.CacheInvalidation;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBus;
+import org.wso2.carbon.identity.mgt.impl.config.CacheConfig;
+import org.wso2.carbon.identity.mgt.listener.IdentityStoreListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of successful Basic authentications, so that API clients which send the same credentials on
+ * every request do not pay for a full authentication each time.
+ * <p>
+ * Entries are keyed by a salted digest of the Authorization header. The salt is generated per instance and never
+ * leaves the memory, hence the keys can not be used to recover or verify credentials elsewhere.
+ * <p>
+ * The authentications of a user are evicted when the credentials of the user are updated or the user is deleted.
+ * When an invalidation bus is set, the eviction is also broadcast to the other nodes. An authentication which was in
+ * progress while the user was evicted is not cached, see {@link #getGeneration()}.
+ */
+public class AuthenticationResultCache implements IdentityStoreListener {
+
+    /**
+     * Name under which the evictions are published to the invalidation bus.
+     */
+    public static final String AUTHENTICATION_RESULT_CACHE = "authenticationResultCache";
+
+    private static final long DEFAULT_EXPIRY_TIME = 60;
+
+    private static final long DEFAULT_MAX_ENTRIES = 10000;
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final int SALT_LENGTH = 16;
+
+    private final long expiryNanos;
+
+    private final long maxEntries;
+
+    private final byte[] salt = new byte[SALT_LENGTH];
+
+    private final Map<String, CachedAuthentication> authentications = new LinkedHashMap<String,
+            CachedAuthentication>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedAuthentication> eldest) {
+
+            if (size() <= maxEntries) {
+                return false;
+            }
+            unindex(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+    };
+
+    private final Map<String, Set<String>> keysOfUsers = new HashMap<>();
+
+    private final Map<String, Set<String>> keysOfPrincipals = new HashMap<>();
+
+    /**
+     * Generation at which each user was last evicted. Users evicted before {@link #generationFloor} are forgotten.
+     */
+    private final Map<String, Long> generationsOfUsers = new HashMap<>();
+
+    private long generation;
+
+    private long generationFloor;
+
+    private volatile InvalidationBus invalidationBus;
+
+    public AuthenticationResultCache(long expiryTime, TimeUnit timeUnit, long maxEntries) {
+
+        this.expiryNanos = timeUnit.toNanos(expiryTime);
+        this.maxEntries = maxEntries;
+        new SecureRandom().nextBytes(salt);
+    }
+
+    /**
+     * Create the cache from the authenticationCache section of store-config.yaml. The expiry time is taken from
+     * expireTimeSeconds, or else from expireTime which is in minutes like for the other caches.
+     *
+     * @param cacheConfig Cache config. The defaults are used for the unset expiry time and capacity.
+     */
+    public AuthenticationResultCache(CacheConfig cacheConfig) {
+
+        this(getExpiryTimeSeconds(cacheConfig), TimeUnit.SECONDS,
+                cacheConfig.getMaxCapacity() > 0 ? cacheConfig.getMaxCapacity() : DEFAULT_MAX_ENTRIES);
+    }
+
+    private static long getExpiryTimeSeconds(CacheConfig cacheConfig) {
+
+        if (cacheConfig.getExpireTimeSeconds() > 0) {
+            return cacheConfig.getExpireTimeSeconds();
+        }
+        if (cacheConfig.getExpireTime() > 0) {
+            return TimeUnit.MINUTES.toSeconds(cacheConfig.getExpireTime());
+        }
+        return DEFAULT_EXPIRY_TIME;
+    }
+
+    /**
+     * Get the time for which a successful authentication is cached.
+     *
+     * @param timeUnit Time unit of the result.
+     * @return Expiry time.
+     */
+    public long getExpiryTime(TimeUnit timeUnit) {
+
+        return timeUnit.convert(expiryNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Broadcast the evictions of users to the other nodes, and apply the evictions of the other nodes.
+     *
+     * @param invalidationBus Invalidation bus.
+     */
+    public void setInvalidationBus(InvalidationBus invalidationBus) {
+
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    /**
+     * Get the cache key of an Authorization header.
+     *
+     * @param authorizationHeader Authorization header.
+     * @return Salted digest of the header.
+     */
+    public String getKey(String authorizationHeader) {
+
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            messageDigest.update(salt);
+            messageDigest.update(authorizationHeader.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(messageDigest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException("Digest algorithm " + DIGEST_ALGORITHM + " is not available.", e);
+        }
+    }
+
+    /**
+     * Get the unique id of the user authenticated with the given key.
+     *
+     * @param key Cache key.
+     * @return Unique user id or null if there is no unexpired authentication.
+     */
+    public synchronized String get(String key) {
+
+        CachedAuthentication authentication = authentications.get(key);
+        if (authentication == null) {
+            return null;
+        }
+
+        if (System.nanoTime() - authentication.authenticatedTime >= expiryNanos) {
+            authentications.remove(key);
+            unindex(key, authentication);
+            return null;
+        }
+
+        return authentication.uniqueUserId;
+    }
+
+    /**
+     * Get the current generation of the cache. It must be obtained before authenticating and given to
+     * {@link #put(String, String, String, long)}, so that an authentication which raced with an eviction of the
+     * user is not cached.
+     *
+     * @return Current generation.
+     */
+    public synchronized long getGeneration() {
+
+        return generation;
+    }
+
+    /**
+     * Cache a successful authentication, unless the user was evicted after the given generation.
+     *
+     * @param key          Cache key.
+     * @param principal    Principal given in the credentials.
+     * @param uniqueUserId Unique id of the authenticated user.
+     * @param generation   Generation obtained before authenticating.
+     * @return true if the authentication is cached.
+     */
+    public synchronized boolean put(String key, String principal, String uniqueUserId, long generation) {
+
+        if (generation < generationFloor || generationsOfUsers.getOrDefault(uniqueUserId, 0L) > generation) {
+            return false;
+        }
+
+        CachedAuthentication authentication = new CachedAuthentication(normalize(principal), uniqueUserId,
+                System.nanoTime());
+
+        CachedAuthentication previous = authentications.put(key, authentication);
+        if (previous != null) {
+            unindex(key, previous);
+        }
+        keysOfUsers.computeIfAbsent(uniqueUserId, user -> new HashSet<>()).add(key);
+        keysOfPrincipals.computeIfAbsent(authentication.principal, user -> new HashSet<>()).add(key);
+        return true;
+    }
+
+    /**
+     * Evict the authentications of a user on this node and on the other nodes.
+     *
+     * @param uniqueUserId Unique user id.
+     */
+    public void removeUser(String uniqueUserId) {
+
+        evictUser(uniqueUserId);
+
+        InvalidationBus invalidationBus = this.invalidationBus;
+        if (invalidationBus != null) {
+            invalidationBus.publish(CacheInvalidation.of(AUTHENTICATION_RESULT_CACHE, uniqueUserId));
+        }
+    }
+
+    /**
+     * Evict the authentications made with the given principal on this node.
+     *
+     * @param principal Principal given in the credentials.
+     */
+    public synchronized void removePrincipal(String principal) {
+
+        removeAll(keysOfPrincipals.get(normalize(principal)));
+    }
+
+    @Override
+    public void userCredentialsUpdated(String uniqueUserId) {
+
+        removeUser(uniqueUserId);
+    }
+
+    @Override
+    public void userDeleted(String uniqueUserId) {
+
+        removeUser(uniqueUserId);
+    }
+
+    private void onInvalidation(List<CacheInvalidation> invalidations) {
+
+        invalidations.stream()
+                .filter(invalidation -> AUTHENTICATION_RESULT_CACHE.equals(invalidation.getCacheName()))
+                .forEach(invalidation -> {
+                    if (invalidation.isAll()) {
+                        evictAll();
+                    } else {
+                        evictUser(invalidation.getKey());
+                    }
+                });
+    }
+
+    private synchronized void evictUser(String uniqueUserId) {
+
+        generation++;
+        if (generationsOfUsers.size() >= maxEntries) {
+            // Forget the older evictions. The authentications started before them are no longer cached either.
+            generationsOfUsers.clear();
+            generationFloor = generation;
+        }
+        generationsOfUsers.put(uniqueUserId, generation);
+
+        removeAll(keysOfUsers.get(uniqueUserId));
+    }
+
+    private synchronized void evictAll() {
+
+        generation++;
+        generationsOfUsers.clear();
+        generationFloor = generation;
+
+        authentications.clear();
+        keysOfUsers.clear();
+        keysOfPrincipals.clear();
+    }
+
+    private void removeAll(Set<String> keys) {
+
+        if (keys == null) {
+            return;
+        }
+
+        for (String key : new HashSet<>(keys)) {
+            CachedAuthentication authentication = authentications.remove(key);
+            if (authentication != null) {
+                unindex(key, authentication);
+            }
+        }
+    }
+
+    private void unindex(String key, CachedAuthentication authentication) {
+
+        unindex(keysOfUsers, authentication.uniqueUserId, key);
+        unindex(keysOfPrincipals, authentication.principal, key);
+    }
+
+    private static void unindex(Map<String, Set<String>> index, String indexKey, String key) {
+
+        Set<String> keys = index.get(indexKey);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                index.remove(indexKey);
+            }
+        }
+    }
+
+    private static String normalize(String principal) {
+
+        return principal.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * A cached successful authentication.
+     */
+    private static class CachedAuthentication {
+
+        private final String principal;
+
+        private final String uniqueUserId;
+
+        private final long authenticatedTime;
+
+        CachedAuthentication(String principal, String uniqueUserId, long authenticatedTime) {
+            this.principal = principal;
+            this.uniqueUserId = uniqueUserId;
+            this.authenticatedTime = authenticatedTime;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+/**
+ * Loads the value of a cache entry from the underlying store.
+ *
+ * @param <K>  Type of the cache key.
+ * @param <V>  Type of the cache value.
+ * @param <E1> Type of the first exception thrown by the loader.
+ * @param <E2> Type of the second exception thrown by the loader.
+ */
+@FunctionalInterface
+public interface CacheLoader<K, V, E1 extends Exception, E2 extends Exception> {
+
+    /**
+     * Load the value of the given key.
+     *
+     * @param key Cache key.
+     * @return Loaded value or null if there is no value to be cached.
+     * @throws E1 First exception type of the loader.
+     * @throws E2 Second exception type of the loader.
+     */
+    V load(K key) throws E1, E2;
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+/**
+ * Management interface of an identity cache. Every attribute is read from a fresh snapshot of the cache statistics.
+ */
+public interface CacheStatisticsMXBean {
+
+    String getCacheName();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRatio();
+
+    long getLoadCount();
+
+    long getLoadFailureCount();
+
+    long getCoalescedLoadCount();
+
+    long getRefreshCount();
+
+    long getEvictionCount();
+
+    long getInvalidationCount();
+
+    long getSize();
+
+    /**
+     * Get the average time taken by a load.
+     *
+     * @return Average load time in milliseconds.
+     */
+    double getAverageLoadTime();
+
+    /**
+     * Get the upper bounds in milliseconds of the buckets of the load time histogram.
+     *
+     * @return Bucket bounds.
+     */
+    long[] getLoadTimeBucketBounds();
+
+    /**
+     * Get the number of loads in each bucket. The last bucket counts the loads slower than the last bound.
+     *
+     * @return Load time histogram.
+     */
+    long[] getLoadTimeHistogram();
+}
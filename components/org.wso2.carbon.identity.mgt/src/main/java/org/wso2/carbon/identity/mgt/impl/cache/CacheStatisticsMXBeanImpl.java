@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import org.wso2.carbon.identity.mgt.cache.CacheStatistics;
+
+/**
+ * Exposes the statistics of a managed cache as an MXBean.
+ */
+public class CacheStatisticsMXBeanImpl implements CacheStatisticsMXBean {
+
+    private final ManagedCache<?, ?> cache;
+
+    public CacheStatisticsMXBeanImpl(ManagedCache<?, ?> cache) {
+
+        this.cache = cache;
+    }
+
+    @Override
+    public String getCacheName() {
+        return cache.getName();
+    }
+
+    @Override
+    public long getHitCount() {
+        return getStatistics().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return getStatistics().getMissCount();
+    }
+
+    @Override
+    public double getHitRatio() {
+        return getStatistics().getHitRatio();
+    }
+
+    @Override
+    public long getLoadCount() {
+        return getStatistics().getLoadCount();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+        return getStatistics().getLoadFailureCount();
+    }
+
+    @Override
+    public long getCoalescedLoadCount() {
+        return getStatistics().getCoalescedLoadCount();
+    }
+
+    @Override
+    public long getRefreshCount() {
+        return getStatistics().getRefreshCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return getStatistics().getEvictionCount();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return getStatistics().getInvalidationCount();
+    }
+
+    @Override
+    public long getSize() {
+        return cache.getSize();
+    }
+
+    @Override
+    public double getAverageLoadTime() {
+        return getStatistics().getAverageLoadTime();
+    }
+
+    @Override
+    public long[] getLoadTimeBucketBounds() {
+        return CacheStatistics.getLoadTimeBucketBounds();
+    }
+
+    @Override
+    public long[] getLoadTimeHistogram() {
+        return getStatistics().getLoadTimeHistogram();
+    }
+
+    private CacheStatistics getStatistics() {
+
+        return cache.getStatistics();
+    }
+}
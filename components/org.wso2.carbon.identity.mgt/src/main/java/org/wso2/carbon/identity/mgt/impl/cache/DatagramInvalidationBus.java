@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.identity.mgt.cache.CacheInvalidation;
+import org.wso2.carbon.identity.mgt.exception.InvalidationBusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Invalidation bus which multicasts the invalidations to the other nodes over UDP. Delivery is best effort, hence
+ * the cache expiry times remain the upper bound of staleness if a datagram is lost.
+ */
+public class DatagramInvalidationBus extends AbstractInvalidationBus {
+
+    /**
+     * Multicast group address.
+     */
+    public static final String ADDRESS = "address";
+
+    /**
+     * Multicast port.
+     */
+    public static final String PORT = "port";
+
+    /**
+     * Time to live of the multicast datagrams.
+     */
+    public static final String TIME_TO_LIVE = "timeToLive";
+
+    private static final Logger log = LoggerFactory.getLogger(DatagramInvalidationBus.class);
+
+    private static final String DEFAULT_ADDRESS = "239.255.10.10";
+
+    private static final long DEFAULT_PORT = 45688;
+
+    private static final long DEFAULT_TIME_TO_LIVE = 1;
+
+    private static final int MAGIC = 0x49444d43;
+
+    /**
+     * Payload size up to which invalidations are packed in to a single datagram.
+     */
+    private static final int MAX_PAYLOAD_SIZE = 8192;
+
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+
+    private InetAddress address;
+
+    private int port;
+
+    private MulticastSocket socket;
+
+    private volatile boolean running;
+
+    @Override
+    protected void start(Map<String, String> properties) throws InvalidationBusException {
+
+        port = (int) getLongProperty(properties, PORT, DEFAULT_PORT);
+        int timeToLive = (int) getLongProperty(properties, TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE);
+
+        try {
+            address = InetAddress.getByName(properties.getOrDefault(ADDRESS, DEFAULT_ADDRESS));
+            socket = new MulticastSocket(port);
+            socket.setTimeToLive(timeToLive);
+            socket.joinGroup(address);
+        } catch (IOException e) {
+            throw new InvalidationBusException("Failed to join the cache invalidation multicast group.", e);
+        }
+
+        running = true;
+        Thread receiver = new Thread(this::receive, "identity-cache-invalidation-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @Override
+    protected void send(List<CacheInvalidation> invalidations) throws InvalidationBusException {
+
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream payloadOutput = new DataOutputStream(payload);
+            int count = 0;
+
+            for (CacheInvalidation invalidation : invalidations) {
+                payloadOutput.writeUTF(invalidation.getCacheName());
+                payloadOutput.writeBoolean(invalidation.isAll());
+                if (!invalidation.isAll()) {
+                    payloadOutput.writeUTF(invalidation.getKey());
+                }
+                count++;
+
+                if (payload.size() >= MAX_PAYLOAD_SIZE) {
+                    sendDatagram(count, payload);
+                    payload.reset();
+                    count = 0;
+                }
+            }
+
+            if (count > 0) {
+                sendDatagram(count, payload);
+            }
+        } catch (IOException e) {
+            throw new InvalidationBusException("Failed to multicast cache invalidations.", e);
+        }
+    }
+
+    @Override
+    protected void stop() {
+
+        running = false;
+        if (socket != null) {
+            try {
+                socket.leaveGroup(address);
+            } catch (IOException e) {
+                log.debug("Failed to leave the cache invalidation multicast group.", e);
+            }
+            socket.close();
+        }
+    }
+
+    private void sendDatagram(int count, ByteArrayOutputStream payload) throws IOException {
+
+        ByteArrayOutputStream datagram = new ByteArrayOutputStream(payload.size() + 64);
+        DataOutputStream datagramOutput = new DataOutputStream(datagram);
+        datagramOutput.writeInt(MAGIC);
+        datagramOutput.writeUTF(getNodeId());
+        datagramOutput.writeInt(count);
+        payload.writeTo(datagramOutput);
+        datagramOutput.flush();
+
+        if (datagram.size() > MAX_DATAGRAM_SIZE) {
+            throw new IOException("Cache invalidation datagram exceeds the maximum datagram size.");
+        }
+
+        byte[] data = datagram.toByteArray();
+        socket.send(new DatagramPacket(data, data.length, address, port));
+    }
+
+    private void receive() {
+
+        byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+        while (running) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                List<CacheInvalidation> invalidations = decode(packet);
+                if (invalidations != null) {
+                    deliver(invalidations);
+                }
+            } catch (IOException | RuntimeException e) {
+                // A malformed datagram must not stop the receiver.
+                if (running) {
+                    log.error("Failed to receive cache invalidations.", e);
+                }
+            }
+        }
+    }
+
+    private List<CacheInvalidation> decode(DatagramPacket packet) throws IOException {
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(packet.getData(), packet.getOffset(),
+                packet.getLength()));
+
+        if (input.readInt() != MAGIC) {
+            log.debug("Ignoring an unknown datagram received on the cache invalidation multicast group.");
+            return null;
+        }
+
+        // Multicast datagrams are looped back to the sender as well.
+        if (getNodeId().equals(input.readUTF())) {
+            return null;
+        }
+
+        int count = input.readInt();
+        List<CacheInvalidation> invalidations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String cacheName = input.readUTF();
+            invalidations.add(input.readBoolean() ? CacheInvalidation.all(cacheName) :
+                    CacheInvalidation.of(cacheName, input.readUTF()));
+        }
+        return invalidations;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import java.util.List;
+
+/**
+ * Decides which entries to evict from a size bounded cache.
+ * <p>
+ * Implementations are not thread safe. {@link ManagedCache} guards all calls with a lock.
+ *
+ * @param <K> Type of the cache key.
+ */
+public interface EvictionPolicy<K> {
+
+    /**
+     * Record a read of an entry present in the cache.
+     *
+     * @param key Key of the entry.
+     */
+    void recordAccess(K key);
+
+    /**
+     * Record a write of an entry to the cache.
+     *
+     * @param key Key of the entry.
+     * @return Keys of the entries to be evicted from the cache.
+     */
+    List<K> recordWrite(K key);
+
+    /**
+     * Record the removal of an entry from the cache.
+     *
+     * @param key Key of the entry.
+     */
+    void recordRemoval(K key);
+
+    /**
+     * Forget all the recorded entries.
+     */
+    void clear();
+
+    /**
+     * Get the number of entries tracked by this policy.
+     *
+     * @return Number of entries.
+     */
+    int size();
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+/**
+ * Eviction policies available for size bounded caches.
+ */
+public enum EvictionPolicyType {
+
+    /**
+     * Segmented LRU. Entries accessed more than once are protected from entries that are accessed only once.
+     */
+    SLRU,
+
+    /**
+     * Window TinyLFU. Admits new entries to the main space only when they are accessed more frequently than the
+     * entry they would replace.
+     */
+    W_TINY_LFU;
+
+    /**
+     * Create a new eviction policy of this type.
+     *
+     * @param maximumSize Maximum number of entries in the cache.
+     * @param <K>         Type of the cache key.
+     * @return Eviction policy.
+     */
+    public <K> EvictionPolicy<K> create(int maximumSize) {
+
+        switch (this) {
+            case SLRU:
+                return new SegmentedLruEvictionPolicy<>(maximumSize);
+            default:
+                return new TinyLfuEvictionPolicy<>(maximumSize);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+/**
+ * Count-Min sketch estimating the access frequency of cache keys with four 4-bit counters per key.
+ * <p>
+ * All counters are halved once the number of recorded accesses reaches ten times the cache size, so that the
+ * estimates follow the recent access pattern.
+ *
+ * @param <K> Type of the cache key.
+ */
+class FrequencySketch<K> {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    private int size;
+
+    FrequencySketch(int maximumSize) {
+
+        int capacity = Math.max(maximumSize, 16);
+        int length = Integer.highestOneBit(capacity - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = capacity > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : capacity * 10;
+    }
+
+    /**
+     * Get the estimated number of accesses of the key.
+     *
+     * @param key Cache key.
+     * @return Estimated frequency between 0 and 15.
+     */
+    int frequency(K key) {
+
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; i++) {
+            int offset = (start + i) << 2;
+            int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Record an access of the key.
+     *
+     * @param key Cache key.
+     */
+    void increment(K key) {
+
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = size >>> 1;
+    }
+
+    private int indexOf(int hash, int i) {
+
+        long index = (hash + SEEDS[i]) * SEEDS[i];
+        index += index >>> 32;
+        return ((int) index) & tableMask;
+    }
+
+    private static int spread(int hash) {
+
+        int spread = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        spread = ((spread >>> 16) ^ spread) * 0x45d9f3b;
+        return (spread >>> 16) ^ spread;
+    }
+}
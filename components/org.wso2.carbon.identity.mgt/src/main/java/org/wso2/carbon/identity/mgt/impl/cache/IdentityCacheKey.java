@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import java.util.Objects;
+
+/**
+ * Immutable key of the identity caches, made of a domain name and a unique entity id. The hash code is computed once,
+ * and two keys are only equal if both of their parts are equal, so distinct entities never share a cache entry.
+ */
+public final class IdentityCacheKey {
+
+    private static final char LENGTH_SEPARATOR = ':';
+
+    private final String domainName;
+
+    private final String uniqueId;
+
+    private final int hash;
+
+    public IdentityCacheKey(String domainName, String uniqueId) {
+
+        this.domainName = Objects.requireNonNull(domainName, "Domain name is required.");
+        this.uniqueId = Objects.requireNonNull(uniqueId, "Unique id is required.");
+        this.hash = 31 * domainName.hashCode() + uniqueId.hashCode();
+    }
+
+    public String getDomainName() {
+        return domainName;
+    }
+
+    public String getUniqueId() {
+        return uniqueId;
+    }
+
+    /**
+     * Parse a key from its string form.
+     *
+     * @param key String form of the key as returned by {@link #toString()}.
+     * @return Parsed key.
+     * @throws IllegalArgumentException If the given string is not a valid key.
+     */
+    public static IdentityCacheKey parse(String key) {
+
+        int separatorIndex = key.indexOf(LENGTH_SEPARATOR);
+        if (separatorIndex <= 0) {
+            throw new IllegalArgumentException("Invalid identity cache key: " + key);
+        }
+
+        int domainNameLength;
+        try {
+            domainNameLength = Integer.parseInt(key.substring(0, separatorIndex));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid identity cache key: " + key, e);
+        }
+
+        int domainNameEnd = separatorIndex + 1 + domainNameLength;
+        if (domainNameLength < 0 || domainNameEnd > key.length()) {
+            throw new IllegalArgumentException("Invalid identity cache key: " + key);
+        }
+
+        return new IdentityCacheKey(key.substring(separatorIndex + 1, domainNameEnd), key.substring(domainNameEnd));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IdentityCacheKey)) {
+            return false;
+        }
+
+        IdentityCacheKey that = (IdentityCacheKey) o;
+        return hash == that.hash && uniqueId.equals(that.uniqueId) && domainName.equals(that.domainName);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * The string form is the length of the domain name followed by the domain name and the unique id, which keeps it
+     * unambiguous whatever characters the parts contain.
+     *
+     * @return String form of the key.
+     */
+    @Override
+    public String toString() {
+        return domainName.length() + String.valueOf(LENGTH_SEPARATOR) + domainName + uniqueId;
+    }
+}
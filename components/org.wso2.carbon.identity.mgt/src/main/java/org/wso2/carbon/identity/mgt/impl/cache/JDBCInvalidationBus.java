@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.datasource.core.exception.DataSourceException;
+import org.wso2.carbon.identity.mgt.cache.CacheInvalidation;
+import org.wso2.carbon.identity.mgt.exception.InvalidationBusException;
+import org.wso2.carbon.identity.mgt.impl.internal.IdentityMgtDataHolder;
+import org.wso2.carbon.identity.mgt.impl.util.NamedPreparedStatement;
+import org.wso2.carbon.identity.mgt.impl.util.UnitOfWork;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+/**
+ * Invalidation bus which shares the invalidations through a database table polled by every node.
+ */
+public class JDBCInvalidationBus extends AbstractInvalidationBus {
+
+    /**
+     * Name of the data source of the invalidation table.
+     */
+    public static final String DATA_SOURCE = "dataSource";
+
+    /**
+     * Interval in milliseconds at which the invalidation table is polled.
+     */
+    public static final String POLL_INTERVAL = "pollInterval";
+
+    /**
+     * Time in seconds for which the invalidations are kept in the invalidation table.
+     */
+    public static final String RETENTION_TIME = "retentionTime";
+
+    /**
+     * Time in seconds for which a missing id is waited for. Ids are allocated when a row is inserted but become
+     * visible only when the inserting transaction commits, so a row with a lower id may show up after the rows with
+     * higher ids. This should be longer than the longest transaction which publishes invalidations.
+     */
+    public static final String GAP_TIMEOUT = "gapTimeout";
+
+    private static final Logger log = LoggerFactory.getLogger(JDBCInvalidationBus.class);
+
+    private static final long DEFAULT_POLL_INTERVAL = 1000;
+
+    private static final long DEFAULT_RETENTION_TIME = 300;
+
+    private static final long DEFAULT_GAP_TIMEOUT = 60;
+
+    /**
+     * Maximum length of the CACHE_KEY column. Longer keys are published as invalidations of the whole cache.
+     */
+    private static final int MAX_KEY_LENGTH = 1024;
+
+    /**
+     * Maximum number of missing ids which are waited for. The lowest ids are given up first.
+     */
+    private static final int MAX_GAPS = 10000;
+
+    private static final String ID = "ID";
+    private static final String NODE_ID = "NODE_ID";
+    private static final String CACHE_NAME = "CACHE_NAME";
+    private static final String CACHE_KEY = "CACHE_KEY";
+    private static final String CREATED_TIME = "CREATED_TIME";
+
+    private DataSource dataSource;
+
+    private long retentionTime;
+
+    private long lastSeenId;
+
+    private long lastPurgeTime;
+
+    private long gapTimeout;
+
+    /**
+     * Ids below the last seen id which have not been seen yet, with the time they were found missing. Each poll
+     * reads again from the lowest of them, so that the rows of the transactions which commit out of id order are
+     * still delivered.
+     */
+    private final SortedMap<Long, Long> gaps = new TreeMap<>();
+
+    @Override
+    protected void start(Map<String, String> properties) throws InvalidationBusException {
+
+        long pollInterval = getLongProperty(properties, POLL_INTERVAL, DEFAULT_POLL_INTERVAL);
+        retentionTime = TimeUnit.SECONDS.toMillis(getLongProperty(properties, RETENTION_TIME,
+                DEFAULT_RETENTION_TIME));
+        gapTimeout = TimeUnit.SECONDS.toMillis(getLongProperty(properties, GAP_TIMEOUT, DEFAULT_GAP_TIMEOUT));
+
+        try {
+            dataSource = IdentityMgtDataHolder.getInstance().getDataSource(properties.get(DATA_SOURCE));
+        } catch (DataSourceException e) {
+            throw new InvalidationBusException("Error occurred while initiating data source.", e);
+        }
+
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection())) {
+            final String selectLastId = "SELECT MAX(ID) AS ID FROM IDM_CACHE_INVALIDATION";
+
+            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(unitOfWork.getConnection(),
+                    selectLastId);
+            try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+                if (resultSet.next()) {
+                    lastSeenId = resultSet.getLong(ID);
+                }
+            }
+        } catch (SQLException e) {
+            throw new InvalidationBusException("Error while reading the cache invalidation table.", e);
+        }
+
+        getScheduler().scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void send(List<CacheInvalidation> invalidations) throws InvalidationBusException {
+
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection(), false)) {
+            final String insertInvalidation = "INSERT INTO IDM_CACHE_INVALIDATION " +
+                    "(NODE_ID, CACHE_NAME, CACHE_KEY, CREATED_TIME) " +
+                    "VALUES (:" + NODE_ID + ";, :" + CACHE_NAME + ";, :" + CACHE_KEY + ";, :" + CREATED_TIME + ";)";
+
+            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(unitOfWork.getConnection(),
+                    insertInvalidation);
+            long createdTime = System.currentTimeMillis();
+
+            for (CacheInvalidation invalidation : invalidations) {
+                String key = invalidation.getKey();
+                namedPreparedStatement.setString(NODE_ID, getNodeId());
+                namedPreparedStatement.setString(CACHE_NAME, invalidation.getCacheName());
+                namedPreparedStatement.setString(CACHE_KEY, key != null && key.length() <= MAX_KEY_LENGTH ? key :
+                        null);
+                namedPreparedStatement.setLong(CREATED_TIME, createdTime);
+                namedPreparedStatement.getPreparedStatement().addBatch();
+            }
+
+            namedPreparedStatement.getPreparedStatement().executeBatch();
+            unitOfWork.endTransaction();
+        } catch (SQLException e) {
+            throw new InvalidationBusException("Error while publishing cache invalidations.", e);
+        }
+    }
+
+    @Override
+    protected void stop() {
+
+        // The data source is owned by the data source service.
+    }
+
+    private void poll() {
+
+        List<CacheInvalidation> invalidations = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        // Ids of rolled back transactions never show up.
+        gaps.values().removeIf(missingSince -> now - missingSince > gapTimeout);
+
+        try (UnitOfWork unitOfWork = UnitOfWork.beginTransaction(dataSource.getConnection(), true)) {
+            final String selectInvalidations = "SELECT ID, NODE_ID, CACHE_NAME, CACHE_KEY " +
+                    "FROM IDM_CACHE_INVALIDATION " +
+                    "WHERE ID > :" + ID + "; " +
+                    "ORDER BY ID";
+
+            NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(unitOfWork.getConnection(),
+                    selectInvalidations);
+            namedPreparedStatement.setLong(ID, gaps.isEmpty() ? lastSeenId : Math.min(gaps.firstKey() - 1,
+                    lastSeenId));
+
+            try (ResultSet resultSet = namedPreparedStatement.getPreparedStatement().executeQuery()) {
+                while (resultSet.next()) {
+                    long id = resultSet.getLong(ID);
+                    if (id <= lastSeenId) {
+                        if (gaps.remove(id) == null) {
+                            // Already delivered.
+                            continue;
+                        }
+                    } else {
+                        for (long missingId = Math.max(lastSeenId + 1, id - MAX_GAPS); missingId < id; missingId++) {
+                            gaps.put(missingId, now);
+                        }
+                        lastSeenId = id;
+                    }
+                    if (getNodeId().equals(resultSet.getString(NODE_ID))) {
+                        continue;
+                    }
+
+                    String cacheName = resultSet.getString(CACHE_NAME);
+                    String key = resultSet.getString(CACHE_KEY);
+                    invalidations.add(key == null ? CacheInvalidation.all(cacheName) :
+                            CacheInvalidation.of(cacheName, key));
+                }
+            }
+
+            while (gaps.size() > MAX_GAPS) {
+                gaps.remove(gaps.firstKey());
+            }
+
+            purge(unitOfWork);
+        } catch (SQLException | RuntimeException e) {
+            // Exceptions must not escape, as they would cancel the periodic poll.
+            log.error("Error while polling the cache invalidation table.", e);
+        }
+
+        deliver(invalidations);
+    }
+
+    private void purge(UnitOfWork unitOfWork) throws SQLException {
+
+        long now = System.currentTimeMillis();
+        if (now - lastPurgeTime < retentionTime) {
+            return;
+        }
+
+        final String deleteInvalidations = "DELETE FROM IDM_CACHE_INVALIDATION " +
+                "WHERE CREATED_TIME < :" + CREATED_TIME + ";";
+
+        NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(unitOfWork.getConnection(),
+                deleteInvalidations);
+        namedPreparedStatement.setLong(CREATED_TIME, now - retentionTime);
+        namedPreparedStatement.getPreparedStatement().executeUpdate();
+        lastPurgeTime = now;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import org.wso2.carbon.identity.mgt.cache.CacheStatistics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of the load times of a cache, bucketed by {@link CacheStatistics#getLoadTimeBucketBounds()}.
+ */
+class LoadTimeHistogram {
+
+    private final long[] bucketBounds;
+
+    private final LongAdder[] buckets;
+
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    LoadTimeHistogram() {
+
+        long[] bucketBoundsInMillis = CacheStatistics.getLoadTimeBucketBounds();
+        bucketBounds = new long[bucketBoundsInMillis.length];
+        for (int i = 0; i < bucketBoundsInMillis.length; i++) {
+            bucketBounds[i] = TimeUnit.MILLISECONDS.toNanos(bucketBoundsInMillis[i]);
+        }
+
+        buckets = new LongAdder[bucketBounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long loadTime) {
+
+        int bucket = 0;
+        while (bucket < bucketBounds.length && loadTime > bucketBounds[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        totalLoadTime.add(loadTime);
+    }
+
+    long getTotalLoadTime() {
+
+        return totalLoadTime.sum();
+    }
+
+    long[] getCounts() {
+
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import org.wso2.carbon.identity.mgt.cache.CacheInvalidation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-process invalidation bus. Delivers the invalidations to the other loopback buses of the same group within the
+ * JVM, which makes it possible to test several identity stores sharing invalidations without a network.
+ */
+public class LoopbackInvalidationBus extends AbstractInvalidationBus {
+
+    /**
+     * Name of the group of buses the invalidations are delivered to.
+     */
+    public static final String GROUP = "group";
+
+    private static final String DEFAULT_GROUP = "default";
+
+    private static final ConcurrentMap<String, Set<LoopbackInvalidationBus>> groups = new ConcurrentHashMap<>();
+
+    private String group;
+
+    @Override
+    protected void start(Map<String, String> properties) {
+
+        group = properties.getOrDefault(GROUP, DEFAULT_GROUP);
+        groups.computeIfAbsent(group, key -> ConcurrentHashMap.newKeySet()).add(this);
+    }
+
+    @Override
+    protected void send(List<CacheInvalidation> invalidations) {
+
+        groups.getOrDefault(group, ConcurrentHashMap.newKeySet()).stream()
+                .filter(bus -> bus != this)
+                .forEach(bus -> bus.deliver(invalidations));
+    }
+
+    @Override
+    protected void stop() {
+
+        groups.computeIfPresent(group, (key, buses) -> {
+            buses.remove(this);
+            return buses.isEmpty() ? null : buses;
+        });
+    }
+}
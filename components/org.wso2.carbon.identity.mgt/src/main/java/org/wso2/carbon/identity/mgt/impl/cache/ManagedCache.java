@@ -0,0 +1,723 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.identity.mgt.cache.CacheInvalidation;
+import org.wso2.carbon.identity.mgt.cache.CacheStatistics;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBus;
+import org.wso2.carbon.identity.mgt.impl.util.OperationScope;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import javax.cache.Cache;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+
+/**
+ * Cache used by the identity store. Wraps a JCache and keeps the number of entries within the configured maximum
+ * capacity using an {@link EvictionPolicy}. Concurrent loads of a missing entry are coalesced into a single load.
+ * <p>
+ * When refresh-ahead is enabled, an entry loaded through {@link #get(Object, CacheLoader)} which is accessed within
+ * the refresh-ahead window before its expiry is reloaded on a background executor, while the callers keep getting
+ * the cached value.
+ * <p>
+ * When an {@link InvalidationBus} is attached, removals are published to the other nodes, and the removals of the
+ * other nodes are applied through {@link #invalidate(CacheInvalidation)}.
+ * <p>
+ * A key loaded within the primary read window after its invalidation is loaded in an {@link OperationScope} which
+ * requires the reads to be sent to the primary data source, so that a replica which has not caught up with the
+ * write yet does not bring the stale value back into the cache.
+ *
+ * @param <K> Type of the cache key.
+ * @param <V> Type of the cache value.
+ */
+public class ManagedCache<K, V> {
+
+    private static final Logger log = LoggerFactory.getLogger(ManagedCache.class);
+
+    /**
+     * Number of loads between two purges of the load times of entries which are no longer cached.
+     */
+    private static final int LOAD_TIME_PURGE_INTERVAL = 1024;
+
+    /**
+     * Number of stripes of the key versions. Must be a power of two.
+     */
+    private static final int VERSION_STRIPES = 1024;
+
+    private final Cache<K, V> cache;
+
+    private final EvictionPolicy<K> evictionPolicy;
+
+    private final Lock policyLock = new ReentrantLock();
+
+    /**
+     * Accesses waiting to be recorded in the eviction policy. Readers never wait for the policy lock, hence the
+     * accesses are applied by the next thread which holds the lock.
+     */
+    private final Queue<K> pendingAccesses = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Keys which may have expired in the underlying cache, waiting to be removed from the eviction policy.
+     */
+    private final Queue<K> pendingExpiries = new ConcurrentLinkedQueue<>();
+
+    private final SingleFlight<K, V> singleFlight = new SingleFlight<>();
+
+    /**
+     * Number of invalidations so far.
+     */
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    /**
+     * Versions of the keys, striped by the hash of the key. A version is incremented whenever a key of its stripe is
+     * invalidated, so that a load only has to be discarded when its own key, or a key sharing its stripe, was
+     * invalidated while it was loading.
+     */
+    private final AtomicLongArray keyVersions = new AtomicLongArray(VERSION_STRIPES);
+
+    /**
+     * Number of invalidations of the whole cache so far. Adds to the version of every key.
+     */
+    private final AtomicLong cacheVersion = new AtomicLong();
+
+    /**
+     * Time of the last invalidation of a key of each stripe, or 0 if none of its keys was invalidated.
+     */
+    private final AtomicLongArray invalidationTimes = new AtomicLongArray(VERSION_STRIPES);
+
+    /**
+     * Time of the last invalidation of the whole cache, or 0 if it was never invalidated.
+     */
+    private volatile long cacheInvalidationTime;
+
+    /**
+     * Length of the window after an invalidation in which the key is loaded from the primary data source.
+     */
+    private volatile long primaryReadNanos;
+
+    private final long expiryNanos;
+
+    /**
+     * Age after which an accessed entry is refreshed, or 0 if refresh-ahead is disabled.
+     */
+    private final long refreshAfterNanos;
+
+    private final Executor refreshExecutor;
+
+    /**
+     * Time at which each entry was loaded. Only maintained when refresh-ahead is enabled.
+     */
+    private final Map<K, Long> loadTimes = new ConcurrentHashMap<>();
+
+    private final Set<K> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder refreshCount = new LongAdder();
+
+    private final AtomicLong recordedLoadCount = new AtomicLong();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder loadCount = new LongAdder();
+
+    private final LongAdder loadFailureCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LoadTimeHistogram loadTimeHistogram = new LoadTimeHistogram();
+
+    private volatile InvalidationBus invalidationBus;
+
+    private Function<String, K> keyParser;
+
+    /**
+     * Create a managed cache.
+     *
+     * @param cache          Underlying cache.
+     * @param evictionPolicy Eviction policy or null for an unbounded cache.
+     */
+    public ManagedCache(Cache<K, V> cache, EvictionPolicy<K> evictionPolicy) {
+
+        this(cache, evictionPolicy, 0, 0, TimeUnit.SECONDS, null);
+    }
+
+    /**
+     * Create a managed cache which refreshes entries ahead of their expiry.
+     *
+     * @param cache            Underlying cache.
+     * @param evictionPolicy   Eviction policy or null for an unbounded cache.
+     * @param expiryTime       Expiry time of the entries.
+     * @param refreshAheadTime Length of the window before the expiry in which an accessed entry is refreshed. Zero
+     *                         disables refresh-ahead.
+     * @param timeUnit         Time unit of the expiry and refresh-ahead times.
+     * @param refreshExecutor  Executor on which the entries are refreshed.
+     */
+    public ManagedCache(Cache<K, V> cache, EvictionPolicy<K> evictionPolicy, long expiryTime, long refreshAheadTime,
+                        TimeUnit timeUnit, Executor refreshExecutor) {
+
+        this.cache = cache;
+        this.evictionPolicy = evictionPolicy;
+        this.expiryNanos = timeUnit.toNanos(expiryTime);
+        this.refreshExecutor = refreshExecutor;
+
+        if (refreshAheadTime > 0 && refreshExecutor != null) {
+            this.refreshAfterNanos = Math.max(1, expiryNanos - timeUnit.toNanos(refreshAheadTime));
+        } else {
+            this.refreshAfterNanos = 0;
+        }
+
+        if (evictionPolicy != null) {
+            listenToExpiries();
+        }
+    }
+
+    /**
+     * Set the length of the window after the invalidation of a key in which the key is loaded from the primary data
+     * source instead of a replica. It should be longer than the replication lag of the replicas. Zero loads the keys
+     * from the replicas right away.
+     *
+     * @param primaryReadTime Length of the window.
+     * @param timeUnit        Time unit of the window.
+     */
+    public void setPrimaryReadTime(long primaryReadTime, TimeUnit timeUnit) {
+
+        this.primaryReadNanos = timeUnit.toNanos(primaryReadTime);
+    }
+
+    public String getName() {
+
+        return cache.getName();
+    }
+
+    public V get(K key) {
+
+        V value = cache.get(key);
+        recordRead(key, value != null);
+        (value != null ? hitCount : missCount).increment();
+        if (value == null && refreshAfterNanos > 0) {
+            loadTimes.remove(key);
+        }
+        return value;
+    }
+
+    /**
+     * Get the value of the key, loading it if it is not cached. Concurrent loads of the same key are coalesced.
+     *
+     * @param key    Cache key.
+     * @param loader Loader of the value.
+     * @param <E1>   Type of the first exception thrown by the loader.
+     * @param <E2>   Type of the second exception thrown by the loader.
+     * @return Cached or loaded value.
+     * @throws E1 First exception type of the loader.
+     * @throws E2 Second exception type of the loader.
+     */
+    public <E1 extends Exception, E2 extends Exception> V get(K key, CacheLoader<K, V, E1, E2> loader)
+            throws E1, E2 {
+
+        V value = get(key);
+        if (value != null) {
+            if (refreshAfterNanos > 0) {
+                refreshIfDue(key, loader);
+            }
+            return value;
+        }
+
+        return singleFlight.<E1, E2>load(key, keyToLoad -> load(keyToLoad, loader));
+    }
+
+    public boolean containsKey(K key) {
+
+        boolean contains = cache.containsKey(key);
+        recordRead(key, contains);
+        (contains ? hitCount : missCount).increment();
+        return contains;
+    }
+
+    public void put(K key, V value) {
+
+        if (evictionPolicy == null) {
+            cache.put(key, value);
+            return;
+        }
+
+        policyLock.lock();
+        try {
+            drainPendingReads();
+            cache.put(key, value);
+            evict(evictionPolicy.recordWrite(key));
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Put a value which was loaded by the caller, unless the key was invalidated after the load started. The value
+     * may be stale in that case, for example a negative entry for a key which was added meanwhile.
+     *
+     * @param key     Cache key.
+     * @param value   Loaded value.
+     * @param version Value of {@link #getVersion(Object)} obtained before the load started.
+     * @return true if the value is cached.
+     */
+    public boolean putIfNotInvalidated(K key, V value, long version) {
+
+        if (getVersion(key) != version) {
+            return false;
+        }
+
+        put(key, value);
+        // An invalidation may have happened between the check and the put.
+        if (getVersion(key) != version) {
+            loadTimes.remove(key);
+            removeEntry(key);
+            return false;
+        }
+        return true;
+    }
+
+    public boolean putIfAbsent(K key, V value) {
+
+        if (evictionPolicy == null) {
+            return cache.putIfAbsent(key, value);
+        }
+
+        policyLock.lock();
+        try {
+            drainPendingReads();
+            boolean added = cache.putIfAbsent(key, value);
+            if (added) {
+                evict(evictionPolicy.recordWrite(key));
+            }
+            return added;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public boolean remove(K key) {
+
+        boolean removed = invalidateLocally(key);
+
+        InvalidationBus bus = invalidationBus;
+        if (bus != null) {
+            bus.publish(CacheInvalidation.of(getName(), key.toString()));
+        }
+        return removed;
+    }
+
+    public void removeAll() {
+
+        invalidateAllLocally();
+
+        InvalidationBus bus = invalidationBus;
+        if (bus != null) {
+            bus.publish(CacheInvalidation.all(getName()));
+        }
+    }
+
+    /**
+     * Attach an invalidation bus to which the removals from this cache are published.
+     *
+     * @param invalidationBus Invalidation bus.
+     * @param keyParser       Parser of the keys in the invalidations, which are the string form of the cache keys.
+     */
+    public void setInvalidationBus(InvalidationBus invalidationBus, Function<String, K> keyParser) {
+
+        this.keyParser = keyParser;
+        this.invalidationBus = invalidationBus;
+    }
+
+    /**
+     * Apply an invalidation received from another node. The invalidation is not published again.
+     *
+     * @param invalidation Cache invalidation.
+     */
+    public void invalidate(CacheInvalidation invalidation) {
+
+        if (invalidation.isAll() || keyParser == null) {
+            invalidateAllLocally();
+            return;
+        }
+
+        invalidateLocally(keyParser.apply(invalidation.getKey()));
+    }
+
+    /**
+     * Get the number of local and received invalidations of this cache so far.
+     *
+     * @return Number of invalidations.
+     */
+    public long getInvalidationCount() {
+
+        return invalidationCount.get();
+    }
+
+    /**
+     * Get the version of a key. The version changes whenever the key or the whole cache is invalidated. It may also
+     * change when another key is invalidated, as the versions are shared by the keys of the same stripe.
+     *
+     * @param key Cache key.
+     * @return Version of the key.
+     */
+    public long getVersion(K key) {
+
+        // Both counters only grow, so their sum changes whenever either of them does.
+        return keyVersions.get(getStripe(key)) + cacheVersion.get();
+    }
+
+    /**
+     * Get the number of loads performed through {@link #get(Object, CacheLoader)}, including refreshes.
+     *
+     * @return Number of loads.
+     */
+    public long getLoadCount() {
+
+        return loadCount.sum();
+    }
+
+    /**
+     * Get the number of loads which joined a load of the same key in progress instead of loading again.
+     *
+     * @return Number of coalesced loads.
+     */
+    public long getCoalescedLoadCount() {
+
+        return singleFlight.getCoalescedLoadCount();
+    }
+
+    /**
+     * Get the number of refresh-ahead reloads started.
+     *
+     * @return Number of refreshes.
+     */
+    public long getRefreshCount() {
+
+        return refreshCount.sum();
+    }
+
+    /**
+     * Get the number of entries tracked by the eviction policy.
+     *
+     * @return Number of entries or -1 if the cache is unbounded.
+     */
+    public int getTrackedSize() {
+
+        if (evictionPolicy == null) {
+            return -1;
+        }
+
+        policyLock.lock();
+        try {
+            drainPendingReads();
+            return evictionPolicy.size();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Get a snapshot of the statistics of this cache.
+     *
+     * @return Cache statistics.
+     */
+    public CacheStatistics getStatistics() {
+
+        return new CacheStatistics.CacheStatisticsBuilder()
+                .setCacheName(getName())
+                .setHitCount(hitCount.sum())
+                .setMissCount(missCount.sum())
+                .setLoadCount(loadCount.sum())
+                .setLoadFailureCount(loadFailureCount.sum())
+                .setCoalescedLoadCount(singleFlight.getCoalescedLoadCount())
+                .setRefreshCount(refreshCount.sum())
+                .setEvictionCount(evictionCount.sum())
+                .setInvalidationCount(invalidationCount.get())
+                .setSize(getSize())
+                .setTotalLoadTime(loadTimeHistogram.getTotalLoadTime())
+                .setLoadTimeHistogram(loadTimeHistogram.getCounts())
+                .build();
+    }
+
+    /**
+     * Get the number of entries in the cache. Unbounded caches are iterated, hence this is meant for monitoring
+     * rather than for regular operations.
+     *
+     * @return Number of entries.
+     */
+    public long getSize() {
+
+        if (evictionPolicy != null) {
+            return getTrackedSize();
+        }
+
+        long size = 0;
+        for (Iterator<Cache.Entry<K, V>> iterator = cache.iterator(); iterator.hasNext(); iterator.next()) {
+            size++;
+        }
+        return size;
+    }
+
+    private boolean invalidateLocally(K key) {
+
+        invalidationCount.incrementAndGet();
+        int stripe = getStripe(key);
+        keyVersions.incrementAndGet(stripe);
+        invalidationTimes.set(stripe, System.nanoTime());
+        singleFlight.forget(key);
+        loadTimes.remove(key);
+
+        return removeEntry(key);
+    }
+
+    private void invalidateAllLocally() {
+
+        invalidationCount.incrementAndGet();
+        cacheVersion.incrementAndGet();
+        cacheInvalidationTime = System.nanoTime();
+        singleFlight.forgetAll();
+        loadTimes.clear();
+
+        if (evictionPolicy == null) {
+            cache.removeAll();
+            return;
+        }
+
+        policyLock.lock();
+        try {
+            pendingAccesses.clear();
+            pendingExpiries.clear();
+            evictionPolicy.clear();
+            cache.removeAll();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private <E1 extends Exception, E2 extends Exception> V load(K key, CacheLoader<K, V, E1, E2> loader)
+            throws E1, E2 {
+
+        long versionBeforeLoad = getVersion(key);
+        long loadTime = System.nanoTime();
+        V loadedValue;
+        boolean loaded = false;
+        try {
+            loadedValue = isRecentlyInvalidated(key) ? loadFromPrimary(key, loader) : loader.load(key);
+            loaded = true;
+        } finally {
+            loadCount.increment();
+            loadTimeHistogram.record(System.nanoTime() - loadTime);
+            if (!loaded) {
+                loadFailureCount.increment();
+            }
+        }
+
+        if (loadedValue != null) {
+            put(key, loadedValue);
+            if (refreshAfterNanos > 0) {
+                recordLoadTime(key, loadTime);
+            }
+            // The value may be stale if the key was invalidated while loading it.
+            if (getVersion(key) != versionBeforeLoad) {
+                loadTimes.remove(key);
+                removeEntry(key);
+            }
+        }
+        return loadedValue;
+    }
+
+    /**
+     * Check whether the key, a key sharing its stripe, or the whole cache was invalidated within the primary read
+     * window.
+     */
+    private boolean isRecentlyInvalidated(K key) {
+
+        long window = primaryReadNanos;
+        if (window <= 0) {
+            return false;
+        }
+
+        long now = System.nanoTime();
+        long keyInvalidationTime = invalidationTimes.get(getStripe(key));
+        long lastInvalidationTime = cacheInvalidationTime;
+        return (keyInvalidationTime != 0 && now - keyInvalidationTime < window) ||
+                (lastInvalidationTime != 0 && now - lastInvalidationTime < window);
+    }
+
+    private <E1 extends Exception, E2 extends Exception> V loadFromPrimary(K key, CacheLoader<K, V, E1, E2> loader)
+            throws E1, E2 {
+
+        try (OperationScope ignored = OperationScope.begin()) {
+            boolean primaryReadRequired = OperationScope.setPrimaryReadRequired(true);
+            try {
+                return loader.load(key);
+            } finally {
+                OperationScope.setPrimaryReadRequired(primaryReadRequired);
+            }
+        }
+    }
+
+    private static int getStripe(Object key) {
+
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private void recordLoadTime(K key, long loadTime) {
+
+        loadTimes.put(key, loadTime);
+
+        // Entries which expired in the underlying cache without being accessed again leave their load times behind.
+        if (recordedLoadCount.incrementAndGet() % LOAD_TIME_PURGE_INTERVAL == 0) {
+            long now = System.nanoTime();
+            loadTimes.values().removeIf(time -> now - time > expiryNanos);
+        }
+    }
+
+    private <E1 extends Exception, E2 extends Exception> void refreshIfDue(K key, CacheLoader<K, V, E1, E2> loader) {
+
+        Long loadTime = loadTimes.get(key);
+        if (loadTime == null || System.nanoTime() - loadTime < refreshAfterNanos || !refreshingKeys.add(key)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    singleFlight.<E1, E2>load(key, keyToLoad -> load(keyToLoad, loader));
+                } catch (Exception e) {
+                    // The entry stays cached until it expires and is then loaded by the next caller.
+                    log.debug("Failed to refresh the entry of the cache - {}.", getName(), e);
+                } finally {
+                    refreshingKeys.remove(key);
+                }
+            });
+            refreshCount.increment();
+        } catch (RejectedExecutionException e) {
+            refreshingKeys.remove(key);
+            log.debug("Refresh of an entry of the cache - {} was rejected.", getName(), e);
+        }
+    }
+
+    private boolean removeEntry(K key) {
+
+        if (evictionPolicy == null) {
+            return cache.remove(key);
+        }
+
+        policyLock.lock();
+        try {
+            drainPendingReads();
+            evictionPolicy.recordRemoval(key);
+            return cache.remove(key);
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void recordRead(K key, boolean hit) {
+
+        if (evictionPolicy == null) {
+            return;
+        }
+
+        // Reads never wait for writers. The read is queued and applied by whichever thread holds the lock next.
+        (hit ? pendingAccesses : pendingExpiries).add(key);
+        if (policyLock.tryLock()) {
+            try {
+                drainPendingReads();
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Apply the queued reads and expiries to the eviction policy. Must be called while holding the policy lock.
+     */
+    private void drainPendingReads() {
+
+        K key;
+        while ((key = pendingAccesses.poll()) != null) {
+            evictionPolicy.recordAccess(key);
+        }
+        while ((key = pendingExpiries.poll()) != null) {
+            // The entry may have been loaded again since it expired.
+            if (!cache.containsKey(key)) {
+                evictionPolicy.recordRemoval(key);
+                loadTimes.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Remove the victims chosen by the eviction policy. Must be called while holding the policy lock, so that a
+     * victim which is written again concurrently is not removed after its write was recorded.
+     *
+     * @param victims Keys to evict.
+     */
+    private void evict(List<K> victims) {
+
+        evictionCount.add(victims.size());
+        victims.forEach(victim -> {
+            cache.remove(victim);
+            loadTimes.remove(victim);
+        });
+    }
+
+    /**
+     * Remove the entries which expire in the underlying cache from the eviction policy, so that they do not hold
+     * capacity until they are read again.
+     */
+    private void listenToExpiries() {
+
+        CacheEntryExpiredListener<K, V> expiredListener = this::onExpired;
+        try {
+            cache.registerCacheEntryListener(new MutableCacheEntryListenerConfiguration<>(() -> expiredListener,
+                    null, false, false));
+        } catch (UnsupportedOperationException e) {
+            // Expired entries are still removed from the policy when they are read again.
+            log.debug("Expiry events are not supported by the cache - {}.", getName(), e);
+        }
+    }
+
+    private void onExpired(Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+
+        // The policy lock is not taken on the thread of the underlying cache, which may hold locks of its own.
+        for (CacheEntryEvent<? extends K, ? extends V> event : events) {
+            pendingExpiries.add(event.getKey());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Segmented LRU eviction policy. New entries are placed in the probation segment and are promoted to the protected
+ * segment on their next access. Victims are taken from the probation segment first.
+ *
+ * @param <K> Type of the cache key.
+ */
+public class SegmentedLruEvictionPolicy<K> implements EvictionPolicy<K> {
+
+    private static final double PROTECTED_PERCENTAGE = 0.8;
+
+    private final int maximumSize;
+
+    private final int protectedMaximumSize;
+
+    private final Map<K, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<K, Boolean> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    public SegmentedLruEvictionPolicy(int maximumSize) {
+
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size should be greater than 0.");
+        }
+
+        this.maximumSize = maximumSize;
+        this.protectedMaximumSize = (int) (maximumSize * PROTECTED_PERCENTAGE);
+    }
+
+    @Override
+    public void recordAccess(K key) {
+
+        if (probation.remove(key) != null) {
+            protectedSegment.put(key, Boolean.TRUE);
+            demoteProtected();
+        } else {
+            // Moves the key to the most recently used position.
+            protectedSegment.get(key);
+        }
+    }
+
+    @Override
+    public List<K> recordWrite(K key) {
+
+        if (contains(key)) {
+            recordAccess(key);
+            return Collections.emptyList();
+        }
+
+        probation.put(key, Boolean.TRUE);
+
+        List<K> victims = new ArrayList<>();
+        while (size() > maximumSize) {
+            K victim = peekVictim();
+            recordRemoval(victim);
+            victims.add(victim);
+        }
+        return victims;
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+
+        if (probation.remove(key) == null) {
+            protectedSegment.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    @Override
+    public int size() {
+
+        return probation.size() + protectedSegment.size();
+    }
+
+    boolean contains(K key) {
+
+        return probation.containsKey(key) || protectedSegment.containsKey(key);
+    }
+
+    /**
+     * Add an entry to the probation segment without evicting.
+     *
+     * @param key Key of the entry.
+     */
+    void admit(K key) {
+
+        probation.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * Get the entry that would be evicted next.
+     *
+     * @return Key of the entry or null if there are no entries.
+     */
+    K peekVictim() {
+
+        K victim = eldest(probation);
+        return victim != null ? victim : eldest(protectedSegment);
+    }
+
+    private void demoteProtected() {
+
+        while (protectedSegment.size() > protectedMaximumSize) {
+            K demoted = eldest(protectedSegment);
+            protectedSegment.remove(demoted);
+            probation.put(demoted, Boolean.TRUE);
+        }
+    }
+
+    private static <K> K eldest(Map<K, Boolean> segment) {
+
+        Iterator<K> iterator = segment.keySet().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Coalesces concurrent loads of the same key. The first caller loads the value while the others wait for its result
+ * instead of loading the same value again. The callers which waited share the outcome of the load, whether it is a
+ * value, null or an exception.
+ * <p>
+ * A loader must not load the same key again on the calling thread, as it would wait for itself.
+ *
+ * @param <K> Type of the key.
+ * @param <V> Type of the loaded value.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder loadCount = new LongAdder();
+
+    private final LongAdder coalescedLoadCount = new LongAdder();
+
+    /**
+     * Load the value of the key, joining a load of the same key which is already in progress.
+     *
+     * @param key    Key to be loaded.
+     * @param loader Loader of the value.
+     * @param <E1>   Type of the first exception thrown by the loader.
+     * @param <E2>   Type of the second exception thrown by the loader.
+     * @return Loaded value.
+     * @throws E1 First exception type of the loader.
+     * @throws E2 Second exception type of the loader.
+     */
+    public <E1 extends Exception, E2 extends Exception> V load(K key, CacheLoader<K, V, E1, E2> loader)
+            throws E1, E2 {
+
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leadingFlight = flights.putIfAbsent(key, flight);
+
+        if (leadingFlight != null) {
+            coalescedLoadCount.increment();
+            try {
+                return leadingFlight.join();
+            } catch (CompletionException e) {
+                // The leading load failed. The waiting callers fail the same way rather than loading again.
+                throw SingleFlight.<E1>rethrow(e.getCause());
+            }
+        }
+
+        loadCount.increment();
+        try {
+            V value = loader.load(key);
+            flight.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Detach the load of the key in progress, if any, so that later callers start a new load.
+     *
+     * @param key Key of the load.
+     */
+    public void forget(K key) {
+
+        flights.remove(key);
+    }
+
+    /**
+     * Detach all the loads in progress which match the filter.
+     *
+     * @param filter Filter on the keys of the loads.
+     */
+    public void forgetIf(Predicate<K> filter) {
+
+        flights.keySet().removeIf(filter);
+    }
+
+    /**
+     * Detach all the loads in progress.
+     */
+    public void forgetAll() {
+
+        flights.clear();
+    }
+
+    /**
+     * Rethrow the failure of the leading load. The leader and the waiting callers use loaders of the same key, hence
+     * the failure is one of the exception types declared by the loader of the caller.
+     *
+     * @param cause Failure of the leading load.
+     * @param <E>   Type of the exception thrown.
+     * @return Never returns.
+     * @throws E Failure of the leading load.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> E rethrow(Throwable cause) throws E {
+
+        throw (E) cause;
+    }
+
+    /**
+     * Get the number of loads performed.
+     *
+     * @return Number of loads.
+     */
+    public long getLoadCount() {
+
+        return loadCount.sum();
+    }
+
+    /**
+     * Get the number of loads which were served by joining a load in progress.
+     *
+     * @return Number of coalesced loads.
+     */
+    public long getCoalescedLoadCount() {
+
+        return coalescedLoadCount.sum();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Window TinyLFU eviction policy.
+ * <p>
+ * New entries are placed in a small LRU window. Entries leaving the window compete with the next victim of the main
+ * segmented LRU space and the one with the higher estimated access frequency is kept. This keeps frequently used
+ * entries in the cache while one time scans and bursts of new keys are evicted early.
+ *
+ * @param <K> Type of the cache key.
+ */
+public class TinyLfuEvictionPolicy<K> implements EvictionPolicy<K> {
+
+    private static final double WINDOW_PERCENTAGE = 0.01;
+
+    private final int windowMaximumSize;
+
+    private final int mainMaximumSize;
+
+    private final Map<K, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final SegmentedLruEvictionPolicy<K> main;
+
+    private final FrequencySketch<K> sketch;
+
+    public TinyLfuEvictionPolicy(int maximumSize) {
+
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size should be greater than 0.");
+        }
+
+        this.windowMaximumSize = Math.max(1, (int) (maximumSize * WINDOW_PERCENTAGE));
+        this.mainMaximumSize = maximumSize - windowMaximumSize;
+        this.main = mainMaximumSize > 0 ? new SegmentedLruEvictionPolicy<>(mainMaximumSize) : null;
+        this.sketch = new FrequencySketch<>(maximumSize);
+    }
+
+    @Override
+    public void recordAccess(K key) {
+
+        sketch.increment(key);
+
+        if (window.get(key) == null && main != null && main.contains(key)) {
+            main.recordAccess(key);
+        }
+    }
+
+    @Override
+    public List<K> recordWrite(K key) {
+
+        if (window.containsKey(key) || (main != null && main.contains(key))) {
+            recordAccess(key);
+            return Collections.emptyList();
+        }
+
+        sketch.increment(key);
+        window.put(key, Boolean.TRUE);
+
+        List<K> victims = new ArrayList<>();
+        while (window.size() > windowMaximumSize) {
+            Iterator<K> iterator = window.keySet().iterator();
+            K candidate = iterator.next();
+            iterator.remove();
+
+            if (main == null) {
+                victims.add(candidate);
+            } else if (main.size() < mainMaximumSize) {
+                main.admit(candidate);
+            } else {
+                K victim = main.peekVictim();
+                if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+                    main.recordRemoval(victim);
+                    main.admit(candidate);
+                    victims.add(victim);
+                } else {
+                    victims.add(candidate);
+                }
+            }
+        }
+        return victims;
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+
+        if (window.remove(key) == null && main != null) {
+            main.recordRemoval(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+
+        window.clear();
+        if (main != null) {
+            main.clear();
+        }
+    }
+
+    @Override
+    public int size() {
+
+        return window.size() + (main != null ? main.size() : 0);
+    }
+}
@@ -16,13 +16,21 @@
 
 package org.wso2.carbon.identity.mgt.impl.config;
 
+import org.wso2.carbon.identity.mgt.impl.cache.EvictionPolicyType;
+
 /**
  * Represents a cache config in the store config.
  */
 public class CacheConfig {
 
+    public static final int DEFAULT_PRIMARY_READ_TIME = 30;
+
+    // Time in minutes.
     private int expireTime;
 
+    // Time in seconds. Taken by the authentication cache, whose entries live for less than a minute, over expireTime.
+    private int expireTimeSeconds;
+
     private int maxCapacity;
 
     // Cache entries for a particular store should be enabled by default hence setting the value true by default so the
@@ -31,6 +39,16 @@ public class CacheConfig {
 
     private boolean statisticsEnabled;
 
+    private EvictionPolicyType evictionPolicy = EvictionPolicyType.W_TINY_LFU;
+
+    // Window in seconds before the expiry in which an accessed entry is refreshed in the background. Zero disables
+    // refresh-ahead.
+    private int refreshAheadTime;
+
+    // Time in seconds after an invalidation of a key for which the key is reloaded from the primary data source
+    // instead of a replica. Zero sends the reloads to the replicas right away.
+    private int primaryReadTime = DEFAULT_PRIMARY_READ_TIME;
+
     public boolean isEnable() {
         return enable;
     }
@@ -39,6 +57,10 @@ public class CacheConfig {
         return statisticsEnabled;
     }
 
+    public int getExpireTimeSeconds() {
+        return expireTimeSeconds;
+    }
+
     public int getMaxCapacity() {
         return maxCapacity;
     }
@@ -47,6 +69,18 @@ public class CacheConfig {
         return expireTime;
     }
 
+    public EvictionPolicyType getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public int getRefreshAheadTime() {
+        return refreshAheadTime;
+    }
+
+    public int getPrimaryReadTime() {
+        return primaryReadTime;
+    }
+
     public void setEnable(boolean enable) {
         this.enable = enable;
     }
@@ -55,6 +89,10 @@ public class CacheConfig {
         this.statisticsEnabled = statisticsEnabled;
     }
 
+    public void setExpireTimeSeconds(int expireTimeSeconds) {
+        this.expireTimeSeconds = expireTimeSeconds;
+    }
+
     public void setMaxCapacity(int maxCapacity) {
         this.maxCapacity = maxCapacity;
     }
@@ -62,4 +100,16 @@ public class CacheConfig {
     public void setExpireTime(int expireTime) {
         this.expireTime = expireTime;
     }
+
+    public void setEvictionPolicy(EvictionPolicyType evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    public void setRefreshAheadTime(int refreshAheadTime) {
+        this.refreshAheadTime = refreshAheadTime;
+    }
+
+    public void setPrimaryReadTime(int primaryReadTime) {
+        this.primaryReadTime = primaryReadTime;
+    }
 }
@@ -35,6 +35,8 @@ public class DomainConfig {
 
     private int order;
 
+    private boolean parallelAuthentication;
+
     private UniqueIdResolverConfig uniqueIdResolverConfig;
 
     private List<IdentityStoreConnectorConfig> identityStoreConnectorConfigs;
@@ -67,6 +69,14 @@ public class DomainConfig {
         this.order = order;
     }
 
+    public boolean isParallelAuthentication() {
+        return parallelAuthentication;
+    }
+
+    public void setParallelAuthentication(boolean parallelAuthentication) {
+        this.parallelAuthentication = parallelAuthentication;
+    }
+
     public UniqueIdResolverConfig getUniqueIdResolverConfig() {
         return uniqueIdResolverConfig;
     }
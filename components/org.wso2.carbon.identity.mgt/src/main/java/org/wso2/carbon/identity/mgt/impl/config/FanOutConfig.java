@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.config;
+
+/**
+ * Configuration of the executor used to call the connectors of a domain in parallel.
+ */
+public class FanOutConfig {
+
+    private int poolSize;
+
+    private int queueSize;
+
+    public FanOutConfig(int poolSize, int queueSize) {
+
+        this.poolSize = poolSize;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Get the maximum number of threads calling the connectors.
+     *
+     * @return Pool size.
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Get the maximum number of connector calls waiting for a thread. The callers run the calls themselves once the
+     * queue is full.
+     *
+     * @return Queue size.
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.wso2.carbon.identity.mgt.impl.config;
 
+import org.wso2.carbon.identity.mgt.cache.InvalidationBusConfig;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -36,6 +38,18 @@ public class StoreConfig {
 
     private Map<String, CacheConfig> credentialStoreCacheConfigMap = new HashMap<>();
 
+    private InvalidationBusConfig identityStoreInvalidationBusConfig;
+
+    private CacheConfig authenticationCacheConfig;
+
+    private FanOutConfig identityStoreFanOutConfig;
+
+    private Map<String, FanOutConfig> identityStoreConnectorFanOutConfigMap = new HashMap<>();
+
+    private FanOutConfig identityStoreAsyncConfig;
+
+    private Map<String, FanOutConfig> identityStoreDomainAsyncConfigMap = new HashMap<>();
+
     public StoreConfig() {
 
     }
@@ -87,4 +101,58 @@ public class StoreConfig {
     public void setCredentialStoreCacheConfigMap(Map<String, CacheConfig> cradentialStoreCacheConfigMap) {
         this.credentialStoreCacheConfigMap = cradentialStoreCacheConfigMap;
     }
+
+    public InvalidationBusConfig getIdentityStoreInvalidationBusConfig() {
+        return identityStoreInvalidationBusConfig;
+    }
+
+    public void setIdentityStoreInvalidationBusConfig(InvalidationBusConfig identityStoreInvalidationBusConfig) {
+        this.identityStoreInvalidationBusConfig = identityStoreInvalidationBusConfig;
+    }
+
+    /**
+     * Get the config of the cache of successful authentications.
+     *
+     * @return Cache config or null if successful authentications are not cached.
+     */
+    public CacheConfig getAuthenticationCacheConfig() {
+        return authenticationCacheConfig;
+    }
+
+    public void setAuthenticationCacheConfig(CacheConfig authenticationCacheConfig) {
+        this.authenticationCacheConfig = authenticationCacheConfig;
+    }
+
+    public FanOutConfig getIdentityStoreFanOutConfig() {
+        return identityStoreFanOutConfig;
+    }
+
+    public void setIdentityStoreFanOutConfig(FanOutConfig identityStoreFanOutConfig) {
+        this.identityStoreFanOutConfig = identityStoreFanOutConfig;
+    }
+
+    public Map<String, FanOutConfig> getIdentityStoreConnectorFanOutConfigMap() {
+        return identityStoreConnectorFanOutConfigMap;
+    }
+
+    public void setIdentityStoreConnectorFanOutConfigMap(Map<String, FanOutConfig>
+                                                                 identityStoreConnectorFanOutConfigMap) {
+        this.identityStoreConnectorFanOutConfigMap = identityStoreConnectorFanOutConfigMap;
+    }
+
+    public FanOutConfig getIdentityStoreAsyncConfig() {
+        return identityStoreAsyncConfig;
+    }
+
+    public void setIdentityStoreAsyncConfig(FanOutConfig identityStoreAsyncConfig) {
+        this.identityStoreAsyncConfig = identityStoreAsyncConfig;
+    }
+
+    public Map<String, FanOutConfig> getIdentityStoreDomainAsyncConfigMap() {
+        return identityStoreDomainAsyncConfigMap;
+    }
+
+    public void setIdentityStoreDomainAsyncConfigMap(Map<String, FanOutConfig> identityStoreDomainAsyncConfigMap) {
+        this.identityStoreDomainAsyncConfigMap = identityStoreDomainAsyncConfigMap;
+    }
 }
@@ -28,8 +28,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.carbon.caching.CarbonCachingService;
 import org.wso2.carbon.datasource.core.api.DataSourceService;
+import org.wso2.carbon.identity.mgt.AsyncIdentityStore;
 import org.wso2.carbon.identity.mgt.IdentityStore;
 import org.wso2.carbon.identity.mgt.RealmService;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBus;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBusConfig;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBusFactory;
 import org.wso2.carbon.identity.mgt.connector.CredentialStoreConnector;
 import org.wso2.carbon.identity.mgt.connector.CredentialStoreConnectorFactory;
 import org.wso2.carbon.identity.mgt.connector.IdentityStoreConnector;
@@ -43,27 +47,37 @@ import org.wso2.carbon.identity.mgt.exception.DomainConfigException;
 import org.wso2.carbon.identity.mgt.exception.DomainException;
 import org.wso2.carbon.identity.mgt.exception.IdentityStoreConnectorException;
 import org.wso2.carbon.identity.mgt.exception.IdentityStoreException;
+import org.wso2.carbon.identity.mgt.exception.InvalidationBusException;
 import org.wso2.carbon.identity.mgt.exception.MetaClaimStoreException;
 import org.wso2.carbon.identity.mgt.exception.UniqueIdResolverException;
+import org.wso2.carbon.identity.mgt.impl.AsyncIdentityStoreImpl;
 import org.wso2.carbon.identity.mgt.impl.CacheBackedIdentityStore;
 import org.wso2.carbon.identity.mgt.impl.Domain;
 import org.wso2.carbon.identity.mgt.impl.IdentityStoreImpl;
 import org.wso2.carbon.identity.mgt.impl.RealmServiceImpl;
+import org.wso2.carbon.identity.mgt.impl.cache.AuthenticationResultCache;
+import org.wso2.carbon.identity.mgt.impl.config.CacheConfig;
 import org.wso2.carbon.identity.mgt.impl.config.DomainConfig;
+import org.wso2.carbon.identity.mgt.impl.config.FanOutConfig;
 import org.wso2.carbon.identity.mgt.impl.config.StoreConfig;
 import org.wso2.carbon.identity.mgt.impl.internal.config.connector.ConnectorConfigReader;
 import org.wso2.carbon.identity.mgt.impl.internal.config.domain.DomainConfigReader;
 import org.wso2.carbon.identity.mgt.impl.internal.config.store.IdentityStoreConfigReader;
+import org.wso2.carbon.identity.mgt.impl.util.CacheHelper;
+import org.wso2.carbon.identity.mgt.impl.util.FanOutHelper;
+import org.wso2.carbon.identity.mgt.listener.IdentityStoreListener;
 import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolver;
 import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolverConfig;
 import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolverFactory;
 import org.wso2.carbon.kernel.startupresolver.RequiredCapabilityListener;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 /**
  * OSGi service component which handle identity management.
@@ -86,6 +100,14 @@ public class IdentityMgtComponent implements RequiredCapabilityListener {
 
     private BundleContext bundleContext;
 
+    private InvalidationBus invalidationBus;
+
+    private CacheBackedIdentityStore cacheBackedIdentityStore;
+
+    private ServiceRegistration<AuthenticationResultCache> authenticationResultCacheRegistration;
+
+    private List<ExecutorService> executors = new ArrayList<>();
+
     @Activate
     public void registerCarbonIdentityMgtProvider(BundleContext bundleContext) {
 
@@ -96,6 +118,20 @@ public class IdentityMgtComponent implements RequiredCapabilityListener {
     public void unregisterCarbonIdentityMgtProvider(BundleContext bundleContext) {
 
         bundleContext.ungetService(realmServiceRegistration.getReference());
+
+        if (authenticationResultCacheRegistration != null) {
+            authenticationResultCacheRegistration.unregister();
+        }
+
+        if (cacheBackedIdentityStore != null) {
+            cacheBackedIdentityStore.unregisterCacheStatistics();
+        }
+
+        if (invalidationBus != null) {
+            invalidationBus.close();
+        }
+
+        executors.forEach(ExecutorService::shutdown);
     }
 
     @Reference(
@@ -160,6 +196,42 @@ public class IdentityMgtComponent implements RequiredCapabilityListener {
         IdentityMgtDataHolder.getInstance().unregisterUniqueIdResolverFactory(uniqueIdResolverFactory);
     }
 
+    @Reference(
+            name = "InvalidationBusFactory",
+            service = InvalidationBusFactory.class,
+            cardinality = ReferenceCardinality.MULTIPLE,
+            policy = ReferencePolicy.DYNAMIC,
+            unbind = "unregisterInvalidationBusFactory"
+    )
+    protected void registerInvalidationBusFactory(InvalidationBusFactory invalidationBusFactory,
+                                                  Map<String, String> properties) {
+
+        String busType = properties.get(CONNECTOR_TYPE);
+        IdentityMgtDataHolder.getInstance().registerInvalidationBusFactory(busType, invalidationBusFactory);
+    }
+
+    protected void unregisterInvalidationBusFactory(InvalidationBusFactory invalidationBusFactory) {
+
+        IdentityMgtDataHolder.getInstance().unregisterInvalidationBusFactory(invalidationBusFactory);
+    }
+
+    @Reference(
+            name = "IdentityStoreListener",
+            service = IdentityStoreListener.class,
+            cardinality = ReferenceCardinality.MULTIPLE,
+            policy = ReferencePolicy.DYNAMIC,
+            unbind = "unregisterIdentityStoreListener"
+    )
+    protected void registerIdentityStoreListener(IdentityStoreListener identityStoreListener) {
+
+        IdentityMgtDataHolder.getInstance().registerIdentityStoreListener(identityStoreListener);
+    }
+
+    protected void unregisterIdentityStoreListener(IdentityStoreListener identityStoreListener) {
+
+        IdentityMgtDataHolder.getInstance().unregisterIdentityStoreListener(identityStoreListener);
+    }
+
     //TODO make this MANDATORY in M3 release
 //    @Reference(
 //            name = "AuthorizationStore",
@@ -250,20 +322,49 @@ public class IdentityMgtComponent implements RequiredCapabilityListener {
             // Get the store configurations
             StoreConfig storeConfig = IdentityStoreConfigReader.getStoreConfig();
 
+            // Connector calls and domain probes share the executor. A domain probe never waits on a connector call
+            // submitted to the executor, so they cannot starve each other.
+            ExecutorService fanOutExecutor = createExecutor(storeConfig.getIdentityStoreFanOutConfig(),
+                    "identity-fan-out-");
+            Map<String, ExecutorService> connectorExecutors = createExecutors(
+                    storeConfig.getIdentityStoreConnectorFanOutConfigMap(), "identity-fan-out-");
+            domains.forEach(domain -> {
+                domain.setConnectorExecutor(fanOutExecutor);
+                domain.setConnectorExecutors(connectorExecutors);
+            });
+
+            boolean enableIdentityStoreCache = storeConfig.isEnableCache() && storeConfig.isEnableIdentityStoreCache();
+            if (enableIdentityStoreCache || storeConfig.getAuthenticationCacheConfig() != null) {
+                invalidationBus = constructInvalidationBus(storeConfig.getIdentityStoreInvalidationBusConfig());
+            }
+
             IdentityStore identityStore;
-            if (storeConfig.isEnableCache() && storeConfig.isEnableIdentityStoreCache()) {
-                identityStore = new CacheBackedIdentityStore(storeConfig.getIdentityStoreCacheConfigMap(), domains);
+            if (enableIdentityStoreCache) {
+                ExecutorService refreshAheadExecutor = CacheHelper.createRefreshAheadExecutor();
+                executors.add(refreshAheadExecutor);
+                cacheBackedIdentityStore = new CacheBackedIdentityStore(storeConfig.getIdentityStoreCacheConfigMap(),
+                        domains, invalidationBus, fanOutExecutor, refreshAheadExecutor);
+                identityStore = cacheBackedIdentityStore;
             } else {
-                identityStore = new IdentityStoreImpl(domains);
+                identityStore = new IdentityStoreImpl(domains, fanOutExecutor);
             }
 
             // Register the realm service.
-            RealmService realmService = new RealmServiceImpl(identityStore);
+            // Asynchronous operations wait on connector calls, hence they never share the fan out executors.
+            AsyncIdentityStore asyncIdentityStore = new AsyncIdentityStoreImpl(identityStore, domains,
+                    createExecutor(storeConfig.getIdentityStoreAsyncConfig(), "identity-async-"),
+                    createExecutors(storeConfig.getIdentityStoreDomainAsyncConfigMap(), "identity-async-"));
+
+            RealmService realmService = new RealmServiceImpl(identityStore, asyncIdentityStore);
             identityMgtDataHolder.registerRealmService(realmService);
 
             realmServiceRegistration = bundleContext.registerService(RealmService.class, realmService, null);
             log.info("Realm service registered successfully.");
 
+            if (storeConfig.getAuthenticationCacheConfig() != null) {
+                registerAuthenticationResultCache(storeConfig.getAuthenticationCacheConfig());
+            }
+
             log.info("Carbon-Identity-Mgt bundle activated successfully.");
 
         } catch (CredentialStoreConnectorException | IdentityStoreException e) {
@@ -278,7 +379,61 @@ public class IdentityMgtComponent implements RequiredCapabilityListener {
             log.error("Error loading store configurations", e);
         } catch (IdentityStoreConnectorException e) {
             log.error("Error while initiating store connectors", e);
+        } catch (InvalidationBusException e) {
+            log.error("Error initializing cache invalidation bus.", e);
+        }
+    }
+
+    private void registerAuthenticationResultCache(CacheConfig cacheConfig) {
+
+        AuthenticationResultCache authenticationResultCache = new AuthenticationResultCache(cacheConfig);
+        if (invalidationBus != null) {
+            authenticationResultCache.setInvalidationBus(invalidationBus);
+        }
+        IdentityMgtDataHolder.getInstance().registerIdentityStoreListener(authenticationResultCache);
+
+        authenticationResultCacheRegistration = bundleContext.registerService(AuthenticationResultCache.class,
+                authenticationResultCache, null);
+        log.info("Authentication result cache registered successfully.");
+    }
+
+    private ExecutorService createExecutor(FanOutConfig executorConfig, String threadNamePrefix) {
+
+        if (executorConfig == null) {
+            return null;
+        }
+
+        ExecutorService executor = FanOutHelper.createExecutor(executorConfig, threadNamePrefix);
+        executors.add(executor);
+        return executor;
+    }
+
+    private Map<String, ExecutorService> createExecutors(Map<String, FanOutConfig> executorConfigs,
+                                                         String threadNamePrefix) {
+
+        Map<String, ExecutorService> executorMap = new HashMap<>();
+        executorConfigs.forEach((name, executorConfig) -> executorMap.put(name,
+                createExecutor(executorConfig, threadNamePrefix + name + "-")));
+        return executorMap;
+    }
+
+    private InvalidationBus constructInvalidationBus(InvalidationBusConfig invalidationBusConfig)
+            throws InvalidationBusException {
+
+        if (invalidationBusConfig == null) {
+            return null;
         }
+
+        InvalidationBusFactory invalidationBusFactory = IdentityMgtDataHolder.getInstance()
+                .getInvalidationBusFactoryMap().get(invalidationBusConfig.getType());
+        if (invalidationBusFactory == null) {
+            throw new InvalidationBusException(String.format("Invalid invalidation bus type - %s",
+                    invalidationBusConfig.getType()));
+        }
+
+        InvalidationBus invalidationBus = invalidationBusFactory.getInstance();
+        invalidationBus.init(invalidationBusConfig);
+        return invalidationBus;
     }
 
     private List<Domain> constructDomains(List<DomainConfig> domainConfigs)
@@ -315,6 +470,7 @@ public class IdentityMgtComponent implements RequiredCapabilityListener {
                     uniqueIdResolver);
 
             domain.setMetaClaimMappings(domainConfig.getMetaClaimMappings());
+            domain.setParallelAuthentication(domainConfig.isParallelAuthentication());
 
             if (!domainConfig.getIdentityStoreConnectorConfigs().isEmpty()) {
                 for (IdentityStoreConnectorConfig connectorConfig : domainConfig.getIdentityStoreConnectorConfigs()) {
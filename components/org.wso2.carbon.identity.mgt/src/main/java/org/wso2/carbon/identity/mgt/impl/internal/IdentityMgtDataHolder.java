@@ -20,17 +20,27 @@ import org.wso2.carbon.caching.CarbonCachingService;
 import org.wso2.carbon.datasource.core.api.DataSourceService;
 import org.wso2.carbon.datasource.core.exception.DataSourceException;
 import org.wso2.carbon.identity.mgt.RealmService;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBusFactory;
 import org.wso2.carbon.identity.mgt.connector.CredentialStoreConnectorFactory;
 import org.wso2.carbon.identity.mgt.connector.IdentityStoreConnectorFactory;
 import org.wso2.carbon.identity.mgt.impl.JDBCUniqueIdResolverFactory;
+import org.wso2.carbon.identity.mgt.impl.cache.DatagramInvalidationBus;
+import org.wso2.carbon.identity.mgt.impl.cache.JDBCInvalidationBus;
+import org.wso2.carbon.identity.mgt.impl.cache.LoopbackInvalidationBus;
+import org.wso2.carbon.identity.mgt.listener.IdentityStoreListener;
 import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolverFactory;
 import org.wso2.carbon.security.caas.user.core.store.AuthorizationStore;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.sql.DataSource;
 
+import static org.wso2.carbon.identity.mgt.impl.util.IdentityMgtConstants.DATAGRAM_INVALIDATION_BUS_TYPE;
+import static org.wso2.carbon.identity.mgt.impl.util.IdentityMgtConstants.JDBC_INVALIDATION_BUS_TYPE;
+import static org.wso2.carbon.identity.mgt.impl.util.IdentityMgtConstants.LOOPBACK_INVALIDATION_BUS_TYPE;
 import static org.wso2.carbon.identity.mgt.impl.util.IdentityMgtConstants.UNIQUE_ID_RESOLVER_TYPE;
 
 /**
@@ -56,9 +66,17 @@ public class IdentityMgtDataHolder {
 
     private Map<String, UniqueIdResolverFactory> uniqueIdResolverFactoryMap = new HashMap<>();
 
+    private Map<String, InvalidationBusFactory> invalidationBusFactoryMap = new HashMap<>();
+
+    private List<IdentityStoreListener> identityStoreListeners = new CopyOnWriteArrayList<>();
+
     private IdentityMgtDataHolder() {
 
         uniqueIdResolverFactoryMap.put(UNIQUE_ID_RESOLVER_TYPE, new JDBCUniqueIdResolverFactory());
+
+        invalidationBusFactoryMap.put(LOOPBACK_INVALIDATION_BUS_TYPE, LoopbackInvalidationBus::new);
+        invalidationBusFactoryMap.put(DATAGRAM_INVALIDATION_BUS_TYPE, DatagramInvalidationBus::new);
+        invalidationBusFactoryMap.put(JDBC_INVALIDATION_BUS_TYPE, JDBCInvalidationBus::new);
     }
 
     public static IdentityMgtDataHolder getInstance() {
@@ -180,6 +198,42 @@ public class IdentityMgtDataHolder {
         }
     }
 
+    void registerInvalidationBusFactory(String key, InvalidationBusFactory invalidationBusFactory) {
+
+        this.invalidationBusFactoryMap.put(key, invalidationBusFactory);
+    }
+
+    public Map<String, InvalidationBusFactory> getInvalidationBusFactoryMap() {
+        return invalidationBusFactoryMap;
+    }
+
+    public void unregisterInvalidationBusFactory(InvalidationBusFactory invalidationBusFactory) {
+
+        if (invalidationBusFactory != null && !invalidationBusFactoryMap.isEmpty()) {
+            Optional<String> busType = invalidationBusFactoryMap.entrySet().stream()
+                    .filter(t -> t.getValue().equals(invalidationBusFactory))
+                    .map(Map.Entry::getKey)
+                    .findFirst();
+            if (busType.isPresent()) {
+                invalidationBusFactoryMap.remove(busType.get());
+            }
+        }
+    }
+
+    void registerIdentityStoreListener(IdentityStoreListener identityStoreListener) {
+
+        identityStoreListeners.add(identityStoreListener);
+    }
+
+    public List<IdentityStoreListener> getIdentityStoreListeners() {
+        return identityStoreListeners;
+    }
+
+    void unregisterIdentityStoreListener(IdentityStoreListener identityStoreListener) {
+
+        identityStoreListeners.remove(identityStoreListener);
+    }
+
     void registerCacheService(CarbonCachingService carbonCachingService) {
         this.carbonCachingService = carbonCachingService;
     }
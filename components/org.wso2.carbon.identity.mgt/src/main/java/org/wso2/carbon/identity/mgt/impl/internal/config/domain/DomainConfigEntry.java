@@ -44,6 +44,12 @@ public class DomainConfigEntry {
      */
     private boolean active = true;
 
+    /**
+     * Whether the domain may be asked to authenticate a user before the higher priority domains have rejected the
+     * credentials.
+     */
+    private boolean parallelAuthentication;
+
     private UniqueIdResolverConfigEntry uniqueIdResolver;
 
     /**
@@ -108,6 +114,14 @@ public class DomainConfigEntry {
         this.active = active;
     }
 
+    public boolean isParallelAuthentication() {
+        return parallelAuthentication;
+    }
+
+    public void setParallelAuthentication(boolean parallelAuthentication) {
+        this.parallelAuthentication = parallelAuthentication;
+    }
+
     public UniqueIdResolverConfigEntry getUniqueIdResolver() {
         return uniqueIdResolver;
     }
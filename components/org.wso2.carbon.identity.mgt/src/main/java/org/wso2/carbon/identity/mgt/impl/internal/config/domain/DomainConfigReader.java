@@ -79,6 +79,7 @@ public class DomainConfigReader {
         domainConfig.setId(domainConfigEntry.getId());
         domainConfig.setName(domainConfigEntry.getName());
         domainConfig.setOrder(domainConfigEntry.getOrder());
+        domainConfig.setParallelAuthentication(domainConfigEntry.isParallelAuthentication());
 
         UniqueIdResolverConfigEntry uniqueIdResolverConfigEntry = domainConfigEntry.getUniqueIdResolver();
         if (uniqueIdResolverConfigEntry == null || StringUtils.isNullOrEmpty(uniqueIdResolverConfigEntry
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.internal.config.store;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Async Config Entry.
+ */
+public class AsyncConfigEntry extends ExecutorConfigEntry {
+
+    private boolean enable = false;
+
+    private Map<String, ExecutorConfigEntry> domains;
+
+    public boolean isEnable() {
+        return enable;
+    }
+
+    public void setEnable(boolean enable) {
+        this.enable = enable;
+    }
+
+    public Map<String, ExecutorConfigEntry> getDomains() {
+
+        if (domains == null) {
+            return Collections.emptyMap();
+        }
+        return domains;
+    }
+
+    public void setDomains(Map<String, ExecutorConfigEntry> domains) {
+        this.domains = domains;
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.wso2.carbon.identity.mgt.impl.internal.config.store;
 
+import org.wso2.carbon.identity.mgt.impl.config.CacheConfig;
+
 /**
  * Cache Config Entry
  */
@@ -27,10 +29,18 @@ public class CacheConfigEntry {
 
     private int expireTime;
 
+    private int expireTimeSeconds;
+
     private int maxCapacity;
 
     private boolean statisticsEnabled;
 
+    private String evictionPolicy;
+
+    private int refreshAheadTime;
+
+    private int primaryReadTime = CacheConfig.DEFAULT_PRIMARY_READ_TIME;
+
     public String getName() {
         return name;
     }
@@ -55,6 +65,14 @@ public class CacheConfigEntry {
         this.expireTime = expireTime;
     }
 
+    public int getExpireTimeSeconds() {
+        return expireTimeSeconds;
+    }
+
+    public void setExpireTimeSeconds(int expireTimeSeconds) {
+        this.expireTimeSeconds = expireTimeSeconds;
+    }
+
     public int getMaxCapacity() {
         return maxCapacity;
     }
@@ -70,4 +88,28 @@ public class CacheConfigEntry {
     public void setStatisticsEnabled(boolean statisticsEnabled) {
         this.statisticsEnabled = statisticsEnabled;
     }
+
+    public String getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public void setEvictionPolicy(String evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    public int getRefreshAheadTime() {
+        return refreshAheadTime;
+    }
+
+    public void setRefreshAheadTime(int refreshAheadTime) {
+        this.refreshAheadTime = refreshAheadTime;
+    }
+
+    public int getPrimaryReadTime() {
+        return primaryReadTime;
+    }
+
+    public void setPrimaryReadTime(int primaryReadTime) {
+        this.primaryReadTime = primaryReadTime;
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.internal.config.store;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Fan Out Config Entry.
+ */
+public class FanOutConfigEntry extends ExecutorConfigEntry {
+
+    private boolean enable = false;
+
+    private Map<String, ExecutorConfigEntry> connectors;
+
+    public boolean isEnable() {
+        return enable;
+    }
+
+    public void setEnable(boolean enable) {
+        this.enable = enable;
+    }
+
+    public Map<String, ExecutorConfigEntry> getConnectors() {
+
+        if (connectors == null) {
+            return Collections.emptyMap();
+        }
+        return connectors;
+    }
+
+    public void setConnectors(Map<String, ExecutorConfigEntry> connectors) {
+        this.connectors = connectors;
+    }
+}
@@ -16,8 +16,11 @@
 
 package org.wso2.carbon.identity.mgt.impl.internal.config.store;
 
+import org.wso2.carbon.identity.mgt.cache.InvalidationBusConfig;
 import org.wso2.carbon.identity.mgt.exception.CarbonIdentityMgtConfigException;
+import org.wso2.carbon.identity.mgt.impl.cache.EvictionPolicyType;
 import org.wso2.carbon.identity.mgt.impl.config.CacheConfig;
+import org.wso2.carbon.identity.mgt.impl.config.FanOutConfig;
 import org.wso2.carbon.identity.mgt.impl.config.StoreConfig;
 import org.wso2.carbon.identity.mgt.impl.util.FileUtil;
 import org.wso2.carbon.identity.mgt.impl.util.IdentityMgtConstants;
@@ -28,9 +31,12 @@ import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 
+import static org.wso2.carbon.kernel.utils.LambdaExceptionUtils.rethrowConsumer;
+
 /**
  * Configuration builder for stores.
  *
@@ -53,6 +59,36 @@ public class IdentityStoreConfigReader {
         StoreConfigFile storeConfigFile = buildStoreConfig();
         StoreConfig storeConfig = new StoreConfig();
 
+        // Connector fan out, the asynchronous executors, the invalidation bus and the authentication cache do not
+        // depend on the identity caches.
+        if (storeConfigFile.getIdentityStore() != null) {
+            storeConfig.setIdentityStoreInvalidationBusConfig(getInvalidationBusConfig(storeConfigFile
+                    .getIdentityStore().getInvalidationBus()));
+
+            FanOutConfigEntry fanOutConfigEntry = storeConfigFile.getIdentityStore().getFanOut();
+            if (fanOutConfigEntry != null && fanOutConfigEntry.isEnable()) {
+                storeConfig.setIdentityStoreFanOutConfig(getExecutorConfig(fanOutConfigEntry, "fan out"));
+                storeConfig.setIdentityStoreConnectorFanOutConfigMap(getExecutorConfigs(
+                        fanOutConfigEntry.getConnectors(), "fan out of the connector"));
+            }
+
+            AsyncConfigEntry asyncConfigEntry = storeConfigFile.getIdentityStore().getAsync();
+            if (asyncConfigEntry != null && asyncConfigEntry.isEnable()) {
+                storeConfig.setIdentityStoreAsyncConfig(getExecutorConfig(asyncConfigEntry, "async"));
+                storeConfig.setIdentityStoreDomainAsyncConfigMap(getExecutorConfigs(asyncConfigEntry.getDomains(),
+                        "async of the domain"));
+            }
+        }
+
+        CacheConfigEntry authenticationCacheEntry = storeConfigFile.getAuthenticationCache();
+        if (authenticationCacheEntry != null && authenticationCacheEntry.isEnableCache()) {
+            CacheConfig authenticationCacheConfig = new CacheConfig();
+            authenticationCacheConfig.setExpireTime(authenticationCacheEntry.getExpireTime());
+            authenticationCacheConfig.setExpireTimeSeconds(authenticationCacheEntry.getExpireTimeSeconds());
+            authenticationCacheConfig.setMaxCapacity(authenticationCacheEntry.getMaxCapacity());
+            storeConfig.setAuthenticationCacheConfig(authenticationCacheConfig);
+        }
+
         if (!storeConfigFile.isEnableCache()) {
             storeConfig.setEnableCache(false);
             return storeConfig;
@@ -102,10 +138,12 @@ public class IdentityStoreConfigReader {
      *
      * @param cacheConfigEntries Cache entry of the connector.
      * @return Map of CacheConfigs mapped to cache config name.
+     * @throws CarbonIdentityMgtConfigException on an invalid cache config entry.
      */
-    private static Map<String, CacheConfig> getCacheConfigs(List<CacheConfigEntry> cacheConfigEntries) {
+    private static Map<String, CacheConfig> getCacheConfigs(List<CacheConfigEntry> cacheConfigEntries)
+            throws CarbonIdentityMgtConfigException {
 
-        if (cacheConfigEntries.isEmpty()) {
+        if (cacheConfigEntries == null || cacheConfigEntries.isEmpty()) {
             return Collections.emptyMap();
         }
 
@@ -114,14 +152,79 @@ public class IdentityStoreConfigReader {
         cacheConfigEntries.stream()
                 .filter(Objects::nonNull)
                 .filter(cacheConfigEntry -> !StringUtils.isNullOrEmpty(cacheConfigEntry.getName()))
-                .forEach(cacheConfigEntry -> {
+                .forEach(rethrowConsumer(cacheConfigEntry -> {
                     CacheConfig cacheConfig = new CacheConfig();
                     cacheConfig.setEnable(cacheConfigEntry.isEnableCache());
                     cacheConfig.setExpireTime(cacheConfigEntry.getExpireTime());
                     cacheConfig.setMaxCapacity(cacheConfigEntry.getMaxCapacity());
-                    cacheConfig.setEnable(cacheConfigEntry.isStatisticsEnabled());
+                    cacheConfig.setStatisticsEnabled(cacheConfigEntry.isStatisticsEnabled());
+                    cacheConfig.setRefreshAheadTime(cacheConfigEntry.getRefreshAheadTime());
+                    cacheConfig.setPrimaryReadTime(cacheConfigEntry.getPrimaryReadTime());
+                    if (!StringUtils.isNullOrEmpty(cacheConfigEntry.getEvictionPolicy())) {
+                        cacheConfig.setEvictionPolicy(getEvictionPolicy(cacheConfigEntry));
+                    }
                     cacheConfigMap.put(cacheConfigEntry.getName(), cacheConfig);
-                });
+                }));
         return cacheConfigMap;
     }
+
+    /**
+     * Get the invalidation bus config of a store.
+     *
+     * @param invalidationBusConfigEntry Invalidation bus entry of the store.
+     * @return Invalidation bus config or null if the caches of the store are local to each node.
+     */
+    private static InvalidationBusConfig getInvalidationBusConfig(
+            InvalidationBusConfigEntry invalidationBusConfigEntry) {
+
+        if (invalidationBusConfigEntry == null || StringUtils.isNullOrEmpty(invalidationBusConfigEntry.getType())) {
+            return null;
+        }
+
+        return new InvalidationBusConfig(invalidationBusConfigEntry.getType(),
+                invalidationBusConfigEntry.getProperties());
+    }
+
+    /**
+     * Get the config of a bounded executor.
+     *
+     * @param executorConfigEntry Executor config entry.
+     * @param name                Name of the executor used in the error message.
+     * @return Executor config.
+     * @throws CarbonIdentityMgtConfigException on an invalid executor config entry.
+     */
+    private static FanOutConfig getExecutorConfig(ExecutorConfigEntry executorConfigEntry, String name)
+            throws CarbonIdentityMgtConfigException {
+
+        if (executorConfigEntry.getPoolSize() < 1 || executorConfigEntry.getQueueSize() < 0) {
+            throw new CarbonIdentityMgtConfigException(String.format("Invalid %s pool size - %d or queue size - %d.",
+                    name, executorConfigEntry.getPoolSize(), executorConfigEntry.getQueueSize()));
+        }
+
+        return new FanOutConfig(executorConfigEntry.getPoolSize(), executorConfigEntry.getQueueSize());
+    }
+
+    private static Map<String, FanOutConfig> getExecutorConfigs(Map<String, ExecutorConfigEntry> executorConfigEntries,
+                                                                String name) throws CarbonIdentityMgtConfigException {
+
+        Map<String, FanOutConfig> executorConfigs = new HashMap<>();
+        for (Map.Entry<String, ExecutorConfigEntry> entry : executorConfigEntries.entrySet()) {
+            if (entry.getValue() == null) {
+                throw new CarbonIdentityMgtConfigException(String.format("Missing %s - %s.", name, entry.getKey()));
+            }
+            executorConfigs.put(entry.getKey(), getExecutorConfig(entry.getValue(), name + " " + entry.getKey()));
+        }
+        return executorConfigs;
+    }
+
+    private static EvictionPolicyType getEvictionPolicy(CacheConfigEntry cacheConfigEntry)
+            throws CarbonIdentityMgtConfigException {
+
+        try {
+            return EvictionPolicyType.valueOf(cacheConfigEntry.getEvictionPolicy().trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            throw new CarbonIdentityMgtConfigException(String.format("Invalid eviction policy - %s for cache - %s.",
+                    cacheConfigEntry.getEvictionPolicy(), cacheConfigEntry.getName()), e);
+        }
+    }
 }
@@ -28,6 +28,12 @@ public class StoreConfigEntry {
 
     private List<CacheConfigEntry> cacheConfigs;
 
+    private InvalidationBusConfigEntry invalidationBus;
+
+    private FanOutConfigEntry fanOut;
+
+    private AsyncConfigEntry async;
+
     public boolean isEnableCache() {
         return enableCache;
     }
@@ -47,4 +53,28 @@ public class StoreConfigEntry {
     public void setCacheConfigs(List<CacheConfigEntry> cacheConfigs) {
         this.cacheConfigs = cacheConfigs;
     }
+
+    public InvalidationBusConfigEntry getInvalidationBus() {
+        return invalidationBus;
+    }
+
+    public void setInvalidationBus(InvalidationBusConfigEntry invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    public FanOutConfigEntry getFanOut() {
+        return fanOut;
+    }
+
+    public void setFanOut(FanOutConfigEntry fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    public AsyncConfigEntry getAsync() {
+        return async;
+    }
+
+    public void setAsync(AsyncConfigEntry async) {
+        this.async = async;
+    }
 }
@@ -29,6 +29,8 @@ public class StoreConfigFile {
 
     private StoreConfigEntry credentialStore;
 
+    private CacheConfigEntry authenticationCache;
+
     public boolean isEnableCache() {
         return enableCache;
     }
@@ -52,5 +54,13 @@ public class StoreConfigFile {
     public void setCredentialStore(StoreConfigEntry credentialStore) {
         this.credentialStore = credentialStore;
     }
+
+    public CacheConfigEntry getAuthenticationCache() {
+        return authenticationCache;
+    }
+
+    public void setAuthenticationCache(CacheConfigEntry authenticationCache) {
+        this.authenticationCache = authenticationCache;
+    }
 }
 
@@ -16,27 +16,58 @@
 
 package org.wso2.carbon.identity.mgt.impl.util;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.identity.mgt.impl.cache.CacheStatisticsMXBeanImpl;
+import org.wso2.carbon.identity.mgt.impl.cache.EvictionPolicy;
+import org.wso2.carbon.identity.mgt.impl.cache.ManagedCache;
 import org.wso2.carbon.identity.mgt.impl.config.CacheConfig;
 
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.cache.Cache;
 import javax.cache.CacheManager;
 import javax.cache.configuration.MutableConfiguration;
 import javax.cache.expiry.AccessedExpiryPolicy;
 import javax.cache.expiry.Duration;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * Helper class for cache handling.
  */
 public class CacheHelper {
 
+    private static Logger log = LoggerFactory.getLogger(CacheHelper.class);
+
+    public static final int MIN_EXPIRE_TIME = 1;
     public static final int LOW_EXPIRE_TIME = 5;
     public static final int MEDIUM_EXPIRE_TIME = 15;
     public static final int HIGH_EXPIRE_TIME = 45;
 
+    private static final int REFRESH_AHEAD_THREADS = 2;
+
+    private static final String CACHE_STATISTICS_MBEAN_NAME =
+            "org.wso2.carbon.identity.mgt:type=IdentityCache,name=%s";
+
+    /**
+     * Caches whose statistics MBeans are registered, keyed by the cache name.
+     */
+    private static final Map<String, ManagedCache<?, ?>> statisticsMBeanCaches = new HashMap<>();
+
     /**
-     * Create a new cache from the given cache manager.
+     * Create a new cache from the given cache manager. The cache is bounded by the configured maximum capacity, if
+     * any, using the configured eviction policy, and refreshes accessed entries ahead of their expiry if a refresh
+     * ahead time is configured and a refresh executor is given. Entries reloaded within the primary read time after
+     * their invalidation are read from the primary data source.
      *
      * @param cacheName         Name of the cache.
      * @param keyClass          Type of the key class.
@@ -44,21 +75,31 @@ public class CacheHelper {
      * @param defaultExpiryTime Cache expire time in minutes.
      * @param cacheConfigMap    Cache config map.
      * @param cacheManager      Cache manager to use to create the cache.
+     * @param refreshExecutor   Executor on which the entries are refreshed, or null to disable refresh-ahead.
      * @param <K>               Type of the Key.
      * @param <V>               Type of the Value.
      * @return Created cache.
      */
-    public static <K, V> Cache<K, V> createCache(String cacheName, Class<K> keyClass, Class<V> valueClass,
+    public static <K, V> ManagedCache<K, V> createCache(String cacheName, Class<K> keyClass, Class<V> valueClass,
                                                  int defaultExpiryTime, Map<String, CacheConfig> cacheConfigMap,
-                                                 CacheManager cacheManager) {
+                                                 CacheManager cacheManager, Executor refreshExecutor) {
 
-        Duration cacheExpiry = new Duration(TimeUnit.MINUTES, getExpireTime(cacheConfigMap, cacheName,
-                defaultExpiryTime));
+        int expireTime = getExpireTime(cacheConfigMap, cacheName, defaultExpiryTime);
+        Duration cacheExpiry = new Duration(TimeUnit.MINUTES, expireTime);
 
         boolean isStatisticsEnabled = false;
+        EvictionPolicy<K> evictionPolicy = null;
+        int refreshAheadTime = 0;
+        int primaryReadTime = CacheConfig.DEFAULT_PRIMARY_READ_TIME;
 
-        if (cacheConfigMap.get(cacheName) != null) {
-            isStatisticsEnabled = cacheConfigMap.get(cacheName).isStatisticsEnabled();
+        CacheConfig cacheConfig = cacheConfigMap.get(cacheName);
+        if (cacheConfig != null) {
+            isStatisticsEnabled = cacheConfig.isStatisticsEnabled();
+            if (cacheConfig.getMaxCapacity() > 0) {
+                evictionPolicy = cacheConfig.getEvictionPolicy().create(cacheConfig.getMaxCapacity());
+            }
+            refreshAheadTime = cacheConfig.getRefreshAheadTime();
+            primaryReadTime = cacheConfig.getPrimaryReadTime();
         }
 
         MutableConfiguration<K, V> configuration = new MutableConfiguration<>();
@@ -67,7 +108,16 @@ public class CacheHelper {
                 .setExpiryPolicyFactory(AccessedExpiryPolicy.factoryOf(cacheExpiry))
                 .setStatisticsEnabled(isStatisticsEnabled);
 
-        return cacheManager.createCache(cacheName, configuration);
+        Cache<K, V> cache = cacheManager.createCache(cacheName, configuration);
+        ManagedCache<K, V> managedCache;
+        if (refreshAheadTime <= 0 || refreshExecutor == null) {
+            managedCache = new ManagedCache<>(cache, evictionPolicy);
+        } else {
+            managedCache = new ManagedCache<>(cache, evictionPolicy, TimeUnit.MINUTES.toSeconds(expireTime),
+                    refreshAheadTime, TimeUnit.SECONDS, refreshExecutor);
+        }
+        managedCache.setPrimaryReadTime(primaryReadTime, TimeUnit.SECONDS);
+        return managedCache;
     }
 
     /**
@@ -102,4 +152,81 @@ public class CacheHelper {
                 cacheConfigs.get(cacheName).getExpireTime() == 0 ? defaultExpireTime :
                 cacheConfigs.get(cacheName).getExpireTime();
     }
+
+    /**
+     * Register the statistics of the given cache in the platform MBean server. An MBean already registered for a
+     * cache of the same name is replaced.
+     *
+     * @param cache Cache to expose.
+     */
+    public static synchronized void registerStatisticsMBean(ManagedCache<?, ?> cache) {
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = getStatisticsMBeanName(cache.getName());
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(new CacheStatisticsMXBeanImpl(cache), objectName);
+            statisticsMBeanCaches.put(cache.getName(), cache);
+        } catch (JMException e) {
+            log.warn("Failed to register the statistics MBean of the cache - {}.", cache.getName(), e);
+        }
+    }
+
+    /**
+     * Unregister the statistics MBean of the given cache. Nothing is unregistered if the MBean has been replaced by
+     * one of another cache of the same name since.
+     *
+     * @param cache Cache whose statistics are no longer exposed.
+     */
+    public static synchronized void unregisterStatisticsMBean(ManagedCache<?, ?> cache) {
+
+        if (statisticsMBeanCaches.get(cache.getName()) != cache) {
+            return;
+        }
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = getStatisticsMBeanName(cache.getName());
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            statisticsMBeanCaches.remove(cache.getName());
+        } catch (JMException e) {
+            log.warn("Failed to unregister the statistics MBean of the cache - {}.", cache.getName(), e);
+        }
+    }
+
+    private static ObjectName getStatisticsMBeanName(String cacheName) throws JMException {
+
+        return new ObjectName(String.format(CACHE_STATISTICS_MBEAN_NAME, ObjectName.quote(cacheName)));
+    }
+
+    /**
+     * Create the executor which refreshes cache entries ahead of their expiry. The threads are started on the first
+     * refresh. The executor is to be shut down by its creator once the caches are no longer in use.
+     *
+     * @return Refresh-ahead executor.
+     */
+    public static ExecutorService createRefreshAheadExecutor() {
+
+        return Executors.newFixedThreadPool(REFRESH_AHEAD_THREADS, new RefreshAheadThreadFactory());
+    }
+
+    /**
+     * Creates the daemon threads of the refresh-ahead executor, so that they never block a shutdown.
+     */
+    private static class RefreshAheadThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            Thread thread = new Thread(runnable, "identity-cache-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.util;
+
+import org.wso2.carbon.identity.mgt.impl.config.FanOutConfig;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Helper class for the executors which call connectors in parallel.
+ */
+public class FanOutHelper {
+
+    private static final long KEEP_ALIVE_TIME = 60;
+
+    private FanOutHelper() {
+
+    }
+
+    /**
+     * Create a bounded executor for the given fan out config. Once all the threads are busy and the queue is full,
+     * the submitting thread runs the task itself, so a fan out is never rejected and never slower than calling the
+     * connectors sequentially.
+     *
+     * @param fanOutConfig     Fan out config.
+     * @param threadNamePrefix Prefix of the names of the executor threads.
+     * @return Created executor.
+     */
+    public static ExecutorService createExecutor(FanOutConfig fanOutConfig, String threadNamePrefix) {
+
+        BlockingQueue<Runnable> queue = fanOutConfig.getQueueSize() > 0 ?
+                new ArrayBlockingQueue<>(fanOutConfig.getQueueSize()) : new SynchronousQueue<>();
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(fanOutConfig.getPoolSize(), fanOutConfig.getPoolSize(),
+                KEEP_ALIVE_TIME, TimeUnit.SECONDS, queue, new FanOutThreadFactory(threadNamePrefix),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates the daemon threads of a fan out executor, so that they never block a shutdown.
+     */
+    private static class FanOutThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        private final String threadNamePrefix;
+
+        FanOutThreadFactory(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            Thread thread = new Thread(runnable, threadNamePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
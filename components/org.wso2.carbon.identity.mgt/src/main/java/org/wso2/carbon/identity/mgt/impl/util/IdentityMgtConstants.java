@@ -41,6 +41,10 @@ public class IdentityMgtConstants {
 
     public static final String UNIQUE_ID_RESOLVER_TYPE = "JDBCUniqueIdResolver";
 
+    public static final String LOOPBACK_INVALIDATION_BUS_TYPE = "LoopbackInvalidationBus";
+    public static final String DATAGRAM_INVALIDATION_BUS_TYPE = "DatagramInvalidationBus";
+    public static final String JDBC_INVALIDATION_BUS_TYPE = "JDBCInvalidationBus";
+
     public static final String CLAIM_ROOT_DIALECT = "http://wso2.org/claims";
 
     public static final String USERNAME_CLAIM = "http://wso2.org/claims/username";
@@ -21,8 +21,7 @@ package org.wso2.carbon.identity.mgt.impl.util;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -32,7 +31,7 @@ import java.util.Map;
 public class NamedPreparedStatement {
 
     private PreparedStatement preparedStatement;
-    private List<String> fields = new ArrayList<>();
+    private NamedQueryTemplate template;
 
     /**
      * Create a named prepared statement with repeated indexes.
@@ -45,29 +44,8 @@ public class NamedPreparedStatement {
     public NamedPreparedStatement(Connection connection, String sqlQuery, Map<String, Integer> repetition)
             throws SQLException {
 
-        int pos;
-        while ((pos = sqlQuery.indexOf(":")) != -1) {
-
-            int end = sqlQuery.substring(pos).indexOf(";");
-            if (end == -1) {
-                throw new SQLException("Cannot find the end of the placeholder.");
-            } else {
-                end += pos;
-            }
-
-            fields.add(sqlQuery.substring(pos + 1, end));
-            StringBuilder builder = new StringBuilder("?");
-
-            if (repetition.get(sqlQuery.substring(pos + 1, end)) != null) {
-                for (int i = 0; i < repetition.get(sqlQuery.substring(pos + 1, end)) - 1; i++) {
-                    builder.append(", ?");
-                }
-            }
-
-            sqlQuery = String.format("%s %s %s", sqlQuery.substring(0, pos), builder.toString(),
-                    sqlQuery.substring(end + 1));
-        }
-        preparedStatement = connection.prepareStatement(sqlQuery);
+        template = NamedQueryTemplate.getTemplate(sqlQuery, repetition);
+        preparedStatement = connection.prepareStatement(template.getSql());
     }
 
     /**
@@ -78,7 +56,7 @@ public class NamedPreparedStatement {
      * @throws SQLException SQL Exception.
      */
     public NamedPreparedStatement(Connection connection, String sqlQuery) throws SQLException {
-        this(connection, sqlQuery, new HashMap<>());
+        this(connection, sqlQuery, Collections.emptyMap());
     }
 
     /**
@@ -124,7 +102,8 @@ public class NamedPreparedStatement {
     }
 
     /**
-     * Replace repeated indexes with the list of values.
+     * Replace repeated indexes with the list of values. The indexes left over after the values, since the repetition
+     * is rounded up, are filled with the last value so that an <code>IN</code> list matches the same rows.
      *
      * @param name   Name of the index.
      * @param values Values to be replaced.
@@ -132,14 +111,18 @@ public class NamedPreparedStatement {
      */
     public void setString(String name, List<String> values) throws SQLException {
 
-        int indexInc = 0;
-        for (String value : values) {
-            preparedStatement.setString(getIndex(name) + indexInc, value);
-            indexInc++;
+        int index = getIndex(name);
+        int parameterCount = template.getParameterCount(name);
+        if (values.isEmpty() || values.size() > parameterCount) {
+            throw new SQLException("Cannot bind " + values.size() + " values to " + parameterCount +
+                    " parameters of " + name);
+        }
+        for (int i = 0; i < parameterCount; i++) {
+            preparedStatement.setString(index + i, values.get(Math.min(i, values.size() - 1)));
         }
     }
 
-    private int getIndex(String name) {
-        return fields.indexOf(name) + 1;
+    private int getIndex(String name) throws SQLException {
+        return template.getIndex(name);
     }
 }
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.util;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed form of an SQL query with named placeholders. Placeholders are written as <code>:name;</code> and are
+ * replaced with JDBC parameters. A repeated placeholder is replaced with as many parameters as its repetition,
+ * rounded up to the next power of two.
+ * <p>
+ * Templates are immutable and are cached by the query and the repetition shape, so a query is parsed only once.
+ * Rounding the repetition keeps the number of shapes of an <code>IN</code> list logarithmic in its length, so the
+ * driver or the pool can reuse its prepared statements. The extra parameters of a repeated placeholder are filled
+ * by {@link NamedPreparedStatement#setString(String, java.util.List)}.
+ * </p>
+ */
+public final class NamedQueryTemplate {
+
+    /**
+     * Maximum number of cached templates. Queries with a new shape are still parsed once the cache is full, but
+     * are not cached.
+     */
+    private static final int MAX_CACHED_TEMPLATES = 2048;
+
+    private static final Map<TemplateKey, NamedQueryTemplate> TEMPLATE_CACHE = new ConcurrentHashMap<>();
+
+    private final String sql;
+
+    private final Map<String, Integer> parameterIndexes;
+
+    private final Map<String, Integer> parameterCounts;
+
+    private NamedQueryTemplate(String sql, Map<String, Integer> parameterIndexes,
+                               Map<String, Integer> parameterCounts) {
+
+        this.sql = sql;
+        this.parameterIndexes = parameterIndexes;
+        this.parameterCounts = parameterCounts;
+    }
+
+    /**
+     * Get the template of a query, parsing it if it is not cached yet.
+     *
+     * @param sqlQuery   Query with named placeholders.
+     * @param repetition Repetition of the repeated placeholders.
+     * @return Template of the query.
+     * @throws SQLException If a placeholder is not terminated.
+     */
+    public static NamedQueryTemplate getTemplate(String sqlQuery, Map<String, Integer> repetition)
+            throws SQLException {
+
+        TemplateKey key = new TemplateKey(sqlQuery, repetition);
+        NamedQueryTemplate template = TEMPLATE_CACHE.get(key);
+        if (template == null) {
+            template = parse(sqlQuery, repetition);
+            if (TEMPLATE_CACHE.size() < MAX_CACHED_TEMPLATES) {
+                // Only the cached key keeps a copy of the caller's map.
+                TEMPLATE_CACHE.putIfAbsent(key.copy(), template);
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Parse a query in a single pass.
+     *
+     * @param sqlQuery   Query with named placeholders.
+     * @param repetition Repetition of the repeated placeholders.
+     * @return Template of the query.
+     * @throws SQLException If a placeholder is not terminated.
+     */
+    static NamedQueryTemplate parse(String sqlQuery, Map<String, Integer> repetition) throws SQLException {
+
+        StringBuilder sql = new StringBuilder(sqlQuery.length());
+        Map<String, Integer> parameterIndexes = new HashMap<>();
+        Map<String, Integer> parameterCounts = new HashMap<>();
+
+        int parameterIndex = 1;
+        int position = 0;
+        int start;
+        while ((start = sqlQuery.indexOf(':', position)) != -1) {
+
+            int end = sqlQuery.indexOf(';', start);
+            if (end == -1) {
+                throw new SQLException("Cannot find the end of the placeholder.");
+            }
+
+            String name = sqlQuery.substring(start + 1, end);
+
+            int parameterCount = getBucket(repetition.get(name));
+
+            // A placeholder used more than once is bound to its first occurrence.
+            if (parameterIndexes.putIfAbsent(name, parameterIndex) == null) {
+                parameterCounts.put(name, parameterCount);
+            }
+
+            sql.append(sqlQuery, position, start).append('?');
+            for (int i = 1; i < parameterCount; i++) {
+                sql.append(", ?");
+            }
+            parameterIndex += parameterCount;
+            position = end + 1;
+        }
+        sql.append(sqlQuery, position, sqlQuery.length());
+
+        return new NamedQueryTemplate(sql.toString(), Collections.unmodifiableMap(parameterIndexes),
+                Collections.unmodifiableMap(parameterCounts));
+    }
+
+    /**
+     * Round a repetition up to the next power of two.
+     *
+     * @param repetition Repetition of a placeholder, or <code>null</code> if it is not repeated.
+     * @return Number of JDBC parameters of the placeholder.
+     */
+    private static int getBucket(Integer repetition) {
+
+        if (repetition == null || repetition <= 1) {
+            return 1;
+        }
+        return Integer.highestOneBit(repetition - 1) << 1;
+    }
+
+    /**
+     * Get the JDBC query.
+     *
+     * @return Query with JDBC parameters.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Get the JDBC parameter index of a placeholder. The values of a repeated placeholder start at this index.
+     *
+     * @param name Name of the placeholder.
+     * @return Parameter index starting with 1.
+     * @throws SQLException If the query does not have the placeholder.
+     */
+    public int getIndex(String name) throws SQLException {
+
+        Integer index = parameterIndexes.get(name);
+        if (index == null) {
+            throw new SQLException("Unknown placeholder - " + name);
+        }
+        return index;
+    }
+
+    /**
+     * Get the number of JDBC parameters of a placeholder. This is the repetition of the placeholder rounded up to the
+     * next power of two.
+     *
+     * @param name Name of the placeholder.
+     * @return Number of JDBC parameters starting at the index of the placeholder.
+     * @throws SQLException If the query does not have the placeholder.
+     */
+    public int getParameterCount(String name) throws SQLException {
+
+        Integer count = parameterCounts.get(name);
+        if (count == null) {
+            throw new SQLException("Unknown placeholder - " + name);
+        }
+        return count;
+    }
+
+    /**
+     * Cache key of a template. Keys are equal if their repetitions fall in the same buckets. A key used for a lookup
+     * only refers to the map of the caller.
+     */
+    private static final class TemplateKey {
+
+        private final String sqlQuery;
+
+        private final Map<String, Integer> repetition;
+
+        private final int hashCode;
+
+        private TemplateKey(String sqlQuery, Map<String, Integer> repetition) {
+
+            this.sqlQuery = sqlQuery;
+            this.repetition = repetition;
+
+            int repetitionHash = 0;
+            for (Map.Entry<String, Integer> entry : repetition.entrySet()) {
+                repetitionHash += entry.getKey().hashCode() ^ getBucket(entry.getValue());
+            }
+            this.hashCode = 31 * sqlQuery.hashCode() + repetitionHash;
+        }
+
+        private TemplateKey copy() {
+
+            Map<String, Integer> buckets = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : repetition.entrySet()) {
+                buckets.put(entry.getKey(), getBucket(entry.getValue()));
+            }
+            return new TemplateKey(sqlQuery, buckets.isEmpty() ? Collections.emptyMap() : buckets);
+        }
+
+        private boolean hasSameBuckets(Map<String, Integer> other) {
+
+            if (repetition.size() != other.size()) {
+                return false;
+            }
+            for (Map.Entry<String, Integer> entry : repetition.entrySet()) {
+                if (!other.containsKey(entry.getKey())
+                        || getBucket(entry.getValue()) != getBucket(other.get(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey that = (TemplateKey) o;
+            return hashCode == that.hashCode && sqlQuery.equals(that.sqlQuery) && hasSameBuckets(that.repetition);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.sql.DataSource;
+
+/**
+ * Scope of a single identity store operation.
+ * <p>
+ * While a scope is open on a thread, the connections obtained through {@link #getConnection(DataSource)} on that
+ * thread share one pooled connection per data source, and the statements prepared on it. Closing a connection
+ * obtained from the scope only ends the unit of work: uncommitted changes are rolled back, the auto commit mode is
+ * restored and the prepared statements are kept for reuse. The pooled connection is returned when the outermost
+ * scope is closed.
+ * </p>
+ * The scope also records the data sources written during the operation, so that the reads that follow a write can
+ * be sent to the same data source instead of a replica. Reads can also be sent to the primary data source for a part
+ * of the operation through {@link #setPrimaryReadRequired(boolean)}.
+ * <p>
+ * Scopes are confined to the thread that opened them and can be nested.
+ */
+public final class OperationScope implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OperationScope.class);
+
+    /**
+     * Maximum number of statements kept for reuse on a shared connection.
+     */
+    private static final int MAX_CACHED_STATEMENTS = 64;
+
+    private static final ThreadLocal<OperationScope> CURRENT_SCOPE = new ThreadLocal<>();
+
+    private final Map<DataSource, SharedConnection> sharedConnections = new HashMap<>();
+
+    private final Set<DataSource> writtenDataSources = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private boolean primaryReadRequired;
+
+    private int depth = 1;
+
+    private OperationScope() {
+
+    }
+
+    /**
+     * Begin an operation scope on the current thread, or join the scope that is already open.
+     *
+     * @return Operation scope to be closed at the end of the operation.
+     */
+    public static OperationScope begin() {
+
+        OperationScope operationScope = CURRENT_SCOPE.get();
+        if (operationScope == null) {
+            operationScope = new OperationScope();
+            CURRENT_SCOPE.set(operationScope);
+        } else {
+            operationScope.depth++;
+        }
+        return operationScope;
+    }
+
+    /**
+     * Get a connection from the given data source. Inside an operation scope the connection is shared by all the
+     * units of work of the operation, otherwise a new connection is borrowed from the data source.
+     *
+     * @param dataSource Data source.
+     * @return Database connection to be closed at the end of the unit of work.
+     * @throws SQLException SQL Exception.
+     */
+    public static Connection getConnection(DataSource dataSource) throws SQLException {
+
+        OperationScope operationScope = CURRENT_SCOPE.get();
+        if (operationScope == null) {
+            return dataSource.getConnection();
+        }
+
+        SharedConnection sharedConnection = operationScope.sharedConnections.get(dataSource);
+        if (sharedConnection == null) {
+            sharedConnection = new SharedConnection(dataSource.getConnection());
+            operationScope.sharedConnections.put(dataSource, sharedConnection);
+        } else if (sharedConnection.borrowed || sharedConnection.broken) {
+            // Units of work of the same operation are not expected to overlap. If they do, the later one gets its
+            // own connection so that it does not interfere with the transaction of the other.
+            return dataSource.getConnection();
+        }
+        return sharedConnection.borrow();
+    }
+
+    /**
+     * Record that the current operation writes to the given data source. Does nothing outside an operation scope.
+     *
+     * @param dataSource Data source.
+     */
+    public static void recordWrite(DataSource dataSource) {
+
+        OperationScope operationScope = CURRENT_SCOPE.get();
+        if (operationScope != null) {
+            operationScope.writtenDataSources.add(dataSource);
+        }
+    }
+
+    /**
+     * Check whether the current operation has written to the given data source.
+     *
+     * @param dataSource Data source.
+     * @return True if the data source was written in the current operation scope.
+     */
+    public static boolean hasWritten(DataSource dataSource) {
+
+        OperationScope operationScope = CURRENT_SCOPE.get();
+        return operationScope != null && operationScope.writtenDataSources.contains(dataSource);
+    }
+
+    /**
+     * Require, or stop requiring, the reads of the current operation to be sent to the primary data source instead
+     * of a replica. Does nothing outside an operation scope.
+     *
+     * @param required True to send the reads to the primary data source.
+     * @return Whether the reads were required to be sent to the primary data source before, to be restored later.
+     */
+    public static boolean setPrimaryReadRequired(boolean required) {
+
+        OperationScope operationScope = CURRENT_SCOPE.get();
+        if (operationScope == null) {
+            return false;
+        }
+        boolean previous = operationScope.primaryReadRequired;
+        operationScope.primaryReadRequired = required;
+        return previous;
+    }
+
+    /**
+     * Check whether the reads of the current operation are required to be sent to the primary data source.
+     *
+     * @return True if the reads must not be sent to a replica.
+     */
+    public static boolean isPrimaryReadRequired() {
+
+        OperationScope operationScope = CURRENT_SCOPE.get();
+        return operationScope != null && operationScope.primaryReadRequired;
+    }
+
+    /**
+     * Find a data source, among the given ones, that the current operation already holds a connection to.
+     *
+     * @param dataSources Candidate data sources.
+     * @return Data source with a shared connection, or null if there is none.
+     */
+    public static DataSource findSharedDataSource(List<DataSource> dataSources) {
+
+        OperationScope operationScope = CURRENT_SCOPE.get();
+        if (operationScope == null) {
+            return null;
+        }
+        for (DataSource dataSource : dataSources) {
+            SharedConnection sharedConnection = operationScope.sharedConnections.get(dataSource);
+            if (sharedConnection != null && !sharedConnection.broken) {
+                return dataSource;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * End the operation scope. The shared connections are returned to the pool when the outermost scope is closed.
+     */
+    @Override
+    public void close() {
+
+        if (depth == 0 || --depth > 0) {
+            return;
+        }
+
+        CURRENT_SCOPE.remove();
+        for (SharedConnection sharedConnection : sharedConnections.values()) {
+            sharedConnection.close();
+        }
+        sharedConnections.clear();
+        writtenDataSources.clear();
+        primaryReadRequired = false;
+    }
+
+    /**
+     * Pooled connection shared by the units of work of an operation.
+     */
+    private static final class SharedConnection implements InvocationHandler {
+
+        private final Connection connection;
+
+        private final Connection connectionProxy;
+
+        private final Map<String, PreparedStatement> cachedStatements = new HashMap<>();
+
+        private final Set<PreparedStatement> statementsInUse = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private final List<PreparedStatement> uncachedStatements = new ArrayList<>();
+
+        private final Map<PreparedStatement, ResultSet> openResultSets = new IdentityHashMap<>();
+
+        private boolean autoCommit;
+
+        private boolean borrowed;
+
+        private boolean broken;
+
+        private SharedConnection(Connection connection) throws SQLException {
+
+            this.connection = connection;
+            this.autoCommit = connection.getAutoCommit();
+            this.connectionProxy = (Connection) Proxy.newProxyInstance(OperationScope.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        private Connection borrow() {
+
+            borrowed = true;
+            return connectionProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            switch (method.getName()) {
+                case "close":
+                    release();
+                    return null;
+                case "isClosed":
+                    return !borrowed || connection.isClosed();
+                case "prepareStatement":
+                    if (args.length == 1) {
+                        return prepareStatement((String) args[0]);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return invokeTarget(connection, method, args);
+        }
+
+        private PreparedStatement prepareStatement(String sql) throws SQLException {
+
+            PreparedStatement preparedStatement = cachedStatements.get(sql);
+            if (preparedStatement == null && cachedStatements.size() < MAX_CACHED_STATEMENTS) {
+                preparedStatement = connection.prepareStatement(sql);
+                cachedStatements.put(sql, preparedStatement);
+            }
+
+            if (preparedStatement == null || !statementsInUse.add(preparedStatement)) {
+                preparedStatement = connection.prepareStatement(sql);
+                uncachedStatements.add(preparedStatement);
+                return preparedStatement;
+            }
+            return reusableStatement(preparedStatement);
+        }
+
+        private PreparedStatement reusableStatement(PreparedStatement preparedStatement) {
+
+            return (PreparedStatement) Proxy.newProxyInstance(OperationScope.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        if ("close".equals(method.getName())) {
+                            if (statementsInUse.remove(preparedStatement)) {
+                                reset(preparedStatement);
+                            }
+                            return null;
+                        }
+                        Object result = invokeTarget(preparedStatement, method, args);
+                        if (result instanceof ResultSet) {
+                            openResultSets.put(preparedStatement, (ResultSet) result);
+                        }
+                        return result;
+                    });
+        }
+
+        /**
+         * Bring a cached statement back to the state of a newly prepared one. The result set is closed, and the
+         * parameters and the batch rows that a failed unit of work may have left behind are cleared. A statement
+         * that cannot be reset is not reused.
+         */
+        private void reset(PreparedStatement preparedStatement) throws SQLException {
+
+            ResultSet resultSet = openResultSets.remove(preparedStatement);
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                preparedStatement.clearBatch();
+                preparedStatement.clearParameters();
+            } catch (SQLException e) {
+                cachedStatements.values().remove(preparedStatement);
+                try {
+                    preparedStatement.close();
+                } catch (SQLException ex) {
+                    e.addSuppressed(ex);
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * End the unit of work on this connection, like returning a connection to the pool would.
+         */
+        private void release() throws SQLException {
+
+            if (!borrowed) {
+                return;
+            }
+            borrowed = false;
+
+            SQLException exception = null;
+            for (PreparedStatement preparedStatement : uncachedStatements) {
+                try {
+                    preparedStatement.close();
+                } catch (SQLException e) {
+                    exception = addException(exception, e);
+                }
+            }
+            uncachedStatements.clear();
+            for (PreparedStatement preparedStatement : statementsInUse) {
+                try {
+                    reset(preparedStatement);
+                } catch (SQLException e) {
+                    exception = addException(exception, e);
+                }
+            }
+            statementsInUse.clear();
+            openResultSets.clear();
+
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+                if (connection.getAutoCommit() != autoCommit) {
+                    connection.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                // The state of the connection is unknown, so it is not shared any further.
+                broken = true;
+                exception = addException(exception, e);
+            }
+
+            if (exception != null) {
+                throw exception;
+            }
+        }
+
+        private static SQLException addException(SQLException exception, SQLException e) {
+
+            if (exception == null) {
+                return e;
+            }
+            exception.addSuppressed(e);
+            return exception;
+        }
+
+        private void close() {
+
+            try {
+                release();
+            } catch (SQLException e) {
+                log.debug("Exception occurred while releasing the shared connection.", e);
+            }
+
+            for (PreparedStatement preparedStatement : cachedStatements.values()) {
+                try {
+                    preparedStatement.close();
+                } catch (SQLException e) {
+                    log.debug("Exception occurred while closing the cached statement.", e);
+                }
+            }
+            cachedStatements.clear();
+
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.error("Failed to close the shared connection.", e);
+            }
+        }
+
+        private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
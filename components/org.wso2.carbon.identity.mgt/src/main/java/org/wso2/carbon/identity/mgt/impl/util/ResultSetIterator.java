@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.impl.util;
+
+import org.wso2.carbon.identity.mgt.exception.StoreException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily reads entities from a forward-only result set. The rows of an entity must be consecutive in the result set,
+ * so that only the entity being read is held in memory. The underlying unit of work is closed when the result set is
+ * exhausted or when the iterator is closed.
+ *
+ * @param <T> Type of the entity.
+ */
+public class ResultSetIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private final UnitOfWork unitOfWork;
+    private final ResultSet resultSet;
+    private final String keyColumn;
+    private final Function<String, T> entityFactory;
+    private final RowReader<T> rowReader;
+
+    private boolean started;
+    private boolean rowAvailable;
+    private boolean closed;
+
+    /**
+     * Create a result set iterator.
+     *
+     * @param unitOfWork    Unit of work the result set belongs to.
+     * @param resultSet     Result set ordered by the key column.
+     * @param keyColumn     Column which identifies the entity of a row.
+     * @param entityFactory Creates an empty entity for a key.
+     * @param rowReader     Adds the values of a row to its entity.
+     */
+    public ResultSetIterator(UnitOfWork unitOfWork, ResultSet resultSet, String keyColumn,
+                             Function<String, T> entityFactory, RowReader<T> rowReader) {
+
+        this.unitOfWork = unitOfWork;
+        this.resultSet = resultSet;
+        this.keyColumn = keyColumn;
+        this.entityFactory = entityFactory;
+        this.rowReader = rowReader;
+        unitOfWork.queueToClose(resultSet);
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        if (!started) {
+            started = true;
+            advance();
+        }
+        return rowAvailable;
+    }
+
+    @Override
+    public T next() {
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        try {
+            String key = resultSet.getString(keyColumn);
+            T entity = entityFactory.apply(key);
+            do {
+                rowReader.read(entity, resultSet);
+                advance();
+            } while (rowAvailable && key.equals(resultSet.getString(keyColumn)));
+            return entity;
+        } catch (SQLException e) {
+            close();
+            throw new StoreException("Error while reading the result set.", e);
+        }
+    }
+
+    /**
+     * Get a sequential stream over the remaining entities. Closing the stream closes this iterator.
+     *
+     * @return Stream of entities.
+     */
+    public Stream<T> stream() {
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED |
+                Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    @Override
+    public void close() {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        rowAvailable = false;
+
+        try {
+            unitOfWork.close();
+        } catch (SQLException e) {
+            throw new StoreException("Error while closing the result set.", e);
+        }
+    }
+
+    private void advance() {
+
+        if (closed) {
+            return;
+        }
+
+        try {
+            rowAvailable = resultSet.next();
+        } catch (SQLException e) {
+            close();
+            throw new StoreException("Error while reading the result set.", e);
+        }
+
+        // Release the connection as soon as the last row is read.
+        if (!rowAvailable) {
+            close();
+        }
+    }
+
+    /**
+     * Adds the values of the current row of a result set to an entity.
+     *
+     * @param <T> Type of the entity.
+     */
+    @FunctionalInterface
+    public interface RowReader<T> {
+
+        /**
+         * Read the current row into the entity.
+         *
+         * @param entity    Entity the row belongs to.
+         * @param resultSet Result set positioned on the row.
+         * @throws SQLException SQL Exception.
+         */
+        void read(T entity, ResultSet resultSet) throws SQLException;
+    }
+}
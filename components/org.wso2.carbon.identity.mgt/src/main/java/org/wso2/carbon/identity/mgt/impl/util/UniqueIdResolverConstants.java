@@ -26,6 +26,11 @@ public class UniqueIdResolverConstants {
     public static final String IDENTITY_STORE_CONNECTOR = "I";
     public static final String CREDENTIAL_STORE_CONNECTOR = "C";
     public static final String DATA_SOURCE = "dataSource";
+    public static final String READ_DATA_SOURCES = "readDataSources";
+    public static final String BATCH_SIZE = "batchSize";
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final String FETCH_SIZE = "fetchSize";
+    public static final int DEFAULT_FETCH_SIZE = 1000;
 
 
     /**
@@ -20,8 +20,10 @@ import org.wso2.carbon.identity.mgt.exception.GroupNotFoundException;
 import org.wso2.carbon.identity.mgt.exception.UniqueIdResolverException;
 import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * UniqueIdResolver interface.
@@ -45,6 +47,28 @@ public interface UniqueIdResolver {
      */
     DomainUser getUser(String domainUserId, int domainId) throws UniqueIdResolverException, UserNotFoundException;
 
+    /**
+     * Get the unique users of many domain user ids at once. Resolvers backed by a store which supports bulk reads
+     * should override this to retrieve all the users in a single call.
+     *
+     * @param domainUserIds Domain user ids.
+     * @param domainId      Id of the domain.
+     * @return Unique users. Users which do not exist are omitted.
+     * @throws UniqueIdResolverException Unique Id Resolver Exception.
+     */
+    default List<DomainUser> getUsers(List<String> domainUserIds, int domainId) throws UniqueIdResolverException {
+
+        List<DomainUser> domainUsers = new ArrayList<>();
+        for (String domainUserId : domainUserIds) {
+            try {
+                domainUsers.add(getUser(domainUserId, domainId));
+            } catch (UserNotFoundException e) {
+                // Users which do not exist are omitted.
+            }
+        }
+        return domainUsers;
+    }
+
     /**
      * Get global unique Id for a connector specific user Id.
      *
@@ -86,6 +110,32 @@ public interface UniqueIdResolver {
      */
     List<DomainUser> listDomainUsers(int offset, int length, int domainId) throws UniqueIdResolverException;
 
+    /**
+     * List a set of users ordered by the domain user id, starting after the given domain user id.
+     *
+     * @param afterDomainUserId Domain user id to start after or null to start from the first user.
+     * @param length            Number of users to retrieve.
+     * @param domainId          Domain identifier.
+     * @return list of unique users ordered by the domain user id.
+     * @throws UniqueIdResolverException Unique Id Resolver Exception.
+     */
+    default List<DomainUser> listDomainUsers(String afterDomainUserId, int length, int domainId)
+            throws UniqueIdResolverException {
+        throw new UniqueIdResolverException("Cursor based listing of users is not supported.");
+    }
+
+    /**
+     * Stream all users of a domain ordered by the domain user id. The users are read lazily and the returned stream
+     * holds resources until it is exhausted or closed.
+     *
+     * @param domainId Domain identifier.
+     * @return stream of unique users.
+     * @throws UniqueIdResolverException Unique Id Resolver Exception.
+     */
+    default Stream<DomainUser> streamDomainUsers(int domainId) throws UniqueIdResolverException {
+        throw new UniqueIdResolverException("Streaming of users is not supported.");
+    }
+
     /**
      * Get unique group for a unique group Id.
      *
@@ -126,6 +176,32 @@ public interface UniqueIdResolver {
      */
     List<DomainGroup> listGroups(int offset, int length, int domainId) throws UniqueIdResolverException;
 
+    /**
+     * List a set of groups ordered by the domain group id, starting after the given domain group id.
+     *
+     * @param afterDomainGroupId Domain group id to start after or null to start from the first group.
+     * @param length             Number of groups to retrieve.
+     * @param domainId           Domain identifier.
+     * @return list of unique groups ordered by the domain group id.
+     * @throws UniqueIdResolverException Unique Id Resolver Exception.
+     */
+    default List<DomainGroup> listGroups(String afterDomainGroupId, int length, int domainId)
+            throws UniqueIdResolverException {
+        throw new UniqueIdResolverException("Cursor based listing of groups is not supported.");
+    }
+
+    /**
+     * Stream all groups of a domain ordered by the domain group id. The groups are read lazily and the returned
+     * stream holds resources until it is exhausted or closed.
+     *
+     * @param domainId Domain identifier.
+     * @return stream of unique groups.
+     * @throws UniqueIdResolverException Unique Id Resolver Exception.
+     */
+    default Stream<DomainGroup> streamGroups(int domainId) throws UniqueIdResolverException {
+        throw new UniqueIdResolverException("Streaming of groups is not supported.");
+    }
+
     /**
      * Get global unique Ids for a connector specific group Ids.
      *
@@ -174,7 +250,7 @@ public interface UniqueIdResolver {
     String addUser(DomainUser domainUser, int domainId) throws UniqueIdResolverException;
 
     /**
-     * Add users.
+     * Add users. Either all of the users are added or none of them.
      *
      * @param domainUsers Globally unique users.
      * @param domainId Domain identifier.
@@ -211,7 +287,7 @@ public interface UniqueIdResolver {
     String addGroup(DomainGroup domainGroup, int domainId) throws UniqueIdResolverException;
 
     /**
-     * Add groups.
+     * Add groups. Either all of the groups are added or none of them.
      *
      * @param domainGroups Globally unique groups.
      * @param domainId Domain identifier.
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBus;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBusConfig;
+import org.wso2.carbon.identity.mgt.exception.InvalidationBusException;
+import org.wso2.carbon.identity.mgt.impl.cache.AbstractInvalidationBus;
+import org.wso2.carbon.identity.mgt.impl.cache.AuthenticationResultCache;
+import org.wso2.carbon.identity.mgt.impl.cache.LoopbackInvalidationBus;
+import org.wso2.carbon.identity.mgt.impl.config.CacheConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authentication Result Cache Tests.
+ */
+public class AuthenticationResultCacheTests {
+
+    private static final String AUTHORIZATION_HEADER = "Basic YWRtaW46YWRtaW4=";
+
+    private static final String PRINCIPAL = "admin";
+
+    private static final String UNIQUE_USER_ID = "1.user1";
+
+    @Test
+    public void testCachedAuthenticationIsReturned() {
+
+        AuthenticationResultCache cache = new AuthenticationResultCache(60, TimeUnit.SECONDS, 100);
+        String key = cache.getKey(AUTHORIZATION_HEADER);
+        Assert.assertNull(cache.get(key));
+
+        Assert.assertTrue(cache.put(key, PRINCIPAL, UNIQUE_USER_ID, cache.getGeneration()));
+
+        Assert.assertEquals(cache.get(key), UNIQUE_USER_ID);
+        Assert.assertNull(cache.get(cache.getKey("Basic YWRtaW46b3RoZXI=")));
+    }
+
+    @Test
+    public void testExpiredAuthenticationIsNotReturned() throws InterruptedException {
+
+        AuthenticationResultCache cache = new AuthenticationResultCache(50, TimeUnit.MILLISECONDS, 100);
+        String key = cache.getKey(AUTHORIZATION_HEADER);
+        cache.put(key, PRINCIPAL, UNIQUE_USER_ID, cache.getGeneration());
+
+        Thread.sleep(100);
+
+        Assert.assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testExpiryTimeOfTheConfigIsInMinutesUnlessGivenInSeconds() {
+
+        CacheConfig cacheConfig = new CacheConfig();
+        Assert.assertEquals(new AuthenticationResultCache(cacheConfig).getExpiryTime(TimeUnit.SECONDS), 60);
+
+        cacheConfig.setExpireTime(5);
+        Assert.assertEquals(new AuthenticationResultCache(cacheConfig).getExpiryTime(TimeUnit.MINUTES), 5);
+
+        cacheConfig.setExpireTimeSeconds(30);
+        Assert.assertEquals(new AuthenticationResultCache(cacheConfig).getExpiryTime(TimeUnit.SECONDS), 30);
+    }
+
+    @Test
+    public void testCredentialUpdateEvictsAuthentications() {
+
+        AuthenticationResultCache cache = new AuthenticationResultCache(60, TimeUnit.SECONDS, 100);
+        String key = cache.getKey(AUTHORIZATION_HEADER);
+        cache.put(key, PRINCIPAL, UNIQUE_USER_ID, cache.getGeneration());
+
+        cache.userCredentialsUpdated(UNIQUE_USER_ID);
+
+        Assert.assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testFailedAuthenticationEvictsAuthenticationsOfPrincipal() {
+
+        AuthenticationResultCache cache = new AuthenticationResultCache(60, TimeUnit.SECONDS, 100);
+        String key = cache.getKey(AUTHORIZATION_HEADER);
+        cache.put(key, PRINCIPAL, UNIQUE_USER_ID, cache.getGeneration());
+
+        cache.removePrincipal("ADMIN");
+
+        Assert.assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testAuthenticationRacingWithCredentialUpdateIsNotCached() {
+
+        AuthenticationResultCache cache = new AuthenticationResultCache(60, TimeUnit.SECONDS, 100);
+        String key = cache.getKey(AUTHORIZATION_HEADER);
+
+        // The credentials are updated after the authentication started and before its result is cached.
+        long generation = cache.getGeneration();
+        cache.userCredentialsUpdated(UNIQUE_USER_ID);
+
+        Assert.assertFalse(cache.put(key, PRINCIPAL, UNIQUE_USER_ID, generation));
+        Assert.assertNull(cache.get(key));
+
+        // Authentications of the other users are not affected.
+        Assert.assertTrue(cache.put(cache.getKey("Basic dXNlcjI6dXNlcjI="), "user2", "1.user2", generation));
+    }
+
+    @Test
+    public void testEvictionIsBroadcastToOtherNodes() throws InvalidationBusException {
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put(LoopbackInvalidationBus.GROUP, "testEvictionIsBroadcastToOtherNodes");
+        // Keep the batch open until the bus is closed.
+        properties.put(AbstractInvalidationBus.BATCH_INTERVAL, "60000");
+
+        InvalidationBus publisherBus = new LoopbackInvalidationBus();
+        publisherBus.init(new InvalidationBusConfig("LoopbackInvalidationBus", properties));
+        InvalidationBus subscriberBus = new LoopbackInvalidationBus();
+        subscriberBus.init(new InvalidationBusConfig("LoopbackInvalidationBus", properties));
+
+        AuthenticationResultCache publisher = new AuthenticationResultCache(60, TimeUnit.SECONDS, 100);
+        publisher.setInvalidationBus(publisherBus);
+        AuthenticationResultCache subscriber = new AuthenticationResultCache(60, TimeUnit.SECONDS, 100);
+        subscriber.setInvalidationBus(subscriberBus);
+
+        String key = subscriber.getKey(AUTHORIZATION_HEADER);
+        long generation = subscriber.getGeneration();
+        subscriber.put(key, PRINCIPAL, UNIQUE_USER_ID, generation);
+
+        publisher.userCredentialsUpdated(UNIQUE_USER_ID);
+        publisherBus.close();
+        subscriberBus.close();
+
+        Assert.assertNull(subscriber.get(key));
+        Assert.assertFalse(subscriber.put(key, PRINCIPAL, UNIQUE_USER_ID, generation));
+    }
+}
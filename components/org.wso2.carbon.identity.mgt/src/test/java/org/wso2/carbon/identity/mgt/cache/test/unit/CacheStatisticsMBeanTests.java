@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.impl.cache.ManagedCache;
+import org.wso2.carbon.identity.mgt.impl.util.CacheHelper;
+import org.wso2.carbon.identity.mgt.test.util.InMemoryCache;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Cache Statistics MBean Tests.
+ */
+public class CacheStatisticsMBeanTests {
+
+    @Test
+    public void testStatisticsMBeanIsUnregistered() throws JMException {
+
+        ManagedCache<String, String> cache = new ManagedCache<>(new InMemoryCache<>(
+                "testStatisticsMBeanIsUnregistered"), null);
+
+        CacheHelper.registerStatisticsMBean(cache);
+        Assert.assertTrue(isRegistered(cache.getName()));
+
+        CacheHelper.unregisterStatisticsMBean(cache);
+        Assert.assertFalse(isRegistered(cache.getName()));
+    }
+
+    @Test
+    public void testReplacedStatisticsMBeanIsNotUnregistered() throws JMException {
+
+        String cacheName = "testReplacedStatisticsMBeanIsNotUnregistered";
+        ManagedCache<String, String> oldCache = new ManagedCache<>(new InMemoryCache<>(cacheName), null);
+        ManagedCache<String, String> newCache = new ManagedCache<>(new InMemoryCache<>(cacheName), null);
+
+        CacheHelper.registerStatisticsMBean(oldCache);
+        CacheHelper.registerStatisticsMBean(newCache);
+
+        // The store which owned the old cache is shut down after its replacement was created.
+        CacheHelper.unregisterStatisticsMBean(oldCache);
+        Assert.assertTrue(isRegistered(cacheName));
+
+        CacheHelper.unregisterStatisticsMBean(newCache);
+        Assert.assertFalse(isRegistered(cacheName));
+    }
+
+    private static boolean isRegistered(String cacheName) throws JMException {
+
+        return ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(String.format(
+                "org.wso2.carbon.identity.mgt:type=IdentityCache,name=%s", ObjectName.quote(cacheName))));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.impl.cache.EvictionPolicy;
+import org.wso2.carbon.identity.mgt.impl.cache.SegmentedLruEvictionPolicy;
+import org.wso2.carbon.identity.mgt.impl.cache.TinyLfuEvictionPolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Eviction Policy Tests.
+ */
+public class EvictionPolicyTests {
+
+    @Test
+    public void testSegmentedLruKeepsAccessedEntries() {
+
+        EvictionPolicy<String> evictionPolicy = new SegmentedLruEvictionPolicy<>(10);
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(evictionPolicy.recordWrite("key" + i).isEmpty());
+        }
+        evictionPolicy.recordAccess("key0");
+
+        List<String> victims = evictionPolicy.recordWrite("key10");
+        Assert.assertEquals(victims.size(), 1);
+        Assert.assertEquals(victims.get(0), "key1");
+        Assert.assertEquals(evictionPolicy.size(), 10);
+    }
+
+    @Test
+    public void testTinyLfuRejectsScan() {
+
+        EvictionPolicy<String> evictionPolicy = new TinyLfuEvictionPolicy<>(100);
+
+        for (int i = 0; i < 100; i++) {
+            evictionPolicy.recordWrite("hot" + i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                evictionPolicy.recordAccess("hot" + i);
+            }
+        }
+
+        List<String> victims = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            victims.addAll(evictionPolicy.recordWrite("scan" + i));
+        }
+
+        Assert.assertEquals(evictionPolicy.size(), 100);
+        long evictedHotEntries = victims.stream().filter(key -> key.startsWith("hot")).count();
+        Assert.assertTrue(evictedHotEntries <= 1, "Frequently used entries should survive a scan.");
+    }
+
+    @Test
+    public void testRemovalReleasesCapacity() {
+
+        EvictionPolicy<String> evictionPolicy = new TinyLfuEvictionPolicy<>(10);
+
+        for (int i = 0; i < 10; i++) {
+            evictionPolicy.recordWrite("key" + i);
+        }
+        evictionPolicy.recordRemoval("key5");
+
+        Assert.assertEquals(evictionPolicy.size(), 9);
+        Assert.assertTrue(evictionPolicy.recordWrite("key10").isEmpty());
+    }
+}
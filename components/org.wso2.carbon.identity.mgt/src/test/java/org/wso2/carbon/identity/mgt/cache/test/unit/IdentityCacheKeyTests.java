@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.impl.cache.IdentityCacheKey;
+
+/**
+ * Identity Cache Key Tests.
+ */
+public class IdentityCacheKeyTests {
+
+    @Test
+    public void testKeysWithCollidingHashCodesAreDistinct() {
+
+        // "Aa" and "BB" have the same string hash code.
+        IdentityCacheKey first = new IdentityCacheKey("PRIMARY", "Aa");
+        IdentityCacheKey second = new IdentityCacheKey("PRIMARY", "BB");
+
+        Assert.assertEquals(first.hashCode(), second.hashCode());
+        Assert.assertNotEquals(first, second);
+        Assert.assertEquals(first, new IdentityCacheKey("PRIMARY", "Aa"));
+    }
+
+    @Test
+    public void testParseRoundTrip() {
+
+        IdentityCacheKey key = new IdentityCacheKey("PRI:MARY", "12:ab.cd");
+        IdentityCacheKey parsed = IdentityCacheKey.parse(key.toString());
+
+        Assert.assertEquals(parsed, key);
+        Assert.assertEquals(parsed.getDomainName(), "PRI:MARY");
+        Assert.assertEquals(parsed.getUniqueId(), "12:ab.cd");
+        Assert.assertNotEquals(new IdentityCacheKey("A", "BC").toString(),
+                new IdentityCacheKey("AB", "C").toString());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testParseInvalidKey() {
+
+        IdentityCacheKey.parse("10:short");
+    }
+}
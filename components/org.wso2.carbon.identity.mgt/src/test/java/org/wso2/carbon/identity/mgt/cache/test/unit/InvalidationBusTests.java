@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.cache.CacheInvalidation;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBus;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBusConfig;
+import org.wso2.carbon.identity.mgt.exception.InvalidationBusException;
+import org.wso2.carbon.identity.mgt.impl.cache.AbstractInvalidationBus;
+import org.wso2.carbon.identity.mgt.impl.cache.LoopbackInvalidationBus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Invalidation Bus Tests.
+ */
+public class InvalidationBusTests {
+
+    @Test
+    public void testLoopbackBusDeliversCoalescedInvalidations() throws InvalidationBusException {
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put(LoopbackInvalidationBus.GROUP, "testLoopbackBusDeliversCoalescedInvalidations");
+        // Keep the batch open until the bus is closed.
+        properties.put(AbstractInvalidationBus.BATCH_INTERVAL, "60000");
+
+        InvalidationBus publisher = new LoopbackInvalidationBus();
+        publisher.init(new InvalidationBusConfig("LoopbackInvalidationBus", properties));
+        InvalidationBus subscriber = new LoopbackInvalidationBus();
+        subscriber.init(new InvalidationBusConfig("LoopbackInvalidationBus", properties));
+
+        List<CacheInvalidation> published = new ArrayList<>();
+        List<CacheInvalidation> received = new ArrayList<>();
+        publisher.subscribe(published::addAll);
+        subscriber.subscribe(received::addAll);
+
+        publisher.publish(CacheInvalidation.of("userCache", "user1"));
+        publisher.publish(CacheInvalidation.of("userCache", "user1"));
+        publisher.publish(CacheInvalidation.of("groupCache", "group1"));
+        publisher.publish(CacheInvalidation.all("groupCache"));
+        publisher.publish(CacheInvalidation.of("groupCache", "group2"));
+        publisher.close();
+        subscriber.close();
+
+        Assert.assertEquals(received, Arrays.asList(CacheInvalidation.of("userCache", "user1"),
+                CacheInvalidation.all("groupCache")));
+        Assert.assertTrue(published.isEmpty());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.exception.IdentityStoreException;
+import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
+import org.wso2.carbon.identity.mgt.impl.cache.ManagedCache;
+import org.wso2.carbon.identity.mgt.test.util.InMemoryCache;
+
+/**
+ * Tests of the loads which overlap with invalidations of the managed cache.
+ */
+public class InvalidationDuringLoadTests {
+
+    private static final String KEY = "user1";
+
+    private static final String OTHER_KEY = "user2";
+
+    private ManagedCache<String, String> cache;
+
+    @BeforeMethod
+    public void initMethod() {
+
+        cache = new ManagedCache<>(new InMemoryCache<>("userCache"), null);
+    }
+
+    @Test
+    public void testLoadIsCachedWhenAnotherKeyIsInvalidated() throws Exception {
+
+        Assert.assertEquals(cache.<IdentityStoreException, UserNotFoundException>get(KEY, key -> {
+            cache.remove(OTHER_KEY);
+            return "value";
+        }), "value");
+        Assert.assertEquals(cache.get(KEY), "value");
+    }
+
+    @Test
+    public void testLoadIsDiscardedWhenItsKeyIsInvalidated() throws Exception {
+
+        Assert.assertEquals(cache.<IdentityStoreException, UserNotFoundException>get(KEY, key -> {
+            cache.remove(KEY);
+            return "value";
+        }), "value");
+
+        Assert.assertNull(cache.get(KEY));
+    }
+
+    @Test
+    public void testLoadIsDiscardedWhenTheCacheIsInvalidated() throws Exception {
+
+        Assert.assertEquals(cache.<IdentityStoreException, UserNotFoundException>get(KEY, key -> {
+            cache.removeAll();
+            return "value";
+        }), "value");
+
+        Assert.assertNull(cache.get(KEY));
+    }
+
+    @Test
+    public void testPutIfNotInvalidatedChecksOnlyTheVersionOfItsKey() {
+
+        long version = cache.getVersion(KEY);
+        cache.remove(OTHER_KEY);
+        Assert.assertTrue(cache.putIfNotInvalidated(KEY, "value", version));
+        Assert.assertEquals(cache.get(KEY), "value");
+
+        version = cache.getVersion(KEY);
+        cache.remove(KEY);
+        Assert.assertFalse(cache.putIfNotInvalidated(KEY, "other", version));
+        Assert.assertNull(cache.get(KEY));
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache.test.unit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.h2.tools.RunScript;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.datasource.core.api.DataSourceService;
+import org.wso2.carbon.identity.mgt.cache.CacheInvalidation;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBus;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBusConfig;
+import org.wso2.carbon.identity.mgt.impl.cache.AbstractInvalidationBus;
+import org.wso2.carbon.identity.mgt.impl.cache.JDBCInvalidationBus;
+import org.wso2.carbon.identity.mgt.impl.internal.IdentityMgtDataHolder;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tests of the JDBC invalidation bus against an in-memory H2 database created with the H2 script of the feature.
+ */
+public class JDBCInvalidationBusTests {
+
+    private static final Path SCHEMA = Paths.get("..", "..", "feature", "org.wso2.carbon.identity.mgt.feature",
+            "resources", "dbscripts", "identity-mgt", "h2.sql");
+
+    private static final String DATA_SOURCE_NAME = "WSO2_CARBON_DB";
+
+    private static int databaseCount;
+
+    private JdbcDataSource dataSource;
+
+    private Connection keepAliveConnection;
+
+    private List<InvalidationBus> invalidationBuses;
+
+    @BeforeMethod
+    public void initMethod() throws Exception {
+
+        // A database of its own for each test, kept open until the test ends.
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:invalidation" + (++databaseCount));
+        keepAliveConnection = dataSource.getConnection();
+        try (Reader schema = Files.newBufferedReader(SCHEMA, StandardCharsets.UTF_8)) {
+            RunScript.execute(keepAliveConnection, schema);
+        }
+
+        DataSourceService dataSourceService = Mockito.mock(DataSourceService.class);
+        Mockito.when(dataSourceService.getDataSource(DATA_SOURCE_NAME)).thenReturn(dataSource);
+        IdentityMgtDataHolder.getInstance().setDataSourceService(dataSourceService);
+
+        invalidationBuses = new ArrayList<>();
+    }
+
+    @AfterMethod
+    public void destroyMethod() throws SQLException {
+
+        invalidationBuses.forEach(InvalidationBus::close);
+        keepAliveConnection.close();
+    }
+
+    @Test
+    public void testInvalidationsOfOtherNodesAreDelivered() throws Exception {
+
+        InvalidationBus publisher = createInvalidationBus();
+        InvalidationBus subscriber = createInvalidationBus();
+        List<CacheInvalidation> published = subscribe(publisher);
+        List<CacheInvalidation> received = subscribe(subscriber);
+
+        publisher.publish(CacheInvalidation.of("userCache", "user1"));
+        publisher.publish(CacheInvalidation.all("groupCache"));
+
+        waitFor(() -> received.size() == 2);
+        Assert.assertEquals(received, Arrays.asList(CacheInvalidation.of("userCache", "user1"),
+                CacheInvalidation.all("groupCache")));
+
+        // Later polls read the rows again while the gaps are waited for, but deliver each row once.
+        TimeUnit.MILLISECONDS.sleep(200);
+        Assert.assertEquals(received.size(), 2);
+        Assert.assertTrue(published.isEmpty());
+    }
+
+    @Test
+    public void testRowsCommittedOutOfIdOrderAreDelivered() throws Exception {
+
+        List<CacheInvalidation> received = subscribe(createInvalidationBus());
+
+        // The first transaction takes the lower id but commits after the second one.
+        try (Connection slowConnection = dataSource.getConnection()) {
+            slowConnection.setAutoCommit(false);
+            insertInvalidation(slowConnection, "user1");
+
+            insertInvalidation(keepAliveConnection, "user2");
+            waitFor(() -> received.contains(CacheInvalidation.of("userCache", "user2")));
+
+            slowConnection.commit();
+        }
+
+        waitFor(() -> received.contains(CacheInvalidation.of("userCache", "user1")));
+        TimeUnit.MILLISECONDS.sleep(200);
+        Assert.assertEquals(received, Arrays.asList(CacheInvalidation.of("userCache", "user2"),
+                CacheInvalidation.of("userCache", "user1")));
+    }
+
+    @Test
+    public void testRolledBackIdsAreGivenUp() throws Exception {
+
+        Map<String, String> properties = Collections.singletonMap(JDBCInvalidationBus.GAP_TIMEOUT, "0");
+        List<CacheInvalidation> received = subscribe(createInvalidationBus(properties));
+
+        try (Connection rolledBackConnection = dataSource.getConnection()) {
+            rolledBackConnection.setAutoCommit(false);
+            insertInvalidation(rolledBackConnection, "user1");
+            insertInvalidation(keepAliveConnection, "user2");
+            rolledBackConnection.rollback();
+        }
+        insertInvalidation(keepAliveConnection, "user3");
+
+        waitFor(() -> received.size() == 2);
+        TimeUnit.MILLISECONDS.sleep(200);
+        Assert.assertEquals(received, Arrays.asList(CacheInvalidation.of("userCache", "user2"),
+                CacheInvalidation.of("userCache", "user3")));
+    }
+
+    private InvalidationBus createInvalidationBus() throws Exception {
+
+        return createInvalidationBus(Collections.emptyMap());
+    }
+
+    private InvalidationBus createInvalidationBus(Map<String, String> extraProperties) throws Exception {
+
+        Map<String, String> properties = new HashMap<>(extraProperties);
+        properties.put(JDBCInvalidationBus.DATA_SOURCE, DATA_SOURCE_NAME);
+        properties.put(JDBCInvalidationBus.POLL_INTERVAL, "20");
+        properties.put(AbstractInvalidationBus.BATCH_INTERVAL, "10");
+
+        InvalidationBus invalidationBus = new JDBCInvalidationBus();
+        invalidationBus.init(new InvalidationBusConfig("JDBCInvalidationBus", properties));
+        invalidationBuses.add(invalidationBus);
+        return invalidationBus;
+    }
+
+    private static List<CacheInvalidation> subscribe(InvalidationBus invalidationBus) {
+
+        List<CacheInvalidation> received = new CopyOnWriteArrayList<>();
+        invalidationBus.subscribe(received::addAll);
+        return received;
+    }
+
+    private static void insertInvalidation(Connection connection, String key) throws SQLException {
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement("INSERT INTO IDM_CACHE_INVALIDATION " +
+                "(NODE_ID, CACHE_NAME, CACHE_KEY, CREATED_TIME) VALUES (?, ?, ?, ?)")) {
+            preparedStatement.setString(1, "otherNode");
+            preparedStatement.setString(2, "userCache");
+            preparedStatement.setString(3, key);
+            preparedStatement.setLong(4, System.currentTimeMillis());
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the invalidations.");
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}
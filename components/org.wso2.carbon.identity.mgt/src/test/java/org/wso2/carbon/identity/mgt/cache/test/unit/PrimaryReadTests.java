@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.cache.CacheInvalidation;
+import org.wso2.carbon.identity.mgt.exception.IdentityStoreException;
+import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
+import org.wso2.carbon.identity.mgt.impl.cache.ManagedCache;
+import org.wso2.carbon.identity.mgt.impl.util.OperationScope;
+import org.wso2.carbon.identity.mgt.test.util.InMemoryCache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Tests of the reloads of recently invalidated keys, which must be read from the primary data source.
+ */
+public class PrimaryReadTests {
+
+    private static final String KEY = "user1";
+
+    private ManagedCache<String, String> cache;
+
+    @BeforeMethod
+    public void initMethod() {
+
+        cache = new ManagedCache<>(new InMemoryCache<>("userCache"), null);
+        cache.setPrimaryReadTime(1, TimeUnit.HOURS);
+    }
+
+    @Test
+    public void testLoadWithoutAnInvalidationReadsFromAReplica() throws Exception {
+
+        Assert.assertFalse(loadPrimaryReadRequired());
+    }
+
+    @Test
+    public void testReloadAfterARemovalReadsFromThePrimary() throws Exception {
+
+        cache.put(KEY, "stale");
+        cache.remove(KEY);
+
+        Assert.assertTrue(loadPrimaryReadRequired());
+    }
+
+    @Test
+    public void testReloadAfterAnInvalidationOfAnotherNodeReadsFromThePrimary() throws Exception {
+
+        cache.setInvalidationBus(null, Function.identity());
+        cache.invalidate(CacheInvalidation.of(cache.getName(), KEY));
+
+        Assert.assertTrue(loadPrimaryReadRequired());
+    }
+
+    @Test
+    public void testReloadAfterTheCacheIsClearedReadsFromThePrimary() throws Exception {
+
+        cache.removeAll();
+
+        Assert.assertTrue(loadPrimaryReadRequired());
+    }
+
+    @Test
+    public void testReloadAfterThePrimaryReadTimeReadsFromAReplica() throws Exception {
+
+        cache.setPrimaryReadTime(1, TimeUnit.MILLISECONDS);
+        cache.remove(KEY);
+        Thread.sleep(10);
+
+        Assert.assertFalse(loadPrimaryReadRequired());
+    }
+
+    @Test
+    public void testPrimaryReadsDoNotOutliveTheReload() throws Exception {
+
+        cache.remove(KEY);
+        try (OperationScope ignored = OperationScope.begin()) {
+            Assert.assertTrue(loadPrimaryReadRequired());
+            Assert.assertFalse(OperationScope.isPrimaryReadRequired());
+        }
+    }
+
+    private boolean loadPrimaryReadRequired() throws Exception {
+
+        boolean[] primaryReadRequired = new boolean[1];
+        cache.<IdentityStoreException, UserNotFoundException>get(KEY, key -> {
+            primaryReadRequired[0] = OperationScope.isPrimaryReadRequired();
+            return "value";
+        });
+        return primaryReadRequired[0];
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wso2.carbon.identity.mgt.cache.test.unit;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.exception.IdentityStoreException;
+import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
+import org.wso2.carbon.identity.mgt.impl.cache.ManagedCache;
+import org.wso2.carbon.identity.mgt.impl.config.CacheConfig;
+import org.wso2.carbon.identity.mgt.impl.util.CacheHelper;
+import org.wso2.carbon.identity.mgt.test.util.InMemoryCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.cache.CacheManager;
+import javax.cache.configuration.Configuration;
+
+/**
+ * Refresh Ahead Tests.
+ */
+public class RefreshAheadTests {
+
+    private static final String KEY = "user1";
+
+    private AtomicInteger loads;
+
+    private AtomicBoolean failLoads;
+
+    @BeforeMethod
+    public void initMethod() {
+
+        loads = new AtomicInteger();
+        failLoads = new AtomicBoolean();
+    }
+
+    @Test
+    public void testEntryIsRefreshedInTheBackground() throws Exception {
+
+        List<Runnable> refreshes = new ArrayList<>();
+        ManagedCache<String, String> cache = createCache(10, refreshes::add);
+
+        Assert.assertEquals(get(cache), "value1");
+
+        // The caller gets the cached value while the entry is being refreshed.
+        Assert.assertEquals(get(cache), "value1");
+        Assert.assertEquals(refreshes.size(), 1);
+        Assert.assertEquals(loads.get(), 1);
+
+        refreshes.get(0).run();
+
+        Assert.assertEquals(loads.get(), 2);
+        Assert.assertEquals(cache.get(KEY), "value2");
+        Assert.assertEquals(cache.getRefreshCount(), 1);
+    }
+
+    @Test
+    public void testEntryIsNotRefreshedBeforeTheRefreshWindow() throws Exception {
+
+        List<Runnable> refreshes = new ArrayList<>();
+        ManagedCache<String, String> cache = createCache(1, refreshes::add);
+
+        get(cache);
+        get(cache);
+
+        Assert.assertTrue(refreshes.isEmpty());
+        Assert.assertEquals(cache.getRefreshCount(), 0);
+    }
+
+    @Test
+    public void testOnlyOneRefreshOfAnEntryIsPending() throws Exception {
+
+        List<Runnable> refreshes = new ArrayList<>();
+        ManagedCache<String, String> cache = createCache(10, refreshes::add);
+
+        get(cache);
+        get(cache);
+        get(cache);
+        Assert.assertEquals(refreshes.size(), 1);
+
+        refreshes.get(0).run();
+        get(cache);
+        Assert.assertEquals(refreshes.size(), 2);
+    }
+
+    @Test
+    public void testFailedRefreshKeepsTheCachedValue() throws Exception {
+
+        ManagedCache<String, String> cache = createCache(10, Runnable::run);
+        get(cache);
+
+        failLoads.set(true);
+
+        Assert.assertEquals(get(cache), "value1");
+        Assert.assertEquals(cache.get(KEY), "value1");
+        Assert.assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void testRejectedRefreshIsRetriedOnTheNextAccess() throws Exception {
+
+        AtomicBoolean rejectRefreshes = new AtomicBoolean(true);
+        ManagedCache<String, String> cache = createCache(10, refresh -> {
+            if (rejectRefreshes.get()) {
+                throw new RejectedExecutionException("The refresh executor is saturated.");
+            }
+            refresh.run();
+        });
+        get(cache);
+
+        Assert.assertEquals(get(cache), "value1");
+        Assert.assertEquals(loads.get(), 1);
+
+        rejectRefreshes.set(false);
+        get(cache);
+
+        Assert.assertEquals(loads.get(), 2);
+        Assert.assertEquals(cache.get(KEY), "value2");
+    }
+
+    @Test
+    public void testRemovedEntryIsLoadedByTheCaller() throws Exception {
+
+        List<Runnable> refreshes = new ArrayList<>();
+        ManagedCache<String, String> cache = createCache(10, refreshes::add);
+        get(cache);
+
+        cache.remove(KEY);
+
+        Assert.assertEquals(get(cache), "value2");
+        Assert.assertTrue(refreshes.isEmpty());
+    }
+
+    @Test
+    public void testCacheHelperRefreshesOnTheGivenExecutor() throws Exception {
+
+        List<Runnable> refreshes = new ArrayList<>();
+        ManagedCache<String, String> cache = createConfiguredCache(refreshes::add);
+
+        get(cache);
+        get(cache);
+
+        Assert.assertEquals(refreshes.size(), 1);
+    }
+
+    @Test
+    public void testCacheHelperDoesNotRefreshWithoutAnExecutor() throws Exception {
+
+        ManagedCache<String, String> cache = createConfiguredCache(null);
+
+        get(cache);
+        get(cache);
+
+        Assert.assertEquals(cache.getRefreshCount(), 0);
+        Assert.assertEquals(loads.get(), 1);
+    }
+
+    /**
+     * Create a cache through the cache helper, configured to refresh every accessed entry.
+     */
+    @SuppressWarnings("unchecked")
+    private static ManagedCache<String, String> createConfiguredCache(Executor refreshExecutor) {
+
+        CacheManager cacheManager = Mockito.mock(CacheManager.class);
+        Mockito.when(cacheManager.createCache(Mockito.anyString(), Mockito.any(Configuration.class))).thenReturn(
+                new InMemoryCache<>("configuredCache"));
+
+        CacheConfig cacheConfig = new CacheConfig();
+        cacheConfig.setExpireTime(1);
+        cacheConfig.setRefreshAheadTime(60);
+
+        return CacheHelper.createCache("configuredCache", String.class, String.class, CacheHelper.MIN_EXPIRE_TIME,
+                Collections.singletonMap("configuredCache", cacheConfig), cacheManager, refreshExecutor);
+    }
+
+    /**
+     * Create a cache whose entries expire 10 minutes after they are loaded.
+     *
+     * @param refreshAheadTime Minutes before the expiry in which an accessed entry is refreshed.
+     * @param refreshExecutor  Executor of the refreshes.
+     * @return Cache.
+     */
+    private static ManagedCache<String, String> createCache(int refreshAheadTime, Executor refreshExecutor) {
+
+        return new ManagedCache<>(new InMemoryCache<>("refreshAheadCache"), null, 10, refreshAheadTime,
+                TimeUnit.MINUTES, refreshExecutor);
+    }
+
+    private String get(ManagedCache<String, String> cache) throws IdentityStoreException, UserNotFoundException {
+
+        return cache.<IdentityStoreException, UserNotFoundException>get(KEY, key -> {
+            int load = loads.incrementAndGet();
+            if (failLoads.get()) {
+                throw new IdentityStoreException("Failed to load the entry.");
+            }
+            return "value" + load;
+        });
+    }
+}
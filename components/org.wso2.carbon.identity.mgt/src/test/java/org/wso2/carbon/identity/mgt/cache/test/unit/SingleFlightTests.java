@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.cache.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.exception.IdentityStoreException;
+import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
+import org.wso2.carbon.identity.mgt.impl.cache.CacheLoader;
+import org.wso2.carbon.identity.mgt.impl.cache.SingleFlight;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single Flight Tests.
+ */
+public class SingleFlightTests {
+
+    private static final String KEY = "user1";
+
+    @Test
+    public void testConcurrentLoadsAreCoalesced() throws Exception {
+
+        AtomicInteger followerLoads = new AtomicInteger();
+        Future<String> follower = coalesce(key -> "value", key -> {
+            followerLoads.incrementAndGet();
+            return "other";
+        });
+
+        Assert.assertEquals(follower.get(5, TimeUnit.SECONDS), "value");
+        Assert.assertEquals(followerLoads.get(), 0);
+    }
+
+    @Test
+    public void testFailedLoadIsSharedWithWaitingCallers() throws Exception {
+
+        UserNotFoundException failure = new UserNotFoundException("User not found.");
+        AtomicInteger followerLoads = new AtomicInteger();
+        Future<String> follower = coalesce(key -> {
+            throw failure;
+        }, key -> {
+            followerLoads.incrementAndGet();
+            return "other";
+        });
+
+        try {
+            follower.get(5, TimeUnit.SECONDS);
+            Assert.fail("The waiting caller must fail with the failure of the leading load.");
+        } catch (ExecutionException e) {
+            Assert.assertSame(e.getCause(), failure);
+        }
+        Assert.assertEquals(followerLoads.get(), 0);
+    }
+
+    @Test
+    public void testNullLoadIsSharedWithWaitingCallers() throws Exception {
+
+        AtomicInteger followerLoads = new AtomicInteger();
+        Future<String> follower = coalesce(key -> null, key -> {
+            followerLoads.incrementAndGet();
+            return "other";
+        });
+
+        Assert.assertNull(follower.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(followerLoads.get(), 0);
+    }
+
+    @Test
+    public void testLoadAfterCompletionIsNotCoalesced() throws Exception {
+
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        Assert.assertEquals(singleFlight.<IdentityStoreException, UserNotFoundException>load(KEY, key -> "first"),
+                "first");
+        Assert.assertEquals(singleFlight.<IdentityStoreException, UserNotFoundException>load(KEY, key -> "second"),
+                "second");
+        Assert.assertEquals(singleFlight.getLoadCount(), 2);
+        Assert.assertEquals(singleFlight.getCoalescedLoadCount(), 0);
+    }
+
+    /**
+     * Start a load which blocks until a second load of the same key has joined it.
+     *
+     * @param leaderLoader   Loader of the leading load.
+     * @param followerLoader Loader of the load which joins the leading load.
+     * @return Result of the joining load.
+     */
+    private Future<String> coalesce(CacheLoader<String, String, IdentityStoreException, UserNotFoundException>
+                                            leaderLoader,
+                                    CacheLoader<String, String, IdentityStoreException, UserNotFoundException>
+                                            followerLoader) throws InterruptedException {
+
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch followerJoined = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            executor.submit(() -> singleFlight.<IdentityStoreException, UserNotFoundException>load(KEY, key -> {
+                leaderStarted.countDown();
+                try {
+                    followerJoined.await();
+                } catch (InterruptedException e) {
+                    throw new IdentityStoreException("Interrupted while waiting for the joining load.", e);
+                }
+                return leaderLoader.load(key);
+            }));
+            Assert.assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            Future<String> follower = executor.submit(() -> singleFlight.load(KEY, followerLoader));
+            while (singleFlight.getCoalescedLoadCount() == 0) {
+                Thread.sleep(1);
+            }
+            followerJoined.countDown();
+            return follower;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,582 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wso2.carbon.identity.mgt.resolver.test.unit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.h2.tools.RunScript;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.datasource.core.api.DataSourceService;
+import org.wso2.carbon.identity.mgt.bean.UserBean;
+import org.wso2.carbon.identity.mgt.claim.Claim;
+import org.wso2.carbon.identity.mgt.claim.MetaClaim;
+import org.wso2.carbon.identity.mgt.claim.MetaClaimMapping;
+import org.wso2.carbon.identity.mgt.connector.Attribute;
+import org.wso2.carbon.identity.mgt.connector.IdentityStoreConnector;
+import org.wso2.carbon.identity.mgt.connector.config.IdentityStoreConnectorConfig;
+import org.wso2.carbon.identity.mgt.exception.DomainException;
+import org.wso2.carbon.identity.mgt.exception.UniqueIdResolverException;
+import org.wso2.carbon.identity.mgt.impl.Domain;
+import org.wso2.carbon.identity.mgt.impl.JDBCUniqueIdResolver;
+import org.wso2.carbon.identity.mgt.impl.internal.IdentityMgtDataHolder;
+import org.wso2.carbon.identity.mgt.impl.util.UniqueIdResolverConstants;
+import org.wso2.carbon.identity.mgt.resolver.DomainGroup;
+import org.wso2.carbon.identity.mgt.resolver.DomainUser;
+import org.wso2.carbon.identity.mgt.resolver.GroupPartition;
+import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolverConfig;
+import org.wso2.carbon.identity.mgt.resolver.UserPartition;
+
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+
+/**
+ * Tests of the JDBC unique id resolver against an in-memory H2 database created with the H2 script of the feature.
+ */
+public class JDBCUniqueIdResolverTests {
+
+    private static final Path SCHEMA = Paths.get("..", "..", "feature", "org.wso2.carbon.identity.mgt.feature",
+            "resources", "dbscripts", "identity-mgt", "h2.sql");
+
+    private static final String DATA_SOURCE_NAME = "WSO2_CARBON_DB";
+
+    private static final String RACING_DATA_SOURCE_NAME = "RACING_DB";
+
+    private static final String CONNECTOR_ID = "JDBCIdentityStore";
+
+    private static final int DOMAIN_ID = 1;
+
+    private static final String DIALECT = "http://wso2.org/claims";
+
+    private static final String USERNAME_CLAIM = "http://wso2.org/claims/username";
+
+    private static int databaseCount;
+
+    private JdbcDataSource dataSource;
+
+    private DataSourceService dataSourceService;
+
+    private Connection keepAliveConnection;
+
+    private JDBCUniqueIdResolver uniqueIdResolver;
+
+    @BeforeMethod
+    public void initMethod() throws Exception {
+
+        // A database of its own for each test, kept open until the test ends.
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:resolver" + (++databaseCount));
+        keepAliveConnection = dataSource.getConnection();
+        try (Reader schema = Files.newBufferedReader(SCHEMA, StandardCharsets.UTF_8)) {
+            RunScript.execute(keepAliveConnection, schema);
+        }
+
+        dataSourceService = Mockito.mock(DataSourceService.class);
+        Mockito.when(dataSourceService.getDataSource(DATA_SOURCE_NAME)).thenReturn(dataSource);
+        IdentityMgtDataHolder.getInstance().setDataSourceService(dataSourceService);
+
+        uniqueIdResolver = new JDBCUniqueIdResolver();
+        uniqueIdResolver.init(new UniqueIdResolverConfig("JDBCUniqueIdResolver",
+                Collections.singletonMap(UniqueIdResolverConstants.DATA_SOURCE, DATA_SOURCE_NAME)));
+
+        for (String domainUserId : Arrays.asList("user1", "user2", "user3")) {
+            uniqueIdResolver.addUser(new DomainUser(domainUserId, Collections.singletonList(
+                    new UserPartition(CONNECTOR_ID, "connector-" + domainUserId, true))), DOMAIN_ID);
+        }
+        for (String domainGroupId : Arrays.asList("group1", "group2", "group3")) {
+            uniqueIdResolver.addGroup(new DomainGroup(domainGroupId, Collections.singletonList(
+                    new GroupPartition(CONNECTOR_ID, "connector-" + domainGroupId))), DOMAIN_ID);
+        }
+    }
+
+    @AfterMethod
+    public void destroyMethod() throws SQLException {
+
+        keepAliveConnection.close();
+    }
+
+    @Test
+    public void testMembershipQueriesJoinTheMappings() throws Exception {
+
+        uniqueIdResolver.updateGroupsOfUser("user1", Arrays.asList("group1", "group2"), DOMAIN_ID);
+        uniqueIdResolver.updateUsersOfGroup("group2", Arrays.asList("user1", "user2"), DOMAIN_ID);
+
+        Assert.assertEquals(getGroupIdsOfUser("user1"), new HashSet<>(Arrays.asList("group1", "group2")));
+        Assert.assertEquals(getGroupIdsOfUser("user3"), Collections.emptySet());
+        Assert.assertEquals(getUserIdsOfGroup("group2"), new HashSet<>(Arrays.asList("user1", "user2")));
+        Assert.assertEquals(getUserIdsOfGroup("group3"), Collections.emptySet());
+        Assert.assertTrue(uniqueIdResolver.isUserInGroup("user2", "group2", DOMAIN_ID));
+        Assert.assertFalse(uniqueIdResolver.isUserInGroup("user2", "group1", DOMAIN_ID));
+    }
+
+    @Test
+    public void testMembershipQueriesIgnoreOtherDomains() throws Exception {
+
+        insertMapping("user1", "group1", DOMAIN_ID + 1);
+
+        Assert.assertEquals(getGroupIdsOfUser("user1"), Collections.emptySet());
+        Assert.assertEquals(getUserIdsOfGroup("group1"), Collections.emptySet());
+    }
+
+    @Test
+    public void testRepeatedIdsAreMappedOnce() throws Exception {
+
+        uniqueIdResolver.updateGroupsOfUser("user1", Arrays.asList("group1", "group1"), DOMAIN_ID);
+        uniqueIdResolver.updateGroupsOfUser("user1", Arrays.asList("group1", "group2"), Collections.emptyList(),
+                DOMAIN_ID);
+
+        Assert.assertEquals(getGroupIdsOfUser("user1"), new HashSet<>(Arrays.asList("group1", "group2")));
+        Assert.assertEquals(countMappings(), 2);
+    }
+
+    @Test
+    public void testPutOfGroupsOfUserWritesOnlyTheDifference() throws Exception {
+
+        uniqueIdResolver.updateGroupsOfUser("user1", Arrays.asList("group1", "group2"), DOMAIN_ID);
+        int keptMappingId = getMappingId("user1", "group2");
+
+        uniqueIdResolver.updateGroupsOfUser("user1", Arrays.asList("group2", "group3"), DOMAIN_ID);
+
+        Assert.assertEquals(getGroupIdsOfUser("user1"), new HashSet<>(Arrays.asList("group2", "group3")));
+        Assert.assertEquals(getMappingId("user1", "group2"), keptMappingId);
+    }
+
+    @Test
+    public void testPutOfUsersOfGroupWritesOnlyTheDifference() throws Exception {
+
+        uniqueIdResolver.updateUsersOfGroup("group1", Arrays.asList("user1", "user2"), DOMAIN_ID);
+        int keptMappingId = getMappingId("user2", "group1");
+
+        uniqueIdResolver.updateUsersOfGroup("group1", Arrays.asList("user2", "user3"), DOMAIN_ID);
+
+        Assert.assertEquals(getUserIdsOfGroup("group1"), new HashSet<>(Arrays.asList("user2", "user3")));
+        Assert.assertEquals(getMappingId("user2", "group1"), keptMappingId);
+
+        uniqueIdResolver.updateUsersOfGroup("group1", Collections.emptyList(), DOMAIN_ID);
+
+        Assert.assertEquals(getUserIdsOfGroup("group1"), Collections.emptySet());
+    }
+
+    @Test
+    public void testConcurrentPutsOfTheSameUser() throws Exception {
+
+        int threadCount = 4;
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        CyclicBarrier barrier = new CyclicBarrier(threadCount);
+        try {
+            List<Future<?>> updates = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                updates.add(executorService.submit(() -> {
+                    barrier.await();
+                    uniqueIdResolver.updateGroupsOfUser("user1", Arrays.asList("group1", "group2"), DOMAIN_ID);
+                    return null;
+                }));
+            }
+            for (Future<?> update : updates) {
+                update.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        Assert.assertEquals(getGroupIdsOfUser("user1"), new HashSet<>(Arrays.asList("group1", "group2")));
+        Assert.assertEquals(countMappings(), 2);
+    }
+
+    @Test
+    public void testUsersOfConnectorIdsAreInTheGivenOrder() throws Exception {
+
+        List<DomainUser> domainUsers = uniqueIdResolver.getUsers(Arrays.asList("connector-user3", "connector-user1",
+                "connector-user3", "connector-user2"), CONNECTOR_ID, DOMAIN_ID);
+
+        Assert.assertEquals(domainUsers.stream()
+                .map(DomainUser::getDomainUserId)
+                .collect(Collectors.toList()), Arrays.asList("user3", "user1", "user3", "user2"));
+        Assert.assertEquals(domainUsers.get(0).getUserPartitions().get(0).getConnectorUserId(), "connector-user3");
+    }
+
+    @Test
+    public void testUsersOfMoreConnectorIdsThanAnInClauseHolds() throws Exception {
+
+        List<DomainUser> addedUsers = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            addedUsers.add(new DomainUser("bulkUser" + i, Collections.singletonList(new UserPartition(CONNECTOR_ID,
+                    "connector-bulkUser" + i, true))));
+        }
+        uniqueIdResolver.addUsers(addedUsers, DOMAIN_ID);
+        Collections.reverse(addedUsers);
+
+        List<DomainUser> domainUsers = uniqueIdResolver.getUsers(addedUsers.stream()
+                .map(domainUser -> domainUser.getUserPartitions().get(0).getConnectorUserId())
+                .collect(Collectors.toList()), CONNECTOR_ID, DOMAIN_ID);
+
+        Assert.assertEquals(domainUsers.stream()
+                .map(DomainUser::getDomainUserId)
+                .collect(Collectors.toList()), addedUsers.stream()
+                .map(DomainUser::getDomainUserId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testGroupsOfMoreConnectorIdsThanAnInClauseHolds() throws Exception {
+
+        List<DomainGroup> addedGroups = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            addedGroups.add(new DomainGroup("bulkGroup" + i, Collections.singletonList(new GroupPartition(
+                    CONNECTOR_ID, "connector-bulkGroup" + i))));
+        }
+        uniqueIdResolver.addGroups(addedGroups, DOMAIN_ID);
+        Collections.reverse(addedGroups);
+
+        List<DomainGroup> domainGroups = uniqueIdResolver.getGroups(addedGroups.stream()
+                .map(domainGroup -> domainGroup.getGroupPartitions().get(0).getConnectorGroupId())
+                .collect(Collectors.toList()), CONNECTOR_ID, DOMAIN_ID);
+
+        Assert.assertEquals(domainGroups.stream()
+                .map(DomainGroup::getDomainGroupId)
+                .collect(Collectors.toList()), addedGroups.stream()
+                .map(DomainGroup::getDomainGroupId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testUnknownConnectorIdsAreReported() throws Exception {
+
+        try {
+            uniqueIdResolver.getUsers(Arrays.asList("connector-user1", "unknown1", "unknown2"), CONNECTOR_ID,
+                    DOMAIN_ID);
+            Assert.fail("Expecting a unique id resolver exception.");
+        } catch (UniqueIdResolverException e) {
+            Assert.assertEquals(e.getSuppressed().length, 2);
+        }
+    }
+
+    @Test
+    public void testFailedUserOfABatchIsReportedAndNoUserIsAdded() throws Exception {
+
+        JDBCUniqueIdResolver batchingResolver = createResolver(2);
+        List<DomainUser> addedUsers = new ArrayList<>();
+        for (String domainUserId : Arrays.asList("newUser1", "user1", "newUser2", "newUser3", "newUser4")) {
+            addedUsers.add(new DomainUser(domainUserId, Collections.singletonList(new UserPartition(CONNECTOR_ID,
+                    "connector-" + domainUserId, true))));
+        }
+
+        try {
+            batchingResolver.addUsers(addedUsers, DOMAIN_ID);
+            Assert.fail("Expecting a unique id resolver exception.");
+        } catch (UniqueIdResolverException e) {
+            Assert.assertEquals(e.getSuppressed().length, 1);
+            Assert.assertEquals(e.getSuppressed()[0].getMessage(), "Error while adding user: user1");
+        }
+
+        // The users are added all or nothing, so neither the other user of the failed batch nor the later batches
+        // are committed.
+        for (String domainUserId : Arrays.asList("newUser1", "newUser2", "newUser3", "newUser4")) {
+            Assert.assertEquals(countRows("IDM_USER", "USER_ID", domainUserId), 0);
+        }
+        Assert.assertEquals(countRows("IDM_USER", "USER_ID", "user1"), 1);
+    }
+
+    @Test
+    public void testFailedGroupOfASingleEntryBatchIsReported() throws Exception {
+
+        JDBCUniqueIdResolver batchingResolver = createResolver(2);
+        List<DomainGroup> addedGroups = new ArrayList<>();
+        for (String domainGroupId : Arrays.asList("newGroup1", "newGroup2", "group2")) {
+            addedGroups.add(new DomainGroup(domainGroupId, Collections.singletonList(new GroupPartition(
+                    CONNECTOR_ID, "connector-" + domainGroupId))));
+        }
+
+        try {
+            batchingResolver.addGroups(addedGroups, DOMAIN_ID);
+            Assert.fail("Expecting a unique id resolver exception.");
+        } catch (UniqueIdResolverException e) {
+            Assert.assertEquals(e.getSuppressed().length, 1);
+            Assert.assertEquals(e.getSuppressed()[0].getMessage(), "Error while adding group: group2");
+        }
+
+        Assert.assertEquals(countRows("IDM_GROUP", "GROUP_ID", "newGroup1"), 0);
+        Assert.assertEquals(countRows("IDM_GROUP", "GROUP_ID", "newGroup2"), 0);
+        Assert.assertEquals(countRows("IDM_GROUP", "GROUP_ID", "group2"), 1);
+    }
+
+    @Test
+    public void testPartitionsOfAFailedUserAreRolledBackTogether() throws Exception {
+
+        JDBCUniqueIdResolver batchingResolver = createResolver(2);
+        List<DomainUser> addedUsers = Arrays.asList(
+                new DomainUser("newUser1", Collections.singletonList(new UserPartition(CONNECTOR_ID,
+                        "connector-newUser1", true))),
+                new DomainUser("user2", Arrays.asList(new UserPartition(CONNECTOR_ID, "connector-user2-b", true),
+                        new UserPartition(CONNECTOR_ID, "connector-user2", true))));
+
+        try {
+            batchingResolver.addUsers(addedUsers, DOMAIN_ID);
+            Assert.fail("Expecting a unique id resolver exception.");
+        } catch (UniqueIdResolverException e) {
+            Assert.assertEquals(e.getSuppressed().length, 1);
+        }
+
+        Assert.assertEquals(countRows("IDM_USER", "USER_ID", "newUser1"), 0);
+        Assert.assertEquals(countRows("IDM_USER", "CONNECTOR_USER_ID", "connector-user2-b"), 0);
+        Assert.assertEquals(countRows("IDM_USER", "USER_ID", "user2"), 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConnectorAndResolverAgreeAfterAFailedBulkAdd() throws Exception {
+
+        // Users added to the connector and not removed again.
+        Set<String> connectorUserIds = ConcurrentHashMap.newKeySet();
+        IdentityStoreConnector connector = Mockito.mock(IdentityStoreConnector.class);
+        Mockito.when(connector.getIdentityStoreConfig()).thenReturn(new IdentityStoreConnectorConfig(CONNECTOR_ID,
+                "JDBCIdentityStore", false, new HashMap<>()));
+        Mockito.when(connector.addUsers(Mockito.anyMap())).thenAnswer(invocation -> {
+            Map<String, String> addedUserIds = new HashMap<>();
+            ((Map<String, List<Attribute>>) invocation.getArguments()[0]).forEach((uniqueUserId, attributes) -> {
+                String connectorUserId = "connector-" + attributes.get(0).getAttributeValue();
+                connectorUserIds.add(connectorUserId);
+                addedUserIds.put(uniqueUserId, connectorUserId);
+            });
+            return addedUserIds;
+        });
+        Mockito.doAnswer(invocation -> {
+            connectorUserIds.removeAll((List<String>) invocation.getArguments()[0]);
+            return null;
+        }).when(connector).removeAddedUsersInAFailure(Mockito.anyListOf(String.class));
+
+        Domain domain = new Domain(DOMAIN_ID, "PRIMARY", 1, createResolver(2));
+        domain.addIdentityStoreConnector(connector);
+        domain.setMetaClaimMappings(Collections.singletonList(new MetaClaimMapping(new MetaClaim(DIALECT,
+                USERNAME_CLAIM), CONNECTOR_ID, "username")));
+
+        // The connector user id of the middle user does not fit in the IDM_USER table.
+        List<UserBean> userBeans = new ArrayList<>();
+        for (String username : Arrays.asList("bulk1", "bulk2", String.join("", Collections.nCopies(64, "x")),
+                "bulk4", "bulk5")) {
+            UserBean userBean = new UserBean();
+            userBean.setClaims(Collections.singletonList(new Claim(DIALECT, USERNAME_CLAIM, username)));
+            userBeans.add(userBean);
+        }
+
+        try {
+            domain.addUsers(userBeans);
+            Assert.fail("Expecting a domain exception.");
+        } catch (DomainException e) {
+            Assert.assertEquals(((UniqueIdResolverException) e.getCause()).getSuppressed().length, 1);
+        }
+
+        Assert.assertEquals(connectorUserIds, Collections.emptySet());
+        Assert.assertEquals(countRows("IDM_USER", "DOMAIN_ID", String.valueOf(DOMAIN_ID)), 3);
+    }
+
+    @Test
+    public void testUserAddedToAGroupWhileTheGroupIsAddedToTheUser() throws Exception {
+
+        // The group is added to the user after the users of the group are read, but before they are inserted.
+        JDBCUniqueIdResolver racingResolver = createRacingResolver(() -> {
+            uniqueIdResolver.updateGroupsOfUser("user1", Collections.singletonList("group1"),
+                    Collections.emptyList(), DOMAIN_ID);
+            return null;
+        });
+
+        racingResolver.updateUsersOfGroup("group1", Arrays.asList("user1", "user2"), DOMAIN_ID);
+
+        Assert.assertEquals(getUserIdsOfGroup("group1"), new HashSet<>(Arrays.asList("user1", "user2")));
+        Assert.assertEquals(countMappings(), 2);
+    }
+
+    @Test
+    public void testGroupAddedToAUserWhileTheUserIsAddedToTheGroup() throws Exception {
+
+        // The user is added to the group after the groups of the user are read, but before they are inserted.
+        JDBCUniqueIdResolver racingResolver = createRacingResolver(() -> {
+            uniqueIdResolver.updateUsersOfGroup("group2", Collections.singletonList("user1"),
+                    Collections.emptyList(), DOMAIN_ID);
+            return null;
+        });
+
+        racingResolver.updateGroupsOfUser("user1", Arrays.asList("group1", "group2"), Collections.emptyList(),
+                DOMAIN_ID);
+
+        Assert.assertEquals(getGroupIdsOfUser("user1"), new HashSet<>(Arrays.asList("group1", "group2")));
+        Assert.assertEquals(countMappings(), 2);
+    }
+
+    @Test
+    public void testFailedMappingWhichDoesNotExistIsNotSkipped() throws Exception {
+
+        try {
+            uniqueIdResolver.updateGroupsOfUser("user1", Arrays.asList("group1",
+                    String.join("", Collections.nCopies(65, "x"))), DOMAIN_ID);
+            Assert.fail("Expecting a unique id resolver exception.");
+        } catch (UniqueIdResolverException e) {
+            Assert.assertEquals(countMappings(), 0);
+        }
+    }
+
+    @Test(expectedExceptions = SQLException.class)
+    public void testDuplicateMappingIsRejected() throws Exception {
+
+        insertMapping("user1", "group1", DOMAIN_ID);
+        insertMapping("user1", "group1", DOMAIN_ID);
+    }
+
+    private JDBCUniqueIdResolver createResolver(int batchSize) throws UniqueIdResolverException {
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put(UniqueIdResolverConstants.DATA_SOURCE, DATA_SOURCE_NAME);
+        properties.put(UniqueIdResolverConstants.BATCH_SIZE, String.valueOf(batchSize));
+
+        JDBCUniqueIdResolver jdbcUniqueIdResolver = new JDBCUniqueIdResolver();
+        jdbcUniqueIdResolver.init(new UniqueIdResolverConfig("JDBCUniqueIdResolver", properties));
+        return jdbcUniqueIdResolver;
+    }
+
+    /**
+     * Create a resolver whose connections run the given action, on a connection of their own, just before the first
+     * user group mapping is inserted.
+     */
+    private JDBCUniqueIdResolver createRacingResolver(Callable<?> action) throws Exception {
+
+        AtomicBoolean raced = new AtomicBoolean();
+        DataSource racingDataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (dataSourceProxy, dataSourceMethod, dataSourceArgs) -> {
+                    Object result = invoke(dataSource, dataSourceMethod, dataSourceArgs);
+                    if (!(result instanceof Connection)) {
+                        return result;
+                    }
+                    Connection connection = (Connection) result;
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                            (proxy, method, args) -> {
+                                if ("prepareStatement".equals(method.getName()) &&
+                                        ((String) args[0]).startsWith("INSERT INTO IDM_USER_GROUP_MAPPING") &&
+                                        raced.compareAndSet(false, true)) {
+                                    action.call();
+                                }
+                                return invoke(connection, method, args);
+                            });
+                });
+        Mockito.when(dataSourceService.getDataSource(RACING_DATA_SOURCE_NAME)).thenReturn(racingDataSource);
+
+        JDBCUniqueIdResolver jdbcUniqueIdResolver = new JDBCUniqueIdResolver();
+        jdbcUniqueIdResolver.init(new UniqueIdResolverConfig("JDBCUniqueIdResolver",
+                Collections.singletonMap(UniqueIdResolverConstants.DATA_SOURCE, RACING_DATA_SOURCE_NAME)));
+        return jdbcUniqueIdResolver;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Set<String> getGroupIdsOfUser(String domainUserId) throws Exception {
+
+        return uniqueIdResolver.getGroupsOfUser(domainUserId, DOMAIN_ID).stream()
+                .map(DomainGroup::getDomainGroupId)
+                .collect(Collectors.toSet());
+    }
+
+    private Set<String> getUserIdsOfGroup(String domainGroupId) throws Exception {
+
+        return uniqueIdResolver.getUsersOfGroup(domainGroupId, DOMAIN_ID).stream()
+                .map(DomainUser::getDomainUserId)
+                .collect(Collectors.toSet());
+    }
+
+    private void insertMapping(String domainUserId, String domainGroupId, int domainId) throws SQLException {
+
+        try (PreparedStatement preparedStatement = keepAliveConnection.prepareStatement(
+                "INSERT INTO IDM_USER_GROUP_MAPPING (USER_ID, GROUP_ID, DOMAIN_ID) VALUES (?, ?, ?)")) {
+            preparedStatement.setString(1, domainUserId);
+            preparedStatement.setString(2, domainGroupId);
+            preparedStatement.setInt(3, domainId);
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    private int getMappingId(String domainUserId, String domainGroupId) throws SQLException {
+
+        try (PreparedStatement preparedStatement = keepAliveConnection.prepareStatement(
+                "SELECT ID FROM IDM_USER_GROUP_MAPPING WHERE USER_ID = ? AND GROUP_ID = ? AND DOMAIN_ID = ?")) {
+            preparedStatement.setString(1, domainUserId);
+            preparedStatement.setString(2, domainGroupId);
+            preparedStatement.setInt(3, DOMAIN_ID);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                Assert.assertTrue(resultSet.next());
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    private int countRows(String table, String column, String value) throws SQLException {
+
+        try (PreparedStatement preparedStatement = keepAliveConnection.prepareStatement(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + column + " = ?")) {
+            preparedStatement.setString(1, value);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    private int countMappings() throws SQLException {
+
+        try (PreparedStatement preparedStatement = keepAliveConnection.prepareStatement(
+                "SELECT COUNT(*) FROM IDM_USER_GROUP_MAPPING");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
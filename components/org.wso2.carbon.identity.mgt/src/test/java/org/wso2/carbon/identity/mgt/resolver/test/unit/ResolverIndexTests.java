@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.resolver.test.unit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.h2.tools.RunScript;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.datasource.core.api.DataSourceService;
+import org.wso2.carbon.identity.mgt.impl.JDBCUniqueIdResolver;
+import org.wso2.carbon.identity.mgt.impl.internal.IdentityMgtDataHolder;
+import org.wso2.carbon.identity.mgt.impl.util.UniqueIdResolverConstants;
+import org.wso2.carbon.identity.mgt.resolver.DomainGroup;
+import org.wso2.carbon.identity.mgt.resolver.DomainUser;
+import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolverConfig;
+
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+
+/**
+ * Measures the listing and membership queries of the JDBC unique id resolver on H2, with and without the indexes
+ * that serve them. With the indexes, the query plans must use them. Without them, the queries must return the same
+ * results. The time of each query is logged for both cases.
+ */
+public class ResolverIndexTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ResolverIndexTests.class);
+
+    private static final Path SCHEMA = Paths.get("..", "..", "feature", "org.wso2.carbon.identity.mgt.feature",
+            "resources", "dbscripts", "identity-mgt", "h2.sql");
+
+    private static final String DATA_SOURCE_NAME = "INDEX_DB";
+
+    private static final String CONNECTOR_ID = "JDBCIdentityStore";
+
+    private static final int DOMAIN_ID = 1;
+
+    private static final int USER_COUNT = 5000;
+
+    private static final int GROUP_COUNT = 200;
+
+    private static final int GROUPS_PER_USER = 3;
+
+    private static final int ITERATIONS = 200;
+
+    private static final List<String> INDEXES = Arrays.asList("IDM_ENTITY_INDEX_7", "IDM_ENTITY_INDEX_8",
+            "IDM_USER_GROUP_MAPPING_INDEX_1", "IDM_USER_GROUP_MAPPING_INDEX_2");
+
+    private final Map<String, Callable<Set<String>>> queries = new LinkedHashMap<>();
+
+    private final Map<String, String> expectedIndexes = new HashMap<>();
+
+    private final List<RecordedQuery> recordedQueries = new ArrayList<>();
+
+    private Connection keepAliveConnection;
+
+    private JDBCUniqueIdResolver uniqueIdResolver;
+
+    @BeforeClass
+    public void init() throws Exception {
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:resolverIndexes");
+        keepAliveConnection = dataSource.getConnection();
+        try (Reader schema = Files.newBufferedReader(SCHEMA, StandardCharsets.UTF_8)) {
+            RunScript.execute(keepAliveConnection, schema);
+        }
+        populate();
+
+        DataSourceService dataSourceService = Mockito.mock(DataSourceService.class);
+        Mockito.when(dataSourceService.getDataSource(DATA_SOURCE_NAME)).thenReturn(recordingDataSource(dataSource));
+        IdentityMgtDataHolder.getInstance().setDataSourceService(dataSourceService);
+
+        uniqueIdResolver = new JDBCUniqueIdResolver();
+        uniqueIdResolver.init(new UniqueIdResolverConfig("JDBCUniqueIdResolver",
+                Collections.singletonMap(UniqueIdResolverConstants.DATA_SOURCE, DATA_SOURCE_NAME)));
+
+        addQuery("listDomainUsers", "IDM_ENTITY_INDEX_7", () -> getUserIds(
+                uniqueIdResolver.listDomainUsers((String) null, 100, DOMAIN_ID)));
+        addQuery("listGroups", "IDM_ENTITY_INDEX_8", () -> getGroupIds(
+                uniqueIdResolver.listGroups((String) null, 100, DOMAIN_ID)));
+        addQuery("getGroupsOfUser", "IDM_USER_GROUP_MAPPING_INDEX_1", () -> getGroupIds(
+                uniqueIdResolver.getGroupsOfUser(getUserId(42), DOMAIN_ID)));
+        addQuery("getUsersOfGroup", "IDM_USER_GROUP_MAPPING_INDEX_2", () -> getUserIds(
+                uniqueIdResolver.getUsersOfGroup(getGroupId(7), DOMAIN_ID)));
+        addQuery("isUserInGroup", "IDM_USER_GROUP_MAPPING_INDEX_", () -> Collections.singleton(String.valueOf(
+                uniqueIdResolver.isUserInGroup(getUserId(42), getGroupId(42), DOMAIN_ID))));
+    }
+
+    @AfterClass
+    public void destroy() throws SQLException {
+
+        keepAliveConnection.close();
+    }
+
+    @Test
+    public void testQueriesWithAndWithoutTheIndexes() throws Exception {
+
+        Map<String, Set<String>> indexedResults = new HashMap<>();
+        Map<String, Long> indexedTimes = new HashMap<>();
+        for (Map.Entry<String, Callable<Set<String>>> query : queries.entrySet()) {
+            indexedResults.put(query.getKey(), query.getValue().call());
+            Assert.assertFalse(indexedResults.get(query.getKey()).isEmpty(), query.getKey());
+            Assert.assertTrue(explainLastQuery().contains(expectedIndexes.get(query.getKey())), query.getKey());
+            indexedTimes.put(query.getKey(), measure(query.getValue()));
+        }
+
+        try (Statement statement = keepAliveConnection.createStatement()) {
+            for (String index : INDEXES) {
+                statement.execute("DROP INDEX " + index);
+            }
+        }
+
+        for (Map.Entry<String, Callable<Set<String>>> query : queries.entrySet()) {
+            Assert.assertEquals(query.getValue().call(), indexedResults.get(query.getKey()), query.getKey());
+            String plan = explainLastQuery();
+            if (expectedIndexes.get(query.getKey()).startsWith("IDM_USER_GROUP_MAPPING")) {
+                Assert.assertTrue(plan.contains("IDM_USER_GROUP_MAPPING.tableScan"), query.getKey());
+            }
+            long time = measure(query.getValue());
+            log.info("{}: {} us per query with the indexes, {} us per query without them.", query.getKey(),
+                    indexedTimes.get(query.getKey()), time);
+        }
+    }
+
+    private void addQuery(String name, String expectedIndex, Callable<Set<String>> query) {
+
+        queries.put(name, query);
+        expectedIndexes.put(name, expectedIndex);
+    }
+
+    /**
+     * Get the average time of the query in microseconds.
+     */
+    private long measure(Callable<Set<String>> query) throws Exception {
+
+        // Warm up before measuring.
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            query.call();
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.call();
+        }
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime) / ITERATIONS;
+    }
+
+    /**
+     * Get the plan of the last query of the resolver, with the parameters it was run with.
+     */
+    private String explainLastQuery() throws SQLException {
+
+        RecordedQuery recordedQuery = recordedQueries.get(recordedQueries.size() - 1);
+        try (PreparedStatement preparedStatement = keepAliveConnection.prepareStatement(
+                "EXPLAIN " + recordedQuery.sql)) {
+            for (Map.Entry<Integer, Object> parameter : recordedQuery.parameters.entrySet()) {
+                preparedStatement.setObject(parameter.getKey(), parameter.getValue());
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                Assert.assertTrue(resultSet.next());
+                return resultSet.getString(1);
+            }
+        }
+    }
+
+    private void populate() throws SQLException {
+
+        try (PreparedStatement insertUser = keepAliveConnection.prepareStatement(
+                "INSERT INTO IDM_USER (USER_ID, DOMAIN_ID, CONNECTOR_ID, CONNECTOR_USER_ID) VALUES (?, ?, ?, ?)");
+             PreparedStatement insertGroup = keepAliveConnection.prepareStatement(
+                     "INSERT INTO IDM_GROUP (GROUP_ID, DOMAIN_ID, CONNECTOR_ID, CONNECTOR_GROUP_ID) " +
+                             "VALUES (?, ?, ?, ?)");
+             PreparedStatement insertMapping = keepAliveConnection.prepareStatement(
+                     "INSERT INTO IDM_USER_GROUP_MAPPING (USER_ID, GROUP_ID, DOMAIN_ID) VALUES (?, ?, ?)")) {
+
+            for (int i = 0; i < GROUP_COUNT; i++) {
+                addRow(insertGroup, getGroupId(i));
+            }
+            insertGroup.executeBatch();
+
+            for (int i = 0; i < USER_COUNT; i++) {
+                addRow(insertUser, getUserId(i));
+                for (int j = 0; j < GROUPS_PER_USER; j++) {
+                    insertMapping.setString(1, getUserId(i));
+                    insertMapping.setString(2, getGroupId((i + j * GROUP_COUNT / GROUPS_PER_USER) % GROUP_COUNT));
+                    insertMapping.setInt(3, DOMAIN_ID);
+                    insertMapping.addBatch();
+                }
+            }
+            insertUser.executeBatch();
+            insertMapping.executeBatch();
+        }
+    }
+
+    private static void addRow(PreparedStatement preparedStatement, String id) throws SQLException {
+
+        preparedStatement.setString(1, id);
+        preparedStatement.setInt(2, DOMAIN_ID);
+        preparedStatement.setString(3, CONNECTOR_ID);
+        preparedStatement.setString(4, "connector-" + id);
+        preparedStatement.addBatch();
+    }
+
+    private static String getUserId(int i) {
+
+        return String.format("user%05d", i);
+    }
+
+    private static String getGroupId(int i) {
+
+        return String.format("group%03d", i);
+    }
+
+    private static Set<String> getUserIds(List<DomainUser> domainUsers) {
+
+        return domainUsers.stream().map(DomainUser::getDomainUserId).collect(Collectors.toSet());
+    }
+
+    private static Set<String> getGroupIds(List<DomainGroup> domainGroups) {
+
+        return domainGroups.stream().map(DomainGroup::getDomainGroupId).collect(Collectors.toSet());
+    }
+
+    /**
+     * Data source whose connections record the SQL and the parameters of the statements they prepare.
+     */
+    private DataSource recordingDataSource(DataSource dataSource) {
+
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (dataSourceProxy, dataSourceMethod, dataSourceArgs) -> {
+                    Object result = invoke(dataSource, dataSourceMethod, dataSourceArgs);
+                    if (!(result instanceof Connection)) {
+                        return result;
+                    }
+                    Connection connection = (Connection) result;
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                            (proxy, method, args) -> {
+                                Object statement = invoke(connection, method, args);
+                                if (!"prepareStatement".equals(method.getName())) {
+                                    return statement;
+                                }
+                                RecordedQuery recordedQuery = new RecordedQuery((String) args[0]);
+                                recordedQueries.add(recordedQuery);
+                                return recordingStatement((PreparedStatement) statement, recordedQuery);
+                            });
+                });
+    }
+
+    private static PreparedStatement recordingStatement(PreparedStatement preparedStatement,
+                                                        RecordedQuery recordedQuery) {
+
+        return (PreparedStatement) Proxy.newProxyInstance(ResolverIndexTests.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length == 2 &&
+                            args[0] instanceof Integer) {
+                        recordedQuery.parameters.put((Integer) args[0], args[1]);
+                    }
+                    return invoke(preparedStatement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * SQL and parameters of a statement prepared by the resolver.
+     */
+    private static final class RecordedQuery {
+
+        private final String sql;
+
+        private final Map<Integer, Object> parameters = new HashMap<>();
+
+        private RecordedQuery(String sql) {
+
+            this.sql = sql;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.store.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.Group;
+import org.wso2.carbon.identity.mgt.User;
+import org.wso2.carbon.identity.mgt.exception.DomainException;
+import org.wso2.carbon.identity.mgt.exception.IdentityStoreClientException;
+import org.wso2.carbon.identity.mgt.exception.IdentityStoreServerException;
+import org.wso2.carbon.identity.mgt.impl.Domain;
+import org.wso2.carbon.identity.mgt.impl.IdentityStoreImpl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Tests of listing the users and the groups of all domains.
+ */
+public class AllDomainsListingTests {
+
+    private ListingDomain primaryDomain;
+
+    private ListingDomain secondaryDomain;
+
+    private ListingDomain tertiaryDomain;
+
+    private ExecutorService domainExecutor;
+
+    @BeforeMethod
+    public void initMethod() throws Exception {
+
+        primaryDomain = new ListingDomain(1, "PRIMARY", 1, Arrays.asList("b", "d", "f"));
+        secondaryDomain = new ListingDomain(2, "SECONDARY", 2, Arrays.asList("a", "d", "e"));
+        tertiaryDomain = new ListingDomain(3, "TERTIARY", 3, Collections.singletonList("c"));
+        domainExecutor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterMethod
+    public void destroyMethod() {
+
+        domainExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testUsersAreMergedByIdWithTiesBrokenByDomainPriority() throws Exception {
+
+        // The domains are given out of their priority order.
+        IdentityStoreImpl identityStore = new IdentityStoreImpl(Arrays.asList(tertiaryDomain, secondaryDomain,
+                primaryDomain));
+
+        List<String> expected = Arrays.asList("2.a", "1.b", "3.c", "1.d", "2.d", "2.e", "1.f");
+        Assert.assertEquals(getUserIds(identityStore.listUsersOfAllDomains(1, 10)), expected);
+        Assert.assertEquals(getUserIds(identityStore.listUsersOfAllDomains(0, 10)), expected);
+        Assert.assertEquals(identityStore.listUsersOfAllDomains(1, 10).get(0).getDomainName(), "SECONDARY");
+    }
+
+    @Test
+    public void testWindowAsksEachDomainOnlyForItsEnd() throws Exception {
+
+        IdentityStoreImpl identityStore = new IdentityStoreImpl(Arrays.asList(primaryDomain, secondaryDomain,
+                tertiaryDomain));
+
+        Assert.assertEquals(getUserIds(identityStore.listUsersOfAllDomains(3, 3)), Arrays.asList("3.c", "1.d",
+                "2.d"));
+        Assert.assertEquals(getUserIds(identityStore.listUsersOfAllDomains(7, 3)), Arrays.asList("1.f"));
+        Assert.assertEquals(getUserIds(identityStore.listUsersOfAllDomains(8, 3)), Collections.emptyList());
+        Assert.assertEquals(primaryDomain.requestedLengths, Arrays.asList(5, 9, 10));
+        Assert.assertEquals(secondaryDomain.requestedLengths, Arrays.asList(5, 9, 10));
+    }
+
+    @Test
+    public void testDomainsAreListedInParallelWithAnExecutor() throws Exception {
+
+        IdentityStoreImpl identityStore = new IdentityStoreImpl(Arrays.asList(primaryDomain, secondaryDomain,
+                tertiaryDomain), domainExecutor);
+
+        Assert.assertEquals(getUserIds(identityStore.listUsersOfAllDomains(1, 10)), Arrays.asList("2.a", "1.b",
+                "3.c", "1.d", "2.d", "2.e", "1.f"));
+        Assert.assertEquals(primaryDomain.listingThreads.get(0), Thread.currentThread());
+        Assert.assertNotEquals(secondaryDomain.listingThreads.get(0), Thread.currentThread());
+        Assert.assertNotEquals(tertiaryDomain.listingThreads.get(0), Thread.currentThread());
+    }
+
+    @Test
+    public void testGroupsAreMergedByIdWithTiesBrokenByDomainPriority() throws Exception {
+
+        IdentityStoreImpl identityStore = new IdentityStoreImpl(Arrays.asList(primaryDomain, secondaryDomain,
+                tertiaryDomain), domainExecutor);
+
+        Assert.assertEquals(identityStore.listGroupsOfAllDomains(2, 4).stream()
+                .map(Group::getUniqueGroupId)
+                .collect(Collectors.toList()), Arrays.asList("1.b", "3.c", "1.d", "2.d"));
+    }
+
+    @Test
+    public void testEmptyWindow() throws Exception {
+
+        IdentityStoreImpl identityStore = new IdentityStoreImpl(Arrays.asList(primaryDomain, secondaryDomain));
+
+        Assert.assertTrue(identityStore.listUsersOfAllDomains(1, 0).isEmpty());
+        Assert.assertTrue(primaryDomain.requestedLengths.isEmpty());
+    }
+
+    @Test(expectedExceptions = IdentityStoreClientException.class)
+    public void testNegativeOffsetIsRejected() throws Exception {
+
+        new IdentityStoreImpl(Arrays.asList(primaryDomain, secondaryDomain)).listUsersOfAllDomains(-1, 10);
+    }
+
+    @Test(expectedExceptions = IdentityStoreServerException.class)
+    public void testFailedDomainFailsTheListing() throws Exception {
+
+        secondaryDomain.failure = new DomainException("Listing failed.");
+
+        new IdentityStoreImpl(Arrays.asList(primaryDomain, secondaryDomain)).listUsersOfAllDomains(1, 10);
+    }
+
+    @Test(expectedExceptions = IdentityStoreServerException.class)
+    public void testFailedDomainFailsTheParallelListing() throws Exception {
+
+        secondaryDomain.failure = new DomainException("Listing failed.");
+
+        new IdentityStoreImpl(Arrays.asList(primaryDomain, secondaryDomain), domainExecutor)
+                .listUsersOfAllDomains(1, 10);
+    }
+
+    private static List<String> getUserIds(List<User> users) {
+
+        return users.stream()
+                .map(User::getUniqueUserId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Domain which lists the same sorted entity ids as its users and its groups.
+     */
+    private static class ListingDomain extends Domain {
+
+        private final List<String> entityIds;
+
+        private final List<Integer> requestedLengths = new CopyOnWriteArrayList<>();
+
+        private final List<Thread> listingThreads = new CopyOnWriteArrayList<>();
+
+        private volatile DomainException failure;
+
+        ListingDomain(int id, String name, int order, List<String> entityIds) throws DomainException {
+
+            super(id, name, order, null);
+            this.entityIds = entityIds;
+        }
+
+        @Override
+        public List<String> listDomainUsers(String afterDomainUserId, int length) throws DomainException {
+
+            return list(length);
+        }
+
+        @Override
+        public List<String> listDomainGroups(String afterDomainGroupId, int length) throws DomainException {
+
+            return list(length);
+        }
+
+        private List<String> list(int length) throws DomainException {
+
+            requestedLengths.add(length);
+            listingThreads.add(Thread.currentThread());
+            if (failure != null) {
+                throw failure;
+            }
+            return entityIds.subList(0, Math.min(length, entityIds.size()));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.store.test.unit;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.AsyncIdentityStore;
+import org.wso2.carbon.identity.mgt.IdentityStore;
+import org.wso2.carbon.identity.mgt.RealmService;
+import org.wso2.carbon.identity.mgt.claim.Claim;
+import org.wso2.carbon.identity.mgt.exception.IdentityStoreException;
+import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
+import org.wso2.carbon.identity.mgt.impl.AsyncIdentityStoreImpl;
+import org.wso2.carbon.identity.mgt.impl.Domain;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests of the asynchronous identity store facade.
+ */
+public class AsyncIdentityStoreTests {
+
+    private static final String PRIMARY_DOMAIN = "PRIMARY";
+
+    private static final String SECONDARY_DOMAIN = "SECONDARY";
+
+    private static final Claim USERNAME_CLAIM = new Claim("http://wso2.org/claims", "http://wso2.org/claims/username",
+            "admin");
+
+    private IdentityStore identityStore;
+
+    private ExecutorService defaultExecutor;
+
+    private ExecutorService secondaryExecutor;
+
+    private AsyncIdentityStore asyncIdentityStore;
+
+    /**
+     * Name of the thread the last operation of the wrapped identity store ran on.
+     */
+    private AtomicReference<String> callingThread;
+
+    @BeforeMethod
+    public void initMethod() throws Exception {
+
+        callingThread = new AtomicReference<>();
+        identityStore = Mockito.mock(IdentityStore.class);
+        Mockito.when(identityStore.getPrimaryDomainName()).thenReturn(PRIMARY_DOMAIN);
+        Mockito.when(identityStore.getUser(Mockito.anyString())).thenAnswer(invocation -> {
+            callingThread.set(Thread.currentThread().getName());
+            return null;
+        });
+        Mockito.when(identityStore.getUser(Mockito.any(Claim.class), Mockito.anyString())).thenAnswer(invocation -> {
+            callingThread.set(Thread.currentThread().getName());
+            return null;
+        });
+        Mockito.when(identityStore.listUsers(Mockito.anyInt(), Mockito.anyInt())).thenAnswer(invocation -> {
+            callingThread.set(Thread.currentThread().getName());
+            return Collections.emptyList();
+        });
+
+        defaultExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "default"));
+        secondaryExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "secondary"));
+
+        Map<String, ExecutorService> domainExecutors = new HashMap<>();
+        domainExecutors.put(SECONDARY_DOMAIN, secondaryExecutor);
+        asyncIdentityStore = new AsyncIdentityStoreImpl(identityStore, Arrays.asList(
+                new Domain(1, PRIMARY_DOMAIN, 1, null), new Domain(2, SECONDARY_DOMAIN, 2, null)), defaultExecutor,
+                domainExecutors);
+    }
+
+    @AfterMethod
+    public void destroyMethod() {
+
+        defaultExecutor.shutdownNow();
+        secondaryExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testOperationsRunOnTheExecutorOfTheNamedDomain() throws Exception {
+
+        asyncIdentityStore.getUser(USERNAME_CLAIM, SECONDARY_DOMAIN).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(callingThread.get(), "secondary");
+
+        asyncIdentityStore.getUser(USERNAME_CLAIM, PRIMARY_DOMAIN).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(callingThread.get(), "default");
+    }
+
+    @Test
+    public void testOperationsWithoutADomainRunOnTheExecutorOfThePrimaryDomain() throws Exception {
+
+        Mockito.when(identityStore.getPrimaryDomainName()).thenReturn(SECONDARY_DOMAIN);
+
+        asyncIdentityStore.listUsers(0, 10).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(callingThread.get(), "secondary");
+    }
+
+    @Test
+    public void testUniqueIdsAreRoutedByTheirDomainId() throws Exception {
+
+        asyncIdentityStore.getUser("2.user1").get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(callingThread.get(), "secondary");
+
+        asyncIdentityStore.getUser("1.user1").get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(callingThread.get(), "default");
+
+        // Ids without a domain id are left to the identity store to report.
+        asyncIdentityStore.getUser("user1").get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(callingThread.get(), "default");
+    }
+
+    @Test
+    public void testFailedOperationCompletesTheFutureExceptionally() throws Exception {
+
+        UserNotFoundException userNotFoundException = new UserNotFoundException("User not found.");
+        Mockito.when(identityStore.getUser("2.unknown")).thenThrow(userNotFoundException);
+
+        try {
+            asyncIdentityStore.getUser("2.unknown").get(5, TimeUnit.SECONDS);
+            Assert.fail("Expecting an execution exception.");
+        } catch (ExecutionException e) {
+            Assert.assertSame(e.getCause(), userNotFoundException);
+        }
+    }
+
+    @Test
+    public void testOperationsRunInTheCallingThreadWithoutExecutors() throws Exception {
+
+        CompletableFuture<Void> future = new AsyncIdentityStoreImpl(identityStore).getUser("2.user1")
+                .thenAccept(user -> Assert.assertEquals(callingThread.get(), Thread.currentThread().getName()));
+
+        Assert.assertTrue(future.isDone());
+        future.get();
+    }
+
+    @Test
+    public void testRealmServicesWithoutAnAsyncStoreWrapTheirIdentityStore() throws Exception {
+
+        RealmService realmService = () -> identityStore;
+
+        Assert.assertTrue(realmService.getAsyncIdentityStore().getUser("2.user1").isDone());
+        Assert.assertEquals(callingThread.get(), Thread.currentThread().getName());
+    }
+
+    @Test
+    public void testUnknownPrimaryDomainFallsBackToTheDefaultExecutor() throws Exception {
+
+        Mockito.when(identityStore.getPrimaryDomainName()).thenThrow(new IdentityStoreException("No domains."));
+
+        asyncIdentityStore.listUsers(0, 10).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(callingThread.get(), "default");
+    }
+}
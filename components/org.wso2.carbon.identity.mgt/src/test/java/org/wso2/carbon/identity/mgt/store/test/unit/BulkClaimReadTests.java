@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wso2.carbon.identity.mgt.store.test.unit;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.IdentityStore;
+import org.wso2.carbon.identity.mgt.claim.Claim;
+import org.wso2.carbon.identity.mgt.claim.MetaClaim;
+import org.wso2.carbon.identity.mgt.claim.MetaClaimMapping;
+import org.wso2.carbon.identity.mgt.connector.Attribute;
+import org.wso2.carbon.identity.mgt.connector.IdentityStoreConnector;
+import org.wso2.carbon.identity.mgt.connector.config.IdentityStoreConnectorConfig;
+import org.wso2.carbon.identity.mgt.impl.CacheBackedIdentityStore;
+import org.wso2.carbon.identity.mgt.impl.Domain;
+import org.wso2.carbon.identity.mgt.impl.IdentityStoreImpl;
+import org.wso2.carbon.identity.mgt.resolver.DomainUser;
+import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolver;
+import org.wso2.carbon.identity.mgt.resolver.UserPartition;
+import org.wso2.carbon.identity.mgt.test.util.InMemoryCachingService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Tests of reading the claims of many users at once.
+ */
+public class BulkClaimReadTests {
+
+    private static final String DIALECT = "http://wso2.org/claims";
+
+    private static final String USERNAME_CLAIM = "http://wso2.org/claims/username";
+
+    private static final String EMAIL_CLAIM = "http://wso2.org/claims/email";
+
+    private static final int DOMAIN_ID = 1;
+
+    private UniqueIdResolver uniqueIdResolver;
+
+    private Domain domain;
+
+    /**
+     * Connector user ids of each bulk call of the username and the email connectors.
+     */
+    private List<List<String>> usernameCalls;
+
+    private List<List<String>> emailCalls;
+
+    private CacheBackedIdentityStore cacheBackedIdentityStore;
+
+    @BeforeMethod
+    public void initMethod() throws Exception {
+
+        // Users 1 and 2 are held by both connectors, user 3 only by the username connector.
+        uniqueIdResolver = Mockito.mock(UniqueIdResolver.class);
+        Map<String, DomainUser> domainUsers = new LinkedHashMap<>();
+        domainUsers.put("user1", getDomainUser("user1", "usernameConnector", "emailConnector"));
+        domainUsers.put("user2", getDomainUser("user2", "usernameConnector", "emailConnector"));
+        domainUsers.put("user3", getDomainUser("user3", "usernameConnector"));
+        Mockito.when(uniqueIdResolver.getUsers(Mockito.anyListOf(String.class), Mockito.anyInt())).thenAnswer(
+                invocation -> ((List<?>) invocation.getArguments()[0]).stream()
+                        .map(domainUsers::get)
+                        .filter(domainUser -> domainUser != null)
+                        .collect(Collectors.toList()));
+        Mockito.when(uniqueIdResolver.getUser("user1", DOMAIN_ID)).thenReturn(domainUsers.get("user1"));
+
+        domain = new Domain(DOMAIN_ID, "PRIMARY", 1, uniqueIdResolver);
+        usernameCalls = new CopyOnWriteArrayList<>();
+        emailCalls = new CopyOnWriteArrayList<>();
+        domain.addIdentityStoreConnector(mockConnector("usernameConnector", "username", usernameCalls));
+        domain.addIdentityStoreConnector(mockConnector("emailConnector", "email", emailCalls));
+        domain.setMetaClaimMappings(Arrays.asList(
+                new MetaClaimMapping(new MetaClaim(DIALECT, USERNAME_CLAIM), "usernameConnector", "username"),
+                new MetaClaimMapping(new MetaClaim(DIALECT, EMAIL_CLAIM), "emailConnector", "email")));
+    }
+
+    @AfterMethod
+    public void destroyMethod() {
+
+        if (cacheBackedIdentityStore != null) {
+            cacheBackedIdentityStore.unregisterCacheStatistics();
+            cacheBackedIdentityStore = null;
+        }
+    }
+
+    @Test
+    public void testEachConnectorIsCalledOnceForAllUsers() throws Exception {
+
+        IdentityStore identityStore = new IdentityStoreImpl(Collections.singletonList(domain));
+
+        Map<String, List<Claim>> claimsOfUsers = identityStore.getClaimsOfUsers(Arrays.asList("1.user3", "1.user1",
+                "1.user2"));
+
+        Assert.assertEquals(new ArrayList<>(claimsOfUsers.keySet()), Arrays.asList("1.user3", "1.user1", "1.user2"));
+        Assert.assertEquals(getValues(claimsOfUsers.get("1.user1")), Arrays.asList("username-user1", "email-user1"));
+        Assert.assertEquals(getValues(claimsOfUsers.get("1.user3")), Collections.singletonList("username-user3"));
+        Assert.assertEquals(usernameCalls, Collections.singletonList(Arrays.asList("username-user3", "username-user1",
+                "username-user2")));
+        Assert.assertEquals(emailCalls, Collections.singletonList(Arrays.asList("email-user1", "email-user2")));
+    }
+
+    @Test
+    public void testMissingUsersAreOmitted() throws Exception {
+
+        IdentityStore identityStore = new IdentityStoreImpl(Collections.singletonList(domain));
+
+        Map<String, List<Claim>> claimsOfUsers = identityStore.getClaimsOfUsers(Arrays.asList("1.user1", "1.user4"));
+
+        Assert.assertEquals(new ArrayList<>(claimsOfUsers.keySet()), Collections.singletonList("1.user1"));
+    }
+
+    @Test
+    public void testOnlyConnectorsOfTheRequestedClaimsAreCalled() throws Exception {
+
+        IdentityStore identityStore = new IdentityStoreImpl(Collections.singletonList(domain));
+
+        Map<String, List<Claim>> claimsOfUsers = identityStore.getClaimsOfUsers(Arrays.asList("1.user1", "1.user3"),
+                Collections.singletonList(new MetaClaim(DIALECT, EMAIL_CLAIM)));
+
+        Assert.assertEquals(getValues(claimsOfUsers.get("1.user1")), Collections.singletonList("email-user1"));
+        Assert.assertEquals(claimsOfUsers.get("1.user3"), Collections.emptyList());
+        Assert.assertTrue(usernameCalls.isEmpty());
+        Assert.assertEquals(emailCalls, Collections.singletonList(Collections.singletonList("email-user1")));
+    }
+
+    @Test
+    public void testOnlyUsersMissingInTheCacheAreRead() throws Exception {
+
+        InMemoryCachingService.register();
+        cacheBackedIdentityStore = new CacheBackedIdentityStore(new HashMap<>(), Collections.singletonList(domain));
+        cacheBackedIdentityStore.getClaimsOfUser("1.user1");
+        usernameCalls.clear();
+        emailCalls.clear();
+
+        Map<String, List<Claim>> claimsOfUsers = cacheBackedIdentityStore.getClaimsOfUsers(Arrays.asList("1.user1",
+                "1.user2"));
+
+        Assert.assertEquals(getValues(claimsOfUsers.get("1.user1")), Arrays.asList("username-user1", "email-user1"));
+        Assert.assertEquals(getValues(claimsOfUsers.get("1.user2")), Arrays.asList("username-user2", "email-user2"));
+        Assert.assertEquals(usernameCalls, Collections.singletonList(Collections.singletonList("username-user2")));
+        Assert.assertEquals(emailCalls, Collections.singletonList(Collections.singletonList("email-user2")));
+    }
+
+    /**
+     * Create a connector whose users have a single attribute, valued after the connector user id. Its bulk reads are
+     * recorded in the given list.
+     *
+     * @param connectorId   Connector id.
+     * @param attributeName Name of the attribute.
+     * @param bulkCalls     List the connector user ids of each bulk read are added to.
+     * @return Identity store connector.
+     */
+    private static IdentityStoreConnector mockConnector(String connectorId, String attributeName,
+                                                        List<List<String>> bulkCalls) throws Exception {
+
+        IdentityStoreConnector connector = Mockito.mock(IdentityStoreConnector.class);
+        Mockito.when(connector.getIdentityStoreConfig()).thenReturn(new IdentityStoreConnectorConfig(connectorId,
+                "JDBCIdentityStore", false, new HashMap<>()));
+        Mockito.when(connector.getUserAttributeValues(Mockito.anyListOf(String.class),
+                Mockito.anyListOf(String.class))).thenAnswer(invocation -> {
+                    @SuppressWarnings("unchecked")
+                    List<String> connectorUserIds = (List<String>) invocation.getArguments()[0];
+                    bulkCalls.add(new ArrayList<>(connectorUserIds));
+                    return connectorUserIds.stream()
+                            .collect(Collectors.toMap(connectorUserId -> connectorUserId, connectorUserId ->
+                                    Collections.singletonList(new Attribute(attributeName, connectorUserId))));
+                });
+        Mockito.when(connector.getUserAttributeValues(attributeName + "-user1")).thenReturn(
+                Collections.singletonList(new Attribute(attributeName, attributeName + "-user1")));
+        return connector;
+    }
+
+    private static DomainUser getDomainUser(String domainUserId, String... connectorIds) {
+
+        return new DomainUser(domainUserId, Arrays.stream(connectorIds)
+                .map(connectorId -> new UserPartition(connectorId, connectorId.replace("Connector", "") + "-" +
+                        domainUserId, true))
+                .collect(Collectors.toList()));
+    }
+
+    private static List<String> getValues(List<Claim> claims) {
+
+        return claims.stream()
+                .map(Claim::getValue)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.store.test.unit;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.bean.UserBean;
+import org.wso2.carbon.identity.mgt.cache.CacheInvalidation;
+import org.wso2.carbon.identity.mgt.cache.InvalidationBus;
+import org.wso2.carbon.identity.mgt.claim.Claim;
+import org.wso2.carbon.identity.mgt.claim.MetaClaim;
+import org.wso2.carbon.identity.mgt.claim.MetaClaimMapping;
+import org.wso2.carbon.identity.mgt.connector.Attribute;
+import org.wso2.carbon.identity.mgt.connector.IdentityStoreConnector;
+import org.wso2.carbon.identity.mgt.connector.config.IdentityStoreConnectorConfig;
+import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
+import org.wso2.carbon.identity.mgt.impl.Domain;
+import org.wso2.carbon.identity.mgt.impl.cache.ManagedCache;
+import org.wso2.carbon.identity.mgt.resolver.DomainUser;
+import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolver;
+import org.wso2.carbon.identity.mgt.resolver.UserPartition;
+import org.wso2.carbon.identity.mgt.test.util.InMemoryCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Tests of the caches which resolve users from unique claim values.
+ */
+public class ClaimLookupCacheTests {
+
+    private static final String CONNECTOR_ID = "JDBCIdentityStore";
+
+    private static final String USERNAME_CLAIM = "http://wso2.org/claims/username";
+
+    private static final String DIALECT = "http://wso2.org/claims";
+
+    private static final String USERNAME_ATTRIBUTE = "username";
+
+    private static final String DOMAIN_USER_ID = "user1";
+
+    private static final String CONNECTOR_USER_ID = "connectorUser1";
+
+    private static final int DOMAIN_ID = 1;
+
+    private IdentityStoreConnector identityStoreConnector;
+
+    private UniqueIdResolver uniqueIdResolver;
+
+    private Domain domain;
+
+    /**
+     * Connector user id the connector resolves the username "alice" to, or null if there is no such user.
+     */
+    private AtomicReference<String> connectorUserIdOfAlice;
+
+    private AtomicInteger connectorLookups;
+
+    private ManagedCache<String, DomainUser> claimLookupCache;
+
+    private ManagedCache<String, Boolean> unknownClaimLookupCache;
+
+    private InMemoryCache<String, Boolean> unknownClaimLookupEntries;
+
+    @BeforeMethod
+    public void initMethod() throws Exception {
+
+        identityStoreConnector = Mockito.mock(IdentityStoreConnector.class);
+        Mockito.when(identityStoreConnector.getIdentityStoreConfig()).thenReturn(new IdentityStoreConnectorConfig(
+                CONNECTOR_ID, "JDBCIdentityStore", false, new HashMap<>()));
+
+        uniqueIdResolver = Mockito.mock(UniqueIdResolver.class);
+        Mockito.when(uniqueIdResolver.getUserFromConnectorUserId(CONNECTOR_USER_ID, CONNECTOR_ID, DOMAIN_ID))
+                .thenReturn(getDomainUser());
+
+        MetaClaimMapping usernameMapping = new MetaClaimMapping(new MetaClaim(DIALECT, USERNAME_CLAIM), CONNECTOR_ID,
+                USERNAME_ATTRIBUTE);
+        usernameMapping.setUnique(true);
+
+        domain = new Domain(DOMAIN_ID, "PRIMARY", 1, uniqueIdResolver);
+        domain.addIdentityStoreConnector(identityStoreConnector);
+        domain.setMetaClaimMappings(Collections.singletonList(usernameMapping));
+        claimLookupCache = new ManagedCache<>(new InMemoryCache<>("claimLookupCache"), null);
+        unknownClaimLookupEntries = new InMemoryCache<>("unknownClaimLookupCache");
+        unknownClaimLookupCache = new ManagedCache<>(unknownClaimLookupEntries, null);
+        domain.setClaimLookupCaches(claimLookupCache, unknownClaimLookupCache);
+
+        connectorUserIdOfAlice = new AtomicReference<>();
+        connectorLookups = new AtomicInteger();
+    }
+
+    @Test
+    public void testUnknownClaimIsCached() throws Exception {
+
+        stubConnectorLookup(() -> { });
+
+        assertUnknown();
+        assertUnknown();
+
+        Assert.assertEquals(connectorLookups.get(), 1);
+    }
+
+    @Test
+    public void testUnknownClaimIsForgottenWhenUserIsAdded() throws Exception {
+
+        stubConnectorLookup(() -> { });
+        assertUnknown();
+
+        addAlice();
+
+        Assert.assertEquals(domain.getDomainUserId(getAliceClaim()), DOMAIN_USER_ID);
+    }
+
+    @Test
+    public void testUnknownClaimIsForgottenWhenClaimsAreUpdated() throws Exception {
+
+        Mockito.when(uniqueIdResolver.getUser(DOMAIN_USER_ID, DOMAIN_ID)).thenReturn(getDomainUser());
+        Mockito.when(identityStoreConnector.getUserAttributeValues(CONNECTOR_USER_ID,
+                Collections.singletonList(USERNAME_ATTRIBUTE))).thenReturn(Collections.singletonList(
+                new Attribute(USERNAME_ATTRIBUTE, "bob")));
+
+        stubConnectorLookup(() -> { });
+        assertUnknown();
+
+        // The user is renamed from bob to alice.
+        connectorUserIdOfAlice.set(CONNECTOR_USER_ID);
+        assertUnknown();
+        domain.updateUserClaims(DOMAIN_USER_ID, Collections.singletonList(getAliceClaim()));
+
+        Assert.assertEquals(domain.getDomainUserId(getAliceClaim()), DOMAIN_USER_ID);
+    }
+
+    @Test
+    public void testUnknownClaimIsNotCachedWhenUserIsAddedDuringLookup() throws Exception {
+
+        AtomicBoolean added = new AtomicBoolean();
+        stubConnectorLookup(() -> {
+            // The user is added after the connector found no user, but before the lookup completes.
+            if (added.compareAndSet(false, true)) {
+                addAlice();
+            }
+        });
+
+        assertUnknown();
+
+        Assert.assertEquals(domain.getDomainUserId(getAliceClaim()), DOMAIN_USER_ID);
+        Assert.assertEquals(connectorLookups.get(), 2);
+    }
+
+    @Test
+    public void testLookupKeysDoNotHoldClaimValues() throws Exception {
+
+        List<CacheInvalidation> published = new ArrayList<>();
+        InvalidationBus invalidationBus = Mockito.mock(InvalidationBus.class);
+        Mockito.doAnswer(invocation -> published.add((CacheInvalidation) invocation.getArguments()[0]))
+                .when(invalidationBus).publish(Mockito.any(CacheInvalidation.class));
+        claimLookupCache.setInvalidationBus(invalidationBus, Function.identity());
+        unknownClaimLookupCache.setInvalidationBus(invalidationBus, Function.identity());
+
+        stubConnectorLookup(() -> { });
+        assertUnknown();
+        Assert.assertTrue(unknownClaimLookupEntries.iterator().hasNext());
+        unknownClaimLookupEntries.forEach(entry -> Assert.assertFalse(entry.getKey().contains("alice")));
+
+        addAlice();
+        Assert.assertFalse(published.isEmpty());
+        published.forEach(invalidation -> Assert.assertFalse(invalidation.getKey().contains("alice")));
+    }
+
+    /**
+     * Make the connector resolve the username "alice" from {@link #connectorUserIdOfAlice}. The hook runs after the
+     * connector found out whether the user exists.
+     *
+     * @param afterLookup Hook run after each lookup.
+     */
+    private void stubConnectorLookup(LookupHook afterLookup) throws Exception {
+
+        Mockito.when(identityStoreConnector.getConnectorUserId(USERNAME_ATTRIBUTE, "alice")).thenAnswer(
+                invocation -> {
+                    connectorLookups.incrementAndGet();
+                    String connectorUserId = connectorUserIdOfAlice.get();
+                    afterLookup.run();
+                    if (connectorUserId == null) {
+                        throw new UserNotFoundException("User not found.");
+                    }
+                    return connectorUserId;
+                });
+    }
+
+    private void addAlice() throws Exception {
+
+        UserBean userBean = new UserBean();
+        userBean.setClaims(Collections.singletonList(getAliceClaim()));
+        domain.addUser(userBean);
+        connectorUserIdOfAlice.set(CONNECTOR_USER_ID);
+    }
+
+    private void assertUnknown() throws Exception {
+
+        try {
+            domain.getDomainUserId(getAliceClaim());
+            Assert.fail("Expecting a user not found exception.");
+        } catch (UserNotFoundException e) {
+            // Expected.
+        }
+    }
+
+    private static Claim getAliceClaim() {
+
+        return new Claim(DIALECT, USERNAME_CLAIM, "alice");
+    }
+
+    private static DomainUser getDomainUser() {
+
+        return new DomainUser(DOMAIN_USER_ID, Collections.singletonList(new UserPartition(CONNECTOR_ID,
+                CONNECTOR_USER_ID, true)));
+    }
+
+    /**
+     * Hook run by the stubbed connector lookup.
+     */
+    @FunctionalInterface
+    private interface LookupHook {
+
+        void run() throws Exception;
+    }
+}
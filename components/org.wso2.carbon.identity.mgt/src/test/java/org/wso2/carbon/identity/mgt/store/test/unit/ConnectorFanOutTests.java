@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wso2.carbon.identity.mgt.store.test.unit;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.claim.Claim;
+import org.wso2.carbon.identity.mgt.claim.MetaClaim;
+import org.wso2.carbon.identity.mgt.claim.MetaClaimMapping;
+import org.wso2.carbon.identity.mgt.connector.Attribute;
+import org.wso2.carbon.identity.mgt.connector.IdentityStoreConnector;
+import org.wso2.carbon.identity.mgt.connector.config.IdentityStoreConnectorConfig;
+import org.wso2.carbon.identity.mgt.exception.DomainException;
+import org.wso2.carbon.identity.mgt.exception.IdentityStoreConnectorException;
+import org.wso2.carbon.identity.mgt.impl.Domain;
+import org.wso2.carbon.identity.mgt.resolver.DomainGroup;
+import org.wso2.carbon.identity.mgt.resolver.DomainUser;
+import org.wso2.carbon.identity.mgt.resolver.GroupPartition;
+import org.wso2.carbon.identity.mgt.resolver.UniqueIdResolver;
+import org.wso2.carbon.identity.mgt.resolver.UserPartition;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tests of calling the connectors of a user or a group in parallel.
+ */
+public class ConnectorFanOutTests {
+
+    private static final String DIALECT = "http://wso2.org/claims";
+
+    private static final int DOMAIN_ID = 1;
+
+    private static final List<String> CONNECTOR_IDS = Arrays.asList("connector1", "connector2", "connector3");
+
+    private static final List<String> CLAIM_URIS = Arrays.asList("http://wso2.org/claims/username",
+            "http://wso2.org/claims/email", "http://wso2.org/claims/mobile");
+
+    private Map<String, IdentityStoreConnector> connectors;
+
+    private UniqueIdResolver uniqueIdResolver;
+
+    private Domain domain;
+
+    private ExecutorService connectorExecutor;
+
+    /**
+     * Threads the connectors were called on.
+     */
+    private Map<String, Thread> callingThreads;
+
+    @BeforeMethod
+    public void initMethod() throws Exception {
+
+        uniqueIdResolver = Mockito.mock(UniqueIdResolver.class);
+        Mockito.when(uniqueIdResolver.getUser("user1", DOMAIN_ID)).thenReturn(new DomainUser("user1",
+                CONNECTOR_IDS.stream()
+                        .map(connectorId -> new UserPartition(connectorId, connectorId + "User1", true))
+                        .collect(Collectors.toList())));
+        Mockito.when(uniqueIdResolver.getGroup("group1", DOMAIN_ID)).thenReturn(new DomainGroup("group1",
+                CONNECTOR_IDS.stream()
+                        .map(connectorId -> new GroupPartition(connectorId, connectorId + "Group1"))
+                        .collect(Collectors.toList())));
+
+        domain = new Domain(DOMAIN_ID, "PRIMARY", 1, uniqueIdResolver);
+        connectors = new HashMap<>();
+        for (int i = 0; i < CONNECTOR_IDS.size(); i++) {
+            String connectorId = CONNECTOR_IDS.get(i);
+            IdentityStoreConnector connector = Mockito.mock(IdentityStoreConnector.class);
+            Mockito.when(connector.getIdentityStoreConfig()).thenReturn(new IdentityStoreConnectorConfig(
+                    connectorId, "JDBCIdentityStore", false, new HashMap<>()));
+            domain.addIdentityStoreConnector(connector);
+            connectors.put(connectorId, connector);
+        }
+        domain.setMetaClaimMappings(Arrays.asList(
+                new MetaClaimMapping(new MetaClaim(DIALECT, CLAIM_URIS.get(0)), CONNECTOR_IDS.get(0), "attribute1"),
+                new MetaClaimMapping(new MetaClaim(DIALECT, CLAIM_URIS.get(1)), CONNECTOR_IDS.get(1), "attribute2"),
+                new MetaClaimMapping(new MetaClaim(DIALECT, CLAIM_URIS.get(2)), CONNECTOR_IDS.get(2), "attribute3")));
+
+        connectorExecutor = Executors.newFixedThreadPool(2);
+        callingThreads = new ConcurrentHashMap<>();
+    }
+
+    @AfterMethod
+    public void destroyMethod() {
+
+        connectorExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testClaimsAreMergedInPartitionOrder() throws Exception {
+
+        // The first connector only answers once the last one has, which only works if they are called in parallel.
+        CountDownLatch lastConnectorCalled = new CountDownLatch(1);
+        stubUserAttributes(0, () -> Assert.assertTrue(lastConnectorCalled.await(10, TimeUnit.SECONDS)));
+        stubUserAttributes(1, () -> { });
+        stubUserAttributes(2, lastConnectorCalled::countDown);
+        domain.setConnectorExecutor(connectorExecutor);
+
+        Assert.assertEquals(getClaimUris(domain.getClaimsOfUser("user1")), CLAIM_URIS);
+        Assert.assertSame(callingThreads.get(CONNECTOR_IDS.get(0)), Thread.currentThread());
+        Assert.assertNotSame(callingThreads.get(CONNECTOR_IDS.get(2)), Thread.currentThread());
+    }
+
+    @Test
+    public void testConnectorsAreCalledSequentiallyWithoutExecutor() throws Exception {
+
+        for (int i = 0; i < CONNECTOR_IDS.size(); i++) {
+            stubUserAttributes(i, () -> { });
+        }
+
+        Assert.assertEquals(getClaimUris(domain.getClaimsOfUser("user1")), CLAIM_URIS);
+        Assert.assertEquals(callingThreads.values().stream().distinct().collect(Collectors.toList()),
+                Collections.singletonList(Thread.currentThread()));
+    }
+
+    @Test
+    public void testConnectorsWithoutExecutorAreCalledByTheCaller() throws Exception {
+
+        for (int i = 0; i < CONNECTOR_IDS.size(); i++) {
+            stubUserAttributes(i, () -> { });
+        }
+        domain.setConnectorExecutors(Collections.singletonMap(CONNECTOR_IDS.get(1), connectorExecutor));
+
+        Assert.assertEquals(getClaimUris(domain.getClaimsOfUser("user1")), CLAIM_URIS);
+        Assert.assertNotSame(callingThreads.get(CONNECTOR_IDS.get(1)), Thread.currentThread());
+        Assert.assertSame(callingThreads.get(CONNECTOR_IDS.get(2)), Thread.currentThread());
+    }
+
+    @Test(expectedExceptions = DomainException.class)
+    public void testConnectorFailureFailsTheRead() throws Exception {
+
+        stubUserAttributes(0, () -> { });
+        stubUserAttributes(1, () -> {
+            throw new IdentityStoreConnectorException("The connector is unavailable.");
+        });
+        stubUserAttributes(2, () -> { });
+        domain.setConnectorExecutor(connectorExecutor);
+
+        domain.getClaimsOfUser("user1");
+    }
+
+    @Test
+    public void testGroupClaimsAreMergedInPartitionOrder() throws Exception {
+
+        CountDownLatch lastConnectorCalled = new CountDownLatch(1);
+        for (int i = 0; i < CONNECTOR_IDS.size(); i++) {
+            String connectorGroupId = CONNECTOR_IDS.get(i) + "Group1";
+            List<Attribute> attributes = Collections.singletonList(new Attribute("attribute" + (i + 1), "value"));
+            boolean first = i == 0;
+            Mockito.when(connectors.get(CONNECTOR_IDS.get(i)).getGroupAttributeValues(connectorGroupId)).thenAnswer(
+                    invocation -> {
+                        if (first) {
+                            Assert.assertTrue(lastConnectorCalled.await(10, TimeUnit.SECONDS));
+                        } else {
+                            lastConnectorCalled.countDown();
+                        }
+                        return attributes;
+                    });
+        }
+        domain.setConnectorExecutor(connectorExecutor);
+
+        Assert.assertEquals(getClaimUris(domain.getClaimsOfGroup("group1")), CLAIM_URIS);
+    }
+
+    /**
+     * Make a connector return the attribute of its user after running the given step.
+     *
+     * @param index Index of the connector.
+     * @param step  Step run before the connector answers.
+     */
+    private void stubUserAttributes(int index, ConnectorStep step) throws Exception {
+
+        String connectorId = CONNECTOR_IDS.get(index);
+        List<Attribute> attributes = Collections.singletonList(new Attribute("attribute" + (index + 1), "value"));
+        Mockito.when(connectors.get(connectorId).getUserAttributeValues(connectorId + "User1")).thenAnswer(
+                invocation -> {
+                    callingThreads.put(connectorId, Thread.currentThread());
+                    step.run();
+                    return attributes;
+                });
+    }
+
+    private static List<String> getClaimUris(List<Claim> claims) {
+
+        return claims.stream()
+                .map(Claim::getClaimUri)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Step run by a connector before it answers.
+     */
+    @FunctionalInterface
+    private interface ConnectorStep {
+
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wso2.carbon.identity.mgt.store.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.Group;
+import org.wso2.carbon.identity.mgt.User;
+import org.wso2.carbon.identity.mgt.claim.Claim;
+import org.wso2.carbon.identity.mgt.exception.DomainException;
+import org.wso2.carbon.identity.mgt.exception.GroupNotFoundException;
+import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
+import org.wso2.carbon.identity.mgt.impl.CacheBackedIdentityStore;
+import org.wso2.carbon.identity.mgt.impl.Domain;
+import org.wso2.carbon.identity.mgt.test.util.InMemoryCachingService;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Tests of the group membership caches of the cache backed identity store.
+ */
+public class MembershipCacheTests {
+
+    private MembershipDomain domain;
+
+    private CacheBackedIdentityStore identityStore;
+
+    @BeforeMethod
+    public void initMethod() throws Exception {
+
+        InMemoryCachingService.register();
+        domain = new MembershipDomain();
+        domain.groups.addAll(Arrays.asList("group1", "group2"));
+        domain.groupsOfUsers.put("user1", new TreeSet<>(Collections.singletonList("group1")));
+        domain.groupsOfUsers.put("user2", new TreeSet<>());
+        identityStore = new CacheBackedIdentityStore(new HashMap<>(), Collections.singletonList(domain));
+    }
+
+    @AfterMethod
+    public void destroyMethod() {
+
+        identityStore.unregisterCacheStatistics();
+    }
+
+    @Test
+    public void testMembershipIsServedFromCache() throws Exception {
+
+        Assert.assertEquals(getGroupIds("1.user1"), Collections.singletonList("1.group1"));
+        Assert.assertEquals(getGroupIds("1.user1"), Collections.singletonList("1.group1"));
+        Assert.assertEquals(getUserIds("1.group1"), Collections.singletonList("1.user1"));
+        Assert.assertEquals(getUserIds("1.group1"), Collections.singletonList("1.user1"));
+
+        Assert.assertEquals(domain.reads.get(), 2);
+    }
+
+    @Test
+    public void testMembershipCheckUsesCachedGroupsOfUser() throws Exception {
+
+        getGroupIds("1.user1");
+        getUserIds("1.group2");
+
+        Assert.assertTrue(identityStore.isUserInGroup("1.user1", "1.group1"));
+        Assert.assertFalse(identityStore.isUserInGroup("1.user1", "1.group2"));
+        Assert.assertEquals(domain.reads.get(), 2);
+        Assert.assertEquals(domain.membershipChecks.get(), 0);
+    }
+
+    @Test
+    public void testUpdateOfGroupsOfUserInvalidatesBothSides() throws Exception {
+
+        getGroupIds("1.user1");
+        getUserIds("1.group1");
+        getUserIds("1.group2");
+
+        identityStore.updateGroupsOfUser("1.user1", Collections.singletonList("1.group2"));
+
+        Assert.assertEquals(getGroupIds("1.user1"), Collections.singletonList("1.group2"));
+        Assert.assertEquals(getUserIds("1.group1"), Collections.emptyList());
+        Assert.assertEquals(getUserIds("1.group2"), Collections.singletonList("1.user1"));
+    }
+
+    @Test
+    public void testPartialUpdateOfGroupsOfUserInvalidatesBothSides() throws Exception {
+
+        getGroupIds("1.user1");
+        getUserIds("1.group1");
+        getUserIds("1.group2");
+
+        identityStore.updateGroupsOfUser("1.user1", Collections.singletonList("1.group2"),
+                Collections.singletonList("1.group1"));
+
+        Assert.assertEquals(getGroupIds("1.user1"), Collections.singletonList("1.group2"));
+        Assert.assertEquals(getUserIds("1.group1"), Collections.emptyList());
+        Assert.assertEquals(getUserIds("1.group2"), Collections.singletonList("1.user1"));
+    }
+
+    @Test
+    public void testUpdateOfUsersOfGroupInvalidatesBothSides() throws Exception {
+
+        getUserIds("1.group1");
+        getGroupIds("1.user1");
+        getGroupIds("1.user2");
+
+        identityStore.updateUsersOfGroup("1.group1", Collections.singletonList("1.user2"));
+
+        Assert.assertEquals(getUserIds("1.group1"), Collections.singletonList("1.user2"));
+        Assert.assertEquals(getGroupIds("1.user1"), Collections.emptyList());
+        Assert.assertEquals(getGroupIds("1.user2"), Collections.singletonList("1.group1"));
+    }
+
+    @Test
+    public void testDeleteOfUserInvalidatesItsGroups() throws Exception {
+
+        getUserIds("1.group1");
+
+        identityStore.deleteUser("1.user1");
+
+        Assert.assertEquals(getUserIds("1.group1"), Collections.emptyList());
+    }
+
+    @Test
+    public void testDeleteOfGroupInvalidatesItsUsers() throws Exception {
+
+        getGroupIds("1.user1");
+
+        identityStore.deleteGroup("1.group1");
+
+        Assert.assertEquals(getGroupIds("1.user1"), Collections.emptyList());
+    }
+
+    @Test
+    public void testDeleteOfUserWithUncachedGroupsDoesNotReadThem() throws Exception {
+
+        getUserIds("1.group1");
+        getUserIds("1.group2");
+
+        identityStore.deleteUser("1.user1");
+
+        // The groups of the user are unknown, hence the users of every group are reloaded.
+        Assert.assertEquals(domain.reads.get(), 2);
+        Assert.assertEquals(getUserIds("1.group1"), Collections.emptyList());
+        getUserIds("1.group2");
+        Assert.assertEquals(domain.reads.get(), 4);
+    }
+
+    @Test
+    public void testDeleteOfUserWithCachedGroupsInvalidatesOnlyThem() throws Exception {
+
+        getGroupIds("1.user1");
+        getUserIds("1.group1");
+        getUserIds("1.group2");
+
+        identityStore.deleteUser("1.user1");
+
+        Assert.assertEquals(getUserIds("1.group1"), Collections.emptyList());
+        getUserIds("1.group2");
+        Assert.assertEquals(domain.reads.get(), 4);
+    }
+
+    @Test
+    public void testDeleteOfGroupWithUncachedUsersDoesNotReadThem() throws Exception {
+
+        getGroupIds("1.user1");
+
+        identityStore.deleteGroup("1.group1");
+
+        Assert.assertEquals(domain.reads.get(), 1);
+        Assert.assertEquals(getGroupIds("1.user1"), Collections.emptyList());
+    }
+
+    @Test
+    public void testGroupOfAClaimIsServedFromTheCaches() throws Exception {
+
+        Group group = identityStore.getGroup(new Claim("http://wso2.org/claims", "http://wso2.org/claims/groupName",
+                "group1"));
+        Assert.assertEquals(group.getUniqueGroupId(), "1.group1");
+
+        group.getUsers();
+        group.getUsers();
+
+        Assert.assertEquals(domain.reads.get(), 1);
+    }
+
+    private List<String> getGroupIds(String uniqueUserId) throws Exception {
+
+        return identityStore.getGroupsOfUser(uniqueUserId).stream()
+                .map(Group::getUniqueGroupId)
+                .collect(Collectors.toList());
+    }
+
+    private List<String> getUserIds(String uniqueGroupId) throws Exception {
+
+        return identityStore.getUsersOfGroup(uniqueGroupId).stream()
+                .map(User::getUniqueUserId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Domain which keeps the group membership of its users in memory and counts the membership reads.
+     */
+    private static class MembershipDomain extends Domain {
+
+        private final Set<String> groups = ConcurrentHashMap.newKeySet();
+
+        private final Map<String, Set<String>> groupsOfUsers = new ConcurrentHashMap<>();
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private final AtomicInteger membershipChecks = new AtomicInteger();
+
+        MembershipDomain() throws DomainException {
+
+            super(1, "PRIMARY", 1, null);
+        }
+
+        @Override
+        public String getDomainGroupId(Claim claim) throws GroupNotFoundException {
+
+            if (!groups.contains(claim.getValue())) {
+                throw new GroupNotFoundException("Invalid claim value.");
+            }
+            return claim.getValue();
+        }
+
+        @Override
+        public boolean isUserExists(String domainUserId) {
+            return groupsOfUsers.containsKey(domainUserId);
+        }
+
+        @Override
+        public boolean isGroupExists(String domainGroupId) {
+            return groups.contains(domainGroupId);
+        }
+
+        @Override
+        public List<String> getGroupsOfUser(String domainUserId) {
+
+            reads.incrementAndGet();
+            return groupsOfUsers.get(domainUserId).stream()
+                    .filter(groups::contains)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<String> getUsersOfGroup(String domainGroupId) {
+
+            reads.incrementAndGet();
+            return groupsOfUsers.entrySet().stream()
+                    .filter(entry -> entry.getValue().contains(domainGroupId))
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public boolean isUserInGroup(String domainUserId, String domainGroupId) {
+
+            membershipChecks.incrementAndGet();
+            return groupsOfUsers.get(domainUserId).contains(domainGroupId);
+        }
+
+        @Override
+        public void updateGroupsOfUser(String domainUserId, List<String> domainGroupIds) {
+            groupsOfUsers.put(domainUserId, new TreeSet<>(domainGroupIds));
+        }
+
+        @Override
+        public void updateGroupsOfUser(String domainUserId, List<String> domainGroupIdsToUpdate,
+                                       List<String> domainGroupIdsToRemove) {
+
+            Set<String> groupsOfUser = groupsOfUsers.get(domainUserId);
+            groupsOfUser.addAll(domainGroupIdsToUpdate);
+            groupsOfUser.removeAll(domainGroupIdsToRemove);
+        }
+
+        @Override
+        public void updateUsersOfGroup(String domainGroupId, List<String> domainUserIds) {
+
+            groupsOfUsers.forEach((domainUserId, groupsOfUser) -> {
+                if (domainUserIds.contains(domainUserId)) {
+                    groupsOfUser.add(domainGroupId);
+                } else {
+                    groupsOfUser.remove(domainGroupId);
+                }
+            });
+        }
+
+        @Override
+        public void deleteUser(String domainUserId) throws UserNotFoundException {
+
+            if (groupsOfUsers.remove(domainUserId) == null) {
+                throw new UserNotFoundException("Invalid domain user id.");
+            }
+        }
+
+        @Override
+        public void deleteGroup(String domainGroupId) throws GroupNotFoundException {
+
+            if (!groups.remove(domainGroupId)) {
+                throw new GroupNotFoundException("Invalid domain group id.");
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wso2.carbon.identity.mgt.store.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.AuthenticationContext;
+import org.wso2.carbon.identity.mgt.claim.Claim;
+import org.wso2.carbon.identity.mgt.exception.AuthenticationFailure;
+import org.wso2.carbon.identity.mgt.exception.DomainException;
+import org.wso2.carbon.identity.mgt.impl.Domain;
+import org.wso2.carbon.identity.mgt.impl.IdentityStoreImpl;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.PasswordCallback;
+
+/**
+ * Tests of authenticating against the domains in parallel.
+ */
+public class ParallelAuthenticationTests {
+
+    private static final Claim USERNAME = new Claim("http://wso2.org/claims", "http://wso2.org/claims/username",
+            "alice");
+
+    private ExecutorService domainExecutor;
+
+    private Callback[] credentials;
+
+    @BeforeMethod
+    public void initMethod() {
+
+        domainExecutor = Executors.newFixedThreadPool(2);
+        PasswordCallback passwordCallback = new PasswordCallback("password", false);
+        passwordCallback.setPassword("password".toCharArray());
+        credentials = new Callback[] {passwordCallback};
+    }
+
+    @AfterMethod
+    public void destroyMethod() {
+
+        domainExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testHigherPriorityDomainWinsWhenBothDomainsAccept() throws Exception, AuthenticationFailure {
+
+        // The lower priority domain answers first, yet the user belongs to the higher priority one.
+        CountDownLatch secondaryAuthenticated = new CountDownLatch(1);
+        TestDomain secondary = new TestDomain(2, "SECONDARY", true, secondaryAuthenticated::countDown);
+        TestDomain primary = new TestDomain(1, "PRIMARY", true,
+                () -> Assert.assertTrue(secondaryAuthenticated.await(10, TimeUnit.SECONDS)));
+        secondary.setParallelAuthentication(true);
+
+        AuthenticationContext context = new IdentityStoreImpl(Arrays.asList(secondary, primary), domainExecutor)
+                .authenticate(USERNAME, credentials, null);
+
+        Assert.assertEquals(context.getUser().getDomainName(), "PRIMARY");
+    }
+
+    @Test
+    public void testDomainsNotOptedInDoNotSeeAcceptedCredentials() throws Exception, AuthenticationFailure {
+
+        TestDomain primary = new TestDomain(1, "PRIMARY", true, () -> { });
+        TestDomain secondary = new TestDomain(2, "SECONDARY", true, () -> { });
+
+        AuthenticationContext context = new IdentityStoreImpl(Arrays.asList(primary, secondary), domainExecutor)
+                .authenticate(USERNAME, credentials, null);
+
+        Assert.assertEquals(context.getUser().getDomainName(), "PRIMARY");
+        Assert.assertEquals(secondary.authentications.get(), 0);
+    }
+
+    @Test
+    public void testLowerPriorityDomainAuthenticatesWhenHigherPriorityDomainRejects()
+            throws Exception, AuthenticationFailure {
+
+        TestDomain primary = new TestDomain(1, "PRIMARY", false, () -> { });
+        TestDomain secondary = new TestDomain(2, "SECONDARY", true, () -> { });
+        TestDomain tertiary = new TestDomain(3, "TERTIARY", true, () -> { });
+        secondary.setParallelAuthentication(true);
+
+        AuthenticationContext context = new IdentityStoreImpl(Arrays.asList(primary, secondary, tertiary),
+                domainExecutor).authenticate(USERNAME, credentials, null);
+
+        Assert.assertEquals(context.getUser().getDomainName(), "SECONDARY");
+        Assert.assertEquals(primary.authentications.get(), 1);
+        Assert.assertEquals(tertiary.authentications.get(), 0);
+    }
+
+    /**
+     * Step run by a domain before it decides on the credentials.
+     */
+    private interface AuthenticationStep {
+
+        void run() throws Exception;
+    }
+
+    /**
+     * Domain which supports every claim and accepts or rejects all credentials.
+     */
+    private static class TestDomain extends Domain {
+
+        private final boolean accept;
+
+        private final AuthenticationStep step;
+
+        private final AtomicInteger authentications = new AtomicInteger();
+
+        TestDomain(int id, String name, boolean accept, AuthenticationStep step) throws DomainException {
+
+            super(id, name, id, null);
+            this.accept = accept;
+            this.step = step;
+        }
+
+        @Override
+        public boolean isClaimSupported(String claimURI) {
+            return true;
+        }
+
+        @Override
+        public String authenticate(Claim claim, Callback[] credentials) throws AuthenticationFailure {
+
+            authentications.incrementAndGet();
+            try {
+                step.run();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            if (!accept) {
+                throw new AuthenticationFailure("Invalid user credentials.");
+            }
+            return claim.getValue();
+        }
+    }
+}
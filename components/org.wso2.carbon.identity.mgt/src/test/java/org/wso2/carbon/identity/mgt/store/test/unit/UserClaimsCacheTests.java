@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wso2.carbon.identity.mgt.store.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.claim.Claim;
+import org.wso2.carbon.identity.mgt.claim.MetaClaim;
+import org.wso2.carbon.identity.mgt.exception.DomainException;
+import org.wso2.carbon.identity.mgt.exception.IdentityStoreException;
+import org.wso2.carbon.identity.mgt.exception.UserNotFoundException;
+import org.wso2.carbon.identity.mgt.impl.CacheBackedIdentityStore;
+import org.wso2.carbon.identity.mgt.impl.Domain;
+import org.wso2.carbon.identity.mgt.test.util.InMemoryCachingService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Tests of the user claims cache of the cache backed identity store.
+ */
+public class UserClaimsCacheTests {
+
+    private static final String DIALECT = "http://wso2.org/claims";
+
+    private static final String USERNAME_CLAIM = "http://wso2.org/claims/username";
+
+    private static final String EMAIL_CLAIM = "http://wso2.org/claims/email";
+
+    private static final String UNIQUE_USER_ID = "1.user1";
+
+    private ClaimsDomain domain;
+
+    private CacheBackedIdentityStore identityStore;
+
+    @BeforeMethod
+    public void initMethod() throws Exception {
+
+        InMemoryCachingService.register();
+        domain = new ClaimsDomain();
+        domain.claims.put("user1", Arrays.asList(new Claim(DIALECT, USERNAME_CLAIM, "alice"),
+                new Claim(DIALECT, EMAIL_CLAIM, "alice@wso2.com")));
+        identityStore = new CacheBackedIdentityStore(new HashMap<>(), Collections.singletonList(domain));
+    }
+
+    @AfterMethod
+    public void destroyMethod() {
+
+        identityStore.unregisterCacheStatistics();
+    }
+
+    @Test
+    public void testClaimsAreServedFromCache() throws Exception {
+
+        List<Claim> claims = identityStore.getClaimsOfUser(UNIQUE_USER_ID);
+
+        Assert.assertEquals(getValues(identityStore.getClaimsOfUser(UNIQUE_USER_ID)), getValues(claims));
+        Assert.assertEquals(domain.reads.get(), 1);
+    }
+
+    @Test
+    public void testProjectionsAreCachedSeparately() throws Exception {
+
+        List<MetaClaim> email = Collections.singletonList(new MetaClaim(DIALECT, EMAIL_CLAIM));
+
+        Assert.assertEquals(getValues(identityStore.getClaimsOfUser(UNIQUE_USER_ID, email)),
+                Collections.singletonList("alice@wso2.com"));
+        Assert.assertEquals(getValues(identityStore.getClaimsOfUser(UNIQUE_USER_ID)),
+                Arrays.asList("alice", "alice@wso2.com"));
+        Assert.assertEquals(getValues(identityStore.getClaimsOfUser(UNIQUE_USER_ID, email)),
+                Collections.singletonList("alice@wso2.com"));
+        Assert.assertEquals(domain.reads.get(), 2);
+    }
+
+    @Test
+    public void testCallersGetTheirOwnCopy() throws Exception {
+
+        identityStore.getClaimsOfUser(UNIQUE_USER_ID).get(0).setValue("mallory");
+
+        Assert.assertEquals(getValues(identityStore.getClaimsOfUser(UNIQUE_USER_ID)),
+                Arrays.asList("alice", "alice@wso2.com"));
+    }
+
+    @Test
+    public void testUpdateOfClaimsInvalidatesCache() throws Exception {
+
+        List<MetaClaim> email = Collections.singletonList(new MetaClaim(DIALECT, EMAIL_CLAIM));
+        identityStore.getClaimsOfUser(UNIQUE_USER_ID);
+        identityStore.getClaimsOfUser(UNIQUE_USER_ID, email);
+
+        identityStore.updateUserClaims(UNIQUE_USER_ID, Collections.singletonList(new Claim(DIALECT, EMAIL_CLAIM,
+                "bob@wso2.com")));
+
+        Assert.assertEquals(getValues(identityStore.getClaimsOfUser(UNIQUE_USER_ID)),
+                Collections.singletonList("bob@wso2.com"));
+        Assert.assertEquals(getValues(identityStore.getClaimsOfUser(UNIQUE_USER_ID, email)),
+                Collections.singletonList("bob@wso2.com"));
+    }
+
+    @Test
+    public void testPartialUpdateOfClaimsInvalidatesCache() throws Exception {
+
+        identityStore.getClaimsOfUser(UNIQUE_USER_ID);
+
+        identityStore.updateUserClaims(UNIQUE_USER_ID, Collections.singletonList(new Claim(DIALECT, EMAIL_CLAIM,
+                "bob@wso2.com")), Collections.singletonList(new Claim(DIALECT, EMAIL_CLAIM, "alice@wso2.com")));
+
+        Assert.assertEquals(getValues(identityStore.getClaimsOfUser(UNIQUE_USER_ID)),
+                Arrays.asList("alice", "bob@wso2.com"));
+    }
+
+    @Test
+    public void testFailedUpdateOfClaimsInvalidatesCache() throws Exception {
+
+        identityStore.getClaimsOfUser(UNIQUE_USER_ID);
+        domain.failUpdates = true;
+
+        try {
+            identityStore.updateUserClaims(UNIQUE_USER_ID, Collections.emptyList());
+            Assert.fail("Expecting the update to fail.");
+        } catch (IdentityStoreException e) {
+            // The update may have been applied partially.
+        }
+        identityStore.getClaimsOfUser(UNIQUE_USER_ID);
+
+        Assert.assertEquals(domain.reads.get(), 2);
+    }
+
+    @Test(expectedExceptions = UserNotFoundException.class)
+    public void testDeleteOfUserInvalidatesCache() throws Exception {
+
+        identityStore.getClaimsOfUser(UNIQUE_USER_ID);
+
+        identityStore.deleteUser(UNIQUE_USER_ID);
+
+        identityStore.getClaimsOfUser(UNIQUE_USER_ID);
+    }
+
+    private static List<String> getValues(List<Claim> claims) {
+
+        return claims.stream()
+                .map(Claim::getValue)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Domain which keeps the claims of its users in memory and counts the claim reads.
+     */
+    private static class ClaimsDomain extends Domain {
+
+        private final Map<String, List<Claim>> claims = new ConcurrentHashMap<>();
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private volatile boolean failUpdates;
+
+        ClaimsDomain() throws DomainException {
+
+            super(1, "PRIMARY", 1, null);
+        }
+
+        @Override
+        public boolean isUserExists(String domainUserId) {
+            return claims.containsKey(domainUserId);
+        }
+
+        @Override
+        public List<String> getGroupsOfUser(String domainUserId) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Claim> getClaimsOfUser(String domainUserId) throws UserNotFoundException {
+
+            reads.incrementAndGet();
+            return new ArrayList<>(getClaims(domainUserId));
+        }
+
+        @Override
+        public List<Claim> getClaimsOfUser(String domainUserId, List<MetaClaim> metaClaims)
+                throws UserNotFoundException {
+
+            reads.incrementAndGet();
+            List<String> claimUris = metaClaims.stream()
+                    .map(MetaClaim::getClaimUri)
+                    .collect(Collectors.toList());
+            return getClaims(domainUserId).stream()
+                    .filter(claim -> claimUris.contains(claim.getClaimUri()))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public void updateUserClaims(String domainUserId, List<Claim> claims) throws DomainException,
+                UserNotFoundException {
+
+            getClaims(domainUserId);
+            if (failUpdates) {
+                throw new DomainException("Failed to update the claims.");
+            }
+            this.claims.put(domainUserId, new ArrayList<>(claims));
+        }
+
+        @Override
+        public void updateUserClaims(String domainUserId, List<Claim> claimsToUpdate, List<Claim> claimsToRemove)
+                throws UserNotFoundException {
+
+            List<String> removedValues = getValues(claimsToRemove);
+            List<Claim> updatedClaims = getClaims(domainUserId).stream()
+                    .filter(claim -> !removedValues.contains(claim.getValue()))
+                    .collect(Collectors.toList());
+            updatedClaims.addAll(claimsToUpdate);
+            claims.put(domainUserId, updatedClaims);
+        }
+
+        @Override
+        public void deleteUser(String domainUserId) throws UserNotFoundException {
+
+            getClaims(domainUserId);
+            claims.remove(domainUserId);
+        }
+
+        private List<Claim> getClaims(String domainUserId) throws UserNotFoundException {
+
+            List<Claim> userClaims = claims.get(domainUserId);
+            if (userClaims == null) {
+                throw new UserNotFoundException("Invalid domain user id.");
+            }
+            return userClaims;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.test.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Configuration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.EventType;
+import javax.cache.integration.CompletionListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorResult;
+
+/**
+ * Map backed cache for unit tests. Entries never expire by themselves, they are expired explicitly with
+ * {@link #expire(Object)}, which notifies the registered expiry listeners.
+ *
+ * @param <K> Type of the key.
+ * @param <V> Type of the value.
+ */
+public class InMemoryCache<K, V> implements Cache<K, V> {
+
+    private final String name;
+
+    private final ConcurrentMap<K, V> entries = new ConcurrentHashMap<>();
+
+    private final List<CacheEntryListener<? super K, ? super V>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean closed;
+
+    public InMemoryCache(String name) {
+
+        this.name = name;
+    }
+
+    /**
+     * Expire an entry as the expiry policy of a real cache would.
+     *
+     * @param key Key of the entry.
+     */
+    @SuppressWarnings("unchecked")
+    public void expire(K key) {
+
+        V value = entries.remove(key);
+        if (value == null) {
+            return;
+        }
+
+        List<CacheEntryEvent<? extends K, ? extends V>> events = Collections.singletonList(
+                new ExpiredEvent(key, value));
+        listeners.stream()
+                .filter(listener -> listener instanceof CacheEntryExpiredListener)
+                .forEach(listener -> ((CacheEntryExpiredListener<K, V>) listener).onExpired(events));
+    }
+
+    @Override
+    public V get(K key) {
+
+        return entries.get(key);
+    }
+
+    @Override
+    public Map<K, V> getAll(Set<? extends K> keys) {
+
+        Map<K, V> values = new HashMap<>();
+        keys.forEach(key -> {
+            V value = entries.get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public void loadAll(Set<? extends K> keys, boolean replaceExistingValues, CompletionListener completionListener) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void put(K key, V value) {
+
+        entries.put(key, value);
+    }
+
+    @Override
+    public V getAndPut(K key, V value) {
+
+        return entries.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+
+        entries.putAll(map);
+    }
+
+    @Override
+    public boolean putIfAbsent(K key, V value) {
+
+        return entries.putIfAbsent(key, value) == null;
+    }
+
+    @Override
+    public boolean remove(K key) {
+
+        return entries.remove(key) != null;
+    }
+
+    @Override
+    public boolean remove(K key, V oldValue) {
+
+        return entries.remove(key, oldValue);
+    }
+
+    @Override
+    public V getAndRemove(K key) {
+
+        return entries.remove(key);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+
+        return entries.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public boolean replace(K key, V value) {
+
+        return entries.replace(key, value) != null;
+    }
+
+    @Override
+    public V getAndReplace(K key, V value) {
+
+        return entries.replace(key, value);
+    }
+
+    @Override
+    public void removeAll(Set<? extends K> keys) {
+
+        keys.forEach(entries::remove);
+    }
+
+    @Override
+    public void removeAll() {
+
+        entries.clear();
+    }
+
+    @Override
+    public void clear() {
+
+        entries.clear();
+    }
+
+    @Override
+    public <C extends Configuration<K, V>> C getConfiguration(Class<C> clazz) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys,
+                                                         EntryProcessor<K, V, T> entryProcessor,
+                                                         Object... arguments) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getName() {
+
+        return name;
+    }
+
+    @Override
+    public CacheManager getCacheManager() {
+
+        return null;
+    }
+
+    @Override
+    public void close() {
+
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+
+        return closed;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+
+        throw new IllegalArgumentException("Unwrapping to " + clazz.getName() + " is not supported.");
+    }
+
+    @Override
+    public void registerCacheEntryListener(CacheEntryListenerConfiguration<K, V> cacheEntryListenerConfiguration) {
+
+        listeners.add(cacheEntryListenerConfiguration.getCacheEntryListenerFactory().create());
+    }
+
+    @Override
+    public void deregisterCacheEntryListener(CacheEntryListenerConfiguration<K, V> cacheEntryListenerConfiguration) {
+
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+
+        List<Entry<K, V>> snapshot = new ArrayList<>();
+        entries.forEach((key, value) -> snapshot.add(new SimpleEntry(key, value)));
+        return snapshot.iterator();
+    }
+
+    /**
+     * Entry returned by the iterator.
+     */
+    private class SimpleEntry implements Entry<K, V> {
+
+        private final K key;
+
+        private final V value;
+
+        SimpleEntry(K key, V value) {
+
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+
+            return value;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+
+            throw new IllegalArgumentException("Unwrapping to " + clazz.getName() + " is not supported.");
+        }
+    }
+
+    /**
+     * Event of an expired entry.
+     */
+    private class ExpiredEvent extends CacheEntryEvent<K, V> {
+
+        private final K key;
+
+        private final V value;
+
+        ExpiredEvent(K key, V value) {
+
+            super(InMemoryCache.this, EventType.EXPIRED);
+            this.key = Objects.requireNonNull(key);
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+
+            return value;
+        }
+
+        @Override
+        public V getOldValue() {
+
+            return value;
+        }
+
+        @Override
+        public boolean isOldValueAvailable() {
+
+            return true;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+
+            throw new IllegalArgumentException("Unwrapping to " + clazz.getName() + " is not supported.");
+        }
+    }
+}
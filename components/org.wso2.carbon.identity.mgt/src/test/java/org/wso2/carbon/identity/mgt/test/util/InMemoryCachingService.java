@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wso2.carbon.identity.mgt.test.util;
+
+import org.mockito.Mockito;
+import org.wso2.carbon.caching.CarbonCachingService;
+import org.wso2.carbon.identity.mgt.impl.internal.IdentityMgtDataHolder;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.cache.CacheManager;
+import javax.cache.configuration.Configuration;
+import javax.cache.spi.CachingProvider;
+
+/**
+ * Caching service for unit tests whose caches are {@link InMemoryCache}s.
+ */
+public class InMemoryCachingService {
+
+    private InMemoryCachingService() {
+
+    }
+
+    /**
+     * Make the identity management components create their caches in memory.
+     *
+     * @return Caches created from now on by cache name.
+     * @throws ReflectiveOperationException If the caching service could not be set.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, InMemoryCache<?, ?>> register() throws ReflectiveOperationException {
+
+        Map<String, InMemoryCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+        CacheManager cacheManager = Mockito.mock(CacheManager.class);
+        Mockito.when(cacheManager.createCache(Mockito.anyString(), Mockito.any(Configuration.class))).thenAnswer(
+                invocation -> caches.computeIfAbsent((String) invocation.getArguments()[0],
+                        cacheName -> new InMemoryCache<>(cacheName)));
+
+        CachingProvider cachingProvider = Mockito.mock(CachingProvider.class);
+        Mockito.when(cachingProvider.getCacheManager()).thenReturn(cacheManager);
+
+        CarbonCachingService carbonCachingService = Mockito.mock(CarbonCachingService.class);
+        Mockito.when(carbonCachingService.getCachingProvider()).thenReturn(cachingProvider);
+
+        // The caching service is only ever bound by the OSGi component.
+        Field field = IdentityMgtDataHolder.class.getDeclaredField("carbonCachingService");
+        field.setAccessible(true);
+        field.set(IdentityMgtDataHolder.getInstance(), carbonCachingService);
+
+        return caches;
+    }
+}
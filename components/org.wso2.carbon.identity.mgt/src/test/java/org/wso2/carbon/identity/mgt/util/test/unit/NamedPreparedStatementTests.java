@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wso2.carbon.identity.mgt.util.test.unit;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.impl.util.NamedPreparedStatement;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Named Prepared Statement Tests.
+ */
+public class NamedPreparedStatementTests {
+
+    @Test
+    public void testPaddedParametersRepeatTheLastValue() throws SQLException {
+
+        Connection connection = mock(Connection.class);
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        when(connection.prepareStatement("SELECT * FROM IDM_USER WHERE USER_ID IN (?, ?, ?, ?) AND DOMAIN_ID = ?"))
+                .thenReturn(preparedStatement);
+
+        NamedPreparedStatement namedPreparedStatement = new NamedPreparedStatement(connection,
+                "SELECT * FROM IDM_USER WHERE USER_ID IN (:user_id;) AND DOMAIN_ID = :domain_id;",
+                Collections.singletonMap("user_id", 3));
+        namedPreparedStatement.setString("user_id", Arrays.asList("a", "b", "c"));
+        namedPreparedStatement.setInt("domain_id", 7);
+
+        verify(preparedStatement).setString(1, "a");
+        verify(preparedStatement).setString(2, "b");
+        verify(preparedStatement).setString(3, "c");
+        verify(preparedStatement).setString(4, "c");
+        verify(preparedStatement).setInt(5, 7);
+    }
+
+    @Test(expectedExceptions = SQLException.class)
+    public void testMoreValuesThanParameters() throws SQLException {
+
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement("SELECT * FROM IDM_USER WHERE USER_ID IN (?, ?)"))
+                .thenReturn(mock(PreparedStatement.class));
+
+        new NamedPreparedStatement(connection, "SELECT * FROM IDM_USER WHERE USER_ID IN (:user_id;)",
+                Collections.singletonMap("user_id", 2)).setString("user_id", Arrays.asList("a", "b", "c"));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.util.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.impl.util.NamedQueryTemplate;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Named Query Template Tests.
+ */
+public class NamedQueryTemplateTests {
+
+    @Test
+    public void testRepeatedPlaceholderShiftsLaterIndexes() throws SQLException {
+
+        Map<String, Integer> repetition = new HashMap<>();
+        repetition.put("user_id", 3);
+
+        NamedQueryTemplate template = NamedQueryTemplate.getTemplate("SELECT * FROM IDM_USER WHERE DOMAIN_ID = " +
+                ":domain_id; AND USER_ID IN (:user_id;) AND STATE = :state;", repetition);
+
+        Assert.assertEquals(template.getSql(), "SELECT * FROM IDM_USER WHERE DOMAIN_ID = ? AND USER_ID IN " +
+                "(?, ?, ?, ?) AND STATE = ?");
+        Assert.assertEquals(template.getIndex("domain_id"), 1);
+        Assert.assertEquals(template.getIndex("user_id"), 2);
+        Assert.assertEquals(template.getParameterCount("user_id"), 4);
+        Assert.assertEquals(template.getIndex("state"), 6);
+    }
+
+    @Test
+    public void testTemplatesAreCachedByShape() throws SQLException {
+
+        String sql = "SELECT * FROM IDM_USER WHERE USER_ID IN (:user_id;)";
+
+        NamedQueryTemplate first = NamedQueryTemplate.getTemplate(sql, Collections.singletonMap("user_id", 2));
+        NamedQueryTemplate second = NamedQueryTemplate.getTemplate(sql, Collections.singletonMap("user_id", 2));
+        NamedQueryTemplate third = NamedQueryTemplate.getTemplate(sql, Collections.singletonMap("user_id", 4));
+
+        Assert.assertSame(first, second);
+        Assert.assertNotSame(first, third);
+        Assert.assertEquals(third.getSql(), "SELECT * FROM IDM_USER WHERE USER_ID IN (?, ?, ?, ?)");
+    }
+
+    @Test
+    public void testRepetitionsInTheSameBucketShareTemplates() throws SQLException {
+
+        String sql = "SELECT * FROM IDM_GROUP WHERE GROUP_ID IN (:group_id;)";
+
+        NamedQueryTemplate fifth = NamedQueryTemplate.getTemplate(sql, Collections.singletonMap("group_id", 5));
+        NamedQueryTemplate eighth = NamedQueryTemplate.getTemplate(sql, Collections.singletonMap("group_id", 8));
+        NamedQueryTemplate ninth = NamedQueryTemplate.getTemplate(sql, Collections.singletonMap("group_id", 9));
+
+        Assert.assertSame(fifth, eighth);
+        Assert.assertNotSame(eighth, ninth);
+        Assert.assertEquals(fifth.getParameterCount("group_id"), 8);
+        Assert.assertEquals(ninth.getParameterCount("group_id"), 16);
+    }
+
+    @Test(expectedExceptions = SQLException.class)
+    public void testUnknownPlaceholder() throws SQLException {
+
+        NamedQueryTemplate.getTemplate("SELECT * FROM IDM_USER WHERE USER_ID = :user_id;", Collections.emptyMap())
+                .getIndex("group_id");
+    }
+
+    @Test(expectedExceptions = SQLException.class)
+    public void testUnterminatedPlaceholder() throws SQLException {
+
+        NamedQueryTemplate.getTemplate("SELECT * FROM IDM_USER WHERE USER_ID = :user_id", Collections.emptyMap());
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.util.test.unit;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.impl.util.OperationScope;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+/**
+ * Operation Scope Tests.
+ */
+public class OperationScopeTests {
+
+    private static final String SELECT_QUERY = "SELECT ID FROM IDM_USER WHERE USER_ID = ?";
+
+    private static final String INSERT_QUERY = "INSERT INTO IDM_USER_GROUP_MAPPING (USER_ID, GROUP_ID, DOMAIN_ID) " +
+            "VALUES (?, ?, ?)";
+
+    @Test
+    public void testConnectionAndStatementsAreSharedWithinScope() throws SQLException {
+
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        Connection connection = Mockito.mock(Connection.class);
+        PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        Mockito.when(connection.getAutoCommit()).thenReturn(true);
+        Mockito.when(connection.prepareStatement(SELECT_QUERY)).thenReturn(preparedStatement);
+
+        try (OperationScope operationScope = OperationScope.begin()) {
+            for (int i = 0; i < 3; i++) {
+                try (OperationScope nestedOperationScope = OperationScope.begin()) {
+                    Connection scopedConnection = OperationScope.getConnection(dataSource);
+                    scopedConnection.prepareStatement(SELECT_QUERY).close();
+                    scopedConnection.close();
+                }
+            }
+            Mockito.verify(connection, Mockito.never()).close();
+        }
+
+        Mockito.verify(dataSource, Mockito.times(1)).getConnection();
+        Mockito.verify(connection, Mockito.times(1)).prepareStatement(SELECT_QUERY);
+        Mockito.verify(preparedStatement, Mockito.times(3)).clearParameters();
+        Mockito.verify(preparedStatement, Mockito.times(1)).close();
+        Mockito.verify(connection, Mockito.times(1)).close();
+    }
+
+    @Test
+    public void testFailedBatchIsNotReplayedByTheNextUnitOfWork() throws SQLException {
+
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        Connection connection = Mockito.mock(Connection.class);
+        PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        Mockito.when(connection.getAutoCommit()).thenReturn(true);
+        Mockito.when(connection.prepareStatement(INSERT_QUERY)).thenReturn(preparedStatement);
+        Mockito.when(preparedStatement.executeBatch()).thenThrow(new SQLException("Duplicate entry."));
+
+        try (OperationScope operationScope = OperationScope.begin()) {
+            Connection scopedConnection = OperationScope.getConnection(dataSource);
+            PreparedStatement scopedStatement = scopedConnection.prepareStatement(INSERT_QUERY);
+            scopedStatement.addBatch();
+            try {
+                scopedStatement.executeBatch();
+                Assert.fail("The batch is expected to fail.");
+            } catch (SQLException e) {
+                scopedStatement.close();
+                scopedConnection.close();
+            }
+            Mockito.verify(preparedStatement, Mockito.times(1)).clearBatch();
+
+            // The next unit of work gets the same statement, without the rows of the failed batch.
+            Connection nextConnection = OperationScope.getConnection(dataSource);
+            nextConnection.prepareStatement(INSERT_QUERY).close();
+            nextConnection.close();
+
+            Mockito.verify(connection, Mockito.times(1)).prepareStatement(INSERT_QUERY);
+            Mockito.verify(preparedStatement, Mockito.times(2)).clearBatch();
+        }
+    }
+
+    @Test
+    public void testOpenResultSetIsClosedWhenStatementIsReleased() throws SQLException {
+
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        Connection connection = Mockito.mock(Connection.class);
+        PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        Mockito.when(connection.getAutoCommit()).thenReturn(true);
+        Mockito.when(connection.prepareStatement(SELECT_QUERY)).thenReturn(preparedStatement);
+        Mockito.when(preparedStatement.executeQuery()).thenReturn(resultSet);
+
+        try (OperationScope operationScope = OperationScope.begin()) {
+            Connection scopedConnection = OperationScope.getConnection(dataSource);
+            scopedConnection.prepareStatement(SELECT_QUERY).executeQuery();
+            // The statement is not closed explicitly, so it is released with the connection.
+            scopedConnection.close();
+
+            Mockito.verify(resultSet, Mockito.times(1)).close();
+            Mockito.verify(preparedStatement, Mockito.never()).close();
+        }
+    }
+
+    @Test
+    public void testUncommittedChangesAreRolledBackAtTheEndOfUnitOfWork() throws SQLException {
+
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        Mockito.when(connection.getAutoCommit()).thenReturn(true, false, false);
+
+        try (OperationScope operationScope = OperationScope.begin()) {
+            Connection scopedConnection = OperationScope.getConnection(dataSource);
+            scopedConnection.setAutoCommit(false);
+            scopedConnection.close();
+
+            Mockito.verify(connection, Mockito.times(1)).rollback();
+            Mockito.verify(connection, Mockito.times(1)).setAutoCommit(true);
+        }
+    }
+
+    @Test
+    public void testWritesAreRecordedWithinScope() {
+
+        DataSource dataSource = Mockito.mock(DataSource.class);
+
+        OperationScope.recordWrite(dataSource);
+        Assert.assertFalse(OperationScope.hasWritten(dataSource));
+
+        try (OperationScope operationScope = OperationScope.begin()) {
+            Assert.assertFalse(OperationScope.hasWritten(dataSource));
+            OperationScope.recordWrite(dataSource);
+            Assert.assertTrue(OperationScope.hasWritten(dataSource));
+        }
+
+        Assert.assertFalse(OperationScope.hasWritten(dataSource));
+    }
+
+    @Test
+    public void testConnectionsAreNotSharedOutsideScope() throws SQLException {
+
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+
+        Assert.assertSame(OperationScope.getConnection(dataSource), connection);
+        Assert.assertSame(OperationScope.getConnection(dataSource), connection);
+        Mockito.verify(dataSource, Mockito.times(2)).getConnection();
+    }
+}
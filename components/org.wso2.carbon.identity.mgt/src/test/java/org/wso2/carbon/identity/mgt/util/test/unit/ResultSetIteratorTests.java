@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.wso2.carbon.identity.mgt.util.test.unit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.impl.util.ResultSetIterator;
+import org.wso2.carbon.identity.mgt.impl.util.UnitOfWork;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Result Set Iterator Tests.
+ */
+public class ResultSetIteratorTests {
+
+    @Test
+    public void testRowsOfAnEntityAreReadTogether() throws SQLException {
+
+        Connection connection = mock(Connection.class);
+        ResultSet resultSet = mockResultSet("user1", "user1", "user2", "user3", "user3");
+
+        List<List<String>> entities = newIterator(connection, resultSet).stream().collect(Collectors.toList());
+
+        Assert.assertEquals(entities, Arrays.asList(Arrays.asList("user1", "user1"), Arrays.asList("user2"),
+                Arrays.asList("user3", "user3")));
+    }
+
+    @Test
+    public void testExhaustedIteratorReleasesTheConnection() throws SQLException {
+
+        Connection connection = mock(Connection.class);
+        ResultSet resultSet = mockResultSet("user1", "user2");
+        ResultSetIterator<List<String>> iterator = newIterator(connection, resultSet);
+
+        iterator.next();
+        verify(connection, never()).close();
+
+        iterator.next();
+        Assert.assertFalse(iterator.hasNext());
+        verify(resultSet).close();
+        verify(connection).close();
+    }
+
+    @Test
+    public void testEarlyTerminationReleasesTheConnection() throws SQLException {
+
+        Connection connection = mock(Connection.class);
+        ResultSet resultSet = mockResultSet("user1", "user1", "user2", "user3");
+
+        Optional<List<String>> first;
+        try (Stream<List<String>> stream = newIterator(connection, resultSet).stream()) {
+            first = stream.findFirst();
+            verify(connection, never()).close();
+        }
+
+        Assert.assertEquals(first.get(), Arrays.asList("user1", "user1"));
+        verify(resultSet).close();
+        verify(connection).close();
+    }
+
+    @Test
+    public void testCloseReleasesTheConnectionOnce() throws SQLException {
+
+        Connection connection = mock(Connection.class);
+        ResultSet resultSet = mockResultSet("user1", "user2");
+        ResultSetIterator<List<String>> iterator = newIterator(connection, resultSet);
+
+        iterator.next();
+        iterator.close();
+        iterator.close();
+
+        Assert.assertFalse(iterator.hasNext());
+        verify(resultSet, times(1)).close();
+        verify(connection, times(1)).close();
+    }
+
+    private static ResultSetIterator<List<String>> newIterator(Connection connection, ResultSet resultSet)
+            throws SQLException {
+
+        return new ResultSetIterator<>(UnitOfWork.beginTransaction(connection, false), resultSet, "USER_ID",
+                key -> new ArrayList<>(), (entity, row) -> entity.add(row.getString("USER_ID")));
+    }
+
+    private static ResultSet mockResultSet(String... keys) throws SQLException {
+
+        ResultSet resultSet = mock(ResultSet.class);
+        AtomicInteger row = new AtomicInteger(-1);
+        when(resultSet.next()).thenAnswer(invocation -> row.incrementAndGet() < keys.length);
+        when(resultSet.getString("USER_ID")).thenAnswer(invocation -> keys[row.get()]);
+        return resultSet;
+    }
+}
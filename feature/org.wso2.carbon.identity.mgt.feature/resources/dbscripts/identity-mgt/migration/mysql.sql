@@ -0,0 +1,55 @@
+--
+-- Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+/* Upgrades an existing identity management database to the current schema. Run it once, before starting the
+ * server with the new version.
+ */
+
+CREATE INDEX IDM_ENTITY_INDEX_7
+  ON IDM_USER (DOMAIN_ID, USER_ID);
+
+CREATE INDEX IDM_ENTITY_INDEX_8
+  ON IDM_GROUP (DOMAIN_ID, GROUP_ID);
+
+CREATE TABLE IF NOT EXISTS IDM_CACHE_INVALIDATION
+(
+  ID           BIGINT AUTO_INCREMENT PRIMARY KEY NOT NULL,
+  NODE_ID      VARCHAR(64)                       NOT NULL,
+  CACHE_NAME   VARCHAR(255)                      NOT NULL,
+  CACHE_KEY    VARCHAR(1024),
+  CREATED_TIME BIGINT                            NOT NULL
+)
+  ENGINE INNODB;
+
+CREATE INDEX IDM_CACHE_INVALIDATION_INDEX_1
+  ON IDM_CACHE_INVALIDATION (CREATED_TIME);
+
+/* Duplicate user group mappings have to be removed before the uniqueness of the mappings can be enforced. The
+ * oldest of the duplicate mappings is kept.
+ */
+DELETE NEWER
+FROM IDM_USER_GROUP_MAPPING NEWER
+  INNER JOIN IDM_USER_GROUP_MAPPING OLDER
+    ON NEWER.DOMAIN_ID = OLDER.DOMAIN_ID
+       AND NEWER.USER_ID = OLDER.USER_ID
+       AND NEWER.GROUP_ID = OLDER.GROUP_ID
+       AND NEWER.ID > OLDER.ID;
+
+CREATE UNIQUE INDEX IDM_USER_GROUP_MAPPING_INDEX_1
+  ON IDM_USER_GROUP_MAPPING (DOMAIN_ID, USER_ID, GROUP_ID);
+
+CREATE INDEX IDM_USER_GROUP_MAPPING_INDEX_2
+  ON IDM_USER_GROUP_MAPPING (DOMAIN_ID, GROUP_ID, USER_ID);
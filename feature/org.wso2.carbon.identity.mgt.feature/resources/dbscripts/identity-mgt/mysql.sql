@@ -31,11 +31,11 @@ CREATE TABLE IF NOT EXISTS IDM_USER
 
 CREATE TABLE IF NOT EXISTS IDM_GROUP
 (
-  ID                INTEGER AUTO_INCREMENT PRIMARY KEY NOT NULL,
-  USER_ID           VARCHAR(64)                        NOT NULL,
-  DOMAIN_ID         INTEGER                            NOT NULL,
-  CONNECTOR_ID      VARCHAR(64)                        NOT NULL,
-  CONNECTOR_USER_ID VARCHAR(64)                        NOT NULL
+  ID                 INTEGER AUTO_INCREMENT PRIMARY KEY NOT NULL,
+  GROUP_ID           VARCHAR(64)                        NOT NULL,
+  DOMAIN_ID          INTEGER                            NOT NULL,
+  CONNECTOR_ID       VARCHAR(64)                        NOT NULL,
+  CONNECTOR_GROUP_ID VARCHAR(64)                        NOT NULL
 )
   ENGINE INNODB;
 
@@ -57,6 +57,12 @@ CREATE INDEX IDM_ENTITY_INDEX_5
 CREATE INDEX IDM_ENTITY_INDEX_6
   ON IDM_GROUP (GROUP_ID);
 
+CREATE INDEX IDM_ENTITY_INDEX_7
+  ON IDM_USER (DOMAIN_ID, USER_ID);
+
+CREATE INDEX IDM_ENTITY_INDEX_8
+  ON IDM_GROUP (DOMAIN_ID, GROUP_ID);
+
 CREATE TABLE IDM_USER_GROUP_MAPPING
 (
   ID        INTEGER AUTO_INCREMENT PRIMARY KEY NOT NULL,
@@ -64,3 +70,23 @@ CREATE TABLE IDM_USER_GROUP_MAPPING
   GROUP_ID  VARCHAR(64)                        NOT NULL,
   DOMAIN_ID INTEGER                            NOT NULL
 )
+  ENGINE INNODB;
+
+CREATE UNIQUE INDEX IDM_USER_GROUP_MAPPING_INDEX_1
+  ON IDM_USER_GROUP_MAPPING (DOMAIN_ID, USER_ID, GROUP_ID);
+
+CREATE INDEX IDM_USER_GROUP_MAPPING_INDEX_2
+  ON IDM_USER_GROUP_MAPPING (DOMAIN_ID, GROUP_ID, USER_ID);
+
+CREATE TABLE IDM_CACHE_INVALIDATION
+(
+  ID           BIGINT AUTO_INCREMENT PRIMARY KEY NOT NULL,
+  NODE_ID      VARCHAR(64)                       NOT NULL,
+  CACHE_NAME   VARCHAR(255)                      NOT NULL,
+  CACHE_KEY    VARCHAR(1024),
+  CREATED_TIME BIGINT                            NOT NULL
+)
+  ENGINE INNODB;
+
+CREATE INDEX IDM_CACHE_INVALIDATION_INDEX_1
+  ON IDM_CACHE_INVALIDATION (CREATED_TIME);